@@ -0,0 +1,68 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+/**
+ * <p>
+ * Argument of a violation message which is formatted only when the message
+ * is. Messages are formatted by the audit listeners, after suppression
+ * filters, so arguments of suppressed violations are never formatted:
+ * </p>
+ * <pre>
+ * final String[] names = getNames(aAST);
+ * log(aAST, MSG_KEY, new LazyMessageArgument() {
+ *     protected String evaluate()
+ *     {
+ *         return Arrays.toString(names);
+ *     }
+ * });
+ * </pre>
+ * <p>
+ * The value is computed at most once. Messages are formatted after the
+ * walker has moved on to other trees, or even other files, so capture the
+ * immutable inputs when logging and keep only pure formatting in
+ * {@link #evaluate()}: it must neither read the tree nor the state of the
+ * check, and should not hold on to either of them.
+ * </p>
+ */
+public abstract class LazyMessageArgument
+{
+    /**
+     * The computed value, null until computed.
+     */
+    private String mValue;
+
+    /**
+     * Computes the value of the argument.
+     * @return the value.
+     */
+    protected abstract String evaluate();
+
+    /**
+     * @return the value of the argument, computed on first call.
+     */
+    @Override
+    public final synchronized String toString()
+    {
+        if (mValue == null) {
+            mValue = String.valueOf(evaluate());
+        }
+        return mValue;
+    }
+}
@@ -0,0 +1,371 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.sevntu.checkstyle.checks.annotation.ForbidAnnotationCheck;
+import com.github.sevntu.checkstyle.checks.coding.AvoidConstantAsFirstOperandInConditionCheck;
+import com.github.sevntu.checkstyle.checks.coding.AvoidDefaultSerializableInInnerClasses;
+import com.github.sevntu.checkstyle.checks.coding.AvoidHidingCauseExceptionCheck;
+import com.github.sevntu.checkstyle.checks.coding.AvoidModifiersForTypesCheck;
+import com.github.sevntu.checkstyle.checks.coding.AvoidNotShortCircuitOperatorsForBooleanCheck;
+import com.github.sevntu.checkstyle.checks.coding.ConfusingConditionCheck;
+import com.github.sevntu.checkstyle.checks.coding.CustomDeclarationOrderCheck;
+import com.github.sevntu.checkstyle.checks.coding.DiamondOperatorForVariableDefinitionCheck;
+import com.github.sevntu.checkstyle.checks.coding.EitherLogOrThrowCheck;
+import com.github.sevntu.checkstyle.checks.coding.FinalizeImplementationCheck;
+import com.github.sevntu.checkstyle.checks.coding.ForbidCCommentsInMethods;
+import com.github.sevntu.checkstyle.checks.coding.ForbidCertainImportsCheck;
+import com.github.sevntu.checkstyle.checks.coding.ForbidInstantiationCheck;
+import com.github.sevntu.checkstyle.checks.coding.ForbidReturnInFinalBlockCheck;
+import com.github.sevntu.checkstyle.checks.coding.ForbidThrowAnonymousExceptionsCheck;
+import com.github.sevntu.checkstyle.checks.coding.IllegalCatchExtendedCheck;
+import com.github.sevntu.checkstyle.checks.coding.LogicConditionNeedOptimizationCheck;
+import com.github.sevntu.checkstyle.checks.coding.MapIterationInForEachLoopCheck;
+import com.github.sevntu.checkstyle.checks.coding.MultipleStringLiteralsExtendedCheck;
+import com.github.sevntu.checkstyle.checks.coding.MultipleVariableDeclarationsExtendedCheck;
+import com.github.sevntu.checkstyle.checks.coding.NoNullForCollectionReturnCheck;
+import com.github.sevntu.checkstyle.checks.coding.OverridableMethodInConstructorCheck;
+import com.github.sevntu.checkstyle.checks.coding.RedundantReturnCheck;
+import com.github.sevntu.checkstyle.checks.coding.ReturnBooleanFromTernary;
+import com.github.sevntu.checkstyle.checks.coding.ReturnCountExtendedCheck;
+import com.github.sevntu.checkstyle.checks.coding.ReturnNullInsteadOfBoolean;
+import com.github.sevntu.checkstyle.checks.coding.SimpleAccessorNameNotationCheck;
+import com.github.sevntu.checkstyle.checks.coding.TernaryPerExpressionCountCheck;
+import com.github.sevntu.checkstyle.checks.coding.UnnecessaryParenthesesExtendedCheck;
+import com.github.sevntu.checkstyle.checks.design.CauseParameterInExceptionCheck;
+import com.github.sevntu.checkstyle.checks.design.ChildBlockLengthCheck;
+import com.github.sevntu.checkstyle.checks.design.ForbidWildcardAsReturnTypeCheck;
+import com.github.sevntu.checkstyle.checks.design.HideUtilityClassConstructorCheck;
+import com.github.sevntu.checkstyle.checks.design.InnerClassCheck;
+import com.github.sevntu.checkstyle.checks.design.NoMainMethodInAbstractClassCheck;
+import com.github.sevntu.checkstyle.checks.design.VariableDeclarationUsageDistanceCheck;
+import com.github.sevntu.checkstyle.checks.naming.AbbreviationAsWordInNameCheck;
+import com.github.sevntu.checkstyle.checks.naming.EnumValueNameCheck;
+import com.github.sevntu.checkstyle.checks.naming.InterfaceTypeParameterNameCheck;
+import com.github.sevntu.checkstyle.checks.sizes.LineLengthExtendedCheck;
+import com.github.sevntu.checkstyle.filters.BaselineFilter;
+import com.github.sevntu.checkstyle.walker.SevntuTreeWalker;
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.PackageNamesLoader;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+
+/**
+ * <p>
+ * Module factory that resolves the sevntu checks from a static registry
+ * instead of probing every package from "checkstyle_packages.xml" with
+ * <code>Class.forName()</code>. Each sevntu check is registered under its
+ * fully qualified class name, its simple class name and (when the simple
+ * name ends with "Check") its short name without that suffix, so all the
+ * names accepted by the default Checkstyle factory keep working.
+ * </p>
+ * <p>
+ * A sevntu check with the same simple name as a Checkstyle module in the
+ * matching Checkstyle package (for example HideUtilityClassConstructorCheck)
+ * is registered under its fully qualified name only. Its short and simple
+ * names are resolved through the packages, in the order the host configured
+ * them, so the sevntu check never shadows the Checkstyle one silently.
+ * </p>
+ * <p>
+ * Any other module (Checker, TreeWalker, standard checks and filters) is
+ * resolved the same way the default Checkstyle factory does it: the name is
+ * tried as is and then prefixed with every known package, with and without
+ * the "Check" suffix.
+ * </p>
+ * <p>
+ * {@link com.github.sevntu.checkstyle.runner.ParallelChecker} creates its
+ * checkers with this factory. Usage example:
+ * </p>
+ * <pre>
+ * final Checker checker = new Checker();
+ * checker.setModuleFactory(new SevntuModuleFactory(classLoader));
+ * checker.configure(configuration);
+ * </pre>
+ * <p>
+ * The registry is verified against the compiled check classes by
+ * SevntuModuleFactoryTest, so a new check that is not registered here fails
+ * the build.
+ * </p>
+ */
+public class SevntuModuleFactory implements ModuleFactory
+{
+    /**
+     * Suffix that may be omitted in the module name.
+     */
+    private static final String CHECK_SUFFIX = "Check";
+
+    /**
+     * Root package of the sevntu modules.
+     */
+    private static final String SEVNTU_PACKAGE = "com.github.sevntu.checkstyle.";
+
+    /**
+     * Root package of the Checkstyle modules, laid out like the sevntu one.
+     */
+    private static final String CHECKSTYLE_PACKAGE =
+            "com.puppycrawl.tools.checkstyle.";
+
+    /**
+     * Registry of all sevntu checks by all the names they may be configured
+     * with.
+     */
+    private static final Map<String, Class<?>> REGISTRY =
+            new HashMap<String, Class<?>>();
+
+    static {
+        register(ForbidAnnotationCheck.class);
+        register(AvoidConstantAsFirstOperandInConditionCheck.class);
+        register(AvoidDefaultSerializableInInnerClasses.class);
+        register(AvoidHidingCauseExceptionCheck.class);
+        register(AvoidModifiersForTypesCheck.class);
+        register(AvoidNotShortCircuitOperatorsForBooleanCheck.class);
+        register(ConfusingConditionCheck.class);
+        register(CustomDeclarationOrderCheck.class);
+        register(DiamondOperatorForVariableDefinitionCheck.class);
+        register(EitherLogOrThrowCheck.class);
+        register(FinalizeImplementationCheck.class);
+        register(ForbidCCommentsInMethods.class);
+        register(ForbidCertainImportsCheck.class);
+        register(ForbidInstantiationCheck.class);
+        register(ForbidReturnInFinalBlockCheck.class);
+        register(ForbidThrowAnonymousExceptionsCheck.class);
+        register(IllegalCatchExtendedCheck.class);
+        register(LogicConditionNeedOptimizationCheck.class);
+        register(MapIterationInForEachLoopCheck.class);
+        register(MultipleStringLiteralsExtendedCheck.class);
+        register(MultipleVariableDeclarationsExtendedCheck.class);
+        register(NoNullForCollectionReturnCheck.class);
+        register(OverridableMethodInConstructorCheck.class);
+        register(RedundantReturnCheck.class);
+        register(ReturnBooleanFromTernary.class);
+        register(ReturnCountExtendedCheck.class);
+        register(ReturnNullInsteadOfBoolean.class);
+        register(SimpleAccessorNameNotationCheck.class);
+        register(TernaryPerExpressionCountCheck.class);
+        register(UnnecessaryParenthesesExtendedCheck.class);
+        register(CauseParameterInExceptionCheck.class);
+        register(ChildBlockLengthCheck.class);
+        register(ForbidWildcardAsReturnTypeCheck.class);
+        register(HideUtilityClassConstructorCheck.class);
+        register(InnerClassCheck.class);
+        register(NoMainMethodInAbstractClassCheck.class);
+        register(VariableDeclarationUsageDistanceCheck.class);
+        register(AbbreviationAsWordInNameCheck.class);
+        register(EnumValueNameCheck.class);
+        register(InterfaceTypeParameterNameCheck.class);
+        register(LineLengthExtendedCheck.class);
+        register(SevntuTreeWalker.class);
+        register(BaselineFilter.class);
+    }
+
+    /**
+     * Packages that are used to resolve modules missing in the registry.
+     */
+    private final Set<String> mPackages;
+
+    /**
+     * Class loader that is used to resolve modules missing in the registry.
+     */
+    private final ClassLoader mModuleClassLoader;
+
+    /**
+     * Creates a factory that resolves modules missing in the registry using
+     * the packages from all "checkstyle_packages.xml" files visible to the
+     * given class loader.
+     * @param aModuleClassLoader
+     *        class loader of the modules.
+     * @throws CheckstyleException
+     *         if package names can not be loaded.
+     */
+    public SevntuModuleFactory(ClassLoader aModuleClassLoader)
+        throws CheckstyleException
+    {
+        this(PackageNamesLoader.getPackageNames(aModuleClassLoader),
+                aModuleClassLoader);
+    }
+
+    /**
+     * Creates a factory that resolves modules missing in the registry using
+     * the given packages.
+     * @param aPackages
+     *        package names to resolve modules missing in the registry.
+     * @param aModuleClassLoader
+     *        class loader of the modules.
+     */
+    public SevntuModuleFactory(Set<String> aPackages,
+            ClassLoader aModuleClassLoader)
+    {
+        if (aModuleClassLoader == null) {
+            throw new IllegalArgumentException(
+                    "aModuleClassLoader must not be null");
+        }
+        mPackages = new LinkedHashSet<String>(aPackages);
+        mModuleClassLoader = aModuleClassLoader;
+    }
+
+    /**
+     * Gets names of all registered sevntu modules.
+     * @return unmodifiable set of names the registered modules may be
+     *         configured with.
+     */
+    public static Set<String> getRegisteredNames()
+    {
+        return Collections.unmodifiableSet(REGISTRY.keySet());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object createModule(String aName) throws CheckstyleException
+    {
+        Object result = null;
+        final Class<?> registered = REGISTRY.get(aName);
+        if (registered != null) {
+            result = instantiate(registered);
+        }
+        else {
+            result = createObject(aName);
+            if (result == null) {
+                result = createObject(aName + CHECK_SUFFIX);
+            }
+        }
+        if (result == null) {
+            throw new CheckstyleException("Unable to instantiate " + aName);
+        }
+        return result;
+    }
+
+    /**
+     * Tries to create an object using the given name as is and prefixed with
+     * every known package.
+     * @param aName
+     *        the class name (fully qualified or not).
+     * @return the created object or null if class could not be found.
+     * @throws CheckstyleException
+     *         if class was found but could not be instantiated.
+     */
+    private Object createObject(String aName) throws CheckstyleException
+    {
+        Class<?> clazz = loadClass(aName);
+        if (clazz == null) {
+            for (String packageName : mPackages) {
+                clazz = loadClass(packageName + aName);
+                if (clazz != null) {
+                    break;
+                }
+            }
+        }
+        return clazz == null ? null : instantiate(clazz);
+    }
+
+    /**
+     * Loads a class by name.
+     * @param aClassName
+     *        fully qualified class name.
+     * @return the class or null if it could not be found.
+     */
+    private Class<?> loadClass(String aClassName)
+    {
+        Class<?> result = null;
+        try {
+            result = Class.forName(aClassName, true, mModuleClassLoader);
+        }
+        catch (final ClassNotFoundException e) {
+            result = null;
+        }
+        catch (final LinkageError e) {
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * Creates a new instance of the module class.
+     * @param aClass
+     *        the module class.
+     * @return the created module.
+     * @throws CheckstyleException
+     *         if module could not be instantiated.
+     */
+    private static Object instantiate(Class<?> aClass)
+        throws CheckstyleException
+    {
+        try {
+            return aClass.newInstance();
+        }
+        catch (final InstantiationException e) {
+            throw new CheckstyleException("Unable to instantiate "
+                    + aClass.getName(), e);
+        }
+        catch (final IllegalAccessException e) {
+            throw new CheckstyleException("Unable to instantiate "
+                    + aClass.getName(), e);
+        }
+    }
+
+    /**
+     * Registers a sevntu check under all names it may be configured with,
+     * or under its fully qualified name only if Checkstyle has a module with
+     * the same simple name.
+     * @param aClass
+     *        the check class.
+     */
+    private static void register(Class<?> aClass)
+    {
+        final String simpleName = aClass.getSimpleName();
+        REGISTRY.put(aClass.getName(), aClass);
+        if (!hasCheckstyleNamesake(aClass)) {
+            REGISTRY.put(simpleName, aClass);
+            if (simpleName.endsWith(CHECK_SUFFIX)) {
+                REGISTRY.put(simpleName.substring(0,
+                        simpleName.length() - CHECK_SUFFIX.length()), aClass);
+            }
+        }
+    }
+
+    /**
+     * Checks whether Checkstyle has a module with the same simple name as a
+     * sevntu module in the matching package.
+     * @param aClass
+     *        the sevntu module class.
+     * @return true if the Checkstyle module exists.
+     */
+    private static boolean hasCheckstyleNamesake(Class<?> aClass)
+    {
+        boolean result = false;
+        final String name = aClass.getName();
+        if (name.startsWith(SEVNTU_PACKAGE)) {
+            try {
+                Class.forName(CHECKSTYLE_PACKAGE
+                        + name.substring(SEVNTU_PACKAGE.length()), false,
+                        ModuleFactory.class.getClassLoader());
+                result = true;
+            }
+            catch (final ClassNotFoundException e) {
+                result = false;
+            }
+        }
+        return result;
+    }
+}
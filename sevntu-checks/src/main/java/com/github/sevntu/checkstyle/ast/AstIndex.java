@@ -0,0 +1,327 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+/**
+ * <p>
+ * Euler tour index of the tree of one file. Every node gets the number it
+ * is entered with in pre-order traversal and the number of the last node of
+ * its subtree, so a node lies in the subtree of another one exactly when its
+ * number falls into the range of the other one. Ancestor and descendant
+ * queries are answered in constant time instead of walking the tree.
+ * </p>
+ * <p>
+ * Tables for the nearest enclosing node of a type and for tokens by text
+ * are built on first use, in a single pass over the index each.
+ * </p>
+ * <p>
+ * The index is built for the root node and all its siblings, which is the
+ * tree given to {@code beginTree} of a check. The tree must not be changed
+ * while the index is used. The index is not thread safe.
+ * </p>
+ */
+public final class AstIndex
+{
+    /**
+     * Number of a node which does not exist.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Nodes by their entry number.
+     */
+    private final DetailAST[] mNodes;
+
+    /**
+     * Entry numbers of the nodes.
+     */
+    private final Map<DetailAST, Integer> mEntries;
+
+    /**
+     * Entry number of the last node of the subtree by entry number of its
+     * root.
+     */
+    private final int[] mExits;
+
+    /**
+     * Entry number of the parent by entry number of a node, {@link #NONE}
+     * for the top-level nodes.
+     */
+    private final int[] mParents;
+
+    /**
+     * Entry number of the nearest enclosing node of a type by entry number
+     * of a node, by token type.
+     */
+    private final Map<Integer, int[]> mEnclosingByType =
+            new HashMap<Integer, int[]>();
+
+    /**
+     * Entry number of the nearest enclosing node with a type from a set by
+     * entry number of a node, by the set of token types.
+     */
+    private final Map<BitSet, int[]> mEnclosingByTypes =
+            new HashMap<BitSet, int[]>();
+
+    /**
+     * Sorted entry numbers of the tokens of a type by their text, by token
+     * type.
+     */
+    private final Map<Integer, Map<String, int[]>> mTokensByText =
+            new HashMap<Integer, Map<String, int[]>>();
+
+    /**
+     * Builds the index of a tree.
+     * @param aRootAST
+     *        the first top-level node of the tree, may be null for an empty
+     *        file.
+     */
+    public AstIndex(DetailAST aRootAST)
+    {
+        final List<DetailAST> nodes = new ArrayList<DetailAST>();
+        for (DetailAST topLevel : DetailAstTraversal.siblings(aRootAST)) {
+            for (DetailAST node : DetailAstTraversal.preOrder(topLevel)) {
+                nodes.add(node);
+            }
+        }
+        final int size = nodes.size();
+        mNodes = nodes.toArray(new DetailAST[size]);
+        mEntries = new IdentityHashMap<DetailAST, Integer>(size);
+        mExits = new int[size];
+        mParents = new int[size];
+        for (int entry = 0; entry < size; entry++) {
+            final DetailAST parent = mNodes[entry].getParent();
+            mEntries.put(mNodes[entry], entry);
+            mParents[entry] = parent == null ? NONE : mEntries.get(parent);
+            mExits[entry] = entry;
+        }
+        // parents precede their children, so the subtree of every node is
+        // complete when it is reached backwards
+        for (int entry = size - 1; entry >= 0; entry--) {
+            final int parent = mParents[entry];
+            if (parent != NONE && mExits[parent] < mExits[entry]) {
+                mExits[parent] = mExits[entry];
+            }
+        }
+    }
+
+    /**
+     * @return number of the indexed nodes.
+     */
+    public int size()
+    {
+        return mNodes.length;
+    }
+
+    /**
+     * Checks whether a node lies in the subtree of another one.
+     * @param aAncestor
+     *        root of the subtree.
+     * @param aNode
+     *        the node.
+     * @return true if the node is a descendant of the ancestor or the
+     *         ancestor itself.
+     */
+    public boolean isInSubtree(DetailAST aAncestor, DetailAST aNode)
+    {
+        final int ancestor = getEntry(aAncestor);
+        final int node = getEntry(aNode);
+        return ancestor <= node && node <= mExits[ancestor];
+    }
+
+    /**
+     * Checks whether a node is a descendant of another one.
+     * @param aAncestor
+     *        the ancestor.
+     * @param aNode
+     *        the node.
+     * @return true if the node lies in the subtree of the ancestor and is
+     *         not the ancestor itself.
+     */
+    public boolean isDescendant(DetailAST aAncestor, DetailAST aNode)
+    {
+        return aAncestor != aNode && isInSubtree(aAncestor, aNode);
+    }
+
+    /**
+     * Gets the nearest node of a type among the node and its ancestors.
+     * @param aNode
+     *        the node.
+     * @param aType
+     *        token type.
+     * @return the enclosing node or null if there is none.
+     */
+    public DetailAST getEnclosing(DetailAST aNode, int aType)
+    {
+        int[] enclosing = mEnclosingByType.get(aType);
+        if (enclosing == null) {
+            final BitSet types = new BitSet();
+            types.set(aType);
+            enclosing = buildEnclosing(types);
+            mEnclosingByType.put(aType, enclosing);
+        }
+        return getNode(enclosing[getEntry(aNode)]);
+    }
+
+    /**
+     * Gets the nearest node with a type from a set among the node and its
+     * ancestors.
+     * @param aNode
+     *        the node.
+     * @param aTypes
+     *        token types.
+     * @return the enclosing node or null if there is none.
+     */
+    public DetailAST getEnclosing(DetailAST aNode, BitSet aTypes)
+    {
+        int[] enclosing = mEnclosingByTypes.get(aTypes);
+        if (enclosing == null) {
+            enclosing = buildEnclosing(aTypes);
+            mEnclosingByTypes.put((BitSet) aTypes.clone(), enclosing);
+        }
+        return getNode(enclosing[getEntry(aNode)]);
+    }
+
+    /**
+     * Checks whether the subtree of a node contains a token of a type with
+     * the given text, not counting the node itself.
+     * @param aAncestor
+     *        root of the subtree.
+     * @param aType
+     *        token type.
+     * @param aText
+     *        text of the token.
+     * @return true if a descendant of the node is such a token.
+     */
+    public boolean containsToken(DetailAST aAncestor, int aType, String aText)
+    {
+        Map<String, int[]> tokens = mTokensByText.get(aType);
+        if (tokens == null) {
+            tokens = buildTokensByText(aType);
+            mTokensByText.put(aType, tokens);
+        }
+        boolean result = false;
+        final int[] entries = tokens.get(aText);
+        if (entries != null) {
+            final int ancestor = getEntry(aAncestor);
+            int position = Arrays.binarySearch(entries, ancestor + 1);
+            if (position < 0) {
+                position = -position - 1;
+            }
+            result = position < entries.length
+                    && entries[position] <= mExits[ancestor];
+        }
+        return result;
+    }
+
+    /**
+     * Gets the entry number of an indexed node.
+     * @param aNode
+     *        the node.
+     * @return entry number.
+     * @throws IllegalArgumentException
+     *         if the node is not in the indexed tree.
+     */
+    private int getEntry(DetailAST aNode)
+    {
+        final Integer result = mEntries.get(aNode);
+        if (result == null) {
+            throw new IllegalArgumentException("Node is not indexed: "
+                    + aNode);
+        }
+        return result;
+    }
+
+    /**
+     * Gets a node by its entry number.
+     * @param aEntry
+     *        entry number or {@link #NONE}.
+     * @return the node or null.
+     */
+    private DetailAST getNode(int aEntry)
+    {
+        return aEntry == NONE ? null : mNodes[aEntry];
+    }
+
+    /**
+     * Builds the table of nearest enclosing nodes with a type from a set.
+     * @param aTypes
+     *        token types.
+     * @return entry numbers of enclosing nodes by entry number of a node.
+     */
+    private int[] buildEnclosing(BitSet aTypes)
+    {
+        final int[] result = new int[mNodes.length];
+        for (int entry = 0; entry < mNodes.length; entry++) {
+            if (aTypes.get(mNodes[entry].getType())) {
+                result[entry] = entry;
+            }
+            else if (mParents[entry] == NONE) {
+                result[entry] = NONE;
+            }
+            else {
+                result[entry] = result[mParents[entry]];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds the table of tokens of a type by their text.
+     * @param aType
+     *        token type.
+     * @return sorted entry numbers of the tokens by text.
+     */
+    private Map<String, int[]> buildTokensByText(int aType)
+    {
+        final Map<String, List<Integer>> entries =
+                new HashMap<String, List<Integer>>();
+        for (int entry = 0; entry < mNodes.length; entry++) {
+            if (mNodes[entry].getType() == aType) {
+                final String text = mNodes[entry].getText();
+                List<Integer> textEntries = entries.get(text);
+                if (textEntries == null) {
+                    textEntries = new ArrayList<Integer>();
+                    entries.put(text, textEntries);
+                }
+                textEntries.add(entry);
+            }
+        }
+        final Map<String, int[]> result = new HashMap<String, int[]>();
+        for (Map.Entry<String, List<Integer>> textEntries : entries.entrySet()) {
+            final List<Integer> list = textEntries.getValue();
+            final int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            result.put(textEntries.getKey(), array);
+        }
+        return result;
+    }
+}
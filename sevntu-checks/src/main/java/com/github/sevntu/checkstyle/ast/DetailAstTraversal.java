@@ -0,0 +1,266 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.ast;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+/**
+ * <p>
+ * Iterative traversal of DetailAST subtrees. Instead of recursion (which
+ * overflows the stack on deeply nested generated code) the parent and
+ * sibling links of the tree are used as the stack, so walking a subtree
+ * neither grows the call stack nor allocates anything per node.
+ * </p>
+ * <p>
+ * The cursor methods walk a subtree node by node:
+ * </p>
+ * <pre>
+ * DetailAST node = aRoot;
+ * while (node != null) {
+ *     if (isInteresting(node)) {
+ *         ...
+ *         // do not go into this node
+ *         node = DetailAstTraversal.nextPreOrderSkipChildren(node, aRoot);
+ *     }
+ *     else {
+ *         node = DetailAstTraversal.nextPreOrder(node, aRoot);
+ *     }
+ * }
+ * </pre>
+ * <p>
+ * The iterables do the same for the for-each loop at the cost of a single
+ * iterator object per walk.
+ * </p>
+ */
+public final class DetailAstTraversal
+{
+    /**
+     * Prevents instantiation.
+     */
+    private DetailAstTraversal()
+    {
+    }
+
+    /**
+     * Gets the node following the current one in pre-order traversal of
+     * the subtree.
+     * @param aCurrent
+     *        the current node, a node of the subtree.
+     * @param aRoot
+     *        root of the subtree.
+     * @return next node or null if the traversal is over.
+     */
+    public static DetailAST nextPreOrder(DetailAST aCurrent, DetailAST aRoot)
+    {
+        DetailAST result = aCurrent.getFirstChild();
+        if (result == null) {
+            result = nextPreOrderSkipChildren(aCurrent, aRoot);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the node following the current one in pre-order traversal of
+     * the subtree, without going into the children of the current node.
+     * @param aCurrent
+     *        the current node, a node of the subtree.
+     * @param aRoot
+     *        root of the subtree.
+     * @return next node or null if the traversal is over.
+     */
+    public static DetailAST nextPreOrderSkipChildren(DetailAST aCurrent,
+            DetailAST aRoot)
+    {
+        DetailAST result = null;
+        DetailAST node = aCurrent;
+        while (result == null && node != null && node != aRoot) {
+            result = node.getNextSibling();
+            node = node.getParent();
+        }
+        return result;
+    }
+
+    /**
+     * Gets the first node of post-order traversal of the subtree.
+     * @param aRoot
+     *        root of the subtree.
+     * @return the leftmost leaf of the subtree.
+     */
+    public static DetailAST firstPostOrder(DetailAST aRoot)
+    {
+        DetailAST result = aRoot;
+        while (result.getFirstChild() != null) {
+            result = result.getFirstChild();
+        }
+        return result;
+    }
+
+    /**
+     * Gets the node following the current one in post-order traversal of
+     * the subtree.
+     * @param aCurrent
+     *        the current node, a node of the subtree.
+     * @param aRoot
+     *        root of the subtree.
+     * @return next node or null if the traversal is over.
+     */
+    public static DetailAST nextPostOrder(DetailAST aCurrent, DetailAST aRoot)
+    {
+        DetailAST result = null;
+        if (aCurrent != aRoot) {
+            final DetailAST sibling = aCurrent.getNextSibling();
+            if (sibling == null) {
+                result = aCurrent.getParent();
+            }
+            else {
+                result = firstPostOrder(sibling);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the subtree in pre-order, root included.
+     * @param aRoot
+     *        root of the subtree.
+     * @return iterable over the subtree nodes.
+     */
+    public static Iterable<DetailAST> preOrder(final DetailAST aRoot)
+    {
+        return new Iterable<DetailAST>() {
+            public Iterator<DetailAST> iterator()
+            {
+                return new AstIterator(aRoot) {
+                    @Override
+                    protected DetailAST next(DetailAST aCurrent)
+                    {
+                        return nextPreOrder(aCurrent, aRoot);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Gets the subtree in post-order, root included.
+     * @param aRoot
+     *        root of the subtree.
+     * @return iterable over the subtree nodes.
+     */
+    public static Iterable<DetailAST> postOrder(final DetailAST aRoot)
+    {
+        return new Iterable<DetailAST>() {
+            public Iterator<DetailAST> iterator()
+            {
+                return new AstIterator(firstPostOrder(aRoot)) {
+                    @Override
+                    protected DetailAST next(DetailAST aCurrent)
+                    {
+                        return nextPostOrder(aCurrent, aRoot);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Gets the direct children of the node.
+     * @param aParent
+     *        the node.
+     * @return iterable over the children.
+     */
+    public static Iterable<DetailAST> children(DetailAST aParent)
+    {
+        return siblings(aParent.getFirstChild());
+    }
+
+    /**
+     * Gets the node and all its next siblings.
+     * @param aFirst
+     *        the first node, may be null.
+     * @return iterable over the siblings.
+     */
+    public static Iterable<DetailAST> siblings(final DetailAST aFirst)
+    {
+        return new Iterable<DetailAST>() {
+            public Iterator<DetailAST> iterator()
+            {
+                return new AstIterator(aFirst) {
+                    @Override
+                    protected DetailAST next(DetailAST aCurrent)
+                    {
+                        return aCurrent.getNextSibling();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Read-only iterator over nodes linked by {@link #next(DetailAST)}.
+     */
+    private abstract static class AstIterator implements Iterator<DetailAST>
+    {
+        /**
+         * Node to be returned next, null if iteration is over.
+         */
+        private DetailAST mNext;
+
+        /**
+         * Creates an iterator.
+         * @param aFirst
+         *        the first node, may be null.
+         */
+        AstIterator(DetailAST aFirst)
+        {
+            mNext = aFirst;
+        }
+
+        /**
+         * Gets the node following the given one.
+         * @param aCurrent
+         *        the node just returned.
+         * @return the next node or null.
+         */
+        protected abstract DetailAST next(DetailAST aCurrent);
+
+        public boolean hasNext()
+        {
+            return mNext != null;
+        }
+
+        public DetailAST next()
+        {
+            if (mNext == null) {
+                throw new NoSuchElementException();
+            }
+            final DetailAST result = mNext;
+            mNext = next(result);
+            return result;
+        }
+
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.ast;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+/**
+ * <p>
+ * Line spans of the blocks of one file. A block is a node whose last child
+ * closes it, like SLIST and its RCURLY; it spans from the line of the node
+ * to the line of its last child. First and last line, the number of lines
+ * between them and the number of non-blank lines between them are computed
+ * once per block and cached.
+ * </p>
+ * <p>
+ * Non-blank lines are counted with prefix sums over the lines of the file,
+ * built on first use, so counting them for a block does not depend on its
+ * size. The cache is not thread safe.
+ * </p>
+ */
+public final class LineSpans
+{
+    /**
+     * Lines of the file.
+     */
+    private final String[] mLines;
+
+    /**
+     * Number of non-blank lines among the first N lines of the file, by N.
+     */
+    private int[] mNonBlankLines;
+
+    /**
+     * Spans of the blocks computed so far.
+     */
+    private final Map<DetailAST, Span> mSpans =
+            new IdentityHashMap<DetailAST, Span>();
+
+    /**
+     * Creates an empty cache for a file.
+     * @param aLines
+     *        lines of the file.
+     */
+    public LineSpans(String[] aLines)
+    {
+        mLines = aLines;
+    }
+
+    /**
+     * Gets the number of lines between two lines, not counting them, the
+     * same way for blocks on one line and on two adjacent lines.
+     * @param aFirstLine
+     *        the first line.
+     * @param aLastLine
+     *        the last line.
+     * @return number of lines between the two lines, 0 if there are none.
+     */
+    public static int getInnerLinesCount(int aFirstLine, int aLastLine)
+    {
+        int result = aLastLine - aFirstLine;
+        if (result != 0) {
+            result--;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the first line of a block.
+     * @param aBlock
+     *        the block.
+     * @return line of the block node.
+     */
+    public int getFirstLine(DetailAST aBlock)
+    {
+        return getSpan(aBlock).mFirstLine;
+    }
+
+    /**
+     * Gets the last line of a block.
+     * @param aBlock
+     *        the block.
+     * @return line of the last child of the block node.
+     */
+    public int getLastLine(DetailAST aBlock)
+    {
+        return getSpan(aBlock).mLastLine;
+    }
+
+    /**
+     * Gets the number of lines inside a block.
+     * @param aBlock
+     *        the block.
+     * @return number of lines between the first and the last line of the
+     *         block.
+     * @see #getInnerLinesCount(int, int)
+     */
+    public int getInnerLinesCount(DetailAST aBlock)
+    {
+        final Span span = getSpan(aBlock);
+        return getInnerLinesCount(span.mFirstLine, span.mLastLine);
+    }
+
+    /**
+     * Gets the number of non-blank lines inside a block.
+     * @param aBlock
+     *        the block.
+     * @return number of non-blank lines between the first and the last line
+     *         of the block.
+     */
+    public int getNonBlankLinesCount(DetailAST aBlock)
+    {
+        final Span span = getSpan(aBlock);
+        if (span.mNonBlankLines < 0) {
+            span.mNonBlankLines = span.mLastLine - span.mFirstLine > 1
+                    ? getNonBlankLinesCount(span.mFirstLine + 1,
+                            span.mLastLine - 1)
+                    : 0;
+        }
+        return span.mNonBlankLines;
+    }
+
+    /**
+     * Gets the number of non-blank lines in a range of lines.
+     * @param aFirstLine
+     *        the first line of the range, 1-based.
+     * @param aLastLine
+     *        the last line of the range, inclusive.
+     * @return number of lines containing something but whitespace.
+     */
+    public int getNonBlankLinesCount(int aFirstLine, int aLastLine)
+    {
+        if (mNonBlankLines == null) {
+            mNonBlankLines = new int[mLines.length + 1];
+            for (int i = 0; i < mLines.length; i++) {
+                mNonBlankLines[i + 1] = mNonBlankLines[i]
+                        + (mLines[i].trim().length() == 0 ? 0 : 1);
+            }
+        }
+        return mNonBlankLines[aLastLine] - mNonBlankLines[aFirstLine - 1];
+    }
+
+    /**
+     * Gets the span of a block, computing it on first request.
+     * @param aBlock
+     *        the block.
+     * @return the span.
+     */
+    private Span getSpan(DetailAST aBlock)
+    {
+        Span result = mSpans.get(aBlock);
+        if (result == null) {
+            final DetailAST last = aBlock.getLastChild();
+            final int firstLine = aBlock.getLineNo();
+            result = new Span(firstLine,
+                    last == null ? firstLine : last.getLineNo());
+            mSpans.put(aBlock, result);
+        }
+        return result;
+    }
+
+    /**
+     * Cached span of a block.
+     */
+    private static final class Span
+    {
+        /**
+         * The first line.
+         */
+        private final int mFirstLine;
+
+        /**
+         * The last line.
+         */
+        private final int mLastLine;
+
+        /**
+         * Number of non-blank lines inside, -1 if not computed yet.
+         */
+        private int mNonBlankLines = -1;
+
+        /**
+         * Creates a span.
+         * @param aFirstLine
+         *        the first line.
+         * @param aLastLine
+         *        the last line.
+         */
+        Span(int aFirstLine, int aLastLine)
+        {
+            mFirstLine = aFirstLine;
+            mLastLine = aLastLine;
+        }
+    }
+}
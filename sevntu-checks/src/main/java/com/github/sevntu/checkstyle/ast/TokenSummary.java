@@ -0,0 +1,266 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.ast;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+/**
+ * <p>
+ * Summary of the tokens of one file: the number of tokens of every type and
+ * a Bloom filter of the identifiers. Checks use it in {@code beginTree} to
+ * skip files which cannot contain a violation, e.g. files without a single
+ * identifier they look for.
+ * </p>
+ * <p>
+ * The summary is computed in one pass over the tree on the first request
+ * and shared by all checks walking the same tree, including checks walking
+ * it on different threads; the summaries of the last few trees are kept.
+ * </p>
+ */
+public final class TokenSummary
+{
+    /**
+     * Number of trees whose summaries are kept.
+     */
+    private static final int CACHE_SIZE = 16;
+
+    /**
+     * Initial size of the table of counts, larger than any token type
+     * known now.
+     */
+    private static final int TYPES_COUNT = 256;
+
+    /**
+     * Bits of the Bloom filter per identifier.
+     */
+    private static final int BITS_PER_IDENT = 10;
+
+    /**
+     * Number of hash functions of the Bloom filter.
+     */
+    private static final int HASHES_COUNT = 3;
+
+    /**
+     * Trees whose summaries are kept, most recent first.
+     */
+    private static final List<CacheEntry> CACHE = new ArrayList<CacheEntry>();
+
+    /**
+     * Number of tokens by type.
+     */
+    private final int[] mCounts;
+
+    /**
+     * Bits of the Bloom filter of identifiers.
+     */
+    private final long[] mIdentBits;
+
+    /**
+     * Computes the summary of a tree.
+     * @param aRootAST
+     *        the first top-level node of the tree, may be null for an empty
+     *        file.
+     */
+    public TokenSummary(DetailAST aRootAST)
+    {
+        int[] counts = new int[TYPES_COUNT];
+        final List<String> idents = new ArrayList<String>();
+        for (DetailAST topLevel : DetailAstTraversal.siblings(aRootAST)) {
+            for (DetailAST node : DetailAstTraversal.preOrder(topLevel)) {
+                final int type = node.getType();
+                if (type >= counts.length) {
+                    counts = Arrays.copyOf(counts, type + 1);
+                }
+                counts[type]++;
+                if (type == TokenTypes.IDENT) {
+                    idents.add(node.getText());
+                }
+            }
+        }
+        mCounts = counts;
+
+        int bitsCount = Long.SIZE;
+        while (bitsCount < idents.size() * BITS_PER_IDENT) {
+            bitsCount <<= 1;
+        }
+        mIdentBits = new long[bitsCount / Long.SIZE];
+        for (String ident : idents) {
+            final int hash = ident.hashCode();
+            final int step = getStep(hash);
+            for (int i = 0; i < HASHES_COUNT; i++) {
+                final int bit = (hash + i * step) & (bitsCount - 1);
+                mIdentBits[bit / Long.SIZE] |= 1L << bit;
+            }
+        }
+    }
+
+    /**
+     * Gets the summary of a tree, computing it if it is not known yet.
+     * @param aRootAST
+     *        the first top-level node of the tree, may be null for an empty
+     *        file.
+     * @return the summary.
+     */
+    public static TokenSummary get(DetailAST aRootAST)
+    {
+        final TokenSummary result;
+        if (aRootAST == null) {
+            result = new TokenSummary(null);
+        }
+        else {
+            CacheEntry entry = null;
+            synchronized (CACHE) {
+                for (int i = 0; i < CACHE.size(); i++) {
+                    if (CACHE.get(i).mRootAST.get() == aRootAST) {
+                        entry = CACHE.remove(i);
+                        break;
+                    }
+                }
+                if (entry == null) {
+                    entry = new CacheEntry(aRootAST);
+                    if (CACHE.size() == CACHE_SIZE) {
+                        CACHE.remove(CACHE_SIZE - 1);
+                    }
+                }
+                CACHE.add(0, entry);
+            }
+            result = entry.getSummary(aRootAST);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of tokens of a type.
+     * @param aType
+     *        token type.
+     * @return number of tokens of the type in the file.
+     */
+    public int getCount(int aType)
+    {
+        return aType < mCounts.length ? mCounts[aType] : 0;
+    }
+
+    /**
+     * Checks whether the file has tokens of a type.
+     * @param aType
+     *        token type.
+     * @return true if the file has at least one token of the type.
+     */
+    public boolean hasToken(int aType)
+    {
+        return getCount(aType) > 0;
+    }
+
+    /**
+     * Checks whether the file may have an identifier. False positives are
+     * possible, false negatives are not.
+     * @param aName
+     *        the identifier.
+     * @return false if the file certainly has no such IDENT token.
+     */
+    public boolean mayHaveIdent(String aName)
+    {
+        final int bitsCount = mIdentBits.length * Long.SIZE;
+        final int hash = aName.hashCode();
+        final int step = getStep(hash);
+        boolean result = true;
+        for (int i = 0; result && i < HASHES_COUNT; i++) {
+            final int bit = (hash + i * step) & (bitsCount - 1);
+            result = (mIdentBits[bit / Long.SIZE] & (1L << bit)) != 0;
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the file may have one of the identifiers.
+     * @param aNames
+     *        the identifiers.
+     * @return false if the file certainly has none of them.
+     */
+    public boolean mayHaveAnyIdent(Iterable<String> aNames)
+    {
+        boolean result = false;
+        for (String name : aNames) {
+            if (mayHaveIdent(name)) {
+                result = true;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the step of double hashing, independent of the low bits of the
+     * hash used for the first probe.
+     * @param aHash
+     *        hash code of the identifier.
+     * @return an odd step.
+     */
+    private static int getStep(int aHash)
+    {
+        return Integer.reverse(aHash) | 1;
+    }
+
+    /**
+     * Summary of a tree in the cache, computed once by the first thread
+     * which needs it.
+     */
+    private static final class CacheEntry
+    {
+        /**
+         * The tree.
+         */
+        private final WeakReference<DetailAST> mRootAST;
+
+        /**
+         * The summary, null until computed.
+         */
+        private TokenSummary mSummary;
+
+        /**
+         * Creates an entry.
+         * @param aRootAST
+         *        the tree.
+         */
+        CacheEntry(DetailAST aRootAST)
+        {
+            mRootAST = new WeakReference<DetailAST>(aRootAST);
+        }
+
+        /**
+         * Gets the summary, computing it on first request.
+         * @param aRootAST
+         *        the tree, the same as the one of the entry.
+         * @return the summary of the tree.
+         */
+        synchronized TokenSummary getSummary(DetailAST aRootAST)
+        {
+            if (mSummary == null) {
+                mSummary = new TokenSummary(aRootAST);
+            }
+            return mSummary;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
+import com.github.sevntu.checkstyle.ast.TokenSummary;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
@@ -54,6 +55,11 @@ public class ForbidAnnotationCheck extends Check
      * mAnnotationTargets is array of type forbidden annotation's target.
      */
     private int[] mAnnotationTargets = new int[0];
+    /**
+     * mSkipFile is true if the current file has no forbidden annotations
+     * for sure.
+     */
+    private boolean mSkipFile;
     /**
      * setAnnotationNames is a setter for mAnnotationNames.
      * @param aNames - array of annotation's names
@@ -88,9 +94,20 @@ public class ForbidAnnotationCheck extends Check
         return new int[] {TokenTypes.ANNOTATION };
     }
 
+    @Override
+    public void beginTree(DetailAST aRootAST)
+    {
+        final TokenSummary summary = TokenSummary.get(aRootAST);
+        mSkipFile = !summary.hasToken(TokenTypes.ANNOTATION)
+                || !summary.mayHaveAnyIdent(mAnnotationNames);
+    }
+
     @Override
     public void visitToken(DetailAST aAnnotation)
     {
+        if (mSkipFile) {
+            return;
+        }
 
         final String annotationName = getAnnotationName(aAnnotation);
         // first parent - 'MODIFIERS', second parent - annotation's target
@@ -18,9 +18,11 @@
 ////////////////////////////////////////////////////////////////////////////////
 package com.github.sevntu.checkstyle.checks.coding;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
+import com.github.sevntu.checkstyle.ast.DetailAstTraversal;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
 import com.puppycrawl.tools.checkstyle.api.Check;
@@ -84,7 +86,7 @@ public class AvoidHidingCauseExceptionCheck extends Check
                 .findFirstToken(TokenTypes.PARAMETER_DEF).getLastChild()
                 .getText();
         
-        LinkedList<DetailAST> throwList = makeThrowList(aDetailAST);
+        List<DetailAST> throwList = makeThrowList(aDetailAST);
         
         LinkedList<String> wrapExcNames = new LinkedList<String>();
         wrapExcNames.add(originExcName);
@@ -168,24 +170,27 @@ public class AvoidHidingCauseExceptionCheck extends Check
      * </code> searching.
      * @return list of throw literals
      */
-    private LinkedList<DetailAST> makeThrowList(DetailAST aParentAST)
+    private List<DetailAST> makeThrowList(DetailAST aParentAST)
     {
-
-        LinkedList<DetailAST> throwList = new LinkedList<DetailAST>();    
-        for (DetailAST currentNode : getChildNodes(aParentAST)) {
-
-            if (currentNode.getType() == TokenTypes.LITERAL_THROW) {
+        final List<DetailAST> throwList = new ArrayList<DetailAST>();
+        DetailAST currentNode = aParentAST.getFirstChild();
+        while (currentNode != null) {
+            final int type = currentNode.getType();
+            if (type == TokenTypes.LITERAL_THROW) {
                 throwList.add(currentNode);
             }
 
-            if (currentNode.getType() != TokenTypes.PARAMETER_DEF
-                    && currentNode.getType() != TokenTypes.LITERAL_THROW
-                    && currentNode.getType() != TokenTypes.LITERAL_TRY
-                    && currentNode.getNumberOfChildren() > 0)
+            if (type != TokenTypes.PARAMETER_DEF
+                    && type != TokenTypes.LITERAL_THROW
+                    && type != TokenTypes.LITERAL_TRY)
             {
-                throwList.addAll(makeThrowList(currentNode));
+                currentNode = DetailAstTraversal.nextPreOrder(currentNode,
+                        aParentAST);
+            }
+            else {
+                currentNode = DetailAstTraversal.nextPreOrderSkipChildren(
+                        currentNode, aParentAST);
             }
-
         }
         return throwList;
     }
@@ -18,6 +18,12 @@
 ////////////////////////////////////////////////////////////////////////////////
 package com.github.sevntu.checkstyle.checks.coding;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.sevntu.checkstyle.ast.LineSpans;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
@@ -74,12 +80,36 @@ public class ConfusingConditionCheck extends Check {
 	 */
 	private static final int MULTIPLY_FACTOR_FOR_ELSE_BLOCK = 4;
 
+	/**
+	 * Tokens counted in the "if" expression: the negative symbols followed by the
+	 * comparison operators.
+	 */
+	private static final int[] COUNTED_TOKENS = { TokenTypes.LNOT,
+			TokenTypes.NOT_EQUAL, TokenTypes.LAND, TokenTypes.LOR, };
+
+	/**
+	 * Number of the negative symbols at the beginning of {@link #COUNTED_TOKENS}.
+	 */
+	private static final int NEGATIVE_SYMBOLS_COUNT = 2;
+
 	/**
 	 * Allow to ignore "else" block if its length is in
 	 * "multiplyFactorForElseBlocks" time less then "if" block.
 	 */
 	private static int multiplyFactorForElseBlocks = MULTIPLY_FACTOR_FOR_ELSE_BLOCK;
 
+	/**
+	 * Line spans of the blocks of the current file.
+	 */
+	private LineSpans lineSpans;
+
+	/**
+	 * Analyses of the "if" statements of the current file which are not visited yet. They
+	 * are made for the whole "if-else-if" chain when its first "if" is visited.
+	 */
+	private final Map<DetailAST, IfAnalysis> ifAnalyses =
+			new IdentityHashMap<DetailAST, IfAnalysis>();
+
 	/**
 	 * Disable warnings for all "if" that follows the "else". It is useful for
 	 * save similarity with all "if-then-else" statement.
@@ -151,6 +181,12 @@ public class ConfusingConditionCheck extends Check {
 		multiplyFactorForElseBlocks = aMultiplyFactorForElseBlocks;
 	}
 
+	@Override
+	public void beginTree(DetailAST aRootAST) {
+		lineSpans = new LineSpans(getLines());
+		ifAnalyses.clear();
+	}
+
 	@Override
 	public int[] getDefaultTokens() {
 		return new int[] { TokenTypes.LITERAL_IF };
@@ -158,10 +194,15 @@ public class ConfusingConditionCheck extends Check {
 
 	@Override
 	public void visitToken(DetailAST aIf) {
-		if (isIfEndsWithElse(aIf)
-				&& !(ignoreSequentialIf && isSequentialIf(aIf))
-				&& !(ignoreInnerIf && isInnerIf(aIf))
-				&& !(ignoreThrowInElse && isElseWithThrow(aIf))) {
+		IfAnalysis analysis = ifAnalyses.remove(aIf);
+		if (analysis == null) {
+			analyzeChain(aIf);
+			analysis = ifAnalyses.remove(aIf);
+		}
+		if (analysis.endsWithElse
+				&& !(ignoreSequentialIf && analysis.sequentialIf)
+				&& !(ignoreInnerIf && analysis.innerIf)
+				&& !(ignoreThrowInElse && analysis.elseWithThrow)) {
 			if (isRatioBetweenIfAndElseBlockSuitable(aIf)
 					&& !(ignoreNullCaseInIf && isIfWithNull(aIf))
 					&& isConditionAllNegative(aIf)) {
@@ -171,55 +212,50 @@ public class ConfusingConditionCheck extends Check {
 	}
 
 	/**
-	 * If ELSE following the IF block.
-	 * 
-	 * @param aLastChildAfterIf
-	 * @return
-	 */
-	private static boolean isIfEndsWithElse(DetailAST aIf) {
-		final DetailAST aLastChildAfterIf = aIf.getLastChild();
-		return aLastChildAfterIf.getType() == TokenTypes.LITERAL_ELSE;
-	}
-
-	/**
-	 * Check the sequential IF or not.
+	 * Analyses the "if" statements of an "if-else-if" chain from the given one to the last
+	 * one. The chain is analysed from its end, so whether the "else" block contains THROW is
+	 * known for each "if" from the parts of the following ones and no part is searched twice.
 	 * 
 	 * @param aIf
-	 * @param ignoreSequentialIf
-	 * @return
+	 *            the first "if" to analyse.
 	 */
-	private static boolean isSequentialIf(DetailAST aIf) {
-		final DetailAST aLastChildAfterIf = aIf.getLastChild();
-		final boolean isSequentialIf = aLastChildAfterIf.getFirstChild()
-				.getType() == (TokenTypes.LITERAL_IF);
-		return isSequentialIf;
-	}
-
-	/**
-	 * Check the inner IF or not.
-	 * 
-	 * @param aIf
-	 * @param ignoreInnerIf
-	 * @return
-	 */
-	private static boolean isInnerIf(DetailAST aIf) {
-		final DetailAST aChildIf = aIf.getFirstChild().getNextSibling()
-				.getNextSibling().getNextSibling();
-		return aChildIf.branchContains(TokenTypes.LITERAL_IF);
-	}
+	private void analyzeChain(DetailAST aIf) {
+		final List<DetailAST> chain = new ArrayList<DetailAST>();
+		DetailAST curIf = aIf;
+		while (curIf != null) {
+			chain.add(curIf);
+			final DetailAST aLastChildAfterIf = curIf.getLastChild();
+			curIf = null;
+			if (aLastChildAfterIf.getType() == TokenTypes.LITERAL_ELSE
+					&& aLastChildAfterIf.getFirstChild().getType() == TokenTypes.LITERAL_IF) {
+				curIf = aLastChildAfterIf.getFirstChild();
+			}
+		}
 
-	/**
-	 * Check IF - ELSE or not that contained THROW in the expression in a block
-	 * ELSE.
-	 * 
-	 * @param aIf
-	 * @param ignoreThrowInElse
-	 * @return
-	 */
-	private static boolean isElseWithThrow(DetailAST aIf) {
-		final DetailAST aLastChildAfterIf = aIf.getLastChild();
-		return aLastChildAfterIf.getFirstChild().branchContains(
-				TokenTypes.LITERAL_THROW);
+		// whether the "if" after the current one contains THROW
+		boolean throwInNextIf = false;
+		for (int i = chain.size() - 1; i >= 0; i--) {
+			final DetailAST ifNode = chain.get(i);
+			final DetailAST aLastChildAfterIf = ifNode.getLastChild();
+			final DetailAST aChildIf = ifNode.getFirstChild().getNextSibling()
+					.getNextSibling().getNextSibling();
+			final IfAnalysis analysis = new IfAnalysis();
+			analysis.endsWithElse = aLastChildAfterIf.getType() == TokenTypes.LITERAL_ELSE;
+			analysis.sequentialIf = analysis.endsWithElse
+					&& aLastChildAfterIf.getFirstChild().getType() == TokenTypes.LITERAL_IF;
+			analysis.innerIf = aChildIf.branchContains(TokenTypes.LITERAL_IF);
+			if (analysis.sequentialIf) {
+				analysis.elseWithThrow = throwInNextIf;
+			} else if (analysis.endsWithElse) {
+				analysis.elseWithThrow = aLastChildAfterIf.getFirstChild().branchContains(
+						TokenTypes.LITERAL_THROW);
+			}
+			throwInNextIf = analysis.elseWithThrow
+					|| aChildIf.branchContains(TokenTypes.LITERAL_THROW)
+					|| ifNode.getFirstChild().getNextSibling()
+							.branchContains(TokenTypes.LITERAL_THROW);
+			ifAnalyses.put(ifNode, analysis);
+		}
 	}
 
 	/**
@@ -229,7 +265,7 @@ public class ConfusingConditionCheck extends Check {
 	 * @param aIf
 	 * @return If the condition is met (true) |Isn't men (false).
 	 */
-	private static boolean isRatioBetweenIfAndElseBlockSuitable(DetailAST aIf) {
+	private boolean isRatioBetweenIfAndElseBlockSuitable(DetailAST aIf) {
 		boolean result = true;
 
 		final DetailAST aLastChildAfterIf = aIf.getLastChild();
@@ -248,7 +284,7 @@ public class ConfusingConditionCheck extends Check {
 	 *            aDetailAST.
 	 * @return linesOfCodeInIfBlock line of code in block.
 	 */
-	private static int getAmounOfCodeRowsInBlock(DetailAST aDetailAST) {
+	private int getAmounOfCodeRowsInBlock(DetailAST aDetailAST) {
 		DetailAST firstBrace = null;
 		if (aDetailAST.getType() == TokenTypes.LITERAL_ELSE) {
 			firstBrace = aDetailAST.getFirstChild();
@@ -256,14 +292,8 @@ public class ConfusingConditionCheck extends Check {
 			firstBrace = aDetailAST.getFirstChild().getNextSibling()
 					.getNextSibling().getNextSibling();
 		}
-		DetailAST lastBrace = firstBrace.getLastChild();
-		int linesOfCodeInIfBlock = lastBrace.getLineNo()
-				- firstBrace.getLineNo();
 		// If the closing brace on a separate line - ignore this line.
-		if (lastBrace.getLineNo() != lastBrace.getParent().getLineNo()) {
-			linesOfCodeInIfBlock -= 1;
-		}
-		return linesOfCodeInIfBlock;
+		return lineSpans.getInnerLinesCount(firstBrace);
 	}
 
 	/**
@@ -277,18 +307,21 @@ public class ConfusingConditionCheck extends Check {
 		boolean result = false;
 
 		final DetailAST aIfExpr = aIf.getFirstChild().getNextSibling();
-		final int countOfLnot = getCountOfToken(aIfExpr, TokenTypes.LNOT);
-		final int countOfNotequal = getCountOfToken(aIfExpr,
-				TokenTypes.NOT_EQUAL);
-		int countOfNegativeSymbolInIf = countOfLnot + countOfNotequal;
-		if (countOfNegativeSymbolInIf > 0) {
-			final int countOfLand = getCountOfToken(aIfExpr, TokenTypes.LAND);
-			final int countOfLor = getCountOfToken(aIfExpr, TokenTypes.LOR);
-			int countOfComparisonOperators = countOfLand + countOfLor;
-			if (countOfNegativeSymbolInIf - countOfComparisonOperators == 1) {
-				result = true;
+		final int[] counts = new int[COUNTED_TOKENS.length];
+		countTokens(aIfExpr, (1 << COUNTED_TOKENS.length) - 1, counts);
+		int countOfNegativeSymbolInIf = 0;
+		int countOfComparisonOperators = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (i < NEGATIVE_SYMBOLS_COUNT) {
+				countOfNegativeSymbolInIf += counts[i];
+			} else {
+				countOfComparisonOperators += counts[i];
 			}
 		}
+		if (countOfNegativeSymbolInIf > 0
+				&& countOfNegativeSymbolInIf - countOfComparisonOperators == 1) {
+			result = true;
+		}
 		return result;
 	}
 
@@ -306,30 +339,70 @@ public class ConfusingConditionCheck extends Check {
 	}
 
 	/**
-	 * Recursive method which counts a tokens of the provided type in detAst
-	 * tree.
+	 * Recursive method which counts the tokens of {@link #COUNTED_TOKENS} in one walk of
+	 * detAst tree. A token type is counted among the given node, its next siblings, their
+	 * children and, level by level, the nodes below them, as long as the first node of the
+	 * level contains it.
 	 * 
-	 * @param DetailAST
-	 *            detAst a tree for "atype" tokens searching.
-	 * @param aType
-	 *            a TokenType
+	 * @param detAst
+	 *            the first node of a level.
+	 * @param aMask
+	 *            bits of the indexes of the token types in {@link #COUNTED_TOKENS} which
+	 *            are counted on this level.
+	 * @param aCounts
+	 *            counts of the tokens by index in {@link #COUNTED_TOKENS}.
 	 */
-	private static int getCountOfToken(DetailAST detAst, int atype) {
-		int count = 0;
-		if (detAst.branchContains(atype)) {
-			while (detAst != null) {
-				count += detAst.getChildCount(atype);
-				final DetailAST detAstChild = detAst.getFirstChild();
-				if (detAstChild == null) {
-					detAst = detAst.getNextSibling();
-				} else {
-					count += getCountOfToken(detAstChild, atype);
-					detAst = detAst.getNextSibling();
+	private static void countTokens(DetailAST detAst, int aMask, int[] aCounts) {
+		int mask = 0;
+		for (int i = 0; i < COUNTED_TOKENS.length; i++) {
+			if ((aMask & (1 << i)) != 0 && detAst.branchContains(COUNTED_TOKENS[i])) {
+				mask |= 1 << i;
+			}
+		}
+		if (mask != 0) {
+			DetailAST curNode = detAst;
+			while (curNode != null) {
+				final DetailAST detAstChild = curNode.getFirstChild();
+				for (DetailAST child = detAstChild; child != null; child = child
+						.getNextSibling()) {
+					for (int i = 0; i < COUNTED_TOKENS.length; i++) {
+						if ((mask & (1 << i)) != 0
+								&& child.getType() == COUNTED_TOKENS[i]) {
+							aCounts[i]++;
+						}
+					}
 				}
-
+				if (detAstChild != null) {
+					countTokens(detAstChild, mask, aCounts);
+				}
+				curNode = curNode.getNextSibling();
 			}
 		}
-		return count;
+	}
+
+	/**
+	 * Results of the analysis of an "if" statement which do not depend on its lines.
+	 */
+	private static final class IfAnalysis {
+		/**
+		 * Whether ELSE follows the IF block.
+		 */
+		private boolean endsWithElse;
+
+		/**
+		 * Whether the ELSE block is the next "if" of the chain.
+		 */
+		private boolean sequentialIf;
+
+		/**
+		 * Whether the IF block contains an inner "if".
+		 */
+		private boolean innerIf;
+
+		/**
+		 * Whether the ELSE block contains THROW.
+		 */
+		private boolean elseWithThrow;
 	}
 
 }
@@ -20,14 +20,18 @@ package com.github.sevntu.checkstyle.checks.coding;
 
 import java.beans.Introspector;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -200,6 +204,9 @@ public class CustomDeclarationOrderCheck extends Check
             + "MainMethod(.*) ### GetterSetter(.*) ### Method(.*) ### InnerClass(.*) "
             + "### InnerInterface(.*) ### InnerEnum(.*)";
 
+    /** Positions of the rules for the class members without rules. */
+    private static final int[] NO_POSITIONS = {};
+
     /**
      * Compares line numbers.
      */
@@ -216,6 +223,12 @@ public class CustomDeclarationOrderCheck extends Check
     private final List<FormatMatcher> mCustomOrderDeclaration =
         new ArrayList<FormatMatcher>();
 
+    /**
+     * Positions of the rules in {@link #mCustomOrderDeclaration} by the token
+     * type of the class member they are for.
+     */
+    private int[][] mPositionsByTokenType = {};
+
     /** save compile flags for further usage */
     private int mCompileFlags;
 
@@ -267,6 +280,36 @@ public class CustomDeclarationOrderCheck extends Check
                         + currentState, exp);
             }
         }
+        updatePositionsByTokenType();
+    }
+
+    /**
+     * Buckets positions of the rules by the token type of the class member
+     * they are for.
+     */
+    private void updatePositionsByTokenType()
+    {
+        int maxTokenType = 0;
+        for (FormatMatcher currentRule : mCustomOrderDeclaration) {
+            maxTokenType = Math.max(maxTokenType, currentRule.getClassMember());
+        }
+        final int[] counts = new int[maxTokenType + 1];
+        for (FormatMatcher currentRule : mCustomOrderDeclaration) {
+            counts[currentRule.getClassMember()]++;
+        }
+        mPositionsByTokenType = new int[maxTokenType + 1][];
+        Arrays.fill(mPositionsByTokenType, NO_POSITIONS);
+        for (int index = 0; index < mCustomOrderDeclaration.size(); index++) {
+            final int tokenType =
+                    mCustomOrderDeclaration.get(index).getClassMember();
+            int[] positions = mPositionsByTokenType[tokenType];
+            if (positions == NO_POSITIONS) {
+                positions = new int[counts[tokenType]];
+                mPositionsByTokenType[tokenType] = positions;
+                counts[tokenType] = 0;
+            }
+            positions[counts[tokenType]++] = index;
+        }
     }
 
     /**
@@ -561,17 +604,17 @@ public class CustomDeclarationOrderCheck extends Check
         if (aMethodDefAst.getType() == TokenTypes.METHOD_DEF) {
             final String methodName = getIdentifier(aMethodDefAst);
             if (isGetterName(methodName)) {
-                if (isGetterCorrect(aMethodDefAst, GETTER_PREFIX)) {
+                if (isGetterCorrect(aMethodDefAst, methodName, GETTER_PREFIX)) {
                     mClassDetails.peek().addGetter(aMethodDefAst);
                 }
             }
             else if (isBooleanGetterName(methodName)) {
-                if (isGetterCorrect(aMethodDefAst, BOOLEAN_GETTER_PREFIX)) {
+                if (isGetterCorrect(aMethodDefAst, methodName, BOOLEAN_GETTER_PREFIX)) {
                     mClassDetails.peek().addGetter(aMethodDefAst);
                 }
             }
             else if (isSetterName(methodName)
-                    && isSetterCorrect(aMethodDefAst, SETTER_PREFIX))
+                    && isSetterCorrect(aMethodDefAst, methodName, SETTER_PREFIX))
             {
                 mClassDetails.peek().addSetter(aMethodDefAst);
             }
@@ -589,12 +632,12 @@ public class CustomDeclarationOrderCheck extends Check
     private int getPositionInOrderDeclaration(final DetailAST aAST)
     {
         int result = -1;
-        final String modifiers = getCombinedModifiersList(aAST);
-        for (int index = 0; index < mCustomOrderDeclaration.size(); index++) {
+        final int[] positions = aAST.getType() < mPositionsByTokenType.length
+                ? mPositionsByTokenType[aAST.getType()] : NO_POSITIONS;
+        final MemberDeclaration declaration = new MemberDeclaration(aAST);
+        for (int index : positions) {
             final FormatMatcher currentRule = mCustomOrderDeclaration.get(index);
-            if (currentRule.getClassMember() == aAST.getType()
-                    && currentRule.getRegexp().matcher(modifiers).find())
-            {
+            if (currentRule.matches(declaration)) {
                 if (currentRule.hasRule(ANNON_CLASS_FIELD_MACRO)) {
                     if (isAnonymousClassField(aAST)) {
                         result = index;
@@ -695,16 +738,18 @@ public class CustomDeclarationOrderCheck extends Check
      * returns class field and has name 'get<i>FieldName</i>'.
      * @param aMethodDef
      *        - DetailAST contains method definition.
+     * @param aMethodName
+     *          Name of the method.
      * @param aMethodPrefix
      *          Prefix for method (get, set, is).
      * @return true when getter is correct.
      */
-    private boolean isGetterCorrect(DetailAST aMethodDef, String aMethodPrefix)
+    private boolean isGetterCorrect(DetailAST aMethodDef, String aMethodName,
+            String aMethodPrefix)
     {
         boolean result = false;
 
-        final String methodName = getIdentifier(aMethodDef);
-        final String methodNameWithoutPrefix = getNameWithoutPrefix(methodName, aMethodPrefix);
+        final String methodNameWithoutPrefix = getNameWithoutPrefix(aMethodName, aMethodPrefix);
 
         final DetailAST parameters = aMethodDef.findFirstToken(TokenTypes.PARAMETERS);
 
@@ -751,17 +796,19 @@ public class CustomDeclarationOrderCheck extends Check
      * assigns this parameter to class field and has name 'set<i>FieldName</i>'.
      * @param aMethodDefAst
      *        - DetailAST contains method definition.
+     * @param aMethodName
+     *          Name of the method.
      * @param aMethodPrefix
      *          Prefix for method (get, set, is).
      * @return true when setter is correct.
      */
-    private boolean isSetterCorrect(DetailAST aMethodDefAst, String aMethodPrefix)
+    private boolean isSetterCorrect(DetailAST aMethodDefAst, String aMethodName,
+            String aMethodPrefix)
     {
         boolean result = false;
 
-        final String methodName = getIdentifier(aMethodDefAst);
         final String setterFieldName = mFieldPrefix
-                + getNameWithoutPrefix(methodName, aMethodPrefix);
+                + getNameWithoutPrefix(aMethodName, aMethodPrefix);
 
         final DetailAST methodTypeAst = aMethodDefAst.findFirstToken(TokenTypes.TYPE);
 
@@ -832,29 +879,66 @@ public class CustomDeclarationOrderCheck extends Check
      */
     private static String getModifiersAsText(final DetailAST aAST)
     {
-        DetailAST ast = aAST;
-        String separator = "";
-        final StringBuffer modifiers = new StringBuffer();
+        // Explicit stack of the levels being walked: the text collected on
+        // each level, its separator and the next node to add to it.
+        final List<StringBuilder> texts = new ArrayList<StringBuilder>();
+        final List<String> separators = new ArrayList<String>();
+        final List<DetailAST> nextNodes = new ArrayList<DetailAST>();
+        texts.add(new StringBuilder());
+        separators.add(getModifiersSeparator(aAST));
+        nextNodes.add(aAST);
 
-        if (ast.getParent().getType() == TokenTypes.MODIFIERS) {
-            // add separator between access modifiers and annotations
-            separator = " ";
-        }
-        while (ast != null) {
-            if (ast.getFirstChild() != null) {
-                modifiers.append(getModifiersAsText(ast.getFirstChild()));
+        String result = null;
+        while (result == null) {
+            final int top = nextNodes.size() - 1;
+            final DetailAST ast = nextNodes.get(top);
+            if (ast == null) {
+                final String text = texts.remove(top).toString().trim();
+                separators.remove(top);
+                nextNodes.remove(top);
+                if (top == 0) {
+                    result = text;
+                }
+                else {
+                    texts.get(top - 1).append(text)
+                        .append(separators.get(top - 1));
+                }
             }
             else {
-                if (ast.getType() == TokenTypes.RBRACK) {
-                    //if array
-                    modifiers.append("[");
+                nextNodes.set(top, ast.getNextSibling());
+                if (ast.getFirstChild() != null) {
+                    texts.add(new StringBuilder());
+                    separators.add(getModifiersSeparator(ast.getFirstChild()));
+                    nextNodes.add(ast.getFirstChild());
+                }
+                else {
+                    final StringBuilder modifiers = texts.get(top);
+                    if (ast.getType() == TokenTypes.RBRACK) {
+                        //if array
+                        modifiers.append("[");
+                    }
+                    modifiers.append(ast.getText()).append(separators.get(top));
                 }
-                modifiers.append(ast.getText());
             }
-            modifiers.append(separator);
-            ast = ast.getNextSibling();
         }
-        return modifiers.toString().trim();
+        return result;
+    }
+
+    /**
+     * Gets separator of the text of the nodes on one level of MODIFIERS node.
+     *
+     * @param aAST first node of the level.
+     * @return separator between access modifiers and annotations if the
+     *         level is children of MODIFIERS node, empty string otherwise.
+     */
+    private static String getModifiersSeparator(final DetailAST aAST)
+    {
+        String separator = "";
+        if (aAST.getParent().getType() == TokenTypes.MODIFIERS) {
+            // add separator between access modifiers and annotations
+            separator = " ";
+        }
+        return separator;
     }
 
     /**
@@ -1193,12 +1277,87 @@ public class CustomDeclarationOrderCheck extends Check
     }
 
     /**
-     * private class for members of class and their patterns.
+     * Verify that a part of the text is equal to the literal. Unlike
+     * {@link String#regionMatches(boolean, int, String, int, int)} ignores
+     * case the way {@link Pattern#CASE_INSENSITIVE} does, only for US-ASCII
+     * characters.
+     * @param aText text.
+     * @param aOffset start of the part in the text.
+     * @param aLiteral literal of US-ASCII characters.
+     * @param aIgnoreCase whether case is ignored.
+     * @return true if the part of the text is equal to the literal.
+     */
+    private static boolean regionMatches(String aText, int aOffset,
+            String aLiteral, boolean aIgnoreCase)
+    {
+        boolean result = aOffset + aLiteral.length() <= aText.length();
+        for (int i = 0; result && i < aLiteral.length(); i++) {
+            final char textChar = aText.charAt(aOffset + i);
+            final char literalChar = aLiteral.charAt(i);
+            result = textChar == literalChar
+                    || aIgnoreCase && toLowerCaseAscii(textChar)
+                        == toLowerCaseAscii(literalChar);
+        }
+        return result;
+    }
+
+    /**
+     * Verify that the text contains the literal.
+     * @param aText text.
+     * @param aLiteral literal of US-ASCII characters.
+     * @param aIgnoreCase whether case of US-ASCII characters is ignored.
+     * @return true if the text contains the literal.
+     */
+    private static boolean containsLiteral(String aText, String aLiteral,
+            boolean aIgnoreCase)
+    {
+        boolean result = false;
+        for (int offset = 0; !result
+                && offset + aLiteral.length() <= aText.length(); offset++)
+        {
+            result = regionMatches(aText, offset, aLiteral, aIgnoreCase);
+        }
+        return result;
+    }
+
+    /**
+     * Converts an US-ASCII letter to lower case.
+     * @param aChar character.
+     * @return lower case of the letter or the character itself.
+     */
+    private static char toLowerCaseAscii(char aChar)
+    {
+        char result = aChar;
+        if (aChar >= 'A' && aChar <= 'Z') {
+            result = (char) (aChar - 'A' + 'a');
+        }
+        return result;
+    }
+
+    /**
+     * private class for members of class and their patterns. A RegExp which
+     * is just a literal, maybe surrounded by ".*", is matched without the
+     * regular expression engine: rules of modifiers and annotations like
+     * <code>Field(public static final.*)</code> are usually found among the
+     * modifiers of a member, and the text of the member is only built when
+     * they are not.
      */
     private static class FormatMatcher
     {
         /** The regexp to match against */
         private Pattern mRegExp;
+        /**
+         * Literal the RegExp finds, empty if it finds any text, null if the
+         * RegExp is not a literal.
+         */
+        private String mLiteral;
+        /**
+         * Words of the literal, null if they are not separated by single
+         * spaces.
+         */
+        private String[] mLiteralWords;
+        /** Whether the RegExp ignores case */
+        private boolean mIgnoreCase;
         /** The Member of Class */
         private final int mClassMember;
         /** The input full one rule with original names */
@@ -1265,6 +1424,69 @@ public class CustomDeclarationOrderCheck extends Check
             catch (final PatternSyntaxException e) {
                 throw new ConversionException("unable to parse " + aFormat, e);
             }
+            mIgnoreCase = (aCompileFlags & Pattern.CASE_INSENSITIVE) != 0;
+            mLiteral = getLiteral(aFormat);
+            mLiteralWords = null;
+            if (mLiteral != null && mLiteral.length() > 0
+                    && !mLiteral.startsWith(" ") && !mLiteral.endsWith(" ")
+                    && !mLiteral.contains("  "))
+            {
+                mLiteralWords = mLiteral.split(" ");
+            }
+        }
+
+        /**
+         * Gets the literal a regular expression finds.
+         * @param aFormat the format of the regular expression.
+         * @return the literal, empty string if the regular expression finds
+         *         any text, null if it is not a literal.
+         */
+        private static String getLiteral(final String aFormat)
+        {
+            String result = aFormat;
+            if (result.length() > 1 && result.charAt(0) == '('
+                    && result.charAt(result.length() - 1) == ')')
+            {
+                result = result.substring(1, result.length() - 1);
+            }
+            if (result.startsWith(".*")) {
+                result = result.substring(2);
+            }
+            if (result.endsWith(".*")) {
+                result = result.substring(0, result.length() - 2);
+            }
+            for (int i = 0; result != null && i < result.length(); i++) {
+                final char ch = result.charAt(i);
+                if (!(ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z'
+                        || ch >= '0' && ch <= '9'
+                        || ch == '_' || ch == '@' || ch == ' '))
+                {
+                    result = null;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Check that the RegExp finds the declaration of a class member.
+         * @param aDeclaration declaration of the class member.
+         * @return true if the RegExp finds the declaration.
+         */
+        public boolean matches(MemberDeclaration aDeclaration)
+        {
+            boolean result;
+            if (mLiteral == null) {
+                result = mRegExp.matcher(aDeclaration.getText()).find();
+            }
+            else {
+                result = mLiteral.length() == 0
+                        || mLiteralWords != null
+                            && aDeclaration.hasModifierWords(mLiteralWords,
+                                mIgnoreCase)
+                        || containsLiteral(aDeclaration.getText(), mLiteral,
+                            mIgnoreCase);
+            }
+            return result;
         }
 
         /**
@@ -1285,7 +1507,113 @@ public class CustomDeclarationOrderCheck extends Check
     }
 
     /**
-     * Class to keep current position and collect getters, setters.
+     * Declaration of a class member as the rules see it: its annotations,
+     * modifiers, type and name. The text of the declaration is only built
+     * when a rule needs it.
+     */
+    private static class MemberDeclaration
+    {
+        /**
+         * DetailAST of the class member.
+         */
+        private final DetailAST mAST;
+        /**
+         * Words the text of the declaration starts with: modifiers, "package"
+         * if there are none, annotations without arguments and null for other
+         * annotations.
+         */
+        private String[] mModifierWords;
+        /**
+         * Text of the declaration.
+         */
+        private String mText;
+
+        /**
+         * Creates the declaration of a class member.
+         * @param aAST DetailAST of the class member.
+         */
+        public MemberDeclaration(DetailAST aAST)
+        {
+            mAST = aAST;
+        }
+
+        /**
+         * @return text of the declaration.
+         */
+        public String getText()
+        {
+            if (mText == null) {
+                mText = getCombinedModifiersList(mAST);
+            }
+            return mText;
+        }
+
+        /**
+         * Verify that the modifier words of the declaration contain the
+         * words in the same order, one after another.
+         * @param aWords words.
+         * @param aIgnoreCase whether case of US-ASCII characters is ignored.
+         * @return true if the words are found.
+         */
+        public boolean hasModifierWords(String[] aWords, boolean aIgnoreCase)
+        {
+            if (mModifierWords == null) {
+                mModifierWords = getModifierWords(mAST);
+            }
+            boolean result = false;
+            for (int start = 0; !result
+                    && start + aWords.length <= mModifierWords.length; start++)
+            {
+                result = true;
+                for (int i = 0; result && i < aWords.length; i++) {
+                    final String word = mModifierWords[start + i];
+                    result = word != null && word.length() == aWords[i].length()
+                            && regionMatches(word, 0, aWords[i], aIgnoreCase);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Gets the words the text of a declaration starts with.
+         * @param aAST DetailAST of the class member.
+         * @return the modifier words.
+         */
+        private static String[] getModifierWords(DetailAST aAST)
+        {
+            final DetailAST modifiers = aAST.findFirstToken(TokenTypes.MODIFIERS);
+            final String[] result;
+            if (modifiers.getFirstChild() == null) {
+                result = new String[] {"package"};
+            }
+            else {
+                result = new String[modifiers.getChildCount()];
+                int index = 0;
+                for (DetailAST child = modifiers.getFirstChild(); child != null;
+                        child = child.getNextSibling())
+                {
+                    final DetailAST firstChild = child.getFirstChild();
+                    if (firstChild == null) {
+                        result[index] = child.getText();
+                    }
+                    else if (child.getType() == TokenTypes.ANNOTATION
+                            && child.getChildCount() == 2
+                            && firstChild.getType() == TokenTypes.AT
+                            && child.getLastChild().getType() == TokenTypes.IDENT)
+                    {
+                        result[index] = "@" + child.getLastChild().getText();
+                    }
+                    index++;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Class to keep current position and collect getters, setters. Getters
+     * and setters are indexed by name as they are collected, and paired by
+     * the name of their field when the class is left.
      */
     private static class ClassDetail {
         /**
@@ -1295,11 +1623,19 @@ public class CustomDeclarationOrderCheck extends Check
         /**
          * List of getter ASTs
          */
-        private final List<DetailAST> mGetters = new LinkedList<DetailAST>();
+        private final List<DetailAST> mGetters = new ArrayList<DetailAST>();
         /**
          * List of setter ASTs
          */
-        private final List<DetailAST> mSetters = new LinkedList<DetailAST>();
+        private final List<DetailAST> mSetters = new ArrayList<DetailAST>();
+        /**
+         * Names of getters
+         */
+        private final Set<String> mGetterNames = new HashSet<String>();
+        /**
+         * Names of setters
+         */
+        private final Set<String> mSetterNames = new HashSet<String>();
 
         public int getCurrentPosition()
         {
@@ -1318,6 +1654,7 @@ public class CustomDeclarationOrderCheck extends Check
         public void addGetter(DetailAST aGetterAst)
         {
             mGetters.add(aGetterAst);
+            mGetterNames.add(getIdentifier(aGetterAst));
         }
 
         /**
@@ -1327,6 +1664,7 @@ public class CustomDeclarationOrderCheck extends Check
         public void addSetter(DetailAST aSetterAst)
         {
             mSetters.add(aSetterAst);
+            mSetterNames.add(getIdentifier(aSetterAst));
         }
 
         /**
@@ -1344,38 +1682,41 @@ public class CustomDeclarationOrderCheck extends Check
                 // sort by line numbers
                 Collections.sort(allGettersSetters, AST_LINE_COMPARATOR);
 
+                // positions of setters in the sorted list by field name
+                final Map<String, List<Integer>> setterPositions =
+                        new HashMap<String, List<Integer>>();
+                for (int j = 0; j < allGettersSetters.size(); j++) {
+                    final String setterName = getIdentifier(allGettersSetters.get(j));
+                    if (isSetterName(setterName)) {
+                        final String setterField =
+                                getNameWithoutPrefix(setterName, SETTER_PREFIX);
+                        List<Integer> positions = setterPositions.get(setterField);
+                        if (positions == null) {
+                            positions = new ArrayList<Integer>();
+                            setterPositions.put(setterField, positions);
+                        }
+                        positions.add(j);
+                    }
+                }
+
                 for (int i = 0; i < allGettersSetters.size(); i++) {
                     final DetailAST getterAst = allGettersSetters.get(i);
                     final String getterName = getIdentifier(getterAst);
                     String getterField = null;
                     if (isGetterName(getterName)) {
-                        getterField = getNameWithoutPrefix(getIdentifier(getterAst), GETTER_PREFIX);
+                        getterField = getNameWithoutPrefix(getterName, GETTER_PREFIX);
                     }
                     else if (isBooleanGetterName(getterName)) {
-                        getterField = getNameWithoutPrefix(getIdentifier(getterAst), BOOLEAN_GETTER_PREFIX);
+                        getterField = getNameWithoutPrefix(getterName, BOOLEAN_GETTER_PREFIX);
                     }
 
-                    if (getterField != null) {
-                        // review rest of the list to find a proper setter
-                        for (int j = 0; j < allGettersSetters.size(); j++) {
-                            if (i == j) { // method is getter
-                                continue;
-                            }
-                            final DetailAST setterAst = allGettersSetters.get(j);
-                            final String setterName = getIdentifier(setterAst);
-                            String setterField = null;
-                            if (isSetterName(setterName)) {
-                                setterField = getNameWithoutPrefix(
-                                        getIdentifier(setterAst), SETTER_PREFIX);
-                            }
-                            else { // non-setter method
-                                continue;
-                            }
-                            // if fields are same and setter is sibling with getter
-                            if (getterField.equals(setterField)
-                                    && j != (i + 1))
-                            {
-                                result.put(setterAst, getterAst);
+                    final List<Integer> positions = getterField == null
+                            ? null : setterPositions.get(getterField);
+                    if (positions != null) {
+                        // the first setter of the field that is not sibling with getter
+                        for (int j : positions) {
+                            if (j != (i + 1)) {
+                                result.put(allGettersSetters.get(j), getterAst);
                                 break;
                             }
                         }
@@ -1392,14 +1733,7 @@ public class CustomDeclarationOrderCheck extends Check
          */
         private boolean containsGetter(String aMethodName)
         {
-            boolean result = false;
-            for (DetailAST methodAst: mGetters) {
-                final String methodName = getIdentifier(methodAst);
-                if (methodName.equals(aMethodName)) {
-                    result = true;
-                }
-            }
-            return result;
+            return mGetterNames.contains(aMethodName);
         }
 
         /**
@@ -1409,15 +1743,7 @@ public class CustomDeclarationOrderCheck extends Check
          */
         private boolean containsSetter(String aMethodName)
         {
-            boolean result = false;
-            for (DetailAST methodAst: mSetters) {
-                final String methodName = getIdentifier(methodAst);
-                if (methodName.equals(aMethodName)) {
-                    result = true;
-                }
-            }
-            return result;
+            return mSetterNames.contains(aMethodName);
         }
     }
-
 }
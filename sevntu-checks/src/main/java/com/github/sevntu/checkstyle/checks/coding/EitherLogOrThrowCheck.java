@@ -25,6 +25,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Pattern;
 
+import com.github.sevntu.checkstyle.ast.TokenSummary;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.FullIdent;
@@ -145,6 +146,11 @@ public class EitherLogOrThrowCheck extends Check
      * Logger class is in imports.
      */
     private boolean mHasLoggerClassInImports;
+    /**
+     * Name of printStackTrace method.
+     */
+    private static final String PRINT_STACK_TRACE_METHOD_NAME =
+            "printStackTrace";
     /**
      * Regexp of printStackTrace method.
      */
@@ -164,6 +170,12 @@ public class EitherLogOrThrowCheck extends Check
      */
     private List<String> mCurrentLocalLoggerVariableNames = new ArrayList<String>();
 
+    /**
+     * True if the current file neither logs nor prints an exception for
+     * sure, or never rethrows it.
+     */
+    private boolean mSkipFile;
+
     /**
      * Set logger full class name and logger simple class name.
      * @param aLoggerFullyQualifiedClassName
@@ -198,9 +210,22 @@ public class EitherLogOrThrowCheck extends Check
             TokenTypes.METHOD_DEF, };
     }
 
+    @Override
+    public void beginTree(DetailAST aRootAST)
+    {
+        final TokenSummary summary = TokenSummary.get(aRootAST);
+        mSkipFile = !summary.hasToken(TokenTypes.LITERAL_CATCH)
+                || !summary.hasToken(TokenTypes.LITERAL_THROW)
+                || (!summary.mayHaveIdent(mLoggerSimpleClassName)
+                    && !summary.mayHaveIdent(PRINT_STACK_TRACE_METHOD_NAME));
+    }
+
     @Override
     public void visitToken(final DetailAST aAst)
     {
+        if (mSkipFile) {
+            return;
+        }
         switch (aAst.getType()) {
         case TokenTypes.IMPORT:
             if (!mHasLoggerClassInImports
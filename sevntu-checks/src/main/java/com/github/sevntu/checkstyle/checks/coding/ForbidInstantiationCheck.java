@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 
+import com.github.sevntu.checkstyle.ast.TokenSummary;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.FullIdent;
@@ -62,6 +63,12 @@ public class ForbidInstantiationCheck extends Check
      */
     private List<String> mImportsList = new LinkedList<String>();
 
+    /**
+     * Whether the current file has no instantiation of the forbidden classes
+     * for sure and is skipped.
+     */
+    private boolean mSkipFile;
+
     /**
      * Creates the check instance.
      */
@@ -91,6 +98,15 @@ public class ForbidInstantiationCheck extends Check
     public void beginTree(final DetailAST aRootAST)
     {
         mImportsList.clear();
+        final TokenSummary summary = TokenSummary.get(aRootAST);
+        mSkipFile = !summary.hasToken(TokenTypes.LITERAL_NEW);
+        if (!mSkipFile) {
+            final List<String> simpleNames = new LinkedList<String>();
+            for (String forbiddenClass : mForbiddenClasses) {
+                simpleNames.add(getClassName(forbiddenClass));
+            }
+            mSkipFile = !summary.mayHaveAnyIdent(simpleNames);
+        }
     }
 
     @Override
@@ -109,34 +125,8 @@ public class ForbidInstantiationCheck extends Check
             break;
 
         case TokenTypes.LITERAL_NEW:
-
-            final String instanceClass = getText(aAst);
-
-            if (instanceClass != null) { // non-primitive instance
-
-                final String instanceClassName = getClassName(instanceClass);
-
-                for (String forbiddenClass : mForbiddenClasses) {
-
-                    if (forbiddenClass.startsWith("java.lang.")
-                            && forbiddenClass.endsWith(instanceClassName))
-                    { // java.lang.*
-                        log(aAst, MSG_KEY, instanceClassName);
-                    }
-                    else if (instanceClass.contains(".")) { // className is full
-
-                        if (instanceClass.equals(forbiddenClass)) {
-                            // the full path is forbidden
-                            log(aAst, MSG_KEY, instanceClassName);
-                        }
-                    }
-                    else if (addedUsingForbiddenImport(instanceClass,
-                            forbiddenClass))
-                    {
-                        // className is short and exists in imports
-                        log(aAst, MSG_KEY, instanceClass);
-                    }
-                }
+            if (!mSkipFile) {
+                checkInstantiation(aAst);
             }
             break;
 
@@ -152,6 +142,43 @@ public class ForbidInstantiationCheck extends Check
 
     }
 
+    /**
+     * Logs the instantiation if the instantiated class is forbidden.
+     * @param aAst
+     *        the LITERAL_NEW node.
+     */
+    private void checkInstantiation(DetailAST aAst)
+    {
+        final String instanceClass = getText(aAst);
+
+        if (instanceClass != null) { // non-primitive instance
+
+            final String instanceClassName = getClassName(instanceClass);
+
+            for (String forbiddenClass : mForbiddenClasses) {
+
+                if (forbiddenClass.startsWith("java.lang.")
+                        && getClassName(forbiddenClass).equals(instanceClassName))
+                { // java.lang.*
+                    log(aAst, MSG_KEY, instanceClassName);
+                }
+                else if (instanceClass.contains(".")) { // className is full
+
+                    if (instanceClass.equals(forbiddenClass)) {
+                        // the full path is forbidden
+                        log(aAst, MSG_KEY, instanceClassName);
+                    }
+                }
+                else if (addedUsingForbiddenImport(instanceClass,
+                        forbiddenClass))
+                {
+                    // className is short and exists in imports
+                    log(aAst, MSG_KEY, instanceClass);
+                }
+            }
+        }
+    }
+
     /**
      * Checks that the class with given className is visible because of the
      * forbidden import.
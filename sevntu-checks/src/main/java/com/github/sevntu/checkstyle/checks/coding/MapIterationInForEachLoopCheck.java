@@ -24,6 +24,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import com.github.sevntu.checkstyle.ast.TokenSummary;
+import com.github.sevntu.checkstyle.index.ClassHierarchyAware;
+import com.github.sevntu.checkstyle.index.ClassHierarchyIndex;
+import com.github.sevntu.checkstyle.index.ClassInfo;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.FullIdent;
@@ -115,10 +119,16 @@ import com.puppycrawl.tools.checkstyle.api.TokenTypes;
  *     System.out.println(entry.getValue() + "   " + entry.getKey());
  * }
  * </pre>
+ * <p>
+ * When run with the class hierarchy index (see {@link ClassHierarchyAware}),
+ * classes of the source set extending one of the supported map
+ * implementations are recognized as maps too.
+ * </p>
  * @author <a href="mailto:maxvetrenko2241@gmail.com">Max Vetrenko</a>
  */
 
 public class MapIterationInForEachLoopCheck extends Check
+    implements ClassHierarchyAware
 {
     /**
      * If this value is true, Checkstyle will process value() iterations.
@@ -194,6 +204,17 @@ public class MapIterationInForEachLoopCheck extends Check
      */
     private final Set<String> mSupportedMapImplQualifiedNames;
 
+    /**
+     * Index of the classes of the whole source set, null if not available.
+     */
+    private ClassHierarchyIndex mClassHierarchyIndex;
+
+    /**
+     * True if the current file has no keySet() or entrySet() iterations for
+     * sure.
+     */
+    private boolean mSkipFile;
+
     /**
      * Creates default importList and mapImportClassesNamesList.
      */
@@ -225,6 +246,14 @@ public class MapIterationInForEachLoopCheck extends Check
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void setClassHierarchyIndex(ClassHierarchyIndex aIndex)
+    {
+        mClassHierarchyIndex = aIndex;
+    }
+
     /**
      * Set aProcessingValue. If value is true, Check will process cases, where
      * values() method will be suitable.
@@ -267,9 +296,21 @@ public class MapIterationInForEachLoopCheck extends Check
         return new int[] {TokenTypes.LITERAL_FOR, TokenTypes.IMPORT, TokenTypes.VARIABLE_DEF, };
     }
 
+    @Override
+    public void beginTree(DetailAST aRootAST)
+    {
+        final TokenSummary summary = TokenSummary.get(aRootAST);
+        mSkipFile = !summary.hasToken(TokenTypes.FOR_EACH_CLAUSE)
+                || (!summary.mayHaveIdent(KEY_SET_METHOD_NAME)
+                    && !summary.mayHaveIdent(ENTRY_SET_METHOD_NAME));
+    }
+
     @Override
     public void visitToken(DetailAST aAst)
     {
+        if (mSkipFile) {
+            return;
+        }
         switch (aAst.getType()) {
 
         case TokenTypes.IMPORT:
@@ -587,7 +628,35 @@ public class MapIterationInForEachLoopCheck extends Check
     private boolean isMapImplementation(String aClassName)
     {
         return isClassContainsInsideQualifiedImportList(aClassName)
-                || containsInSupportedMapImplQualifiedNames(aClassName);
+                || containsInSupportedMapImplQualifiedNames(aClassName)
+                || isSubtypeOfSupportedMapImpl(aClassName);
+    }
+
+    /**
+     * Checks, is current class a subclass of one of the supported map
+     * implementations according to the class hierarchy index.
+     * @param aClassName
+     *        current class name.
+     * @return true, if the index is available and the class extends a
+     *         supported map implementation.
+     */
+    private boolean isSubtypeOfSupportedMapImpl(String aClassName)
+    {
+        boolean result = false;
+        final ClassInfo classInfo = mClassHierarchyIndex == null ? null
+                : mClassHierarchyIndex.getClassInfo(aClassName);
+        if (classInfo != null) {
+            for (String supportedMapName : mSupportedMapImplQualifiedNames) {
+                if (!supportedMapName.endsWith("*")
+                        && mClassHierarchyIndex.isSubtypeOf(classInfo,
+                                supportedMapName))
+                {
+                    result = true;
+                    break;
+                }
+            }
+        }
+        return result;
     }
 
     /**
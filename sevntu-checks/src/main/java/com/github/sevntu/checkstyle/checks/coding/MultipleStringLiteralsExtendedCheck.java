@@ -18,32 +18,56 @@
 ////////////////////////////////////////////////////////////////////////////////
 package com.github.sevntu.checkstyle.checks.coding;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 
-import com.google.common.collect.Lists;
+import com.github.sevntu.checkstyle.index.StringLiteralIndex;
+import com.github.sevntu.checkstyle.index.StringLiteralIndex.Occurrences;
+import com.github.sevntu.checkstyle.walker.AuditFinishAware;
 import com.google.common.collect.Maps;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
 import com.puppycrawl.tools.checkstyle.api.Utils;
 
 /**
  * Checks for multiple occurrences of the same string literal within a single file.
+ * <p>
+ * With the crossFile property set the occurrences are counted across all files of the audit
+ * instead, so a literal repeated once per file in many files is found too. The literals are
+ * kept in a {@link StringLiteralIndex} which is spilled to temporary files when it exceeds
+ * crossFileMemoryLimit megabytes, and the violations are reported when the audit is finished.
+ * This needs {@link com.github.sevntu.checkstyle.walker.SevntuTreeWalker}; under other tree
+ * walkers the check refuses to be initialized in this mode.
+ * </p>
+ * <p>
+ * {@link com.github.sevntu.checkstyle.runner.ParallelChecker} splits the files between
+ * several audits, so it rejects this mode when it runs on more than one thread.
+ * </p>
  * 
  * @author Daniel Grenner
  */
-public class MultipleStringLiteralsExtendedCheck extends Check
+public class MultipleStringLiteralsExtendedCheck extends Check implements AuditFinishAware
 {
 	public static final String MSG_KEY = "multiple.string.literal";
+
+	/**
+	 * Bytes in one megabyte.
+	 */
+	private static final long BYTES_IN_MEGABYTE = 1024 * 1024;
 	
 	/**
-	 * The found strings and their positions. <String, ArrayList>, with the ArrayList containing StringInfo objects.
+	 * The found strings and their positions.
 	 */
-	private final Map<String, List<StringInfo>> mStringMap = Maps.newHashMap();
+	private final Map<String, StringHits> mStringMap = Maps.newHashMap();
 
 	/**
 	 * Marks the TokenTypes where duplicate strings should be ignored.
@@ -60,6 +84,37 @@ public class MultipleStringLiteralsExtendedCheck extends Check
 	 */
 	private boolean mHighlightAllDuplicates = false;
 
+	/**
+	 * Number of the nodes with a token type in {@link #mIgnoreOccurrenceContext} which are
+	 * being visited, that is the contexts the current node is in.
+	 */
+	private int mIgnoreOccurrenceContextDepth;
+
+	/**
+	 * Whether duplicates are counted across all files of the audit.
+	 */
+	private boolean mCrossFile;
+
+	/**
+	 * Limit of the memory of the literals of all files, in megabytes.
+	 */
+	private int mCrossFileMemoryLimit = 64;
+
+	/**
+	 * Literals of all files in the cross-file mode, null until the first file.
+	 */
+	private StringLiteralIndex mIndex;
+
+	/**
+	 * Number of the current file in {@link #mIndex}.
+	 */
+	private int mFileId;
+
+	/**
+	 * Whether the walker calls {@link #finishAudit()}.
+	 */
+	private boolean mAuditFinishSupported;
+
 	/**
 	 * Sets the maximum allowed duplicates of a string.
 	 * 
@@ -115,6 +170,28 @@ public class MultipleStringLiteralsExtendedCheck extends Check
 		mHighlightAllDuplicates = aHighlightAllDuplicates;
 	}
 
+	/**
+	 * Sets whether duplicates are counted across all files of the audit.
+	 * 
+	 * @param aCrossFile
+	 *            if true count duplicates across files
+	 */
+	public void setCrossFile(boolean aCrossFile)
+	{
+		mCrossFile = aCrossFile;
+	}
+
+	/**
+	 * Sets the limit of the memory of the literals of all files in the cross-file mode.
+	 * 
+	 * @param aCrossFileMemoryLimit
+	 *            the limit in megabytes
+	 */
+	public void setCrossFileMemoryLimit(int aCrossFileMemoryLimit)
+	{
+		mCrossFileMemoryLimit = aCrossFileMemoryLimit;
+	}
+
 	/**
 	 * Adds a set of tokens the check is interested in.
 	 * 
@@ -130,50 +207,85 @@ public class MultipleStringLiteralsExtendedCheck extends Check
 		}
 	}
 
+	/**
+	 * Besides string literals the check visits the token types of {@link #mIgnoreOccurrenceContext}
+	 * to know whether a string literal is inside one of them.
+	 */
 	@Override
 	public int[] getDefaultTokens()
 	{
-		return new int[] { TokenTypes.STRING_LITERAL };
+		final int[] result = new int[mIgnoreOccurrenceContext.cardinality() + 1];
+		int index = 0;
+		result[index++] = TokenTypes.STRING_LITERAL;
+		for (int type = mIgnoreOccurrenceContext.nextSetBit(0); type >= 0;
+				type = mIgnoreOccurrenceContext.nextSetBit(type + 1))
+		{
+			if (type != TokenTypes.STRING_LITERAL) {
+				result[index++] = type;
+			}
+		}
+		return Arrays.copyOf(result, index);
 	}
 
 	@Override
 	public void visitToken(DetailAST aAST)
 	{
-		if (isInIgnoreOccurrenceContext(aAST)) {
-			return;
+		if (isIgnoreOccurrenceContext(aAST)) {
+			mIgnoreOccurrenceContextDepth++;
 		}
-		final String currentString = aAST.getText();
-		if ((mPattern == null) || !mPattern.matcher(currentString).find()) {
-			List<StringInfo> hitList = mStringMap.get(currentString);
-			if (hitList == null) {
-				hitList = Lists.newArrayList();
-				mStringMap.put(currentString, hitList);
+		if (aAST.getType() == TokenTypes.STRING_LITERAL && mIgnoreOccurrenceContextDepth == 0) {
+			final String currentString = aAST.getText();
+			if ((mPattern == null) || !mPattern.matcher(currentString).find()) {
+				if (mCrossFile) {
+					addToIndex(currentString, aAST.getLineNo(), aAST.getColumnNo());
+				}
+				else {
+					StringHits hits = mStringMap.get(currentString);
+					if (hits == null) {
+						hits = new StringHits();
+						mStringMap.put(currentString, hits);
+					}
+					hits.add(aAST.getLineNo(), aAST.getColumnNo());
+				}
 			}
-			final int line = aAST.getLineNo();
-			final int col = aAST.getColumnNo();
-			hitList.add(new StringInfo(line, col));
+		}
+	}
+
+	@Override
+	public void leaveToken(DetailAST aAST)
+	{
+		if (isIgnoreOccurrenceContext(aAST)) {
+			mIgnoreOccurrenceContextDepth--;
 		}
 	}
 
 	/**
-	 * Analyses the path from the AST root to a given AST for occurrences of the token types in
-	 * {@link #mIgnoreOccurrenceContext}.
+	 * Checks whether a node is a context where duplicate strings are ignored.
 	 * 
 	 * @param aAST
-	 *            the node from where to start searching towards the root node
-	 * @return whether the path from the root node to aAST contains one of the token type in
-	 *         {@link #mIgnoreOccurrenceContext}.
+	 *            the node
+	 * @return whether the node has one of the token types in {@link #mIgnoreOccurrenceContext}
+	 *         and is not the top-level node of the file.
 	 */
-	private boolean isInIgnoreOccurrenceContext(DetailAST aAST)
+	private boolean isIgnoreOccurrenceContext(DetailAST aAST)
 	{
-		for (DetailAST token = aAST; token.getParent() != null; token = token.getParent())
-		{
-			final int type = token.getType();
-			if (mIgnoreOccurrenceContext.get(type)) {
-				return true;
-			}
+		return mIgnoreOccurrenceContext.get(aAST.getType()) && aAST.getParent() != null;
+	}
+
+	public void setAuditFinishSupported()
+	{
+		mAuditFinishSupported = true;
+	}
+
+	@Override
+	public void init()
+	{
+		super.init();
+		if (mCrossFile && !mAuditFinishSupported) {
+			throw new IllegalStateException("Property 'crossFile' of "
+					+ getClass().getSimpleName() + " needs a walker reporting violations across"
+					+ " files, such as com.github.sevntu.checkstyle.walker.SevntuTreeWalker");
 		}
-		return false;
 	}
 
 	@Override
@@ -181,76 +293,179 @@ public class MultipleStringLiteralsExtendedCheck extends Check
 	{
 		super.beginTree(aRootAST);
 		mStringMap.clear();
+		mIgnoreOccurrenceContextDepth = 0;
+		if (mCrossFile) {
+			if (mIndex == null) {
+				mIndex = new StringLiteralIndex(mCrossFileMemoryLimit * BYTES_IN_MEGABYTE,
+						new File(System.getProperty("java.io.tmpdir")));
+			}
+			mFileId = mIndex.addFile(
+					new File(getFileContents().getFilename()).getAbsolutePath());
+		}
 	}
 
 	@Override
 	public void finishTree(DetailAST aRootAST)
 	{
-		final Set<String> keys = mStringMap.keySet();
-		for (String key : keys) {
-			final List<StringInfo> hits = mStringMap.get(key);
+		for (Map.Entry<String, StringHits> entry : mStringMap.entrySet()) {
+			final String key = entry.getKey();
+			final StringHits hits = entry.getValue();
 			if (hits.size() > mAllowedDuplicates) {
+				final Integer hitsCount = hits.size();
 				int hitsSize = 1;
 				if (mHighlightAllDuplicates) {
 					hitsSize = hits.size();
 				}
 				for (int index = 0; index < hitsSize; index++) {
-					final StringInfo firstFinding = hits.get(index);
-					final int line = firstFinding.getLine();
-					final int col = firstFinding.getCol();
-					log(line, col,
-							MSG_KEY, key, hits.size());
+					log(hits.getLine(index), hits.getCol(index),
+							MSG_KEY, key, hitsCount);
 				}
 			}
 		}
 	}
 
 	/**
-	 * This class contains information about where a string was found.
+	 * Reports the literals duplicated across the files of the audit in the cross-file mode.
+	 */
+	public Map<String, List<LocalizedMessage>> finishAudit()
+	{
+		final Map<String, List<LocalizedMessage>> result =
+				new TreeMap<String, List<LocalizedMessage>>();
+		if (mIndex != null) {
+			try {
+				mIndex.visitRepeated(mAllowedDuplicates + 1, new StringLiteralIndex.Visitor() {
+					public void visit(String aLiteral, Occurrences aOccurrences)
+					{
+						final int count = mHighlightAllDuplicates ? aOccurrences.size() : 1;
+						for (int index = 0; index < count; index++) {
+							final String fileName =
+									mIndex.getFileName(aOccurrences.getFile(index));
+							List<LocalizedMessage> messages = result.get(fileName);
+							if (messages == null) {
+								messages = new ArrayList<LocalizedMessage>();
+								result.put(fileName, messages);
+							}
+							messages.add(new LocalizedMessage(aOccurrences.getLine(index),
+									aOccurrences.getColumn(index), getMessageBundle(), MSG_KEY,
+									new Object[] {aLiteral, aOccurrences.size()},
+									getSeverityLevel(), getId(), getClass(),
+									getCustomMessages().get(MSG_KEY)));
+						}
+					}
+				});
+			}
+			catch (IOException e) {
+				throw new IllegalStateException("Cannot read the string literal index", e);
+			}
+			finally {
+				mIndex.clear();
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (mIndex != null) {
+			mIndex.clear();
+		}
+		super.destroy();
+	}
+
+	/**
+	 * Adds a literal of the current file to {@link #mIndex}.
+	 * 
+	 * @param aLiteral
+	 *            the literal
+	 * @param aLine
+	 *            line of the literal
+	 * @param aCol
+	 *            column of the literal, as in the tree
+	 */
+	private void addToIndex(String aLiteral, int aLine, int aCol)
+	{
+		// the column is reported as log(int, int, ...) would do it
+		final int col = 1 + Utils.lengthExpandedTabs(getLines()[aLine - 1], aCol, getTabWidth());
+		try {
+			mIndex.add(aLiteral, mFileId, aLine, col);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Cannot spill the string literal index", e);
+		}
+	}
+
+	/**
+	 * This class contains information about where a string was found: the lines and columns of
+	 * the findings one after another in a single array.
 	 */
-	private static final class StringInfo
+	private static final class StringHits
 	{
 		/**
-		 * Line of finding
+		 * Initial capacity of the positions, in findings.
 		 */
-		private final int mLine;
+		private static final int INITIAL_CAPACITY = 4;
+
+		/**
+		 * Line and column of each finding.
+		 */
+		private int[] mPositions = new int[2 * INITIAL_CAPACITY];
+
 		/**
-		 * Column of finding
+		 * Number of findings.
 		 */
-		private final int mCol;
+		private int mSize;
 
 		/**
-		 * Creates information about a string position.
+		 * Adds a finding.
 		 * 
 		 * @param aLine
 		 *            int
 		 * @param aCol
 		 *            int
 		 */
-		private StringInfo(int aLine, int aCol)
+		private void add(int aLine, int aCol)
+		{
+			if (2 * mSize == mPositions.length) {
+				mPositions = Arrays.copyOf(mPositions, 2 * mPositions.length);
+			}
+			mPositions[2 * mSize] = aLine;
+			mPositions[2 * mSize + 1] = aCol;
+			mSize++;
+		}
+
+		/**
+		 * The number of findings.
+		 * 
+		 * @return int number of findings.
+		 */
+		private int size()
 		{
-			mLine = aLine;
-			mCol = aCol;
+			return mSize;
 		}
 
 		/**
 		 * The line where a string was found.
 		 * 
+		 * @param aIndex
+		 *            index of the finding
 		 * @return int Line of the string.
 		 */
-		private int getLine()
+		private int getLine(int aIndex)
 		{
-			return mLine;
+			return mPositions[2 * aIndex];
 		}
 
 		/**
 		 * The column where a string was found.
 		 * 
+		 * @param aIndex
+		 *            index of the finding
 		 * @return int Column of the string.
 		 */
-		private int getCol()
+		private int getCol(int aIndex)
 		{
-			return mCol;
+			return mPositions[2 * aIndex + 1];
 		}
 	}
 
@@ -18,10 +18,12 @@
 ////////////////////////////////////////////////////////////////////////////////
 package com.github.sevntu.checkstyle.checks.coding;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 
+import com.github.sevntu.checkstyle.ast.DetailAstTraversal;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
@@ -223,8 +225,7 @@ public class NoNullForCollectionReturnCheck extends Check
             {
                 String variableName = variable.getText();
                 DetailAST methodDef = getMethodDef(aReturnLit);
-                LinkedList<DetailAST> subblocks = getAllSubblocks(methodDef);
-                subblocks.addFirst(methodDef);
+                List<DetailAST> subblocks = getAllSubblocks(methodDef);
 
                 result = hasNullInDefinition(subblocks, variableName);
 
@@ -259,42 +260,79 @@ public class NoNullForCollectionReturnCheck extends Check
 
     /**
      * <p>
-     * Return all the nested subblocks in block.
+     * Return the block and all the nested subblocks in it.
      * </p>
      * @param aBlockDef
      *        - node of the block.
-     * @return all the nested subblocks in block.
+     * @return the block and all the nested subblocks in it.
      */
-    private static LinkedList<DetailAST> getAllSubblocks(DetailAST aBlockDef)
+    private static List<DetailAST> getAllSubblocks(DetailAST aBlockDef)
     {
-        DetailAST blockBody = getBlockBody(aBlockDef);
-        LinkedList<DetailAST> subblocks = new LinkedList<DetailAST>();
-        subblocks.addAll(getChildren(blockBody, TokenTypes.LITERAL_IF));
-        LinkedList<DetailAST> elseBlocks = new LinkedList<DetailAST>();
-        for (DetailAST currentIf : subblocks)
+        final List<DetailAST> result = new ArrayList<DetailAST>();
+        result.add(aBlockDef);
+
+        // explicit stack of blocks being expanded: subblocks of each block
+        // and index of the next of them to expand
+        final List<List<DetailAST>> levels = new ArrayList<List<DetailAST>>();
+        final List<Integer> nextIndexes = new ArrayList<Integer>();
+        List<DetailAST> subblocks = getSubblocks(aBlockDef);
+        result.addAll(subblocks);
+        levels.add(subblocks);
+        nextIndexes.add(0);
+
+        while (!levels.isEmpty())
         {
-            if (currentIf.getChildCount(TokenTypes.LITERAL_ELSE) > 0)
+            final int top = levels.size() - 1;
+            final List<DetailAST> level = levels.get(top);
+            final int index = nextIndexes.get(top);
+            if (index == level.size())
+            {
+                levels.remove(top);
+                nextIndexes.remove(top);
+            }
+            else
             {
-                elseBlocks.add(currentIf.findFirstToken(TokenTypes.LITERAL_ELSE));
+                nextIndexes.set(top, index + 1);
+                final DetailAST currentSubblock = level.get(index);
+                if (currentSubblock.branchContains(TokenTypes.SLIST))
+                {
+                    subblocks = getSubblocks(currentSubblock);
+                    result.addAll(subblocks);
+                    levels.add(subblocks);
+                    nextIndexes.add(0);
+                }
             }
         }
-        if (!elseBlocks.isEmpty())
+        return result;
+    }
+
+    /**
+     * <p>
+     * Return the subblocks directly in block.
+     * </p>
+     * @param aBlockDef
+     *        - node of the block.
+     * @return if, else, while, do, for and try subblocks of the block.
+     */
+    private static List<DetailAST> getSubblocks(DetailAST aBlockDef)
+    {
+        final DetailAST blockBody = getBlockBody(aBlockDef);
+        final List<DetailAST> subblocks =
+                getChildren(blockBody, TokenTypes.LITERAL_IF);
+        final int ifCount = subblocks.size();
+        for (int i = 0; i < ifCount; i++)
         {
-            subblocks.addAll(elseBlocks);
+            final DetailAST elseBlock =
+                    subblocks.get(i).findFirstToken(TokenTypes.LITERAL_ELSE);
+            if (elseBlock != null)
+            {
+                subblocks.add(elseBlock);
+            }
         }
         subblocks.addAll(getChildren(blockBody, TokenTypes.LITERAL_WHILE));
         subblocks.addAll(getChildren(blockBody, TokenTypes.LITERAL_DO));
         subblocks.addAll(getChildren(blockBody, TokenTypes.LITERAL_FOR));
         subblocks.addAll(getChildren(blockBody, TokenTypes.LITERAL_TRY));
-        LinkedList<DetailAST> nestedSubblocks = new LinkedList<DetailAST>();
-        for (DetailAST currentSubblock : subblocks)
-        {
-            if (currentSubblock.branchContains(TokenTypes.SLIST))
-            {
-                nestedSubblocks.addAll(getAllSubblocks(currentSubblock));
-            }
-        }
-        subblocks.addAll(nestedSubblocks);
         return subblocks;
     }
 
@@ -357,18 +395,12 @@ public class NoNullForCollectionReturnCheck extends Check
      */
     private static List<DetailAST> getChildren(DetailAST aRoot, int aType)
     {
-        List<DetailAST> children = new LinkedList<DetailAST>();
-        DetailAST currentChild = aRoot.findFirstToken(aType);
-        if (currentChild != null)
-        {
-            children.add(currentChild);
-        }
-        while (children.size() < aRoot.getChildCount(aType))
+        final List<DetailAST> children = new ArrayList<DetailAST>();
+        for (DetailAST child : DetailAstTraversal.children(aRoot))
         {
-            currentChild = currentChild.getNextSibling();
-            if (currentChild.getType() == aType)
+            if (child.getType() == aType)
             {
-                children.add(currentChild);
+                children.add(child);
             }
         }
         return children;
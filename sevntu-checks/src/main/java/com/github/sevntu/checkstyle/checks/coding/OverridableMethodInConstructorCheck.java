@@ -19,9 +19,22 @@
 
 package com.github.sevntu.checkstyle.checks.coding;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+
+import com.github.sevntu.checkstyle.ast.AstIndex;
+import com.github.sevntu.checkstyle.ast.DetailAstTraversal;
+import com.github.sevntu.checkstyle.index.ClassHierarchyAware;
+import com.github.sevntu.checkstyle.index.ClassHierarchyIndex;
+import com.github.sevntu.checkstyle.index.ClassInfo;
+import com.github.sevntu.checkstyle.index.MethodInfo;
+import com.github.sevntu.checkstyle.walker.TimeBudget;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
@@ -117,6 +130,11 @@ import com.puppycrawl.tools.checkstyle.api.TokenTypes;
  * <li>InnerClass.this.methodName();</li>
  * <li>and so on, using a similar hierarchy</li>
  * </p>
+ * <p>
+ * When run with the class hierarchy index (see
+ * {@link ClassHierarchyAware}), the check also follows superclasses and
+ * interfaces declared in other files of the source set.
+ * </p>
  *<br>
  *
  * @author <a href="mailto:Daniil.Yaroslavtsev@gmail.com"> Daniil
@@ -124,6 +142,7 @@ import com.puppycrawl.tools.checkstyle.api.TokenTypes;
  * @author <a href="mailto:IliaDubinin91@gmail.com">Ilja Dubinin</a>
  */
 public class OverridableMethodInConstructorCheck extends Check
+    implements ClassHierarchyAware
 {
 
     /**
@@ -158,10 +177,60 @@ public class OverridableMethodInConstructorCheck extends Check
     private final String mKeyReadObject = "'readObject()' method";
 
     /**
-     * A list contains all METHOD_CALL DetailAST nodes that have been already
-     * visited by check.
-     * */
-    private List<DetailAST> mVisitedMethodCalls = new LinkedList<DetailAST>();
+     * Call graph of the current tree: METHOD_DEF nodes the METHOD_CALL nodes
+     * are resolved to (null if not resolved), filled on first use.
+     */
+    private final Map<DetailAST, DetailAST> mResolvedCalls =
+            new IdentityHashMap<DetailAST, DetailAST>();
+
+    /**
+     * METHOD_CALL nodes of each METHOD_DEF node of the current tree, filled
+     * on first use.
+     */
+    private final Map<DetailAST, List<DetailAST>> mMethodCalls =
+            new IdentityHashMap<DetailAST, List<DetailAST>>();
+
+    /**
+     * Results of searching method definitions by name in the CLASS_DEF nodes
+     * of the current tree.
+     */
+    private final Map<DetailAST, Map<String, MethodDefsLookup>>
+    mMethodDefsLookups =
+            new IdentityHashMap<DetailAST, Map<String, MethodDefsLookup>>();
+
+    /**
+     * Name of the overridable method each private or final METHOD_DEF of
+     * the current tree leads to.
+     */
+    private final Map<DetailAST, String> mReachedOverridables =
+            new IdentityHashMap<DetailAST, String>();
+
+    /**
+     * Private or final METHOD_DEF nodes of the current tree known not to
+     * lead to a call of an overridable method.
+     */
+    private final Set<DetailAST> mReachingNothing =
+            Collections.newSetFromMap(new IdentityHashMap<DetailAST, Boolean>());
+
+    /**
+     * Methods being searched for calls of overridable methods, with their
+     * depth in the search.
+     */
+    private final Map<DetailAST, Integer> mSearchDepths =
+            new IdentityHashMap<DetailAST, Integer>();
+
+    /**
+     * Methods found not to lead to an overridable method while a method
+     * they call was still being searched; their result is known when the
+     * search of that method is over.
+     */
+    private final List<DetailAST> mPendingMethods = new ArrayList<DetailAST>();
+
+    /**
+     * The smallest search depth of a method reached again through a cycle
+     * of calls, Integer.MAX_VALUE if there was no cycle.
+     */
+    private int mCycleDepth = Integer.MAX_VALUE;
 
     /**
      * A current MethodDef AST is being processed by check.
@@ -173,6 +242,22 @@ public class OverridableMethodInConstructorCheck extends Check
      * */
     private DetailAST mTreeRootAST;
 
+    /**
+     * CLASS_DEF nodes of the current tree by class name, built on first
+     * use.
+     */
+    private Map<String, DetailAST> mClassDefs;
+
+    /**
+     * Index of the current tree, built on first use.
+     */
+    private AstIndex mAstIndex;
+
+    /**
+     * Index of the classes of the whole source set, null if not available.
+     */
+    private ClassHierarchyIndex mClassHierarchyIndex;
+
     /**
      * A boolean check box that enables the searching of calls to overridable
      * methods from the body of any clone() method is implemented from Cloneable
@@ -243,6 +328,14 @@ public class OverridableMethodInConstructorCheck extends Check
         mCheckReadObjectMethod = aValue;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void setClassHierarchyIndex(ClassHierarchyIndex aIndex)
+    {
+        mClassHierarchyIndex = aIndex;
+    }
+
     @Override
     public int[] getDefaultTokens()
     {
@@ -253,6 +346,15 @@ public class OverridableMethodInConstructorCheck extends Check
     public void beginTree(DetailAST aRootAST)
     {
         mTreeRootAST = aRootAST;
+        mClassDefs = null;
+        mAstIndex = null;
+        mResolvedCalls.clear();
+        mMethodCalls.clear();
+        mMethodDefsLookups.clear();
+        mReachedOverridables.clear();
+        mReachingNothing.clear();
+        mSearchDepths.clear();
+        mPendingMethods.clear();
     }
 
     @Override
@@ -311,15 +413,17 @@ public class OverridableMethodInConstructorCheck extends Check
         final List<OverridableMetCall> methodCallsToWarnList =
             getOverridables(aDetailAST);
 
-        for (OverridableMetCall om : methodCallsToWarnList) {
-            final DetailAST methodDef = getMethodDef(om.mMetCallAST);
-            if (hasModifier(methodDef, TokenTypes.LITERAL_PRIVATE)
-                    || hasModifier(methodDef, TokenTypes.FINAL))
+        for (final OverridableMetCall om : methodCallsToWarnList) {
+            final DetailAST methodDef = om.mMethodDefAST;
+            final String methodName = getMethodName(om.mMetCallAST);
+            if (methodDef != null
+                    && (hasModifier(methodDef, TokenTypes.LITERAL_PRIVATE)
+                    || hasModifier(methodDef, TokenTypes.FINAL)))
             {
-            	log(om.mMetCallAST, MSG_KEY_LEADS, getMethodName(om.mMetCallAST),
+            	log(om.mMetCallAST, MSG_KEY_LEADS, methodName,
                         aKey, om.mOverridableMetName);
             } else {
-            	log(om.mMetCallAST, MSG_KEY, getMethodName(om.mMetCallAST),
+            	log(om.mMetCallAST, MSG_KEY, methodName,
                     aKey, om.mOverridableMetName);
            	}
         }
@@ -345,16 +449,55 @@ public class OverridableMethodInConstructorCheck extends Check
         final List<DetailAST> methodCallsList = getMethodCallsList(aParentAST);
 
         for (DetailAST curNode : methodCallsList) {
-            mVisitedMethodCalls.clear();
-            final DetailAST methodDef = getMethodDef(curNode);
+            final DetailAST methodDef = resolveMethodCall(curNode);
             if (methodDef != null
                     && getMethodParamsCount(curNode)
                         == getMethodParamsCount(methodDef)
                     && isOverridableMethodCall(curNode))
             {
-                result.add(new OverridableMetCall(curNode,
+                result.add(new OverridableMetCall(curNode, methodDef,
                         mCurOverridableMetName));
             }
+            else if (methodDef == null && isInheritedOverridableCall(curNode)) {
+                result.add(new OverridableMetCall(curNode, null,
+                        getMethodName(curNode)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks that a call of a method which is not defined in the current file
+     * calls an overridable method the class inherits from a superclass
+     * defined elsewhere in the source set.
+     *
+     * @param aMethodCallAST
+     *            A METHOD_CALL DetailAST node.
+     * @return true if the method is found in the class hierarchy index and
+     *         is overridable.
+     */
+    private boolean isInheritedOverridableCall(final DetailAST aMethodCallAST)
+    {
+        boolean result = false;
+        final String methodName = getMethodName(aMethodCallAST);
+        final DetailAST callsChild = aMethodCallAST.getFirstChild();
+        if (mClassHierarchyIndex != null && methodName != null
+                && (callsChild.getType() != TokenTypes.DOT
+                    || callsChild.getFirstChild().getType()
+                        == TokenTypes.LITERAL_THIS))
+        {
+            final DetailAST classDef = getClassDef(aMethodCallAST);
+            final ClassInfo classInfo = classDef == null ? null
+                    : mClassHierarchyIndex.getClassInfo(classDef);
+            if (classInfo != null) {
+                final MethodInfo method = mClassHierarchyIndex
+                        .findInheritedMethod(classInfo, methodName,
+                                getMethodParamsCount(aMethodCallAST));
+                result = method != null
+                        && !method.hasModifier(TokenTypes.LITERAL_STATIC)
+                        && !method.hasModifier(TokenTypes.LITERAL_PRIVATE)
+                        && !method.hasModifier(TokenTypes.FINAL);
+            }
         }
         return result;
     }
@@ -370,14 +513,13 @@ public class OverridableMethodInConstructorCheck extends Check
      */
     private boolean isOverridableMethodCall(final DetailAST aMethodCallAST)
     {
+        TimeBudget.checkpoint();
 
         boolean result = false;
-        mVisitedMethodCalls.add(aMethodCallAST);
-
         final String methodName = getMethodName(aMethodCallAST);
 
         if (methodName != null) {
-            final DetailAST methodDef = getMethodDef(aMethodCallAST);
+            final DetailAST methodDef = resolveMethodCall(aMethodCallAST);
             if (methodDef != null) {
 
                 if (hasModifier(methodDef, TokenTypes.LITERAL_STATIC)) {
@@ -386,17 +528,11 @@ public class OverridableMethodInConstructorCheck extends Check
                 else if (hasModifier(methodDef, TokenTypes.LITERAL_PRIVATE)
                         || hasModifier(methodDef, TokenTypes.FINAL))
                 {
-                    final List<DetailAST> methodCallsList = getMethodCallsList(
-                            methodDef);
-                    for (DetailAST curNode : methodCallsList) {
-                        if (mVisitedMethodCalls.contains(curNode)) {
-                            result = false;
-                            break;
-                        }
-                        else if (isOverridableMethodCall(curNode)) {
-                            result = true;
-                            break;
-                        }
+                    final String overridable =
+                            getReachedOverridable(methodDef);
+                    if (overridable != null) {
+                        mCurOverridableMetName = overridable;
+                        result = true;
                     }
                 }
                 else {
@@ -405,9 +541,103 @@ public class OverridableMethodInConstructorCheck extends Check
                 }
             }
         }
-        else
-        {
-            result = false;
+        return result;
+    }
+
+    /**
+     * Gets the overridable method a private or final method leads to. The
+     * result is computed once per method: the methods are searched depth
+     * first and a method reached again through a cycle of calls is taken as
+     * not leading to an overridable method on that path. A negative result
+     * that depends on such a cycle is only remembered when the search of
+     * the first method of the cycle is over.
+     *
+     * @param aMethodDefAST
+     *            A METHOD_DEF DetailAST of a private or final method.
+     * @return the name of the first overridable method found or null if
+     *         the method does not lead to a call of an overridable method.
+     */
+    private String getReachedOverridable(final DetailAST aMethodDefAST)
+    {
+        String result = mReachedOverridables.get(aMethodDefAST);
+        final Integer searchDepth = mSearchDepths.get(aMethodDefAST);
+        final boolean known =
+                result != null || mReachingNothing.contains(aMethodDefAST);
+
+        if (!known && searchDepth != null) {
+            mCycleDepth = Math.min(mCycleDepth, searchDepth);
+        }
+        else if (!known) {
+            final int depth = mSearchDepths.size();
+            final int pendingCount = mPendingMethods.size();
+            final int outerCycleDepth = mCycleDepth;
+            mCycleDepth = Integer.MAX_VALUE;
+            mSearchDepths.put(aMethodDefAST, depth);
+
+            for (DetailAST curNode : getMethodCalls(aMethodDefAST)) {
+                if (isOverridableMethodCall(curNode)) {
+                    result = mCurOverridableMetName;
+                    break;
+                }
+            }
+
+            mSearchDepths.remove(aMethodDefAST);
+            if (result != null) {
+                mReachedOverridables.put(aMethodDefAST, result);
+            }
+            else if (mCycleDepth < depth) {
+                mPendingMethods.add(aMethodDefAST);
+            }
+            else {
+                mReachingNothing.add(aMethodDefAST);
+                mReachingNothing.addAll(mPendingMethods.subList(pendingCount,
+                        mPendingMethods.size()));
+            }
+            if (result != null || mCycleDepth >= depth) {
+                // the methods of the cycles are over
+                mPendingMethods.subList(pendingCount, mPendingMethods.size())
+                        .clear();
+                mCycleDepth = outerCycleDepth;
+            }
+            else {
+                mCycleDepth = Math.min(mCycleDepth, outerCycleDepth);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the method definition a METHOD_CALL node is resolved to, resolving
+     * each call once per tree.
+     *
+     * @param aMethodCallAST
+     *            A METHOD_CALL DetailAST node.
+     * @return the METHOD_DEF node or null if the call is not resolved.
+     */
+    private DetailAST resolveMethodCall(final DetailAST aMethodCallAST)
+    {
+        DetailAST result = mResolvedCalls.get(aMethodCallAST);
+        if (result == null && !mResolvedCalls.containsKey(aMethodCallAST)) {
+            result = getMethodDef(aMethodCallAST);
+            mResolvedCalls.put(aMethodCallAST, result);
+        }
+        return result;
+    }
+
+    /**
+     * Gets all METHOD_CALL nodes of a method definition, collecting them
+     * once per tree.
+     *
+     * @param aMethodDefAST
+     *            A METHOD_DEF DetailAST node.
+     * @return List contains all METHOD_CALL nodes of the method.
+     */
+    private List<DetailAST> getMethodCalls(final DetailAST aMethodDefAST)
+    {
+        List<DetailAST> result = mMethodCalls.get(aMethodDefAST);
+        if (result == null) {
+            result = getMethodCallsList(aMethodDefAST);
+            mMethodCalls.put(aMethodDefAST, result);
         }
         return result;
     }
@@ -423,17 +653,21 @@ public class OverridableMethodInConstructorCheck extends Check
      */
     private List<DetailAST> getMethodCallsList(final DetailAST aParentAST)
     {
+        TimeBudget.checkpoint();
 
-        final List<DetailAST> result = new LinkedList<DetailAST>();
+        final List<DetailAST> result = new ArrayList<DetailAST>();
 
-        for (DetailAST curNode : getChildren(aParentAST)) {
-            if (curNode.getNumberOfChildren() > 0) {
-                if (curNode.getType() == TokenTypes.METHOD_CALL) {
-                    result.add(curNode);
-                }
-                else {
-                    result.addAll(getMethodCallsList(curNode));
-                }
+        DetailAST curNode = aParentAST.getFirstChild();
+        while (curNode != null) {
+            if (curNode.getType() == TokenTypes.METHOD_CALL
+                    && curNode.getFirstChild() != null)
+            {
+                result.add(curNode);
+                curNode = DetailAstTraversal.nextPreOrderSkipChildren(curNode,
+                        aParentAST);
+            }
+            else {
+                curNode = DetailAstTraversal.nextPreOrder(curNode, aParentAST);
             }
         }
         return result;
@@ -475,8 +709,8 @@ public class OverridableMethodInConstructorCheck extends Check
                     final String curClassName = getClassDef(aMethodCallAST)
                             .findFirstToken(TokenTypes.IDENT).getText();
                     if (firstChild.getText().equals(curClassName)
-                            || getClassDef(mTreeRootAST,
-                                    firstChild.getText()) != null)
+                            || getClassDefs().containsKey(
+                                    firstChild.getText()))
                     {
                         result = lastChild.getText();
                     }
@@ -641,33 +875,90 @@ public class OverridableMethodInConstructorCheck extends Check
     private List<DetailAST> getMethodDef(final DetailAST aParentAST,
             final String aMethodName)
     {
-        List<DetailAST> definitionsList = new LinkedList<DetailAST>();
-        
-        for (DetailAST curNode : getChildren(aParentAST)) {
-
-            if (curNode.getNumberOfChildren() > 0) {
-                if (curNode.getType() == TokenTypes.METHOD_DEF) {
-                    final String curMethodName = curNode.findFirstToken(
-                            TokenTypes.IDENT).getText();
-                    if (aMethodName.equals(curMethodName)) {
-                        mCurMethodDef = curNode;
-                        definitionsList.add(0,curNode);
-                        mCurMethodDefCount++;
-                    }
-                }
+        Map<String, MethodDefsLookup> classLookups =
+                mMethodDefsLookups.get(aParentAST);
+        if (classLookups == null) {
+            classLookups = new HashMap<String, MethodDefsLookup>();
+            mMethodDefsLookups.put(aParentAST, classLookups);
+        }
+        MethodDefsLookup lookup = classLookups.get(aMethodName);
+        if (lookup == null) {
+            lookup = findMethodDefs(aParentAST, aMethodName);
+            classLookups.put(aMethodName, lookup);
+        }
+        if (lookup.mCount > 0) {
+            mCurMethodDef = lookup.mLastMethodDef;
+            mCurMethodDefCount += lookup.mCount;
+        }
+        return lookup.mMethodDefs;
+    }
 
-                final int type = curNode.getType();
+    /**
+     * Searches the method definitions with the given name in a class the
+     * way {@link #getMethodDef(DetailAST, String)} returns them.
+     *
+     * @param aParentAST
+     *            A parent CLASS_DEF DetailAST node which uses as a start point
+     *            when searching.
+     * @param aMethodName
+     *            String containing the name of method is currently being
+     *            searched.
+     * @return the result of the search.
+     */
+    private static MethodDefsLookup findMethodDefs(final DetailAST aParentAST,
+            final String aMethodName)
+    {
+        final MethodDefsLookup result = new MethodDefsLookup();
+        // Explicit stack of the nodes being walked: the next child to look
+        // at on each level and the definitions list of that level. As in
+        // the former recursive version, the list of a level is replaced by
+        // the list of each nested level it descends into.
+        final List<DetailAST> nextChildren = new ArrayList<DetailAST>();
+        final List<List<DetailAST>> definitions =
+                new ArrayList<List<DetailAST>>();
+        nextChildren.add(aParentAST.getFirstChild());
+        definitions.add(new LinkedList<DetailAST>());
+        List<DetailAST> definitionsList = null;
+
+        while (!nextChildren.isEmpty()) {
+            final int top = nextChildren.size() - 1;
+            final DetailAST curNode = nextChildren.get(top);
 
-                if (type != TokenTypes.CLASS_DEF && type != TokenTypes.CTOR_DEF
-                        && type != TokenTypes.MODIFIERS
-                        && type != TokenTypes.IMPLEMENTS_CLAUSE
-                        && type != TokenTypes.METHOD_DEF)
-                {
-                    definitionsList = getMethodDef(curNode, aMethodName);
+            if (curNode == null) {
+                nextChildren.remove(top);
+                definitionsList = definitions.remove(top);
+                if (top > 0) {
+                    definitions.set(top - 1, definitionsList);
+                }
+            }
+            else {
+                nextChildren.set(top, curNode.getNextSibling());
+
+                if (curNode.getFirstChild() != null) {
+                    final int type = curNode.getType();
+
+                    if (type == TokenTypes.METHOD_DEF) {
+                        final String curMethodName = curNode.findFirstToken(
+                                TokenTypes.IDENT).getText();
+                        if (aMethodName.equals(curMethodName)) {
+                            result.mLastMethodDef = curNode;
+                            definitions.get(top).add(0, curNode);
+                            result.mCount++;
+                        }
+                    }
+                    else if (type != TokenTypes.CLASS_DEF
+                            && type != TokenTypes.CTOR_DEF
+                            && type != TokenTypes.MODIFIERS
+                            && type != TokenTypes.IMPLEMENTS_CLAUSE)
+                    {
+                        nextChildren.add(curNode.getFirstChild());
+                        definitions.add(new LinkedList<DetailAST>());
+                    }
                 }
             }
         }
-        return definitionsList;
+        result.mMethodDefs = definitionsList;
+        return result;
     }
 
     /**
@@ -693,7 +984,7 @@ public class OverridableMethodInConstructorCheck extends Check
         }
 
         if (paramsParentAST != null && paramsParentAST.getChildCount() != 0) {
-            for (DetailAST curNode : getChildren(paramsParentAST)) {
+            for (DetailAST curNode : DetailAstTraversal.children(paramsParentAST)) {
                 if (curNode.getType() == TokenTypes.COMMA) {
                     result++;
                 }
@@ -724,7 +1015,7 @@ public class OverridableMethodInConstructorCheck extends Check
                 .findFirstToken(TokenTypes.MODIFIERS);
 
         if (modifiers != null && modifiers.getChildCount() != 0) {
-            for (DetailAST curNode : getChildren(modifiers)) {
+            for (DetailAST curNode : DetailAstTraversal.children(modifiers)) {
                 if (curNode.getType() == aModifierType) {
                     result = true;
                     break;
@@ -744,16 +1035,12 @@ public class OverridableMethodInConstructorCheck extends Check
      * @return The parent CLASS_DEF node for the class that owns a METHOD_CALL
      *         node named aMethodNode.
      * */
-    private static DetailAST getClassDef(final DetailAST aMethodNode)
+    private DetailAST getClassDef(final DetailAST aMethodNode)
     {
-
-        DetailAST curNode = aMethodNode;
-
-        while (curNode != null && curNode.getType() != TokenTypes.CLASS_DEF) {
-            curNode = curNode.getParent();
+        if (mAstIndex == null) {
+            mAstIndex = new AstIndex(mTreeRootAST);
         }
-
-        return curNode;
+        return mAstIndex.getEnclosing(aMethodNode, TokenTypes.CLASS_DEF);
     }
 
     /**
@@ -784,6 +1071,13 @@ public class OverridableMethodInConstructorCheck extends Check
                 break;
             }
         }
+        if (!result && mClassHierarchyIndex != null) {
+            final ClassInfo classInfo =
+                    mClassHierarchyIndex.getClassInfo(aClassDefNode);
+            result = classInfo != null
+                    && mClassHierarchyIndex.isSubtypeOf(classInfo,
+                            aInterfaceName);
+        }
         return result;
     }
 
@@ -807,7 +1101,7 @@ public class OverridableMethodInConstructorCheck extends Check
                 .findFirstToken(TokenTypes.IMPLEMENTS_CLAUSE);
 
         if (implClause != null) {
-            for (DetailAST ident : getChildren(implClause)) {
+            for (DetailAST ident : DetailAstTraversal.children(implClause)) {
                 if (ident.getText().equals(aInterfaceName)) {
                     result = true;
                     break;
@@ -834,12 +1128,12 @@ public class OverridableMethodInConstructorCheck extends Check
         String baseClassName = getBaseClassName(aClassDefNode);
 
         if (baseClassName != null) {
-            DetailAST curClass = getClassDef(mTreeRootAST, baseClassName);
+            DetailAST curClass = getClassDefs().get(baseClassName);
             while (curClass != null) {
                 result.add(curClass);
                 baseClassName = getBaseClassName(curClass);
                 if (baseClassName != null) {
-                    curClass = getClassDef(mTreeRootAST, baseClassName);
+                    curClass = getClassDefs().get(baseClassName);
                 }
                 else {
                     break;
@@ -850,43 +1144,33 @@ public class OverridableMethodInConstructorCheck extends Check
     }
 
     /**
-     * Gets the CLASS_DEF DetailAST node for the class is named "aClassName".
+     * Gets CLASS_DEF DetailAST nodes of the current tree by class name. For
+     * classes with the same name the first one is taken; the root node
+     * itself is never taken.
      *
-     * @param aRootNode
-     *            A root node of synthax tree is being processed.
-     * @param aClassName
-     *            The name of class to search.
-     * @return The CLASS_DEF DetailAST node which is related to the class is
-     *         named "aClassName".
-     */
-    private static DetailAST getClassDef(DetailAST aRootNode, String aClassName)
+     * @return CLASS_DEF nodes by class name.
+     */
+    private Map<String, DetailAST> getClassDefs()
     {
-
-        DetailAST curNode = aRootNode;
-
-        while (curNode != null) {
-            DetailAST toVisit = curNode.getFirstChild();
-            while ((curNode != null) && (toVisit == null)) {
-                toVisit = curNode.getNextSibling();
-                if (toVisit == null) {
-                    curNode = curNode.getParent();
-                }
-            }
-
-            curNode = toVisit;
-
-            if (curNode == null) {
-                break;
-            }
-
-            if (curNode.getType() == TokenTypes.CLASS_DEF
-                    && curNode.findFirstToken(TokenTypes.IDENT).getText()
-                            .equals(aClassName))
+        if (mClassDefs == null) {
+            mClassDefs = new HashMap<String, DetailAST>();
+            for (DetailAST topLevel
+                    : DetailAstTraversal.siblings(mTreeRootAST))
             {
-                break;
+                for (DetailAST curNode : DetailAstTraversal.preOrder(topLevel)) {
+                    if (curNode != mTreeRootAST
+                            && curNode.getType() == TokenTypes.CLASS_DEF)
+                    {
+                        final String className = curNode.findFirstToken(
+                                TokenTypes.IDENT).getText();
+                        if (!mClassDefs.containsKey(className)) {
+                            mClassDefs.put(className, curNode);
+                        }
+                    }
+                }
             }
         }
-        return curNode;
+        return mClassDefs;
     }
 
     /**
@@ -917,23 +1201,22 @@ public class OverridableMethodInConstructorCheck extends Check
     }
 
     /**
-     * Gets all the children one level below on the current DetailAST parent
-     * node.
-     *
-     * @param aNode
-     *            Current parent node.
-     * @return An array of children one level below on the current parent node
-     *         aNode.
+     * Method definitions with the same name found in a class.
      */
-    private static List<DetailAST> getChildren(final DetailAST aNode)
+    private static class MethodDefsLookup
     {
-        final List<DetailAST> result = new LinkedList<DetailAST>();
-        DetailAST curNode = aNode.getFirstChild();
-        while (curNode != null) {
-            result.add(curNode);
-            curNode = curNode.getNextSibling();
-        }
-        return result;
+        /**
+         * The list returned by {@link #getMethodDef(DetailAST, String)}.
+         */
+        private List<DetailAST> mMethodDefs;
+        /**
+         * The last method definition found.
+         */
+        private DetailAST mLastMethodDef;
+        /**
+         * Number of method definitions found.
+         */
+        private int mCount;
     }
 
     /**
@@ -948,6 +1231,11 @@ public class OverridableMethodInConstructorCheck extends Check
          *           call of the overridable method.
          */
         private DetailAST mMetCallAST;
+        /**
+         * DetailAST node of the called method definition, null if it is
+         * defined in another file.
+         */
+        private DetailAST mMethodDefAST;
         /**
          * The name of an overridable method.
          */
@@ -958,14 +1246,17 @@ public class OverridableMethodInConstructorCheck extends Check
          * @param aMethodCallAST
          *            DetailAST node related to the method call that leads
          *            to call of the overridable method.
+         * @param aMethodDefAST
+         *            DetailAST node of the called method definition or null.
          * @param aOverridableMetName
          *            The name of an overridable method.
          */
         public OverridableMetCall(DetailAST aMethodCallAST,
-                String aOverridableMetName)
+                DetailAST aMethodDefAST, String aOverridableMetName)
         {
             super();
             this.mMetCallAST = aMethodCallAST;
+            this.mMethodDefAST = aMethodDefAST;
             this.mOverridableMetName = aOverridableMetName;
         }
     }
@@ -20,10 +20,9 @@ package com.github.sevntu.checkstyle.checks.coding;
 
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Set;
 
+import com.github.sevntu.checkstyle.ast.LineSpans;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
@@ -133,6 +132,11 @@ public class ReturnCountExtendedCheck extends Check
      */
     private int mTopLinesToIgnoreCount = DEFAULT_TOP_LINES_TO_IGNORE_COUNT;
 
+    /**
+     * Line spans of the blocks of the current file.
+     */
+    private LineSpans mLineSpans;
+
     /**
 	 * Sets the RegExp patterns for methods' names which would be ignored by check.
 	 * 
@@ -215,6 +219,12 @@ public class ReturnCountExtendedCheck extends Check
         mIgnoreMethodsNames.add("equals");
     }
 
+    @Override
+    public void beginTree(DetailAST aRootAST)
+    {
+        mLineSpans = new LineSpans(getLines());
+    }
+
     @Override
     public int[] getDefaultTokens()
     {
@@ -230,19 +240,12 @@ public class ReturnCountExtendedCheck extends Check
         if (openingBrace != null && (methodName == null 
                 || !matches(methodName, mIgnoreMethodsNames)))
         {
-            final DetailAST closingBrace = openingBrace.getLastChild();
-
-            int curMethodLinesCount = getLinesCount(openingBrace,
-                    closingBrace);
-
-            if (curMethodLinesCount != 0) {
-                curMethodLinesCount--;
-            }
+            final int curMethodLinesCount =
+                    mLineSpans.getInnerLinesCount(openingBrace);
 
             if (curMethodLinesCount >= mIgnoreMethodLinesCount) {
 
-                final int mCurReturnCount = getReturnCount(aMethodDefNode,
-                        openingBrace);
+                final int mCurReturnCount = getReturnCount(openingBrace);
 
                 if (mCurReturnCount > mMaxReturnCount) {
                     final String mKey = (aMethodDefNode.getType()
@@ -261,60 +264,62 @@ public class ReturnCountExtendedCheck extends Check
     }
 
     /**
-     * Gets the "return" statements count for given method/ctor and saves the
-     * last "return" statement DetailAST node for given method/ctor body. Uses
-     * an iterative algorithm.
+     * Gets the "return" statements count for given method/ctor in one walk
+     * of its body, keeping track of the depth of the current node on the
+     * way. Uses an iterative algorithm.
      * @param aMethodOpeningBrace
      *        a DetailAST node that points to the current method`s opening
      *        brace.
-     * @param aMethodDefNode
-     *        DetailAST node is pointing to current method definition is being
-     *        processed.
      * @return "return" literals count for given method.
      */
-    private int getReturnCount(final DetailAST aMethodDefNode,
-            final DetailAST aMethodOpeningBrace)
+    private int getReturnCount(final DetailAST aMethodOpeningBrace)
     {
         int result = 0;
+        final int lastIgnoredLine = mLineSpans.getFirstLine(aMethodOpeningBrace)
+                + mTopLinesToIgnoreCount;
+        // number of the depth-counted blocks the current node is in
+        int depth = 0;
 
         DetailAST curNode = aMethodOpeningBrace;
 
         while (curNode != null) {
 
             // before node visiting
-            if (curNode.getType() == TokenTypes.RCURLY
-                    && curNode.getParent() == aMethodOpeningBrace)
-            {
-                break; // stop at closing brace
-            }
-            else {
-                if (curNode.getType() == TokenTypes.LITERAL_RETURN
-                        && getDepth(aMethodDefNode
-                                , curNode) < mMinIgnoreReturnDepth
+            final int type = curNode.getType();
+            if (type == TokenTypes.LITERAL_RETURN) {
+                if (depth < mMinIgnoreReturnDepth
                         && shouldEmptyReturnStatementBeCounted(curNode)
-                        && getLinesCount(aMethodOpeningBrace,
-                                curNode) > mTopLinesToIgnoreCount)
+                        && curNode.getLineNo() > lastIgnoredLine)
                 {
                     result++;
                 }
             }
+            else if (isDepthCounted(type)) {
+                depth++;
+            }
 
             // before node leaving
-            DetailAST nextNode = curNode.getFirstChild();
-
-            final int type = curNode.getType();
+            DetailAST nextNode = null;
             // skip nested methods (UI listeners, Runnable.run(), etc.)
-            if (type == TokenTypes.METHOD_DEF
-                  || type == TokenTypes.CLASS_DEF) // skip anonimous classes
+            if (type != TokenTypes.METHOD_DEF
+                  && type != TokenTypes.CLASS_DEF) // skip anonimous classes
             {
-                nextNode = curNode.getNextSibling();
+                nextNode = curNode.getFirstChild();
             }
 
             while ((curNode != null) && (nextNode == null)) {
                 // leave the visited Node
-                nextNode = curNode.getNextSibling();
-                if (nextNode == null) {
-                    curNode = curNode.getParent();
+                if (isDepthCounted(curNode.getType())) {
+                    depth--;
+                }
+                if (curNode == aMethodOpeningBrace) {
+                    curNode = null; // stop at the end of the method body
+                }
+                else {
+                    nextNode = curNode.getNextSibling();
+                    if (nextNode == null) {
+                        curNode = curNode.getParent();
+                    }
                 }
             }
             curNode = nextNode;
@@ -339,36 +344,22 @@ public class ReturnCountExtendedCheck extends Check
     }
 
     /**
-     * Gets the depth level of given "return" statement. There are few supported
-     * coding blocks when depth counting: "if-else", "for", "while"/"do-while"
-     * and "switch".
-     * @param aMethodDefNode
-     *        a DetailAST node that points to the current method`s definition.
-     * @param aReturnStmtNode
-     *        given "return" statement node.
-     * @return the depth of given
+     * Checks whether the "return" statements inside a block are one level
+     * deeper. There are few supported coding blocks when depth counting:
+     * "if-else", "for", "while"/"do-while", "switch" and "try".
+     * @param aType
+     *        the token type of the block.
+     * @return true if the block is counted in the depth of "return"
+     *         statements.
      */
-    private static int getDepth(DetailAST aMethodDefNode,
-            DetailAST aReturnStmtNode)
+    private static boolean isDepthCounted(int aType)
     {
-        int result = 0;
-
-        DetailAST curNode = aReturnStmtNode;
-
-        while (!curNode.equals(aMethodDefNode)) {
-            curNode = curNode.getParent();
-            final int type = curNode.getType();
-            if (type == TokenTypes.LITERAL_IF
-                    || type == TokenTypes.LITERAL_SWITCH
-                    || type == TokenTypes.LITERAL_FOR
-                    || type == TokenTypes.LITERAL_DO
-                    || type == TokenTypes.LITERAL_WHILE
-                    || type == TokenTypes.LITERAL_TRY)
-            {
-                result++;
-            }
-        }
-        return result;
+        return aType == TokenTypes.LITERAL_IF
+                || aType == TokenTypes.LITERAL_SWITCH
+                || aType == TokenTypes.LITERAL_FOR
+                || aType == TokenTypes.LITERAL_DO
+                || aType == TokenTypes.LITERAL_WHILE
+                || aType == TokenTypes.LITERAL_TRY;
     }
 
     /**
@@ -380,48 +371,11 @@ public class ReturnCountExtendedCheck extends Check
      */
     private static String getMethodName(DetailAST aMethodDefNode)
     {
-        String result = null;
-        for (DetailAST curNode : getChildren(aMethodDefNode)) {
-            if (curNode.getType() == TokenTypes.IDENT) {
-                result = curNode.getText();
-                break;
-            }
-        }
-        return result;
-    }
-
-    /**
-     * Gets the line count between the two DetailASTs which are related to the
-     * given "begin" and "end" tokens.
-     * @param aBeginAst
-     *        the "begin" token AST node.
-     * @param aEndAST
-     *        the "end" token AST node.
-     * @return the line count between "begin" and "end" tokens.
-     */
-    private static int getLinesCount(DetailAST aBeginAst, DetailAST aEndAST)
-    {
-        return aEndAST.getLineNo() - aBeginAst.getLineNo();
+        final DetailAST nameNode =
+                aMethodDefNode.findFirstToken(TokenTypes.IDENT);
+        return nameNode == null ? null : nameNode.getText();
     }
 
-    /**
-     * Gets all the children which are one level below on the current DetailAST
-     * parent node.
-     * @param aNode
-     *        Current parent node.
-     * @return The list of children one level below on the current parent node.
-     */
-    private static List<DetailAST> getChildren(final DetailAST aNode)
-    {
-        final List<DetailAST> result = new LinkedList<DetailAST>();
-        DetailAST curNode = aNode.getFirstChild();
-        while (curNode != null) {
-            result.add(curNode);
-            curNode = curNode.getNextSibling();
-        }
-        return result;
-    }
-    
     /**
 	 * Matches string to given list of RegExp patterns.
 	 * 
@@ -18,9 +18,6 @@
 ////////////////////////////////////////////////////////////////////////////////
 package com.github.sevntu.checkstyle.checks.coding;
 
-import java.util.LinkedList;
-import java.util.List;
-
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
@@ -85,6 +82,8 @@ import com.puppycrawl.tools.checkstyle.api.TokenTypes;
  * </pre>
  * </code>
  * </p>
+ * Question marks in comments and in string and character literals are not taken for
+ * ternary operators when looking for isolated ones.<br>
  * @author <a href="mailto:nesterenko-aleksey@list.ru">Aleksey Nesterenko</a>
  */
 
@@ -100,6 +99,12 @@ public class TernaryPerExpressionCountCheck extends Check {
     
     private boolean ignoreIsolatedTernaryOnLine = true;
 
+    /**
+     * Number of question marks on each line of the current file outside comments and
+     * literals, null until an isolated ternary operator is looked for.
+     */
+    private int[] questionsPerLine;
+
     @Override
     public int[] getDefaultTokens() {
         return new int[] { TokenTypes.EXPR };
@@ -138,40 +143,35 @@ public class TernaryPerExpressionCountCheck extends Check {
     }
 
     @Override
-    public void visitToken(DetailAST expressionNode) {
-
-        List<DetailAST> questionNodes = getQuestionNodes(expressionNode);
-
-        if (questionNodes.size() > maxTernaryPerExpressionCount) {
-            DetailAST firstQuestionNode = questionNodes.get(0);
-            log(firstQuestionNode, MSG_KEY, maxTernaryPerExpressionCount);
-        }
+    public void beginTree(DetailAST rootAST) {
+        questionsPerLine = null;
     }
 
-    /**
-     * Puts question nodes from current expression node into the list
-     * @param expressionNode
-     *          Globally considering expression node
-     * @return
-     *          List of question nodes
-     */
-    private List<DetailAST> getQuestionNodes(DetailAST expressionNode) {
+    @Override
+    public void visitToken(DetailAST expressionNode) {
 
-        List<DetailAST> questionNodes = new LinkedList<DetailAST>();
+        DetailAST firstQuestionNode = null;
+        int questionsCount = 0;
 
         DetailAST currentNode = expressionNode;
 
+        // the expression is reported as soon as there are too many ternary operators
         do {
             currentNode = getNextNode(expressionNode, currentNode);
             if (currentNode != null
                     && currentNode.getType() == TokenTypes.QUESTION
                     && !isSkipTernaryOperator(currentNode)) {
-                questionNodes.add(currentNode);
+                if (firstQuestionNode == null) {
+                    firstQuestionNode = currentNode;
+                }
+                questionsCount++;
             }
 
-        } while (currentNode != null);
-        
-        return questionNodes;
+        } while (currentNode != null && questionsCount <= maxTernaryPerExpressionCount);
+
+        if (questionsCount > maxTernaryPerExpressionCount) {
+            log(firstQuestionNode, MSG_KEY, maxTernaryPerExpressionCount);
+        }
     }
 
     /**
@@ -201,31 +201,69 @@ public class TernaryPerExpressionCountCheck extends Check {
      * @param questionAST
      */
     private boolean isIsolatedTernaryOnLine(DetailAST questionAST) {
-        int lineNo = questionAST.getLineNo() - 1;
-        String line = getFileContents().getText().get(lineNo);
-        
-        return isSingleTernaryLine(line, lineNo); 
+        if (questionsPerLine == null) {
+            questionsPerLine = countQuestionsPerLine(getLines());
+        }
+        return questionsPerLine[questionAST.getLineNo() - 1] == 1;
     }
 
     /**
-     * Checks line parameter on containing more than 1 ternary operator
-     * @param line
+     * Counts question marks on each line outside comments and string and character literals,
+     * in one pass over the file
+     * @param lines
+     *            Lines of the file
+     * @return
+     *            Number of question marks by line index
      */
-    private boolean isSingleTernaryLine(String line, int lineNo) {
-        int questionsPerLine = 0;
-        char[] charArrayFromLine = line.toCharArray();
-        for (int i = 0; i < line.length(); i++) {
-            char currentSymbol = charArrayFromLine[i];
-            if (currentSymbol == '?' && !getFileContents().hasIntersectionWithComment(lineNo + 1,
-                    i, lineNo + 1, i)) {
-                questionsPerLine++;
+    private static int[] countQuestionsPerLine(String[] lines) {
+        final int[] result = new int[lines.length];
+        boolean inBlockComment = false;
+        for (int lineNo = 0; lineNo < lines.length; lineNo++) {
+            final String line = lines[lineNo];
+            int i = 0;
+            while (i < line.length()) {
+                final char currentSymbol = line.charAt(i);
+                if (inBlockComment) {
+                    if (line.startsWith("*/", i)) {
+                        inBlockComment = false;
+                        i++;
+                    }
+                } else if (line.startsWith("//", i)) {
+                    i = line.length();
+                } else if (line.startsWith("/*", i)) {
+                    inBlockComment = true;
+                    i++;
+                } else if (currentSymbol == '"' || currentSymbol == '\'') {
+                    i = getLiteralEnd(line, i);
+                } else if (currentSymbol == '?') {
+                    result[lineNo]++;
+                }
+                i++;
             }
-            if (questionsPerLine > 1) {
-                break;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the end of a string or character literal
+     * @param line
+     *            Line of the literal
+     * @param start
+     *            Index of the opening quote
+     * @return
+     *            Index of the closing quote, past the end of the line if there is none
+     */
+    private static int getLiteralEnd(String line, int start) {
+        final char quote = line.charAt(start);
+        int i = start + 1;
+        while (i < line.length() && line.charAt(i) != quote) {
+            if (line.charAt(i) == '\\') {
+                // the escaped symbol can not close the literal
+                i++;
             }
+            i++;
         }
-        
-        return questionsPerLine == 1;
+        return i;
     }
 
     /**
@@ -24,6 +24,8 @@ import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
+import com.github.sevntu.checkstyle.index.ClassHierarchyAware;
+import com.github.sevntu.checkstyle.index.ClassHierarchyIndex;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
@@ -42,11 +44,17 @@ import com.puppycrawl.tools.checkstyle.api.TokenTypes;
  * <li>Exception classNames regexp. ("classNamesRegexp" option).</li>
  * <li>regexp to ignore classes by names ("ignoredClassNamesRegexp" option).
  * </li><li>The names of classes which would be considered as Exception cause
- * ("allowedCauseTypes" option).</li></ol><br>
+ * ("allowedCauseTypes" option).</li></ol>
+ * <p>
+ * When run with the class hierarchy index (see {@link ClassHierarchyAware}),
+ * subclasses of the allowed cause types defined in the source set are
+ * considered as Exception cause too.
+ * </p><br>
  * @author <a href="mailto:Daniil.Yaroslavtsev@gmail.com"> Daniil
  *         Yaroslavtsev</a>
  */
 public class CauseParameterInExceptionCheck extends Check
+    implements ClassHierarchyAware
 {
     /**
      * A key is pointing to the warning message text in "messages.properties"
@@ -79,6 +87,11 @@ public class CauseParameterInExceptionCheck extends Check
     private List<DetailAST> mExceptionClassesToWarn =
             new LinkedList<DetailAST>();
 
+    /**
+     * Index of the classes of the whole source set, null if not available.
+     */
+    private ClassHierarchyIndex mClassHierarchyIndex;
+
     /**
      * Creates the new check instance.
      */
@@ -132,6 +145,14 @@ public class CauseParameterInExceptionCheck extends Check
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void setClassHierarchyIndex(ClassHierarchyIndex aIndex)
+    {
+        mClassHierarchyIndex = aIndex;
+    }
+
     @Override
     public int[] getDefaultTokens()
     {
@@ -194,7 +215,9 @@ public class CauseParameterInExceptionCheck extends Check
         final DetailAST parameters =
                 aCtorDefNode.findFirstToken(TokenTypes.PARAMETERS);
         for (String parameterType : getParameterTypes(parameters)) {
-            if (mAllowedCauseTypes.contains(parameterType)) {
+            if (mAllowedCauseTypes.contains(parameterType)
+                    || isSubtypeOfAllowedCauseType(parameterType))
+            {
                 result = true;
                 break;
             }
@@ -202,6 +225,28 @@ public class CauseParameterInExceptionCheck extends Check
         return result;
     }
 
+    /**
+     * Checks that the given type extends one of the allowed cause types
+     * according to the class hierarchy index.
+     * @param aTypeName
+     *        name of the type.
+     * @return true if the index is available and the type is a subtype of an
+     *         allowed cause type.
+     */
+    private boolean isSubtypeOfAllowedCauseType(String aTypeName)
+    {
+        boolean result = false;
+        if (mClassHierarchyIndex != null) {
+            for (String causeType : mAllowedCauseTypes) {
+                if (mClassHierarchyIndex.isSubtypeOf(aTypeName, causeType)) {
+                    result = true;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Gets the list of classNames for given constructor parameters types.
      * @param aParametersAST - A PARAMETERS DetailAST.
@@ -18,10 +18,12 @@
 ////////////////////////////////////////////////////////////////////////////////
 package com.github.sevntu.checkstyle.checks.design;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
-import com.google.common.collect.Lists;
+import com.github.sevntu.checkstyle.ast.LineSpans;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
@@ -90,6 +92,17 @@ public class ChildBlockLengthCheck extends Check
      */
     private int mIgnoreBlockLinesCount = DEFAULT_IGNORE_BLOCK_LINESCOUNT;
 
+    /**
+     * Line spans of the blocks of the current file.
+     */
+    private LineSpans mLineSpans;
+
+    /**
+     * Blocks with braces of the allowed types in the current file.
+     */
+    private final Map<DetailAST, Block> mBlocks =
+            new IdentityHashMap<DetailAST, Block>();
+
     /**
      * Sets allowed types of blocks to be checked. Supported block types:
      * LITERAL_IF, LITERAL_SWITCH, LITERAL_FOR, LITERAL_DO, LITERAL_WHILE,
@@ -134,151 +147,149 @@ public class ChildBlockLengthCheck extends Check
     }
 
     @Override
-    public void visitToken(DetailAST aAst)
+    public void beginTree(DetailAST aRootAST)
     {
-        final DetailAST aOpeningBrace = openingBrace(aAst);
-
-        if (aOpeningBrace != null) { // if the block has braces at all
-
-            final DetailAST aClosingBrace = closingBrace(aAst);
-            final int parentBlockSize =
-                    linesCount(aOpeningBrace, aClosingBrace);
-
-            if (parentBlockSize > mIgnoreBlockLinesCount) {
-
-                final List<DetailAST> childBlocks = getChildBlocks(
-                        aOpeningBrace, aClosingBrace);
-
-                final List<DetailAST> badChildBlocks = getBadChildBlocks(
-                        childBlocks, parentBlockSize);
-
-                if (badChildBlocks.size() == 0) {
-                    for (DetailAST childBlock : childBlocks) {
-                        visitToken(childBlock);
-                    }
-                }
-                else {
-                    for (DetailAST badBlock : badChildBlocks) {
-
-                        final int blockSize = linesCount(badBlock);
-
-                        final double allowedBlockSize = (int) (parentBlockSize
-                                * mMaxChildBlockPercentage / PERCENTS_FACTOR);
+        mLineSpans = new LineSpans(getLines());
+        mBlocks.clear();
+        collectBlocks(aRootAST);
+    }
 
-                        log(badBlock, MSG_KEY, blockSize, allowedBlockSize);
-                    }
+    @Override
+    public void visitToken(DetailAST aAst)
+    {
+        final Block parentBlock = mBlocks.get(aAst);
+
+        if (parentBlock != null && parentBlock.mSize > mIgnoreBlockLinesCount) {
+            final double allowedBlockSize = (int) (parentBlock.mSize
+                    * mMaxChildBlockPercentage / PERCENTS_FACTOR);
+
+            final List<Block> childBlocks =
+                    new ArrayList<Block>(parentBlock.mChildren);
+            while (!childBlocks.isEmpty()) {
+                final Block childBlock =
+                        childBlocks.remove(childBlocks.size() - 1);
+                // blocks inside a child block are not longer than it, so
+                // they are only looked at if it is too long itself
+                if (getPercentage(parentBlock.mSize, childBlock.mSize)) {
+                    log(childBlock.mAst, MSG_KEY, childBlock.mSize,
+                            allowedBlockSize);
+                    childBlocks.addAll(childBlock.mChildren);
                 }
             }
         }
     }
 
     /**
-     * Gets all the child blocks for given parent block. Uses an iterative
-     * algorithm.
-     * @param aBlockOpeningBrace
-     *        a DetailAST node that points to the current method`s opening
-     *        brace.
-     * @param aBlockClosingBrace
-     *        the a block closing brace
-     * @return all child blocks that have braces.
+     * Builds the tree of the blocks of the file in one walk: every block
+     * with braces of the allowed types gets its size and the blocks between
+     * its braces that are not inside another such block. Blocks of nested
+     * methods and classes are not child blocks of the enclosing ones.
+     * @param aRootAST
+     *        the first top-level node of the file.
      */
-    private List<DetailAST> getChildBlocks(DetailAST aBlockOpeningBrace,
-            DetailAST aBlockClosingBrace)
+    private void collectBlocks(DetailAST aRootAST)
     {
-        final List<DetailAST> childBlocks = Lists.newLinkedList();
-
-        DetailAST curNode = aBlockOpeningBrace;
-
+        // blocks whose braces the walk is between, null for a nested method
+        // or class
+        final List<Block> enclosingBlocks = new ArrayList<Block>();
+        DetailAST curNode = aRootAST;
         while (curNode != null) {
-            // before node visiting
-            if (curNode == aBlockClosingBrace) {
-                break; // stop at closing brace
-            }
-            else {
-                if (isAllowedBlockType(curNode.getType())) {
-                    childBlocks.add(curNode);
+            enterNode(curNode, enclosingBlocks);
+            DetailAST toVisit = curNode.getFirstChild();
+            while (curNode != null && toVisit == null) {
+                leaveNode(curNode, enclosingBlocks);
+                toVisit = curNode.getNextSibling();
+                if (toVisit == null) {
+                    curNode = curNode.getParent();
                 }
             }
-            // before node leaving
-            DetailAST nextNode = curNode.getFirstChild();
-
-            final int type = curNode.getType();
-            // skip anonimous classes and nested methods
-            if (type == TokenTypes.METHOD_DEF
-                    || type == TokenTypes.CLASS_DEF)
-            {
-                nextNode = curNode.getNextSibling();
-            }
+            curNode = toVisit;
+        }
+    }
 
-            while ((curNode != null) && (nextNode == null)) {
-                // leave the visited node
-                nextNode = curNode.getNextSibling();
-                if (nextNode == null) {
-                    curNode = curNode.getParent();
+    /**
+     * Registers a block or the beginning of a scope while building the tree
+     * of the blocks.
+     * @param aNode
+     *        the node the walk enters.
+     * @param aEnclosingBlocks
+     *        blocks whose braces the walk is between.
+     */
+    private void enterNode(DetailAST aNode, List<Block> aEnclosingBlocks)
+    {
+        final int type = aNode.getType();
+        if (isBetweenBraces(aNode)) {
+            aEnclosingBlocks.add(mBlocks.get(aNode.getParent()));
+        }
+        else if (type == TokenTypes.METHOD_DEF
+                || type == TokenTypes.CLASS_DEF)
+        {
+            aEnclosingBlocks.add(null);
+        }
+        else if (isAllowedBlockType(type) && openingBrace(aNode) != null) {
+            final Block block = new Block(aNode, linesCount(aNode));
+            mBlocks.put(aNode, block);
+            if (!aEnclosingBlocks.isEmpty()) {
+                final Block parentBlock =
+                        aEnclosingBlocks.get(aEnclosingBlocks.size() - 1);
+                if (parentBlock != null) {
+                    parentBlock.mChildren.add(block);
                 }
             }
-            curNode = nextNode;
         }
-        return childBlocks;
     }
 
     /**
-     * Checks that given child block type is allowed.
-     * @param aBlockType
-     *        the token type ID for the given block.
-     * @return true, if the given child block type is allowed.
+     * Registers the end of a scope while building the tree of the blocks.
+     * @param aNode
+     *        the node the walk leaves.
+     * @param aEnclosingBlocks
+     *        blocks whose braces the walk is between.
      */
-    private boolean isAllowedBlockType(int aBlockType)
+    private void leaveNode(DetailAST aNode, List<Block> aEnclosingBlocks)
     {
-        boolean result = false;
-        for (int type : mBlockTypes) {
-            if (type == aBlockType) {
-                result = true;
-                break;
-            }
+        final int type = aNode.getType();
+        if (isBetweenBraces(aNode) || type == TokenTypes.METHOD_DEF
+                || type == TokenTypes.CLASS_DEF)
+        {
+            aEnclosingBlocks.remove(aEnclosingBlocks.size() - 1);
         }
-        return result;
     }
 
     /**
-     * Gets the child blocks which occupies too much size (in percentage) of
-     * given parent block size.
-     * @param aBlocksList
-     *        the blocks
-     * @param aParentBlockSize
-     *        the a parent block size
-     * @return the wrong child blocks
+     * Checks whether a node is between the braces of its parent block: the
+     * opening brace (SLIST) of the block or a case group of a switch.
+     * @param aNode
+     *        the node.
+     * @return true if the parent of the node is a block with braces of the
+     *         allowed types and the node is inside its braces.
      */
-    private List<DetailAST> getBadChildBlocks(List<DetailAST> aBlocksList,
-            int aParentBlockSize)
+    private boolean isBetweenBraces(DetailAST aNode)
     {
-        final List<DetailAST> result = new LinkedList<DetailAST>();
-        for (DetailAST block : aBlocksList) {
-            if (isChildBlockBad(block, aParentBlockSize)) {
-                result.add(block);
-            }
+        final DetailAST parent = aNode.getParent();
+        boolean result = false;
+        if (parent != null && mBlocks.containsKey(parent)) {
+            result = (parent.getType() == TokenTypes.LITERAL_SWITCH)
+                    ? aNode.getType() == TokenTypes.CASE_GROUP
+                    : aNode == openingBrace(parent);
         }
         return result;
     }
 
     /**
-     * Checks if the child block size percentage from parent block is greater
-     * than.
-     * @param aChildBlock
-     *        the a child block node
-     * @param aParentBlockSize
-     *        the a parent block size
-     * @return true, if is child block wrong
+     * Checks that given child block type is allowed.
+     * @param aBlockType
+     *        the token type ID for the given block.
+     * @return true, if the given child block type is allowed.
      */
-    private boolean isChildBlockBad(DetailAST aChildBlock,
-            int aParentBlockSize)
+    private boolean isAllowedBlockType(int aBlockType)
     {
         boolean result = false;
-        final DetailAST openingBrace = openingBrace(aChildBlock);
-        if (openingBrace != null) {
-            final DetailAST closingBrace = closingBrace(aChildBlock);
-            final int childBlockSize = linesCount(openingBrace, closingBrace);
-            result = getPercentage(aParentBlockSize, childBlockSize);
+        for (int type : mBlockTypes) {
+            if (type == aBlockType) {
+                result = true;
+                break;
+            }
         }
         return result;
     }
@@ -334,27 +345,47 @@ public class ChildBlockLengthCheck extends Check
      *        should have braces!).
      * @return the lines count between the given block braces.
      */
-    private static int linesCount(DetailAST aBlockAst)
+    private int linesCount(DetailAST aBlockAst)
     {
-        return linesCount(openingBrace(aBlockAst), closingBrace(aBlockAst));
+        final DetailAST openingBrace = openingBrace(aBlockAst);
+        return (aBlockAst.getType() == TokenTypes.LITERAL_SWITCH)
+                ? LineSpans.getInnerLinesCount(openingBrace.getLineNo(),
+                        closingBrace(aBlockAst).getLineNo())
+                : mLineSpans.getInnerLinesCount(openingBrace);
     }
 
     /**
-     * Gets the lines count between the given block opening and closing braces.
-     * @param aOpeningBrace
-     *        the block opening brace DetailAST (LCURLY or SLIST type)
-     * @param aClosingBrace
-     *        the block closing brace DetailAST (RCURLY type)
-     * @return the lines count between the given block braces.
+     * A block with braces and the blocks directly between its braces.
      */
-    private static int linesCount(DetailAST aOpeningBrace,
-            DetailAST aClosingBrace)
+    private static final class Block
     {
-        int result = aClosingBrace.getLineNo() - aOpeningBrace.getLineNo();
-        if (result != 0) {
-            result--;
+        /**
+         * The block node.
+         */
+        private final DetailAST mAst;
+
+        /**
+         * Number of lines between the braces.
+         */
+        private final int mSize;
+
+        /**
+         * Blocks between the braces which are not inside another block.
+         */
+        private final List<Block> mChildren = new ArrayList<Block>();
+
+        /**
+         * Creates a block.
+         * @param aAst
+         *        the block node.
+         * @param aSize
+         *        number of lines between the braces.
+         */
+        Block(DetailAST aAst, int aSize)
+        {
+            mAst = aAst;
+            mSize = aSize;
         }
-        return result;
     }
 
 }
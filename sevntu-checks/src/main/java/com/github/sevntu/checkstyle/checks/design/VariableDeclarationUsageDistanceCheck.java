@@ -20,13 +20,17 @@ package com.github.sevntu.checkstyle.checks.design;
 
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import antlr.collections.ASTEnumeration;
-
+import com.github.sevntu.checkstyle.ast.AstIndex;
+import com.github.sevntu.checkstyle.ast.DetailAstTraversal;
 import com.puppycrawl.tools.checkstyle.api.Check;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.FullIdent;
@@ -173,6 +177,26 @@ public class VariableDeclarationUsageDistanceCheck extends Check
     /** Allows to ignore variables with 'final' modifier. */
     private boolean mIgnoreFinal = true;
 
+    /** Root of the tree of the current file. */
+    private DetailAST mRootAST;
+
+    /** Index of the tree of the current file, built on first use. */
+    private AstIndex mAstIndex;
+
+    /**
+     * Usages of the names by the statements of each block of the current
+     * file a distance is calculated in, built on first use.
+     */
+    private final Map<DetailAST, BlockUsages> mBlockUsages =
+            new IdentityHashMap<DetailAST, BlockUsages>();
+
+    /**
+     * Position of each statement of the blocks in {@link #mBlockUsages}
+     * among its siblings.
+     */
+    private final Map<DetailAST, Integer> mStatementPositions =
+            new IdentityHashMap<DetailAST, Integer>();
+
     /**
      * Sets an allowed distance between declaration of variable and its first
      * usage.
@@ -224,6 +248,15 @@ public class VariableDeclarationUsageDistanceCheck extends Check
         return new int[] {TokenTypes.VARIABLE_DEF};
     }
 
+    @Override
+    public void beginTree(DetailAST aRootAST)
+    {
+        mRootAST = aRootAST;
+        mAstIndex = null;
+        mBlockUsages.clear();
+        mStatementPositions.clear();
+    }
+
     @Override
     public void visitToken(DetailAST aAST)
     {
@@ -362,58 +395,49 @@ public class VariableDeclarationUsageDistanceCheck extends Check
             DetailAST aSemicolonAst, DetailAST aVariableIdentAst)
     {
         int dist = 0;
-        boolean firstUsageFound = false;
-        DetailAST currentAst = aSemicolonAst;
         DetailAST variableUsageAst = null;
 
-        while (!firstUsageFound && currentAst != null
-                && currentAst.getType() != TokenTypes.RCURLY)
-        {
-            if (currentAst.getFirstChild() != null) {
+        if (aSemicolonAst != null) {
+            final BlockUsages block = getBlockUsages(aSemicolonAst.getParent());
+            final int start = mStatementPositions.get(aSemicolonAst);
+            final int usage =
+                    block.getFirstUsage(aVariableIdentAst.getText(), start);
 
-                if (isChild(currentAst, aVariableIdentAst)) {
+            // If variable wasn't used after its declaration, distance is 0.
+            if (usage != -1) {
+                final DetailAST currentAst = block.getStatement(usage);
+                dist = block.countStatements(start, usage);
 
-                    switch (currentAst.getType()) {
-                    case TokenTypes.VARIABLE_DEF:
+                switch (currentAst.getType()) {
+                case TokenTypes.VARIABLE_DEF:
+                    dist++;
+                    break;
+                case TokenTypes.SLIST:
+                    dist = 0;
+                    break;
+                case TokenTypes.LITERAL_FOR:
+                case TokenTypes.LITERAL_WHILE:
+                case TokenTypes.LITERAL_DO:
+                case TokenTypes.LITERAL_IF:
+                case TokenTypes.LITERAL_SWITCH:
+                    if (isVariableInOperatorExpr(currentAst, aVariableIdentAst)) {
                         dist++;
-                        break;
-                    case TokenTypes.SLIST:
+                    }
+                    else { // variable usage is in inner scope
+                        // reset counters, because we can't determine distance
                         dist = 0;
-                        break;
-                    case TokenTypes.LITERAL_FOR:
-                    case TokenTypes.LITERAL_WHILE:
-                    case TokenTypes.LITERAL_DO:
-                    case TokenTypes.LITERAL_IF:
-                    case TokenTypes.LITERAL_SWITCH:
-                        if (isVariableInOperatorExpr(currentAst, aVariableIdentAst)) {
-                            dist++;
-                        }
-                        else { // variable usage is in inner scope
-                            // reset counters, because we can't determine distance
-                            dist = 0;
-                        }
-                        break;
-                    default:
-                        if (currentAst.branchContains(TokenTypes.SLIST)) {
-                            dist = 0;
-                        }
-                        else {
-                            dist++;
-                        }
                     }
-                    variableUsageAst = currentAst;
-                    firstUsageFound = true;
-                }
-                else if (currentAst.getType() != TokenTypes.VARIABLE_DEF) {
-                    dist++;
+                    break;
+                default:
+                    if (currentAst.branchContains(TokenTypes.SLIST)) {
+                        dist = 0;
+                    }
+                    else {
+                        dist++;
+                    }
                 }
+                variableUsageAst = currentAst;
             }
-            currentAst = currentAst.getNextSibling();
-        }
-
-        // If variable wasn't used after its declaration, distance is 0.
-        if (!firstUsageFound) {
-            dist = 0;
         }
 
         return new SimpleEntry<DetailAST, Integer>(variableUsageAst, dist);
@@ -436,31 +460,21 @@ public class VariableDeclarationUsageDistanceCheck extends Check
         DetailAST currentScopeAst = aAST;
         DetailAST variableUsageAst = null;
         while (currentScopeAst != null) {
-            final List<DetailAST> variableUsageExpressions = new ArrayList<DetailAST>();
-            DetailAST currentStatementAst = currentScopeAst;
+            final BlockUsages block = getBlockUsages(currentScopeAst.getParent());
+            final int start = mStatementPositions.get(currentScopeAst);
+            final int firstUsage = block.getFirstUsage(aVariable.getText(), start);
+            final int secondUsage = firstUsage == -1 ? -1
+                    : block.getFirstUsage(aVariable.getText(), firstUsage + 1);
             currentScopeAst = null;
-            while (currentStatementAst != null
-                    && currentStatementAst.getType() != TokenTypes.RCURLY)
-            {
-                if (currentStatementAst.getFirstChild() != null) {
-                    if (isChild(currentStatementAst, aVariable)) {
-                        variableUsageExpressions.add(currentStatementAst);
-                    }
-                    // If expression doesn't contain variable and this variable
-                    // hasn't been met yet, than distance + 1.
-                    else if (variableUsageExpressions.size() == 0
-                            && currentStatementAst.getType() != TokenTypes.VARIABLE_DEF)
-                    {
-                        dist++;
-                    }
-                }
-                currentStatementAst = currentStatementAst.getNextSibling();
-            }
+            // If expression doesn't contain variable and this variable
+            // hasn't been met yet, than distance + 1.
+            dist += block.countStatements(start, firstUsage == -1
+                    ? block.getEnd(start) : firstUsage);
             // If variable usage exists in a single scope, then look into
             // this scope and count distance until variable usage.
-            if (variableUsageExpressions.size() == 1) {
-                final DetailAST blockWithVariableUsage = variableUsageExpressions
-                        .get(0);
+            if (firstUsage != -1 && secondUsage == -1) {
+                final DetailAST blockWithVariableUsage =
+                        block.getStatement(firstUsage);
                 DetailAST exprWithVariableUsage = null;
                 switch (blockWithVariableUsage.getType()) {
                 case TokenTypes.VARIABLE_DEF:
@@ -498,9 +512,9 @@ public class VariableDeclarationUsageDistanceCheck extends Check
             }
             // If variable usage exists in different scopes, then distance =
             // distance until variable first usage.
-            else if (variableUsageExpressions.size() > 1) {
+            else if (firstUsage != -1) {
                 dist++;
-                variableUsageAst = variableUsageExpressions.get(0);
+                variableUsageAst = block.getStatement(firstUsage);
             }
             // If there's no any variable usage, then distance = 0.
             else {
@@ -685,7 +699,7 @@ public class VariableDeclarationUsageDistanceCheck extends Check
      *         (not in its declaration!) than return the first Ast node
      *         of this block, otherwise - null.
      */
-    private static DetailAST getFirstNodeInsideTryCatchFinallyBlocks(
+    private DetailAST getFirstNodeInsideTryCatchFinallyBlocks(
             DetailAST aBlock, DetailAST aVariable)
     {
         DetailAST currentNode = aBlock.getFirstChild();
@@ -824,35 +838,40 @@ public class VariableDeclarationUsageDistanceCheck extends Check
     }
 
     /**
-     * Checks if Ast node contains given element.
+     * Checks if Ast node contains given element, that is a token of the same
+     * type and with the same text.
      * @param aParent
      *        Node of AST.
      * @param aAST
      *        Ast element which is checked for content in Ast node.
      * @return true if Ast element was found in Ast node, otherwise - false.
      */
-    private static boolean isChild(DetailAST aParent, DetailAST aAST)
+    private boolean isChild(DetailAST aParent, DetailAST aAST)
     {
-        boolean isChild = false;
-        final ASTEnumeration astList = aParent.findAllPartial(aAST);
-
-        while (astList.hasMoreNodes()) {
-            final DetailAST ast = (DetailAST) astList.nextNode();
-            DetailAST astParent = ast.getParent();
-
-            while (astParent != null) {
+        if (mAstIndex == null) {
+            mAstIndex = new AstIndex(mRootAST);
+        }
+        return mAstIndex.containsToken(aParent, aAST.getType(),
+                aAST.getText());
+    }
 
-                if (astParent.equals(aParent)
-                        && astParent.getLineNo() == aParent.getLineNo())
-                {
-                    isChild = true;
-                    break;
-                }
-                astParent = astParent.getParent();
+    /**
+     * Gets usages of the names by the statements of a block.
+     * @param aBlock
+     *        Node of AST whose children are the statements.
+     * @return usages of the names in the block.
+     */
+    private BlockUsages getBlockUsages(DetailAST aBlock)
+    {
+        BlockUsages result = mBlockUsages.get(aBlock);
+        if (result == null) {
+            result = new BlockUsages(aBlock);
+            mBlockUsages.put(aBlock, result);
+            for (int i = 0; i < result.getSize(); i++) {
+                mStatementPositions.put(result.getStatement(i), i);
             }
         }
-
-        return isChild;
+        return result;
     }
 
     /**
@@ -866,4 +885,159 @@ public class VariableDeclarationUsageDistanceCheck extends Check
         final Matcher matcher = mIgnoreVariablePattern.matcher(aVariable);
         return matcher.matches();
     }
+
+    /**
+     * Statements of a block with the names each of them uses. A statement
+     * uses a name if one of its descendants is an identifier with this
+     * name. The table is built in one pass over the block, so the first
+     * usage of any variable declared in the block is found without
+     * searching the following statements one by one.
+     */
+    private static final class BlockUsages
+    {
+        /** Statements of the block. */
+        private final DetailAST[] mStatements;
+
+        /**
+         * Position of the first closing curly brace at or after each
+         * position, the number of statements if there is none.
+         */
+        private final int[] mEnds;
+
+        /**
+         * Number of statements before each position which are counted in
+         * distance: the ones with children except variable definitions.
+         */
+        private final int[] mCounted;
+
+        /** Ascending positions of the statements using each name. */
+        private final Map<String, List<Integer>> mUsages =
+                new HashMap<String, List<Integer>>();
+
+        /**
+         * Builds the table of a block.
+         * @param aBlock
+         *        Node of AST whose children are the statements.
+         */
+        BlockUsages(DetailAST aBlock)
+        {
+            mStatements = new DetailAST[aBlock.getChildCount()];
+            mEnds = new int[mStatements.length + 1];
+            mCounted = new int[mStatements.length + 1];
+            int position = 0;
+            for (DetailAST statement : DetailAstTraversal.children(aBlock)) {
+                mStatements[position] = statement;
+                mCounted[position + 1] = mCounted[position];
+                if (statement.getFirstChild() != null
+                        && statement.getType() != TokenTypes.VARIABLE_DEF)
+                {
+                    mCounted[position + 1]++;
+                }
+                addUsages(statement, position);
+                position++;
+            }
+            mEnds[mStatements.length] = mStatements.length;
+            for (int i = mStatements.length - 1; i >= 0; i--) {
+                mEnds[i] = mStatements[i].getType() == TokenTypes.RCURLY
+                        ? i : mEnds[i + 1];
+            }
+        }
+
+        /**
+         * Records the names used by a statement.
+         * @param aStatement
+         *        the statement.
+         * @param aPosition
+         *        position of the statement in the block.
+         */
+        private void addUsages(DetailAST aStatement, int aPosition)
+        {
+            DetailAST node = aStatement.getFirstChild();
+            while (node != null) {
+                if (node.getType() == TokenTypes.IDENT) {
+                    List<Integer> usages = mUsages.get(node.getText());
+                    if (usages == null) {
+                        usages = new ArrayList<Integer>();
+                        mUsages.put(node.getText(), usages);
+                    }
+                    if (usages.isEmpty()
+                            || usages.get(usages.size() - 1) != aPosition)
+                    {
+                        usages.add(aPosition);
+                    }
+                }
+                node = DetailAstTraversal.nextPreOrder(node, aStatement);
+            }
+        }
+
+        /**
+         * @return number of statements in the block.
+         */
+        int getSize()
+        {
+            return mStatements.length;
+        }
+
+        /**
+         * Gets a statement of the block.
+         * @param aPosition
+         *        position of the statement.
+         * @return the statement.
+         */
+        DetailAST getStatement(int aPosition)
+        {
+            return mStatements[aPosition];
+        }
+
+        /**
+         * Gets the end of the statements following a position, that is the
+         * position of the closing curly brace or the end of the block.
+         * @param aStart
+         *        the position.
+         * @return the end position.
+         */
+        int getEnd(int aStart)
+        {
+            return mEnds[aStart];
+        }
+
+        /**
+         * Gets the first statement using a name, starting from a position
+         * and up to the closing curly brace.
+         * @param aName
+         *        the name.
+         * @param aStart
+         *        the position.
+         * @return position of the statement or -1 if there is none.
+         */
+        int getFirstUsage(String aName, int aStart)
+        {
+            int result = -1;
+            final List<Integer> usages = mUsages.get(aName);
+            if (usages != null) {
+                int index = Collections.binarySearch(usages, aStart);
+                if (index < 0) {
+                    index = -index - 1;
+                }
+                if (index < usages.size() && usages.get(index) < mEnds[aStart]) {
+                    result = usages.get(index);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Counts the statements which are counted in distance between two
+         * positions.
+         * @param aStart
+         *        the first position, inclusive.
+         * @param aEnd
+         *        the last position, exclusive.
+         * @return number of the statements.
+         */
+        int countStatements(int aStart, int aEnd)
+        {
+            return mCounted[aEnd] - mCounted[aStart];
+        }
+    }
 }
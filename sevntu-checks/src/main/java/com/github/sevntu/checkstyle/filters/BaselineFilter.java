@@ -0,0 +1,555 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.filters;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AutomaticBean;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.Filter;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.Utils;
+
+/**
+ * <p>
+ * Filter that drops the violations listed in a baseline of accepted
+ * findings, so that only new violations are reported for legacy code.
+ * </p>
+ * <p>
+ * The baseline is a UTF-8 text file with one accepted violation per line and
+ * five tab separated fields: the path of the file, the line, the check, the
+ * message key and the fingerprint of the offending line. Blank lines and lines
+ * starting with '#' are ignored:
+ * </p>
+ * <pre>
+ * # path  line  check  key  fingerprint
+ * src/main/java/Foo.java  12  EmptyStatement  empty.statement  3f0c8a1d
+ * </pre>
+ * <p>
+ * The path is matched against the whole path of the audited file and
+ * against all its trailing path segments, so relative paths may be used. The check may be given by the fully
+ * qualified or the simple class name, with or without the "Check" suffix, or
+ * by the id of the module. The fingerprint is computed by
+ * {@link #getFingerprint(String)} from the current text of the line, so an
+ * entry stops matching as soon as the offending line is changed, but it still
+ * matches when the line is moved by at most "lineTolerance" lines.
+ * </p>
+ * <p>
+ * Unlike the suppression filters that match every event against a list of
+ * regular expressions, the baseline is indexed by file and sorted by line, so
+ * an event is matched with one hash lookup per path segment and a binary
+ * search over the entries of its file.
+ * </p>
+ * <p>
+ * An example of how to configure the filter:
+ * </p>
+ * <pre>
+ * &lt;module name="BaselineFilter"&gt;
+ *     &lt;property name="file" value="config/baseline.txt"/&gt;
+ *     &lt;property name="lineTolerance" value="5"/&gt;
+ * &lt;/module&gt;
+ * </pre>
+ */
+public class BaselineFilter extends AutomaticBean implements Filter
+{
+    /**
+     * Separator of the fields of a baseline entry.
+     */
+    private static final char SEPARATOR = '\t';
+
+    /**
+     * Number of fields of a baseline entry.
+     */
+    private static final int FIELDS_COUNT = 5;
+
+    /**
+     * Prefix of comment lines of the baseline.
+     */
+    private static final String COMMENT_PREFIX = "#";
+
+    /**
+     * Suffix that may be omitted in the check name.
+     */
+    private static final String CHECK_SUFFIX = "Check";
+
+    /**
+     * Number of hex digits of a fingerprint.
+     */
+    private static final int FINGERPRINT_LENGTH = 8;
+
+    /**
+     * Encoding of the baseline file.
+     */
+    private static final String BASELINE_CHARSET = "UTF-8";
+
+    /**
+     * Accepted violations by normalized file path.
+     */
+    private final Map<String, FileBaseline> mBaselines =
+            new HashMap<String, FileBaseline>();
+
+    /**
+     * Number of lines an accepted violation may move and still match.
+     */
+    private int mLineTolerance;
+
+    /**
+     * Charset of the audited files.
+     */
+    private String mCharset = System.getProperty("file.encoding", "UTF-8");
+
+    /**
+     * Name of the file whose lines are cached.
+     */
+    private String mCachedFileName;
+
+    /**
+     * Cached lines of the last file, null if it could not be read.
+     */
+    private String[] mCachedLines;
+
+    /**
+     * Loads the baseline from a file.
+     * @param aFileName
+     *        name of the baseline file.
+     * @throws CheckstyleException
+     *         if the baseline can not be read or is malformed.
+     */
+    public void setFile(String aFileName) throws CheckstyleException
+    {
+        mBaselines.clear();
+        final Map<String, String> strings = new HashMap<String, String>();
+        final Map<String, List<Entry>> entries =
+                new HashMap<String, List<Entry>>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(aFileName), BASELINE_CHARSET));
+            int lineNo = 0;
+            String line = reader.readLine();
+            while (line != null) {
+                lineNo++;
+                if (line.trim().length() != 0
+                        && !line.startsWith(COMMENT_PREFIX))
+                {
+                    final String[] fields = split(line);
+                    if (fields == null) {
+                        throw new CheckstyleException("Malformed baseline entry "
+                                + aFileName + ":" + lineNo);
+                    }
+                    final String path = normalizePath(fields[0]);
+                    List<Entry> fileEntries = entries.get(path);
+                    if (fileEntries == null) {
+                        fileEntries = new ArrayList<Entry>();
+                        entries.put(path, fileEntries);
+                    }
+                    fileEntries.add(new Entry(parseLine(fields[1], aFileName,
+                            lineNo), intern(strings, fields[2]),
+                            intern(strings, fields[3]), fields[4]));
+                }
+                line = reader.readLine();
+            }
+        }
+        catch (final IOException e) {
+            throw new CheckstyleException("Unable to read baseline "
+                    + aFileName, e);
+        }
+        finally {
+            Utils.closeQuietly(reader);
+        }
+        for (Map.Entry<String, List<Entry>> fileEntries : entries.entrySet()) {
+            mBaselines.put(fileEntries.getKey(),
+                    new FileBaseline(fileEntries.getValue()));
+        }
+    }
+
+    /**
+     * Sets the number of lines an accepted violation may move and still
+     * match.
+     * @param aLineTolerance
+     *        the number of lines, 0 by default.
+     */
+    public void setLineTolerance(int aLineTolerance)
+    {
+        mLineTolerance = aLineTolerance;
+    }
+
+    /**
+     * Sets the charset of the audited files, the lines of which are
+     * fingerprinted.
+     * @param aCharset
+     *        name of the charset.
+     * @throws UnsupportedEncodingException
+     *         if the charset is not supported.
+     */
+    public void setCharset(String aCharset)
+        throws UnsupportedEncodingException
+    {
+        if (!Charset.isSupported(aCharset)) {
+            throw new UnsupportedEncodingException("unsupported charset: '"
+                    + aCharset + "'");
+        }
+        mCharset = aCharset;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean accept(AuditEvent aEvent)
+    {
+        boolean result = true;
+        if (aEvent.getLocalizedMessage() != null
+                && aEvent.getFileName() != null)
+        {
+            final String path = normalizePath(aEvent.getFileName());
+            int start = 0;
+            while (result && start >= 0) {
+                final FileBaseline baseline =
+                        mBaselines.get(path.substring(start));
+                if (baseline != null) {
+                    result = !baseline.contains(aEvent);
+                }
+                start = path.indexOf('/', start);
+                if (start >= 0) {
+                    start++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the fingerprint of a line. White space is ignored, so the
+     * fingerprint survives reformatting of the line.
+     * @param aLine
+     *        text of the line.
+     * @return the fingerprint, eight lowercase hex digits.
+     */
+    public static String getFingerprint(String aLine)
+    {
+        final StringBuilder text = new StringBuilder(aLine.length());
+        for (int i = 0; i < aLine.length(); i++) {
+            final char c = aLine.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                text.append(c);
+            }
+        }
+        final CRC32 crc = new CRC32();
+        try {
+            crc.update(text.toString().getBytes(BASELINE_CHARSET));
+        }
+        catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        final String hex = Long.toHexString(crc.getValue());
+        final StringBuilder result = new StringBuilder(FINGERPRINT_LENGTH);
+        for (int i = hex.length(); i < FINGERPRINT_LENGTH; i++) {
+            result.append('0');
+        }
+        return result.append(hex).toString();
+    }
+
+    /**
+     * Gets the fingerprint of a line of an audited file. The lines of the
+     * last file are cached, as events come file by file.
+     * @param aFileName
+     *        name of the audited file.
+     * @param aLineNo
+     *        line number, starting from 1; 0 means the whole file.
+     * @return the fingerprint or null if the file can not be read.
+     */
+    private synchronized String getLineFingerprint(String aFileName,
+            int aLineNo)
+    {
+        if (!aFileName.equals(mCachedFileName)) {
+            mCachedFileName = aFileName;
+            try {
+                mCachedLines = new FileText(new File(aFileName), mCharset)
+                        .toLinesArray();
+            }
+            catch (final IOException e) {
+                mCachedLines = null;
+            }
+        }
+        String result = null;
+        if (mCachedLines != null) {
+            String line = "";
+            if (aLineNo > 0 && aLineNo <= mCachedLines.length) {
+                line = mCachedLines[aLineNo - 1];
+            }
+            result = getFingerprint(line);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether an event is reported by the check of an entry.
+     * @param aEvent
+     *        the event.
+     * @param aCheck
+     *        check of the entry.
+     * @return true if the check matches.
+     */
+    private static boolean isSameCheck(AuditEvent aEvent, String aCheck)
+    {
+        final String sourceName = aEvent.getSourceName();
+        final String simpleName =
+                sourceName.substring(sourceName.lastIndexOf('.') + 1);
+        return aCheck.equals(sourceName) || aCheck.equals(simpleName)
+                || simpleName.equals(aCheck + CHECK_SUFFIX)
+                || aCheck.equals(aEvent.getModuleId());
+    }
+
+    /**
+     * Splits a baseline entry into fields.
+     * @param aLine
+     *        the entry.
+     * @return the fields or null if the number of fields is wrong.
+     */
+    private static String[] split(String aLine)
+    {
+        final String[] result = new String[FIELDS_COUNT];
+        int start = 0;
+        int field = 0;
+        while (field < FIELDS_COUNT && start >= 0) {
+            final int end = aLine.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                result[field] = aLine.substring(start).trim();
+                start = end;
+            }
+            else {
+                result[field] = aLine.substring(start, end).trim();
+                start = end + 1;
+            }
+            field++;
+        }
+        return field == FIELDS_COUNT && start < 0 ? result : null;
+    }
+
+    /**
+     * Parses the line number of a baseline entry.
+     * @param aText
+     *        text of the field.
+     * @param aFileName
+     *        name of the baseline file.
+     * @param aEntryLineNo
+     *        line of the entry in the baseline file.
+     * @return the line number.
+     * @throws CheckstyleException
+     *         if the field is not a non-negative number.
+     */
+    private static int parseLine(String aText, String aFileName,
+            int aEntryLineNo) throws CheckstyleException
+    {
+        int result = -1;
+        try {
+            result = Integer.parseInt(aText);
+        }
+        catch (final NumberFormatException e) {
+            result = -1;
+        }
+        if (result < 0) {
+            throw new CheckstyleException("Invalid line number '" + aText
+                    + "' in baseline entry " + aFileName + ":" + aEntryLineNo);
+        }
+        return result;
+    }
+
+    /**
+     * Converts a path to the form used as the key of the index.
+     * @param aPath
+     *        the path.
+     * @return the path with '/' as the separator and without leading "./".
+     */
+    private static String normalizePath(String aPath)
+    {
+        String result = aPath.replace('\\', '/');
+        while (result.startsWith("./")) {
+            result = result.substring(2);
+        }
+        return result;
+    }
+
+    /**
+     * Shares equal strings among the baseline entries.
+     * @param aStrings
+     *        strings met so far.
+     * @param aString
+     *        the string.
+     * @return the shared instance equal to the string.
+     */
+    private static String intern(Map<String, String> aStrings, String aString)
+    {
+        String result = aStrings.get(aString);
+        if (result == null) {
+            result = aString;
+            aStrings.put(aString, aString);
+        }
+        return result;
+    }
+
+    /**
+     * An accepted violation.
+     */
+    private static final class Entry implements Comparable<Entry>
+    {
+        /**
+         * Line of the violation.
+         */
+        private final int mLine;
+
+        /**
+         * Check that reported the violation.
+         */
+        private final String mCheck;
+
+        /**
+         * Message key of the violation.
+         */
+        private final String mKey;
+
+        /**
+         * Fingerprint of the offending line.
+         */
+        private final String mFingerprint;
+
+        /**
+         * Creates an entry.
+         * @param aLine
+         *        line of the violation.
+         * @param aCheck
+         *        check that reported the violation.
+         * @param aKey
+         *        message key of the violation.
+         * @param aFingerprint
+         *        fingerprint of the offending line.
+         */
+        Entry(int aLine, String aCheck, String aKey, String aFingerprint)
+        {
+            mLine = aLine;
+            mCheck = aCheck;
+            mKey = aKey;
+            mFingerprint = aFingerprint;
+        }
+
+        public int compareTo(Entry aOther)
+        {
+            return mLine < aOther.mLine ? -1 : (mLine == aOther.mLine ? 0 : 1);
+        }
+    }
+
+    /**
+     * Accepted violations of one file sorted by line.
+     */
+    private final class FileBaseline
+    {
+        /**
+         * Entries sorted by line.
+         */
+        private final Entry[] mEntries;
+
+        /**
+         * Lines of the entries, for binary search.
+         */
+        private final int[] mLines;
+
+        /**
+         * Creates the index of the entries of a file.
+         * @param aEntries
+         *        the entries.
+         */
+        FileBaseline(List<Entry> aEntries)
+        {
+            mEntries = aEntries.toArray(new Entry[aEntries.size()]);
+            Arrays.sort(mEntries);
+            mLines = new int[mEntries.length];
+            for (int i = 0; i < mEntries.length; i++) {
+                mLines[i] = mEntries[i].mLine;
+            }
+        }
+
+        /**
+         * Checks whether an event matches an entry within the line
+         * tolerance.
+         * @param aEvent
+         *        the event.
+         * @return true if the event is an accepted violation.
+         */
+        boolean contains(AuditEvent aEvent)
+        {
+            final LocalizedMessage message = aEvent.getLocalizedMessage();
+            final int line = aEvent.getLine();
+            final int last = line + mLineTolerance;
+            String fingerprint = null;
+            boolean result = false;
+            for (int i = lowerBound(line - mLineTolerance);
+                    !result && i < mEntries.length && mLines[i] <= last; i++)
+            {
+                final Entry entry = mEntries[i];
+                if (entry.mKey.equals(message.getKey())
+                        && isSameCheck(aEvent, entry.mCheck))
+                {
+                    if (fingerprint == null) {
+                        fingerprint = getLineFingerprint(aEvent.getFileName(),
+                                line);
+                    }
+                    result = entry.mFingerprint.equals(fingerprint);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Finds the first entry with the line not less than the given one.
+         * @param aLine
+         *        the line.
+         * @return index of the entry or the number of entries if there is
+         *         none.
+         */
+        private int lowerBound(int aLine)
+        {
+            int low = 0;
+            int high = mLines.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (mLines[middle] < aLine) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
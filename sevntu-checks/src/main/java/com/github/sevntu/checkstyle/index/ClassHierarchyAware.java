@@ -0,0 +1,36 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.index;
+
+/**
+ * Implemented by checks that can use the class hierarchy of the whole
+ * source set. {@link com.github.sevntu.checkstyle.walker.SevntuTreeWalker}
+ * with "indexClassHierarchy" property sets the index before the checks are
+ * run on the first file; otherwise it is never set and the checks have to
+ * rely on the current file only.
+ */
+public interface ClassHierarchyAware
+{
+    /**
+     * Sets the index of all classes of the source set.
+     * @param aIndex
+     *        the index, complete by the time the check is run.
+     */
+    void setClassHierarchyIndex(ClassHierarchyIndex aIndex);
+}
@@ -0,0 +1,652 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.sevntu.checkstyle.ast.DetailAstTraversal;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FullIdent;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+/**
+ * <p>
+ * Index of all classes, interfaces and enums of a source set: superclass,
+ * interfaces, methods and constructors of each of them. It is filled file by
+ * file during the first pass of an audit and lets checks look beyond the
+ * current file in the second one (see {@link ClassHierarchyAware}).
+ * </p>
+ * <p>
+ * Types are referred to in the source by simple or qualified names, so they
+ * are resolved the way the compiler does it, as far as the source set
+ * allows: a simple name used in a class is looked up among the nested types
+ * of the class and its enclosing classes, the single-type imports of its
+ * file, its package and the on-demand imports of its file, in this order.
+ * A name imported from a type outside of the source set is not resolved at
+ * all, even if a class with the same simple name is indexed. Types that can
+ * not be resolved (library classes, ambiguous names) are only known by the
+ * name used in the source, qualified through the imports when possible.
+ * </p>
+ * <p>
+ * Without the referring class a simple name must be unique in the source
+ * set.
+ * </p>
+ * <p>
+ * Classes are added under a lock; reading is not synchronized and must
+ * happen after indexing is over.
+ * </p>
+ */
+public final class ClassHierarchyIndex
+{
+    /**
+     * Suffix of an on-demand import.
+     */
+    private static final String ON_DEMAND_SUFFIX = ".*";
+
+    /**
+     * Classes by qualified name.
+     */
+    private final Map<String, ClassInfo> mByQualifiedName =
+            new HashMap<String, ClassInfo>();
+
+    /**
+     * Classes by simple name.
+     */
+    private final Map<String, List<ClassInfo>> mBySimpleName =
+            new HashMap<String, List<ClassInfo>>();
+
+    /**
+     * Adds all classes defined in a file.
+     * @param aRootAST
+     *        the root of the file tree, may be null for an empty file.
+     */
+    public synchronized void addFile(DetailAST aRootAST)
+    {
+        final String packageName = getPackageName(aRootAST);
+        final List<String> imports = new ArrayList<String>();
+        final List<String> onDemandImports = new ArrayList<String>();
+        for (DetailAST topLevel : DetailAstTraversal.siblings(aRootAST)) {
+            if (topLevel.getType() == TokenTypes.IMPORT) {
+                final String name = FullIdent.createFullIdent(
+                        topLevel.getFirstChild()).getText();
+                if (name.endsWith(ON_DEMAND_SUFFIX)) {
+                    onDemandImports.add(name.substring(0,
+                            name.length() - ON_DEMAND_SUFFIX.length()));
+                }
+                else {
+                    imports.add(name);
+                }
+            }
+        }
+        for (DetailAST topLevel : DetailAstTraversal.siblings(aRootAST)) {
+            for (DetailAST node : DetailAstTraversal.preOrder(topLevel)) {
+                if (isTypeDef(node)) {
+                    addClass(node, packageName, imports, onDemandImports);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all classes from the index.
+     */
+    public synchronized void clear()
+    {
+        mByQualifiedName.clear();
+        mBySimpleName.clear();
+    }
+
+    /**
+     * @return number of indexed classes.
+     */
+    public int size()
+    {
+        return mByQualifiedName.size();
+    }
+
+    /**
+     * Gets a class by name.
+     * @param aName
+     *        qualified name or simple name unique in the source set.
+     * @return the class or null if it is unknown or the name is ambiguous.
+     */
+    public ClassInfo getClassInfo(String aName)
+    {
+        return resolve(aName, null);
+    }
+
+    /**
+     * Gets the class defined by a node of the current file.
+     * @param aTypeDef
+     *        CLASS_DEF, INTERFACE_DEF, ENUM_DEF or ANNOTATION_DEF node.
+     * @return the class or null if it is not indexed.
+     */
+    public ClassInfo getClassInfo(DetailAST aTypeDef)
+    {
+        return mByQualifiedName.get(getQualifiedName(aTypeDef));
+    }
+
+    /**
+     * Resolves a type name used in a class.
+     * @param aTypeName
+     *        simple or qualified name of the type.
+     * @param aContext
+     *        the class the name is used in, may be null.
+     * @return the class or null if it is unknown or the name is ambiguous.
+     */
+    public ClassInfo resolve(String aTypeName, ClassInfo aContext)
+    {
+        ClassInfo result = mByQualifiedName.get(aTypeName);
+        if (result == null) {
+            if (aContext == null) {
+                result = resolveByName(aTypeName);
+            }
+            else {
+                final int dot = aTypeName.indexOf('.');
+                if (dot < 0) {
+                    result = resolveSimpleName(aTypeName, aContext);
+                }
+                else {
+                    // the first part may be a type with nested types
+                    final ClassInfo outer =
+                            resolveSimpleName(aTypeName.substring(0, dot),
+                                    aContext);
+                    if (outer != null) {
+                        result = mByQualifiedName.get(outer.getQualifiedName()
+                                + aTypeName.substring(dot));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the qualified name of a type used in a class.
+     * @param aTypeName
+     *        simple or qualified name of the type.
+     * @param aContext
+     *        the class the name is used in.
+     * @return the qualified name of the indexed type, the name imported by
+     *         a single-type import, the name itself if it starts with a
+     *         package name (lower case), or null if the type is unknown.
+     */
+    public String getQualifiedName(String aTypeName, ClassInfo aContext)
+    {
+        String result = null;
+        final ClassInfo resolved = resolve(aTypeName, aContext);
+        if (resolved != null) {
+            result = resolved.getQualifiedName();
+        }
+        else {
+            final int dot = aTypeName.indexOf('.');
+            final String first =
+                    dot < 0 ? aTypeName : aTypeName.substring(0, dot);
+            final String imported = findImport(first, aContext);
+            if (imported != null) {
+                result = imported + aTypeName.substring(first.length());
+            }
+            else if (dot > 0 && Character.isLowerCase(first.charAt(0))) {
+                result = aTypeName;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the superclass of a class.
+     * @param aClass
+     *        the class.
+     * @return the superclass or null if it is not declared or not indexed.
+     */
+    public ClassInfo getSuperclass(ClassInfo aClass)
+    {
+        final String superclassName = aClass.getSuperclassName();
+        return superclassName == null ? null : resolve(superclassName, aClass);
+    }
+
+    /**
+     * Checks whether a class is the given type or extends or implements it,
+     * directly or through any of its indexed supertypes.
+     * @param aClass
+     *        the class.
+     * @param aTypeName
+     *        simple or qualified name of the type. A qualified name is
+     *        compared with the qualified names of the supertypes where they
+     *        are known (see {@link #getQualifiedName(String, ClassInfo)}),
+     *        otherwise only the simple names are compared.
+     * @return true if the class is a subtype of the type.
+     */
+    public boolean isSubtypeOf(ClassInfo aClass, String aTypeName)
+    {
+        final boolean qualified = aTypeName.indexOf('.') >= 0;
+        final String typeName = getSimpleName(aTypeName);
+        boolean result = false;
+        final Set<ClassInfo> visited = new HashSet<ClassInfo>();
+        final List<ClassInfo> toVisit = new ArrayList<ClassInfo>();
+        toVisit.add(aClass);
+        while (!result && !toVisit.isEmpty()) {
+            final ClassInfo current = toVisit.remove(toVisit.size() - 1);
+            if (visited.add(current)) {
+                result = qualified
+                        ? aTypeName.equals(current.getQualifiedName())
+                        : typeName.equals(current.getName());
+                final List<String> supertypes =
+                        new ArrayList<String>(current.getInterfaceNames());
+                if (current.getSuperclassName() != null) {
+                    supertypes.add(current.getSuperclassName());
+                }
+                for (String supertype : supertypes) {
+                    final ClassInfo resolved = resolve(supertype, current);
+                    if (resolved != null) {
+                        toVisit.add(resolved);
+                    }
+                    else if (typeName.equals(getSimpleName(supertype))) {
+                        final String qualifiedName = qualified
+                                ? getQualifiedName(supertype, current)
+                                : null;
+                        if (qualifiedName == null
+                                || qualifiedName.equals(aTypeName))
+                        {
+                            result = true;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether a class is the given type or extends or implements it.
+     * @param aClassName
+     *        simple or qualified name of the class.
+     * @param aTypeName
+     *        simple or qualified name of the type.
+     * @return true if the class is known to be a subtype of the type.
+     */
+    public boolean isSubtypeOf(String aClassName, String aTypeName)
+    {
+        final ClassInfo classInfo = getClassInfo(aClassName);
+        final boolean result;
+        if (classInfo != null) {
+            result = isSubtypeOf(classInfo, aTypeName);
+        }
+        else if (aClassName.indexOf('.') >= 0 && aTypeName.indexOf('.') >= 0) {
+            result = aClassName.equals(aTypeName);
+        }
+        else {
+            result = getSimpleName(aClassName).equals(getSimpleName(aTypeName));
+        }
+        return result;
+    }
+
+    /**
+     * Searches for a method a class inherits from its indexed superclasses.
+     * @param aClass
+     *        the class.
+     * @param aName
+     *        name of the method.
+     * @param aParametersCount
+     *        number of parameters.
+     * @return the method declared in the nearest superclass or null.
+     */
+    public MethodInfo findInheritedMethod(ClassInfo aClass, String aName,
+            int aParametersCount)
+    {
+        MethodInfo result = null;
+        final Set<ClassInfo> visited = new HashSet<ClassInfo>();
+        ClassInfo current = getSuperclass(aClass);
+        while (result == null && current != null && visited.add(current)) {
+            result = current.getMethod(aName, aParametersCount);
+            current = getSuperclass(current);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the qualified name of a type defined in a file.
+     * @param aTypeDef
+     *        CLASS_DEF, INTERFACE_DEF, ENUM_DEF or ANNOTATION_DEF node.
+     * @return qualified name, including names of the enclosing types.
+     */
+    public static String getQualifiedName(DetailAST aTypeDef)
+    {
+        final StringBuilder result = new StringBuilder(
+                aTypeDef.findFirstToken(TokenTypes.IDENT).getText());
+        DetailAST topLevel = aTypeDef;
+        for (DetailAST node = aTypeDef.getParent(); node != null;
+                node = node.getParent())
+        {
+            if (isTypeDef(node)) {
+                result.insert(0, '.').insert(0,
+                        node.findFirstToken(TokenTypes.IDENT).getText());
+            }
+            topLevel = node;
+        }
+        while (topLevel.getPreviousSibling() != null) {
+            topLevel = topLevel.getPreviousSibling();
+        }
+        final String packageName = getPackageName(topLevel);
+        if (packageName.length() > 0) {
+            result.insert(0, '.').insert(0, packageName);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Resolves a type name without a referring class: a qualified name must
+     * match the end of the qualified name of exactly one class, a simple
+     * name must be unique in the source set.
+     * @param aTypeName
+     *        simple or qualified name of the type.
+     * @return the class or null if it is unknown or the name is ambiguous.
+     */
+    private ClassInfo resolveByName(String aTypeName)
+    {
+        ClassInfo result = null;
+        final List<ClassInfo> candidates =
+                mBySimpleName.get(getSimpleName(aTypeName));
+        if (candidates != null) {
+            final List<ClassInfo> matches = new ArrayList<ClassInfo>();
+            for (ClassInfo candidate : candidates) {
+                if (aTypeName.indexOf('.') < 0
+                        || candidate.getQualifiedName().endsWith(
+                                "." + aTypeName))
+                {
+                    matches.add(candidate);
+                }
+            }
+            if (matches.size() == 1) {
+                result = matches.get(0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves a simple type name used in a class: among the nested types of
+     * the class and its enclosing classes, then through the single-type
+     * imports, the package and the on-demand imports.
+     * @param aName
+     *        simple name of the type.
+     * @param aContext
+     *        the class the name is used in.
+     * @return the class or null if it is not in the source set or the name
+     *         is ambiguous.
+     */
+    private ClassInfo resolveSimpleName(String aName, ClassInfo aContext)
+    {
+        ClassInfo result = null;
+        final String packageName = aContext.getPackageName();
+        String scope = aContext.getQualifiedName();
+        while (result == null && scope.length() > packageName.length()) {
+            result = mByQualifiedName.get(scope + "." + aName);
+            final int dot = scope.lastIndexOf('.');
+            scope = dot < 0 ? "" : scope.substring(0, dot);
+        }
+        if (result == null) {
+            final String imported = findImport(aName, aContext);
+            if (imported != null) {
+                result = mByQualifiedName.get(imported);
+            }
+            else {
+                result = mByQualifiedName.get(packageName.length() == 0
+                        ? aName : packageName + "." + aName);
+                if (result == null) {
+                    result = resolveOnDemand(aName, aContext);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves a simple type name through the on-demand imports of a class.
+     * @param aName
+     *        simple name of the type.
+     * @param aContext
+     *        the class the name is used in.
+     * @return the class or null if no or several imports provide it.
+     */
+    private ClassInfo resolveOnDemand(String aName, ClassInfo aContext)
+    {
+        ClassInfo result = null;
+        int matches = 0;
+        for (String imported : aContext.getOnDemandImports()) {
+            final ClassInfo candidate =
+                    mByQualifiedName.get(imported + "." + aName);
+            if (candidate != null) {
+                result = candidate;
+                matches++;
+            }
+        }
+        return matches == 1 ? result : null;
+    }
+
+    /**
+     * Finds the single-type import of a simple type name.
+     * @param aName
+     *        simple name of the type.
+     * @param aContext
+     *        the class the name is used in.
+     * @return qualified name of the imported type or null.
+     */
+    private static String findImport(String aName, ClassInfo aContext)
+    {
+        String result = null;
+        final String suffix = "." + aName;
+        for (String imported : aContext.getImports()) {
+            if (imported.endsWith(suffix)) {
+                result = imported;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a class to the index.
+     * @param aTypeDef
+     *        definition of the class.
+     * @param aPackageName
+     *        package of the file.
+     * @param aImports
+     *        single-type imports of the file.
+     * @param aOnDemandImports
+     *        on-demand imports of the file, without ".*".
+     */
+    private void addClass(DetailAST aTypeDef, String aPackageName,
+            List<String> aImports, List<String> aOnDemandImports)
+    {
+        String superclassName = null;
+        final List<String> interfaceNames = new ArrayList<String>();
+        final DetailAST extendsClause =
+                aTypeDef.findFirstToken(TokenTypes.EXTENDS_CLAUSE);
+        if (extendsClause != null) {
+            final List<String> names = getTypeNames(extendsClause);
+            if (aTypeDef.getType() == TokenTypes.CLASS_DEF) {
+                superclassName = names.isEmpty() ? null : names.get(0);
+            }
+            else {
+                interfaceNames.addAll(names);
+            }
+        }
+        final DetailAST implementsClause =
+                aTypeDef.findFirstToken(TokenTypes.IMPLEMENTS_CLAUSE);
+        if (implementsClause != null) {
+            interfaceNames.addAll(getTypeNames(implementsClause));
+        }
+
+        final String name = aTypeDef.findFirstToken(TokenTypes.IDENT).getText();
+        final ClassInfo classInfo = new ClassInfo(name,
+                getQualifiedName(aTypeDef), aPackageName, aTypeDef.getType(),
+                getModifiers(aTypeDef), superclassName, interfaceNames,
+                aImports, aOnDemandImports);
+
+        final DetailAST objBlock = aTypeDef.findFirstToken(TokenTypes.OBJBLOCK);
+        for (DetailAST member : DetailAstTraversal.children(objBlock)) {
+            if (member.getType() == TokenTypes.METHOD_DEF) {
+                classInfo.addMethod(createMethodInfo(member));
+            }
+            else if (member.getType() == TokenTypes.CTOR_DEF) {
+                classInfo.addConstructor(createMethodInfo(member));
+            }
+        }
+
+        if (!mByQualifiedName.containsKey(classInfo.getQualifiedName())) {
+            mByQualifiedName.put(classInfo.getQualifiedName(), classInfo);
+            List<ClassInfo> sameName = mBySimpleName.get(name);
+            if (sameName == null) {
+                sameName = new ArrayList<ClassInfo>(1);
+                mBySimpleName.put(name, sameName);
+            }
+            sameName.add(classInfo);
+        }
+    }
+
+    /**
+     * Creates the signature of a method or a constructor.
+     * @param aMethodDef
+     *        METHOD_DEF or CTOR_DEF node.
+     * @return the signature.
+     */
+    private static MethodInfo createMethodInfo(DetailAST aMethodDef)
+    {
+        final List<String> parameterTypes = new ArrayList<String>();
+        final DetailAST parameters =
+                aMethodDef.findFirstToken(TokenTypes.PARAMETERS);
+        for (DetailAST parameter : DetailAstTraversal.children(parameters)) {
+            if (parameter.getType() == TokenTypes.PARAMETER_DEF) {
+                parameterTypes.add(getTypeName(parameter.findFirstToken(
+                        TokenTypes.TYPE).getFirstChild()));
+            }
+        }
+        return new MethodInfo(
+                aMethodDef.findFirstToken(TokenTypes.IDENT).getText(),
+                parameterTypes, getModifiers(aMethodDef));
+    }
+
+    /**
+     * Gets modifiers of a definition.
+     * @param aDef
+     *        the definition node.
+     * @return modifier token types.
+     */
+    private static Set<Integer> getModifiers(DetailAST aDef)
+    {
+        final Set<Integer> result = new HashSet<Integer>();
+        final DetailAST modifiers = aDef.findFirstToken(TokenTypes.MODIFIERS);
+        if (modifiers != null) {
+            for (DetailAST modifier : DetailAstTraversal.children(modifiers)) {
+                result.add(modifier.getType());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets names of the types listed in an extends or implements clause.
+     * @param aClause
+     *        EXTENDS_CLAUSE or IMPLEMENTS_CLAUSE node.
+     * @return type names without type arguments.
+     */
+    private static List<String> getTypeNames(DetailAST aClause)
+    {
+        final List<String> result = new ArrayList<String>();
+        for (DetailAST child : DetailAstTraversal.children(aClause)) {
+            if (child.getType() == TokenTypes.IDENT
+                    || child.getType() == TokenTypes.DOT)
+            {
+                result.add(getTypeName(child));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the name of a type as written, without type arguments.
+     * @param aType
+     *        IDENT, DOT, primitive type or ARRAY_DECLARATOR node.
+     * @return the type name, with "[]" for each array dimension.
+     */
+    private static String getTypeName(DetailAST aType)
+    {
+        final StringBuilder dimensions = new StringBuilder();
+        DetailAST type = aType;
+        while (type.getType() == TokenTypes.ARRAY_DECLARATOR) {
+            dimensions.append("[]");
+            type = type.getFirstChild();
+        }
+        String name = FullIdent.createFullIdent(type).getText();
+        final int typeArgumentsStart = name.indexOf('<');
+        if (typeArgumentsStart >= 0) {
+            name = name.substring(0, typeArgumentsStart);
+        }
+        return name + dimensions;
+    }
+
+    /**
+     * Gets the package of a file.
+     * @param aRootAST
+     *        the first top level node of the file, may be null.
+     * @return the package name or empty string for the default package.
+     */
+    private static String getPackageName(DetailAST aRootAST)
+    {
+        String result = "";
+        if (aRootAST != null && aRootAST.getType() == TokenTypes.PACKAGE_DEF) {
+            result = FullIdent.createFullIdent(
+                    aRootAST.getLastChild().getPreviousSibling()).getText();
+        }
+        return result;
+    }
+
+    /**
+     * Gets the simple name of a type.
+     * @param aTypeName
+     *        simple or qualified name.
+     * @return the part after the last dot.
+     */
+    private static String getSimpleName(String aTypeName)
+    {
+        return aTypeName.substring(aTypeName.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Checks whether a node defines a named type.
+     * @param aNode
+     *        the node.
+     * @return true for CLASS_DEF, INTERFACE_DEF, ENUM_DEF and
+     *         ANNOTATION_DEF.
+     */
+    private static boolean isTypeDef(DetailAST aNode)
+    {
+        final int type = aNode.getType();
+        return type == TokenTypes.CLASS_DEF
+                || type == TokenTypes.INTERFACE_DEF
+                || type == TokenTypes.ENUM_DEF
+                || type == TokenTypes.ANNOTATION_DEF;
+    }
+}
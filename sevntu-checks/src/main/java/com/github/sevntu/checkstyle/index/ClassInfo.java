@@ -0,0 +1,274 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+/**
+ * A class, interface or enum of the source set in {@link ClassHierarchyIndex}.
+ * Names of supertypes are kept as written in the source (without type
+ * arguments) and resolved by the index on demand, through the imports of
+ * the file the class is defined in.
+ */
+public final class ClassInfo
+{
+    /**
+     * Simple name.
+     */
+    private final String mName;
+
+    /**
+     * Qualified name, with names of the enclosing classes for nested ones.
+     */
+    private final String mQualifiedName;
+
+    /**
+     * Package name, empty for the default package.
+     */
+    private final String mPackageName;
+
+    /**
+     * Token type of the definition: CLASS_DEF, INTERFACE_DEF or ENUM_DEF.
+     */
+    private final int mType;
+
+    /**
+     * Modifier token types.
+     */
+    private final Set<Integer> mModifiers;
+
+    /**
+     * Name of the superclass as written, null if there is no extends
+     * clause.
+     */
+    private final String mSuperclassName;
+
+    /**
+     * Names of the implemented (for interfaces, extended) interfaces as
+     * written.
+     */
+    private final List<String> mInterfaceNames;
+
+    /**
+     * Qualified names of the types imported by the file of the class.
+     */
+    private final List<String> mImports;
+
+    /**
+     * Packages (or types) imported on demand by the file of the class,
+     * without the trailing ".*".
+     */
+    private final List<String> mOnDemandImports;
+
+    /**
+     * Methods declared in the class.
+     */
+    private final List<MethodInfo> mMethods = new ArrayList<MethodInfo>();
+
+    /**
+     * Constructors declared in the class.
+     */
+    private final List<MethodInfo> mConstructors = new ArrayList<MethodInfo>();
+
+    /**
+     * Creates a class.
+     * @param aName
+     *        simple name.
+     * @param aQualifiedName
+     *        qualified name.
+     * @param aPackageName
+     *        package name.
+     * @param aType
+     *        token type of the definition.
+     * @param aModifiers
+     *        modifier token types.
+     * @param aSuperclassName
+     *        name of the superclass or null.
+     * @param aInterfaceNames
+     *        names of the interfaces.
+     * @param aImports
+     *        single-type imports of the file.
+     * @param aOnDemandImports
+     *        on-demand imports of the file, without ".*".
+     */
+    ClassInfo(String aName, String aQualifiedName, String aPackageName,
+            int aType, Set<Integer> aModifiers, String aSuperclassName,
+            List<String> aInterfaceNames, List<String> aImports,
+            List<String> aOnDemandImports)
+    {
+        mName = aName;
+        mQualifiedName = aQualifiedName;
+        mPackageName = aPackageName;
+        mType = aType;
+        mModifiers = Collections.unmodifiableSet(aModifiers);
+        mSuperclassName = aSuperclassName;
+        mInterfaceNames = Collections.unmodifiableList(aInterfaceNames);
+        mImports = Collections.unmodifiableList(aImports);
+        mOnDemandImports = Collections.unmodifiableList(aOnDemandImports);
+    }
+
+    /**
+     * @return simple name.
+     */
+    public String getName()
+    {
+        return mName;
+    }
+
+    /**
+     * @return qualified name.
+     */
+    public String getQualifiedName()
+    {
+        return mQualifiedName;
+    }
+
+    /**
+     * @return package name, empty for the default package.
+     */
+    public String getPackageName()
+    {
+        return mPackageName;
+    }
+
+    /**
+     * @return true for an interface (annotations included).
+     */
+    public boolean isInterface()
+    {
+        return mType == TokenTypes.INTERFACE_DEF
+                || mType == TokenTypes.ANNOTATION_DEF;
+    }
+
+    /**
+     * Checks whether the class has a modifier.
+     * @param aModifierType
+     *        modifier token type, e.g. TokenTypes.FINAL.
+     * @return true if the class is declared with the modifier.
+     */
+    public boolean hasModifier(int aModifierType)
+    {
+        return mModifiers.contains(aModifierType);
+    }
+
+    /**
+     * @return name of the superclass as written, null if not declared.
+     */
+    public String getSuperclassName()
+    {
+        return mSuperclassName;
+    }
+
+    /**
+     * @return names of the implemented (for interfaces, extended) interfaces
+     *         as written.
+     */
+    public List<String> getInterfaceNames()
+    {
+        return mInterfaceNames;
+    }
+
+    /**
+     * @return qualified names of the types imported by the file of the
+     *         class.
+     */
+    public List<String> getImports()
+    {
+        return mImports;
+    }
+
+    /**
+     * @return packages (or types) imported on demand by the file of the
+     *         class, without the trailing ".*".
+     */
+    public List<String> getOnDemandImports()
+    {
+        return mOnDemandImports;
+    }
+
+    /**
+     * @return methods declared in the class.
+     */
+    public List<MethodInfo> getMethods()
+    {
+        return Collections.unmodifiableList(mMethods);
+    }
+
+    /**
+     * @return constructors declared in the class.
+     */
+    public List<MethodInfo> getConstructors()
+    {
+        return Collections.unmodifiableList(mConstructors);
+    }
+
+    /**
+     * Gets a method declared in the class.
+     * @param aName
+     *        name of the method.
+     * @param aParametersCount
+     *        number of parameters.
+     * @return the first method with this name and number of parameters or
+     *         null.
+     */
+    public MethodInfo getMethod(String aName, int aParametersCount)
+    {
+        MethodInfo result = null;
+        for (MethodInfo method : mMethods) {
+            if (method.getName().equals(aName)
+                    && method.getParametersCount() == aParametersCount)
+            {
+                result = method;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a method.
+     * @param aMethod
+     *        the method.
+     */
+    void addMethod(MethodInfo aMethod)
+    {
+        mMethods.add(aMethod);
+    }
+
+    /**
+     * Adds a constructor.
+     * @param aConstructor
+     *        the constructor.
+     */
+    void addConstructor(MethodInfo aConstructor)
+    {
+        mConstructors.add(aConstructor);
+    }
+
+    @Override
+    public String toString()
+    {
+        return mQualifiedName;
+    }
+}
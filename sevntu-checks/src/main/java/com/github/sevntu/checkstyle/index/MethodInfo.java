@@ -0,0 +1,104 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.index;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Signature of a method or a constructor in {@link ClassHierarchyIndex}: its
+ * name, parameter types as written in the source and modifiers.
+ */
+public final class MethodInfo
+{
+    /**
+     * Name of the method, name of the class for a constructor.
+     */
+    private final String mName;
+
+    /**
+     * Parameter types as written in the source, without type arguments.
+     */
+    private final List<String> mParameterTypes;
+
+    /**
+     * Modifier token types, e.g. {@link
+     * com.puppycrawl.tools.checkstyle.api.TokenTypes#FINAL}.
+     */
+    private final Set<Integer> mModifiers;
+
+    /**
+     * Creates a method signature.
+     * @param aName
+     *        name of the method.
+     * @param aParameterTypes
+     *        parameter types.
+     * @param aModifiers
+     *        modifier token types.
+     */
+    MethodInfo(String aName, List<String> aParameterTypes,
+            Set<Integer> aModifiers)
+    {
+        mName = aName;
+        mParameterTypes = Collections.unmodifiableList(aParameterTypes);
+        mModifiers = Collections.unmodifiableSet(aModifiers);
+    }
+
+    /**
+     * @return name of the method.
+     */
+    public String getName()
+    {
+        return mName;
+    }
+
+    /**
+     * @return parameter types as written in the source.
+     */
+    public List<String> getParameterTypes()
+    {
+        return mParameterTypes;
+    }
+
+    /**
+     * @return number of parameters.
+     */
+    public int getParametersCount()
+    {
+        return mParameterTypes.size();
+    }
+
+    /**
+     * Checks whether the method has a modifier.
+     * @param aModifierType
+     *        modifier token type, e.g. TokenTypes.LITERAL_STATIC.
+     * @return true if the method is declared with the modifier.
+     */
+    public boolean hasModifier(int aModifierType)
+    {
+        return mModifiers.contains(aModifierType);
+    }
+
+    @Override
+    public String toString()
+    {
+        return mName + mParameterTypes;
+    }
+}
@@ -0,0 +1,497 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.puppycrawl.tools.checkstyle.api.Utils;
+
+/**
+ * <p>
+ * Index of the occurrences of string literals in all files of a source set,
+ * for checks that look for literals repeated across files. Each distinct
+ * literal is kept once with the file, line and column of every occurrence
+ * in an int array.
+ * </p>
+ * <p>
+ * Literals are partitioned by hash. When the estimated size of the index in
+ * memory reaches the limit, every partition is spilled as a chunk to its
+ * own temporary file through a memory-mapped buffer, and the memory is
+ * freed. The repeated literals are found partition by partition, so only
+ * one partition is ever merged in memory. Occurrences of a literal are
+ * visited in the order they are added.
+ * </p>
+ * <p>
+ * The index is not synchronized.
+ * </p>
+ */
+public final class StringLiteralIndex
+{
+    /**
+     * Number of partitions.
+     */
+    private static final int PARTITIONS = 64;
+
+    /**
+     * Estimated size of a distinct literal in memory besides its characters:
+     * the string, map entry and occurrences objects.
+     */
+    private static final int LITERAL_OVERHEAD = 128;
+
+    /**
+     * Size of an occurrence: file, line and column.
+     */
+    private static final int OCCURRENCE_SIZE = 3 * 4;
+
+    /**
+     * Maximum size of one memory-mapped buffer.
+     */
+    private static final int MAX_BUFFER_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Limit of the estimated size of the index in memory, in bytes.
+     */
+    private final long mMemoryLimit;
+
+    /**
+     * Directory of the temporary files.
+     */
+    private final File mSpillDirectory;
+
+    /**
+     * Names of the files by their number.
+     */
+    private final List<String> mFileNames = new ArrayList<String>();
+
+    /**
+     * Partitions of the literals.
+     */
+    private final Partition[] mPartitions = new Partition[PARTITIONS];
+
+    /**
+     * Estimated size of the index in memory, in bytes.
+     */
+    private long mMemory;
+
+    /**
+     * Creates an index.
+     * @param aMemoryLimit
+     *        limit of the estimated size of the index in memory, in bytes.
+     * @param aSpillDirectory
+     *        directory of the temporary files.
+     */
+    public StringLiteralIndex(long aMemoryLimit, File aSpillDirectory)
+    {
+        mMemoryLimit = aMemoryLimit;
+        mSpillDirectory = aSpillDirectory;
+        for (int i = 0; i < PARTITIONS; i++) {
+            mPartitions[i] = new Partition();
+        }
+    }
+
+    /**
+     * Adds a file the following occurrences are in.
+     * @param aFileName
+     *        name of the file.
+     * @return number of the file.
+     */
+    public int addFile(String aFileName)
+    {
+        mFileNames.add(aFileName);
+        return mFileNames.size() - 1;
+    }
+
+    /**
+     * Gets the name of a file.
+     * @param aFile
+     *        number of the file.
+     * @return name of the file.
+     */
+    public String getFileName(int aFile)
+    {
+        return mFileNames.get(aFile);
+    }
+
+    /**
+     * Adds an occurrence of a literal, spilling the index to the temporary
+     * files if it reaches the memory limit.
+     * @param aLiteral
+     *        the literal.
+     * @param aFile
+     *        number of the file.
+     * @param aLine
+     *        line of the occurrence.
+     * @param aColumn
+     *        column of the occurrence.
+     * @throws IOException
+     *         if the index can not be spilled.
+     */
+    public void add(String aLiteral, int aFile, int aLine, int aColumn)
+        throws IOException
+    {
+        final Map<String, Occurrences> literals =
+                getPartition(aLiteral).mLiterals;
+        Occurrences occurrences = literals.get(aLiteral);
+        if (occurrences == null) {
+            occurrences = new Occurrences();
+            literals.put(aLiteral, occurrences);
+            mMemory += LITERAL_OVERHEAD + 2 * aLiteral.length();
+        }
+        occurrences.add(aFile, aLine, aColumn);
+        mMemory += OCCURRENCE_SIZE;
+        if (mMemory >= mMemoryLimit) {
+            for (Partition partition : mPartitions) {
+                partition.spill();
+            }
+            mMemory = 0;
+        }
+    }
+
+    /**
+     * Visits the literals with at least the given number of occurrences.
+     * @param aMinOccurrences
+     *        minimum number of occurrences.
+     * @param aVisitor
+     *        the visitor.
+     * @throws IOException
+     *         if the temporary files can not be read.
+     */
+    public void visitRepeated(int aMinOccurrences, Visitor aVisitor)
+        throws IOException
+    {
+        for (Partition partition : mPartitions) {
+            for (Map.Entry<String, Occurrences> entry
+                    : partition.merge().entrySet())
+            {
+                if (entry.getValue().size() >= aMinOccurrences) {
+                    aVisitor.visit(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all files and literals and deletes the temporary files.
+     */
+    public void clear()
+    {
+        for (Partition partition : mPartitions) {
+            partition.clear();
+        }
+        mFileNames.clear();
+        mMemory = 0;
+    }
+
+    /**
+     * Gets the partition of a literal.
+     * @param aLiteral
+     *        the literal.
+     * @return the partition.
+     */
+    private Partition getPartition(String aLiteral)
+    {
+        return mPartitions[(aLiteral.hashCode() & Integer.MAX_VALUE)
+                % PARTITIONS];
+    }
+
+    /**
+     * Visitor of the repeated literals.
+     */
+    public interface Visitor
+    {
+        /**
+         * Visits a literal.
+         * @param aLiteral
+         *        the literal.
+         * @param aOccurrences
+         *        its occurrences.
+         */
+        void visit(String aLiteral, Occurrences aOccurrences);
+    }
+
+    /**
+     * Occurrences of a literal in the order they are added.
+     */
+    public static final class Occurrences
+    {
+        /**
+         * Initial capacity, in occurrences.
+         */
+        private static final int INITIAL_CAPACITY = 2;
+
+        /**
+         * File, line and column of each occurrence.
+         */
+        private int[] mData = new int[3 * INITIAL_CAPACITY];
+
+        /**
+         * Number of occurrences.
+         */
+        private int mSize;
+
+        /**
+         * Adds an occurrence.
+         * @param aFile
+         *        number of the file.
+         * @param aLine
+         *        line.
+         * @param aColumn
+         *        column.
+         */
+        void add(int aFile, int aLine, int aColumn)
+        {
+            if (3 * mSize == mData.length) {
+                mData = Arrays.copyOf(mData, 2 * mData.length);
+            }
+            mData[3 * mSize] = aFile;
+            mData[3 * mSize + 1] = aLine;
+            mData[3 * mSize + 2] = aColumn;
+            mSize++;
+        }
+
+        /**
+         * @return number of occurrences.
+         */
+        public int size()
+        {
+            return mSize;
+        }
+
+        /**
+         * @param aIndex
+         *        index of the occurrence.
+         * @return number of the file of the occurrence.
+         */
+        public int getFile(int aIndex)
+        {
+            return mData[3 * aIndex];
+        }
+
+        /**
+         * @param aIndex
+         *        index of the occurrence.
+         * @return line of the occurrence.
+         */
+        public int getLine(int aIndex)
+        {
+            return mData[3 * aIndex + 1];
+        }
+
+        /**
+         * @param aIndex
+         *        index of the occurrence.
+         * @return column of the occurrence.
+         */
+        public int getColumn(int aIndex)
+        {
+            return mData[3 * aIndex + 2];
+        }
+    }
+
+    /**
+     * Literals with the same hash modulo number of partitions: the ones in
+     * memory and the chunks spilled to the temporary file.
+     */
+    private final class Partition
+    {
+        /**
+         * Literals in memory in the order of their first occurrence.
+         */
+        private final Map<String, Occurrences> mLiterals =
+                new LinkedHashMap<String, Occurrences>();
+
+        /**
+         * Position and size of each spilled buffer in the file.
+         */
+        private final List<long[]> mBuffers = new ArrayList<long[]>();
+
+        /**
+         * The temporary file, null until the first spill.
+         */
+        private File mFile;
+
+        /**
+         * The opened temporary file, null until the first spill.
+         */
+        private RandomAccessFile mAccess;
+
+        /**
+         * Size of the temporary file.
+         */
+        private long mLength;
+
+        /**
+         * Writes the literals in memory to the temporary file and forgets
+         * them.
+         * @throws IOException
+         *         if the file can not be written.
+         */
+        void spill() throws IOException
+        {
+            if (!mLiterals.isEmpty()) {
+                if (mAccess == null) {
+                    mFile = File.createTempFile("literals", ".idx",
+                            mSpillDirectory);
+                    mAccess = new RandomAccessFile(mFile, "rw");
+                }
+                final FileChannel channel = mAccess.getChannel();
+                final List<Map.Entry<String, Occurrences>> entries =
+                        new ArrayList<Map.Entry<String, Occurrences>>(
+                                mLiterals.entrySet());
+                int first = 0;
+                while (first < entries.size()) {
+                    // a buffer holds at least one literal
+                    int last = first;
+                    long size = getRecordSize(entries.get(last));
+                    while (last + 1 < entries.size()
+                            && size + getRecordSize(entries.get(last + 1))
+                                <= MAX_BUFFER_SIZE)
+                    {
+                        last++;
+                        size += getRecordSize(entries.get(last));
+                    }
+                    final ByteBuffer buffer =
+                            channel.map(MapMode.READ_WRITE, mLength, size);
+                    for (int i = first; i <= last; i++) {
+                        writeRecord(buffer, entries.get(i));
+                    }
+                    mBuffers.add(new long[] {mLength, size});
+                    mLength += size;
+                    first = last + 1;
+                }
+                mLiterals.clear();
+            }
+        }
+
+        /**
+         * Merges the spilled literals with the ones in memory.
+         * @return all literals of the partition with their occurrences, in
+         *         the order of their first occurrence.
+         * @throws IOException
+         *         if the file can not be read.
+         */
+        Map<String, Occurrences> merge() throws IOException
+        {
+            final Map<String, Occurrences> result =
+                    new LinkedHashMap<String, Occurrences>();
+            for (long[] spilled : mBuffers) {
+                final ByteBuffer buffer = mAccess.getChannel().map(
+                        MapMode.READ_ONLY, spilled[0], spilled[1]);
+                while (buffer.hasRemaining()) {
+                    final char[] chars = new char[buffer.getInt()];
+                    for (int i = 0; i < chars.length; i++) {
+                        chars[i] = buffer.getChar();
+                    }
+                    final String literal = new String(chars);
+                    Occurrences occurrences = result.get(literal);
+                    if (occurrences == null) {
+                        occurrences = new Occurrences();
+                        result.put(literal, occurrences);
+                    }
+                    final int count = buffer.getInt();
+                    for (int i = 0; i < count; i++) {
+                        occurrences.add(buffer.getInt(), buffer.getInt(),
+                                buffer.getInt());
+                    }
+                }
+            }
+            for (Map.Entry<String, Occurrences> entry : mLiterals.entrySet()) {
+                final Occurrences occurrences = result.get(entry.getKey());
+                if (occurrences == null) {
+                    result.put(entry.getKey(), entry.getValue());
+                }
+                else {
+                    final Occurrences inMemory = entry.getValue();
+                    for (int i = 0; i < inMemory.size(); i++) {
+                        occurrences.add(inMemory.getFile(i),
+                                inMemory.getLine(i), inMemory.getColumn(i));
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Forgets all literals and deletes the temporary file.
+         */
+        void clear()
+        {
+            mLiterals.clear();
+            mBuffers.clear();
+            mLength = 0;
+            if (mAccess != null) {
+                Utils.closeQuietly(mAccess);
+                mAccess = null;
+                // fails while the file is mapped on some platforms, only
+                // then it is left to be deleted on exit
+                if (!mFile.delete()) {
+                    mFile.deleteOnExit();
+                }
+                mFile = null;
+            }
+        }
+
+        /**
+         * Gets the size of a literal in the file.
+         * @param aEntry
+         *        the literal with its occurrences.
+         * @return size in bytes.
+         */
+        private long getRecordSize(Map.Entry<String, Occurrences> aEntry)
+        {
+            return 4 + 2L * aEntry.getKey().length()
+                    + 4 + (long) OCCURRENCE_SIZE * aEntry.getValue().size();
+        }
+
+        /**
+         * Writes a literal to a buffer: the length and characters of the
+         * literal, the number of occurrences and the occurrences.
+         * @param aBuffer
+         *        the buffer.
+         * @param aEntry
+         *        the literal with its occurrences.
+         */
+        private void writeRecord(ByteBuffer aBuffer,
+                Map.Entry<String, Occurrences> aEntry)
+        {
+            final String literal = aEntry.getKey();
+            aBuffer.putInt(literal.length());
+            for (int i = 0; i < literal.length(); i++) {
+                aBuffer.putChar(literal.charAt(i));
+            }
+            final Occurrences occurrences = aEntry.getValue();
+            aBuffer.putInt(occurrences.size());
+            for (int i = 0; i < occurrences.size(); i++) {
+                aBuffer.putInt(occurrences.getFile(i));
+                aBuffer.putInt(occurrences.getLine(i));
+                aBuffer.putInt(occurrences.getColumn(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.runner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.github.sevntu.checkstyle.walker.CheckMetrics;
+
+/**
+ * <p>
+ * Predicts the time an audit of a file takes, to schedule expensive files
+ * first. The prediction is a fixed parsing cost per character of the file
+ * plus, for every check with a history in {@link CheckMetrics}, the time
+ * the check spent on this very file in its last run. For the files a check
+ * has not been run on yet its average cost per character is used instead:
+ * its time per visited token times the tokens it visits per character.
+ * </p>
+ * <p>
+ * So a file that was slow to audit last time is predicted to be slow
+ * again whatever its length, and only new files are ordered by length
+ * (weighted by how slow the checks are and how frequent their tokens are).
+ * </p>
+ * <p>
+ * Metrics are only collected by {@link
+ * com.github.sevntu.checkstyle.walker.SevntuTreeWalker} with "metrics"
+ * property enabled; without them files are simply ordered by length.
+ * </p>
+ */
+public final class FileCostModel
+{
+    /**
+     * Default time of parsing one character, in nanoseconds.
+     */
+    public static final double DEFAULT_PARSE_NANOS_PER_CHAR = 100.0;
+
+    /**
+     * Time of parsing one character, in nanoseconds.
+     */
+    private final double mParseNanosPerChar;
+
+    /**
+     * Metrics of the checks with a history.
+     */
+    private final List<CheckMetrics> mHistory = new ArrayList<CheckMetrics>();
+
+    /**
+     * Average time per character of a file of each check in
+     * {@link #mHistory}, in nanoseconds.
+     */
+    private final double[] mCheckNanosPerChar;
+
+    /**
+     * Average time spent per character of a file, in nanoseconds.
+     */
+    private final double mNanosPerChar;
+
+    /**
+     * Creates a model from the metrics of all checks collected so far.
+     */
+    public FileCostModel()
+    {
+        this(DEFAULT_PARSE_NANOS_PER_CHAR, CheckMetrics.getAllMetrics());
+    }
+
+    /**
+     * Creates a model.
+     * @param aParseNanosPerChar
+     *        time of parsing one character, in nanoseconds.
+     * @param aHistory
+     *        metrics of the checks run on the files.
+     */
+    public FileCostModel(double aParseNanosPerChar,
+            Collection<CheckMetrics> aHistory)
+    {
+        mParseNanosPerChar = aParseNanosPerChar;
+        final List<Double> checkNanosPerChar = new ArrayList<Double>();
+        double nanosPerChar = aParseNanosPerChar;
+        for (CheckMetrics metrics : aHistory) {
+            final long chars = metrics.getCharsProcessed();
+            final long tokens = metrics.getTokensVisited();
+            if (chars > 0 && tokens > 0) {
+                final double tokensPerChar = (double) tokens / chars;
+                final double nanosPerToken =
+                        (double) metrics.getCumulativeTimeNanos() / tokens;
+                mHistory.add(metrics);
+                checkNanosPerChar.add(tokensPerChar * nanosPerToken);
+                nanosPerChar += tokensPerChar * nanosPerToken;
+            }
+        }
+        mCheckNanosPerChar = new double[checkNanosPerChar.size()];
+        for (int i = 0; i < mCheckNanosPerChar.length; i++) {
+            mCheckNanosPerChar[i] = checkNanosPerChar.get(i);
+        }
+        mNanosPerChar = nanosPerChar;
+    }
+
+    /**
+     * Predicts the time an audit of a file takes.
+     * @param aFile
+     *        the file.
+     * @return predicted time in nanoseconds, 0 if the file does not exist
+     *         and has no history.
+     */
+    public long predictCost(File aFile)
+    {
+        final String fileName = aFile.getAbsolutePath();
+        final long length = aFile.length();
+        double result = length * mParseNanosPerChar;
+        for (int i = 0; i < mCheckNanosPerChar.length; i++) {
+            final long fileNanos = mHistory.get(i).getFileTimeNanos(fileName);
+            result += fileNanos >= 0 ? fileNanos
+                    : length * mCheckNanosPerChar[i];
+        }
+        return (long) result;
+    }
+
+    /**
+     * @return average time spent per character of a file, in nanoseconds.
+     */
+    public double getNanosPerChar()
+    {
+        return mNanosPerChar;
+    }
+}
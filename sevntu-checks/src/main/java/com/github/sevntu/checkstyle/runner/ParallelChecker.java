@@ -0,0 +1,459 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.runner;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.sevntu.checkstyle.SevntuModuleFactory;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+/**
+ * <p>
+ * Runs an audit of a set of files on several threads. Every thread has its
+ * own {@link Checker} configured from the same configuration, so checks are
+ * never shared between threads. The checkers resolve modules with
+ * {@link SevntuModuleFactory}, so configuring one checker per thread does not
+ * probe the packages for every module again. Files are scheduled by
+ * {@link WorkStealingScheduler}: the most expensive files predicted by
+ * {@link FileCostModel} start first and the cheap ones fill the gaps, so no
+ * thread is left alone with a few huge generated files at the end of the
+ * run.
+ * </p>
+ * <p>
+ * The events of each file are buffered by its thread and passed to the
+ * listeners at once when the file is finished, so the listeners see the
+ * usual sequence of "file started", errors and "file finished" events for
+ * each file and are never called concurrently.
+ * </p>
+ * <p>
+ * Every checker runs one audit ({@link Checker#process(List)}) over all the
+ * files its thread takes from the scheduler, so its modules are set up and
+ * finished once per run. Still each of them sees only a part of the files,
+ * so configurations that need all the files in one audit (a
+ * {@link com.github.sevntu.checkstyle.walker.SevntuTreeWalker} with
+ * "indexClassHierarchy" property or a check with "crossFile" property
+ * enabled) are rejected when there is more than one thread.
+ * </p>
+ */
+public final class ParallelChecker
+{
+    /**
+     * Properties of the modules that need all files in one audit.
+     */
+    private static final String[] AUDIT_WIDE_PROPERTIES = {
+        "indexClassHierarchy", "crossFile",
+    };
+
+    /**
+     * Checkers of the threads, the first one runs on the calling thread.
+     */
+    private final List<Checker> mCheckers = new ArrayList<Checker>();
+
+    /**
+     * Listeners of the audit.
+     */
+    private final List<AuditListener> mListeners =
+            new ArrayList<AuditListener>();
+
+    /**
+     * Executor of all the threads but the calling one, null if there is one
+     * thread only.
+     */
+    private ExecutorService mExecutor;
+
+    /**
+     * Creates checkers for the threads.
+     * @param aConfig
+     *        configuration of the checker.
+     * @param aModuleClassLoader
+     *        class loader of the modules.
+     * @param aThreads
+     *        number of threads.
+     * @throws CheckstyleException
+     *         if the configuration is invalid or needs all files in one
+     *         audit and there is more than one thread.
+     */
+    public ParallelChecker(Configuration aConfig,
+            ClassLoader aModuleClassLoader, int aThreads)
+        throws CheckstyleException
+    {
+        final int threads = Math.max(1, aThreads);
+        if (threads > 1) {
+            checkNotAuditWide(aConfig);
+        }
+        for (int i = 0; i < threads; i++) {
+            final Checker checker = new Checker();
+            checker.setModuleClassLoader(aModuleClassLoader);
+            checker.setModuleFactory(
+                    new SevntuModuleFactory(aModuleClassLoader));
+            checker.configure(aConfig);
+            checker.addListener(new FileEventsBuffer());
+            mCheckers.add(checker);
+        }
+        if (threads > 1) {
+            mExecutor = Executors.newFixedThreadPool(threads - 1,
+                    new ThreadFactory() {
+                        private final AtomicInteger mCounter =
+                                new AtomicInteger();
+
+                        public Thread newThread(Runnable aRunnable)
+                        {
+                            final Thread thread = new Thread(aRunnable,
+                                    "ParallelChecker-"
+                                    + mCounter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Adds a listener of the audit.
+     * @param aListener
+     *        the listener.
+     */
+    public void addListener(AuditListener aListener)
+    {
+        synchronized (mListeners) {
+            mListeners.add(aListener);
+        }
+    }
+
+    /**
+     * Processes the files with the cost model built from the metrics
+     * collected so far.
+     * @param aFiles
+     *        the files.
+     * @return number of errors found.
+     */
+    public int process(List<File> aFiles)
+    {
+        return process(aFiles, new FileCostModel());
+    }
+
+    /**
+     * Processes the files.
+     * @param aFiles
+     *        the files.
+     * @param aCostModel
+     *        model predicting the cost of a file.
+     * @return number of errors found.
+     */
+    public int process(List<File> aFiles, FileCostModel aCostModel)
+    {
+        final WorkStealingScheduler scheduler =
+                new WorkStealingScheduler(aFiles, aCostModel, mCheckers.size());
+        final AtomicInteger errors = new AtomicInteger();
+        fireAuditEvent(true);
+
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 1; i < mCheckers.size(); i++) {
+            final int worker = i;
+            futures.add(mExecutor.submit(new Runnable() {
+                public void run()
+                {
+                    runWorker(worker, scheduler, errors);
+                }
+            }));
+        }
+
+        Throwable failure = null;
+        try {
+            runWorker(0, scheduler, errors);
+        }
+        catch (final Throwable err) {
+            failure = err;
+        }
+
+        // the listeners must not be notified after the audit is finished,
+        // so waiting is not interruptible
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            boolean done = false;
+            while (!done) {
+                try {
+                    future.get();
+                    done = true;
+                }
+                catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+                catch (final ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    done = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        fireAuditEvent(false);
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+        return errors.get();
+    }
+
+    /**
+     * Stops the threads and destroys the checkers.
+     */
+    public void destroy()
+    {
+        if (mExecutor != null) {
+            mExecutor.shutdown();
+            mExecutor = null;
+        }
+        for (Checker checker : mCheckers) {
+            checker.destroy();
+        }
+    }
+
+    /**
+     * Checks that no module of a configuration needs all files in one
+     * audit.
+     * @param aConfig
+     *        the configuration.
+     * @throws CheckstyleException
+     *         if a module enables a property from
+     *         {@link #AUDIT_WIDE_PROPERTIES}.
+     */
+    private static void checkNotAuditWide(Configuration aConfig)
+        throws CheckstyleException
+    {
+        final List<String> names = Arrays.asList(aConfig.getAttributeNames());
+        for (String property : AUDIT_WIDE_PROPERTIES) {
+            if (names.contains(property)
+                    && Boolean.parseBoolean(aConfig.getAttribute(property)))
+            {
+                throw new CheckstyleException("Property '" + property
+                        + "' of " + aConfig.getName()
+                        + " needs all files in one audit, "
+                        + "it can not be run on several threads");
+            }
+        }
+        for (Configuration child : aConfig.getChildren()) {
+            checkNotAuditWide(child);
+        }
+    }
+
+    /**
+     * Processes files by one worker until all files are taken.
+     * @param aWorker
+     *        index of the worker.
+     * @param aScheduler
+     *        the scheduler of the files.
+     * @param aErrors
+     *        counter of the errors found.
+     */
+    private void runWorker(int aWorker, WorkStealingScheduler aScheduler,
+            AtomicInteger aErrors)
+    {
+        aErrors.addAndGet(mCheckers.get(aWorker).process(
+                new WorkerFiles(aWorker, aScheduler)));
+    }
+
+    /**
+     * Notifies the listeners about the start or the end of the audit.
+     * @param aStarted
+     *        whether the audit is started.
+     */
+    private void fireAuditEvent(boolean aStarted)
+    {
+        final AuditEvent event = new AuditEvent(this);
+        synchronized (mListeners) {
+            for (AuditListener listener : mListeners) {
+                if (aStarted) {
+                    listener.auditStarted(event);
+                }
+                else {
+                    listener.auditFinished(event);
+                }
+            }
+        }
+    }
+
+    /**
+     * Files of one worker, taken from the scheduler one by one as the
+     * checker iterates over them: Checker iterates over the files with
+     * {@link List#iterator()}, which asks for the size before every file.
+     */
+    private static final class WorkerFiles extends AbstractList<File>
+    {
+        /**
+         * Index of the worker.
+         */
+        private final int mWorker;
+
+        /**
+         * The scheduler of the files.
+         */
+        private final WorkStealingScheduler mScheduler;
+
+        /**
+         * Files taken so far.
+         */
+        private final List<File> mTaken = new ArrayList<File>();
+
+        /**
+         * Number of files returned so far.
+         */
+        private int mReturned;
+
+        /**
+         * Whether the scheduler has no more files.
+         */
+        private boolean mExhausted;
+
+        /**
+         * Creates the files of a worker.
+         * @param aWorker
+         *        index of the worker.
+         * @param aScheduler
+         *        the scheduler of the files.
+         */
+        WorkerFiles(int aWorker, WorkStealingScheduler aScheduler)
+        {
+            mWorker = aWorker;
+            mScheduler = aScheduler;
+        }
+
+        @Override
+        public File get(int aIndex)
+        {
+            mReturned = Math.max(mReturned, aIndex + 1);
+            return mTaken.get(aIndex);
+        }
+
+        @Override
+        public int size()
+        {
+            // the next file is taken only when all taken ones are returned
+            if (!mExhausted && mReturned == mTaken.size()) {
+                final File file = mScheduler.next(mWorker);
+                if (file == null) {
+                    mExhausted = true;
+                }
+                else {
+                    mTaken.add(file);
+                }
+            }
+            return mTaken.size();
+        }
+    }
+
+    /**
+     * Listener of one checker that buffers the events of a file and passes
+     * them to the listeners of the audit when the file is finished. The
+     * audit events of the checker are dropped, the audit of all checkers
+     * is reported once.
+     */
+    private final class FileEventsBuffer implements AuditListener
+    {
+        /**
+         * Errors of the current file.
+         */
+        private final List<AuditEvent> mErrors = new ArrayList<AuditEvent>();
+
+        /**
+         * Exceptions of the current file, parallel to the error events in
+         * {@link #mErrors}: null for an error.
+         */
+        private final List<Throwable> mExceptions = new ArrayList<Throwable>();
+
+        /**
+         * "File started" event of the current file.
+         */
+        private AuditEvent mFileStarted;
+
+        public void auditStarted(AuditEvent aEvent)
+        {
+        }
+
+        public void auditFinished(AuditEvent aEvent)
+        {
+        }
+
+        public void fileStarted(AuditEvent aEvent)
+        {
+            mFileStarted = aEvent;
+            mErrors.clear();
+            mExceptions.clear();
+        }
+
+        public void addError(AuditEvent aEvent)
+        {
+            mErrors.add(aEvent);
+            mExceptions.add(null);
+        }
+
+        public void addException(AuditEvent aEvent, Throwable aThrowable)
+        {
+            mErrors.add(aEvent);
+            mExceptions.add(aThrowable);
+        }
+
+        public void fileFinished(AuditEvent aEvent)
+        {
+            synchronized (mListeners) {
+                for (AuditListener listener : mListeners) {
+                    if (mFileStarted != null) {
+                        listener.fileStarted(mFileStarted);
+                    }
+                    for (int i = 0; i < mErrors.size(); i++) {
+                        if (mExceptions.get(i) == null) {
+                            listener.addError(mErrors.get(i));
+                        }
+                        else {
+                            listener.addException(mErrors.get(i),
+                                    mExceptions.get(i));
+                        }
+                    }
+                    listener.fileFinished(aEvent);
+                }
+            }
+            mFileStarted = null;
+            mErrors.clear();
+            mExceptions.clear();
+        }
+    }
+}
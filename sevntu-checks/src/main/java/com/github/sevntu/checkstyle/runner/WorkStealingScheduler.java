@@ -0,0 +1,134 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.runner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * Deals files to workers by predicted cost and lets idle workers steal. The
+ * files are dealt in the order of decreasing cost, each to the worker with
+ * the least total cost so far, so every worker starts with its most
+ * expensive file. A worker that runs out of files takes the cheapest file
+ * of another worker, so the small files fill the gaps at the end of the
+ * run.
+ */
+final class WorkStealingScheduler
+{
+    /**
+     * Files of each worker, the most expensive first.
+     */
+    private final List<BlockingDeque<File>> mQueues;
+
+    /**
+     * Deals the files to the workers.
+     * @param aFiles
+     *        the files.
+     * @param aCostModel
+     *        model predicting the cost of a file.
+     * @param aWorkers
+     *        number of workers.
+     */
+    WorkStealingScheduler(List<File> aFiles, FileCostModel aCostModel,
+            int aWorkers)
+    {
+        final List<ScheduledFile> files =
+                new ArrayList<ScheduledFile>(aFiles.size());
+        for (File file : aFiles) {
+            files.add(new ScheduledFile(file, aCostModel.predictCost(file)));
+        }
+        Collections.sort(files, new Comparator<ScheduledFile>() {
+            public int compare(ScheduledFile aFirst, ScheduledFile aSecond)
+            {
+                int result = aFirst.mCost < aSecond.mCost
+                        ? 1 : (aFirst.mCost == aSecond.mCost ? 0 : -1);
+                if (result == 0) {
+                    result = aFirst.mFile.compareTo(aSecond.mFile);
+                }
+                return result;
+            }
+        });
+
+        mQueues = new ArrayList<BlockingDeque<File>>(aWorkers);
+        for (int i = 0; i < aWorkers; i++) {
+            mQueues.add(new LinkedBlockingDeque<File>());
+        }
+        final long[] loads = new long[aWorkers];
+        for (ScheduledFile file : files) {
+            int worker = 0;
+            for (int i = 1; i < aWorkers; i++) {
+                if (loads[i] < loads[worker]) {
+                    worker = i;
+                }
+            }
+            mQueues.get(worker).addLast(file.mFile);
+            loads[worker] += file.mCost;
+        }
+    }
+
+    /**
+     * Gets the next file for a worker: its own most expensive file or, if
+     * it has none, the cheapest file of another worker.
+     * @param aWorker
+     *        index of the worker.
+     * @return the file or null if all files are taken.
+     */
+    File next(int aWorker)
+    {
+        File result = mQueues.get(aWorker).pollFirst();
+        for (int i = 1; result == null && i < mQueues.size(); i++) {
+            result = mQueues.get((aWorker + i) % mQueues.size()).pollLast();
+        }
+        return result;
+    }
+
+    /**
+     * A file with its predicted cost.
+     */
+    private static final class ScheduledFile
+    {
+        /**
+         * The file.
+         */
+        private final File mFile;
+
+        /**
+         * Predicted cost of the file.
+         */
+        private final long mCost;
+
+        /**
+         * Creates a scheduled file.
+         * @param aFile
+         *        the file.
+         * @param aCost
+         *        predicted cost of the file.
+         */
+        ScheduledFile(File aFile, long aCost)
+        {
+            mFile = aFile;
+            mCost = aCost;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.trace;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.github.sevntu.checkstyle.ast.DetailAstTraversal;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.TextBlock;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+/**
+ * <p>
+ * Writes the token events of a parsed file to a compact binary trace, which
+ * {@link TraceReplayer} replays to checks without the Checkstyle parser.
+ * </p>
+ * <p>
+ * The trace holds the lines of the file, the positions of its comments and
+ * the nodes of the tree in the order they are visited, each with its type, text, line, column and number
+ * of children; the "leave" events are implied, a node is left after its last
+ * child. Numbers are written as variable length integers, lines as the
+ * difference from the line of the previous node, and every distinct text is
+ * written once and then referenced by its index, so most nodes take five
+ * bytes.
+ * </p>
+ * <p>
+ * An anonymized trace can be shared without sharing the source code: the
+ * lines are replaced with blank lines and every distinct identifier and
+ * string literal is replaced with a generated one, so equal names stay
+ * equal. Comments keep their positions, but not their text. Checks looking
+ * for particular names or comment texts behave differently on such a trace,
+ * but the shape of the tree and so the cost of most checks is kept.
+ * </p>
+ */
+public final class TraceRecorder
+{
+    /**
+     * Magic number at the start of a trace, "SVTR".
+     */
+    static final int MAGIC = 0x53565452;
+
+    /**
+     * Version of the trace format.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Flag of a trace with the lines of the file.
+     */
+    static final int FLAG_LINES = 1;
+
+    /**
+     * Whether identifiers and literals are replaced and lines are dropped.
+     */
+    private final boolean mAnonymize;
+
+    /**
+     * Creates a recorder.
+     * @param aAnonymize
+     *        whether identifiers and string literals are replaced and the
+     *        lines of the file are dropped.
+     */
+    public TraceRecorder(boolean aAnonymize)
+    {
+        mAnonymize = aAnonymize;
+    }
+
+    /**
+     * Parses a file and writes its trace.
+     * @param aFile
+     *        the file.
+     * @param aCharset
+     *        charset of the file.
+     * @param aOut
+     *        stream to write the trace to, it is not closed.
+     * @throws Exception
+     *         if the file can not be read or parsed.
+     */
+    public void record(File aFile, String aCharset, OutputStream aOut)
+        throws Exception
+    {
+        final FileContents contents =
+                new FileContents(new FileText(aFile, aCharset));
+        record(contents, TreeWalker.parse(contents), aOut);
+    }
+
+    /**
+     * Writes the trace of a parsed file.
+     * @param aContents
+     *        contents of the file.
+     * @param aRootAST
+     *        the first top level node of the tree, may be null.
+     * @param aOut
+     *        stream to write the trace to, it is not closed.
+     * @throws IOException
+     *         if the trace can not be written.
+     */
+    public void record(FileContents aContents, DetailAST aRootAST,
+            OutputStream aOut) throws IOException
+    {
+        final DataOutputStream out = new DataOutputStream(aOut);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(mAnonymize ? 0 : FLAG_LINES);
+
+        final String[] lines = aContents.getLines();
+        writeVarInt(out, lines.length);
+        if (!mAnonymize) {
+            for (String line : lines) {
+                writeString(out, line);
+            }
+        }
+
+        writeComments(out, aContents);
+
+        int topLevelCount = 0;
+        for (DetailAST topLevel : DetailAstTraversal.siblings(aRootAST)) {
+            topLevelCount++;
+        }
+        writeVarInt(out, topLevelCount);
+
+        final Map<String, Integer> texts = new HashMap<String, Integer>();
+        final Map<String, String> aliases = new HashMap<String, String>();
+        int previousLine = 0;
+        for (DetailAST topLevel : DetailAstTraversal.siblings(aRootAST)) {
+            for (DetailAST node : DetailAstTraversal.preOrder(topLevel)) {
+                writeVarInt(out, node.getType());
+                writeText(out, texts, getText(node, aliases));
+                writeVarInt(out, toZigZag(node.getLineNo() - previousLine));
+                previousLine = node.getLineNo();
+                writeVarInt(out, node.getColumnNo());
+                writeVarInt(out, node.getChildCount());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the positions of the C++ and C comments of a file, ordered by
+     * line. The text of the comments is part of the lines.
+     * @param aOut
+     *        the trace.
+     * @param aContents
+     *        contents of the file.
+     * @throws IOException
+     *         if the trace can not be written.
+     */
+    private static void writeComments(DataOutputStream aOut,
+            FileContents aContents) throws IOException
+    {
+        final Map<Integer, TextBlock> cppComments =
+                new TreeMap<Integer, TextBlock>(aContents.getCppComments());
+        writeVarInt(aOut, cppComments.size());
+        for (TextBlock comment : cppComments.values()) {
+            writeVarInt(aOut, comment.getStartLineNo());
+            writeVarInt(aOut, comment.getStartColNo());
+            writeVarInt(aOut, comment.getEndColNo());
+        }
+
+        final Map<Integer, List<TextBlock>> cComments =
+                new TreeMap<Integer, List<TextBlock>>(aContents.getCComments());
+        int cCommentsCount = 0;
+        for (List<TextBlock> lineComments : cComments.values()) {
+            cCommentsCount += lineComments.size();
+        }
+        writeVarInt(aOut, cCommentsCount);
+        for (List<TextBlock> lineComments : cComments.values()) {
+            for (TextBlock comment : lineComments) {
+                writeVarInt(aOut, comment.getStartLineNo());
+                writeVarInt(aOut, comment.getStartColNo());
+                writeVarInt(aOut, comment.getEndLineNo());
+                writeVarInt(aOut, comment.getEndColNo());
+            }
+        }
+    }
+
+    /**
+     * Gets the text of a node to record.
+     * @param aNode
+     *        the node.
+     * @param aAliases
+     *        generated texts by original text.
+     * @return the text of the node or its alias in an anonymized trace.
+     */
+    private String getText(DetailAST aNode, Map<String, String> aAliases)
+    {
+        String result = aNode.getText();
+        final int type = aNode.getType();
+        if (mAnonymize
+                && (type == TokenTypes.IDENT
+                    || type == TokenTypes.STRING_LITERAL))
+        {
+            final String key = type + ":" + result;
+            String alias = aAliases.get(key);
+            if (alias == null) {
+                alias = type == TokenTypes.IDENT
+                        ? "i" + aAliases.size()
+                        : "\"s" + aAliases.size() + "\"";
+                aAliases.put(key, alias);
+            }
+            result = alias;
+        }
+        return result;
+    }
+
+    /**
+     * Writes a text as a reference to the table of texts written so far,
+     * adding it to the table if it is new.
+     * @param aOut
+     *        the trace.
+     * @param aTexts
+     *        indexes of the texts written so far.
+     * @param aText
+     *        the text.
+     * @throws IOException
+     *         if the trace can not be written.
+     */
+    private static void writeText(DataOutputStream aOut,
+            Map<String, Integer> aTexts, String aText) throws IOException
+    {
+        final Integer index = aTexts.get(aText);
+        if (index == null) {
+            writeVarInt(aOut, aTexts.size());
+            writeString(aOut, aText);
+            aTexts.put(aText, aTexts.size());
+        }
+        else {
+            writeVarInt(aOut, index);
+        }
+    }
+
+    /**
+     * Writes a string as its length and UTF-8 bytes.
+     * @param aOut
+     *        the trace.
+     * @param aString
+     *        the string.
+     * @throws IOException
+     *         if the trace can not be written.
+     */
+    private static void writeString(DataOutputStream aOut, String aString)
+        throws IOException
+    {
+        final byte[] bytes = aString.getBytes("UTF-8");
+        writeVarInt(aOut, bytes.length);
+        aOut.write(bytes);
+    }
+
+    /**
+     * Maps a signed integer to a non-negative one, so that numbers close to
+     * zero take one byte: 0, -1, 1, -2, 2 become 0, 1, 2, 3, 4.
+     * @param aValue
+     *        the value.
+     * @return the mapped value.
+     */
+    static int toZigZag(int aValue)
+    {
+        return (aValue << 1) ^ (aValue >> 31);
+    }
+
+    /**
+     * Writes a non-negative integer in 7-bit groups, the least significant
+     * first, with the high bit set on all groups but the last one.
+     * Negative values take five bytes.
+     * @param aOut
+     *        the trace.
+     * @param aValue
+     *        the value.
+     * @throws IOException
+     *         if the trace can not be written.
+     */
+    static void writeVarInt(DataOutputStream aOut, int aValue)
+        throws IOException
+    {
+        int value = aValue;
+        while ((value & ~0x7F) != 0) {
+            aOut.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        aOut.writeByte(value);
+    }
+}
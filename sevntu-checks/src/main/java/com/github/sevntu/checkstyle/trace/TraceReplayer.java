@@ -0,0 +1,418 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.trace;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import antlr.CommonToken;
+
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessages;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+/**
+ * <p>
+ * Rebuilds the tree of a file from a trace written by {@link TraceRecorder}
+ * and replays its token events to checks, the way TreeWalker notifies them,
+ * without the Checkstyle parser. The tree is built once, so a check can be
+ * replayed many times to measure or profile it in isolation:
+ * </p>
+ * <pre>
+ * final TraceReplayer replayer = new TraceReplayer(in);
+ * final Check check = ...; // configured and initialized
+ * for (int i = 0; i &lt; iterations; i++) {
+ *     replayer.replay(check);
+ * }
+ * </pre>
+ * <p>
+ * The comments are reported to the contents of the file the way the parser
+ * reports them, so checks looking at comments get the same results. Lines
+ * of an anonymized trace are blank, only their number is kept; the lines
+ * with comments are filled with spaces up to the end of the comments, so
+ * the comments keep their positions but have no text.
+ * </p>
+ */
+public final class TraceReplayer
+{
+    /**
+     * Name of the replayed file.
+     */
+    private static final String FILE_NAME = "trace";
+
+    /**
+     * Numbers recorded per C++ comment: line, start and end column.
+     */
+    private static final int CPP_COMMENT_SIZE = 3;
+
+    /**
+     * Numbers recorded per C comment: start line and column, end line and
+     * column.
+     */
+    private static final int C_COMMENT_SIZE = 4;
+
+    /**
+     * Contents of the traced file.
+     */
+    private final FileContents mContents;
+
+    /**
+     * The first top level node of the tree, null if the file is empty.
+     */
+    private final DetailAST mRootAST;
+
+    /**
+     * Reads a trace.
+     * @param aIn
+     *        stream of the trace, it is not closed.
+     * @throws IOException
+     *         if the trace can not be read or is not a trace.
+     */
+    public TraceReplayer(InputStream aIn) throws IOException
+    {
+        final DataInputStream in = new DataInputStream(aIn);
+        if (in.readInt() != TraceRecorder.MAGIC) {
+            throw new IOException("Not a token trace");
+        }
+        final int version = in.readUnsignedByte();
+        if (version != TraceRecorder.VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+        final int flags = in.readUnsignedByte();
+
+        final boolean hasLines = (flags & TraceRecorder.FLAG_LINES) != 0;
+        final String[] lines = new String[readVarInt(in)];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = hasLines ? readString(in) : "";
+        }
+        final int[] cppComments =
+                readNumbers(in, readVarInt(in) * CPP_COMMENT_SIZE);
+        final int[] cComments =
+                readNumbers(in, readVarInt(in) * C_COMMENT_SIZE);
+        if (!hasLines) {
+            for (int i = 0; i < cppComments.length; i += CPP_COMMENT_SIZE) {
+                pad(lines, cppComments[i], cppComments[i + 2] + 1);
+            }
+            for (int i = 0; i < cComments.length; i += C_COMMENT_SIZE) {
+                pad(lines, cComments[i], cComments[i + 1]);
+                pad(lines, cComments[i + 2], cComments[i + 3] + 1);
+            }
+        }
+        mContents = new FileContents(FileText.fromLines(new File(FILE_NAME),
+                Arrays.asList(lines)));
+        for (int i = 0; i < cppComments.length; i += CPP_COMMENT_SIZE) {
+            mContents.reportCppComment(cppComments[i], cppComments[i + 1]);
+        }
+        for (int i = 0; i < cComments.length; i += C_COMMENT_SIZE) {
+            mContents.reportCComment(cComments[i], cComments[i + 1],
+                    cComments[i + 2], cComments[i + 3]);
+        }
+        mRootAST = readTree(in);
+    }
+
+    /**
+     * @return contents of the traced file.
+     */
+    public FileContents getContents()
+    {
+        return mContents;
+    }
+
+    /**
+     * @return the first top level node of the tree, null if the file is
+     *         empty.
+     */
+    public DetailAST getRootAST()
+    {
+        return mRootAST;
+    }
+
+    /**
+     * Replays the tree to a configured and initialized check: the check is
+     * notified about the beginning of the tree, visiting and leaving every
+     * token it is registered for, and the end of the tree.
+     * @param aCheck
+     *        the check.
+     * @return messages logged by the check.
+     */
+    public LocalizedMessages replay(Check aCheck)
+    {
+        final boolean[] tokens = getTokens(aCheck);
+        final LocalizedMessages messages = new LocalizedMessages();
+        aCheck.setMessages(messages);
+        aCheck.setFileContents(mContents);
+        aCheck.beginTree(mRootAST);
+        DetailAST curNode = mRootAST;
+        while (curNode != null) {
+            if (isRegistered(tokens, curNode)) {
+                aCheck.visitToken(curNode);
+            }
+            DetailAST toVisit = curNode.getFirstChild();
+            while (curNode != null && toVisit == null) {
+                if (isRegistered(tokens, curNode)) {
+                    aCheck.leaveToken(curNode);
+                }
+                toVisit = curNode.getNextSibling();
+                if (toVisit == null) {
+                    curNode = curNode.getParent();
+                }
+            }
+            curNode = toVisit;
+        }
+        aCheck.finishTree(mRootAST);
+        return messages;
+    }
+
+    /**
+     * Gets the token types a check is registered for: the configured tokens
+     * and the required ones, or the default tokens.
+     * @param aCheck
+     *        the check.
+     * @return flags indexed by token type.
+     */
+    private static boolean[] getTokens(Check aCheck)
+    {
+        final List<Integer> types = new ArrayList<Integer>();
+        final Set<String> tokenNames = aCheck.getTokenNames();
+        if (tokenNames.isEmpty()) {
+            for (int type : aCheck.getDefaultTokens()) {
+                types.add(type);
+            }
+        }
+        else {
+            for (String name : tokenNames) {
+                types.add(TokenTypes.getTokenId(name));
+            }
+            for (int type : aCheck.getRequiredTokens()) {
+                types.add(type);
+            }
+        }
+        boolean[] result = new boolean[0];
+        for (int type : types) {
+            if (type >= result.length) {
+                result = Arrays.copyOf(result, type + 1);
+            }
+            result[type] = true;
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether a check is registered for the type of a node.
+     * @param aTokens
+     *        flags indexed by token type.
+     * @param aNode
+     *        the node.
+     * @return true if the check is notified about the node.
+     */
+    private static boolean isRegistered(boolean[] aTokens, DetailAST aNode)
+    {
+        final int type = aNode.getType();
+        return type < aTokens.length && aTokens[type];
+    }
+
+    /**
+     * Reads the nodes of the tree in pre-order. The tree is built without
+     * recursion, with a stack of the nodes that still wait for children.
+     * @param aIn
+     *        the trace.
+     * @return the first top level node, null if there are no nodes.
+     * @throws IOException
+     *         if the trace can not be read.
+     */
+    private static DetailAST readTree(DataInputStream aIn) throws IOException
+    {
+        final List<String> texts = new ArrayList<String>();
+        final int[] previousLine = new int[1];
+        // parents waiting for children, their last added children and the
+        // number of children still to be read
+        final List<DetailAST> parents = new ArrayList<DetailAST>();
+        final List<DetailAST> lastChildren = new ArrayList<DetailAST>();
+        int[] remaining = new int[16];
+
+        DetailAST root = null;
+        DetailAST lastTopLevel = null;
+        int topLevelRemaining = readVarInt(aIn);
+        while (topLevelRemaining > 0 || !parents.isEmpty()) {
+            final DetailAST node = readNode(aIn, texts, previousLine);
+            final int childCount = readVarInt(aIn);
+            final int depth = parents.size();
+            if (depth == 0) {
+                if (lastTopLevel == null) {
+                    root = node;
+                }
+                else {
+                    lastTopLevel.setNextSibling(node);
+                }
+                lastTopLevel = node;
+                topLevelRemaining--;
+            }
+            else {
+                final DetailAST previous = lastChildren.get(depth - 1);
+                if (previous == null) {
+                    parents.get(depth - 1).setFirstChild(node);
+                }
+                else {
+                    previous.setNextSibling(node);
+                }
+                lastChildren.set(depth - 1, node);
+                remaining[depth - 1]--;
+            }
+            if (childCount > 0) {
+                if (depth == remaining.length) {
+                    remaining = Arrays.copyOf(remaining, depth * 2);
+                }
+                parents.add(node);
+                lastChildren.add(null);
+                remaining[depth] = childCount;
+            }
+            // pop the parents whose children are all read
+            while (!parents.isEmpty() && remaining[parents.size() - 1] == 0) {
+                parents.remove(parents.size() - 1);
+                lastChildren.remove(lastChildren.size() - 1);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Reads one node.
+     * @param aIn
+     *        the trace.
+     * @param aTexts
+     *        texts read so far by index.
+     * @param aPreviousLine
+     *        line of the previous node, updated with the line of this one.
+     * @return the node without children.
+     * @throws IOException
+     *         if the trace can not be read.
+     */
+    private static DetailAST readNode(DataInputStream aIn, List<String> aTexts,
+            int[] aPreviousLine) throws IOException
+    {
+        final int type = readVarInt(aIn);
+        final int textIndex = readVarInt(aIn);
+        if (textIndex == aTexts.size()) {
+            aTexts.add(readString(aIn));
+        }
+        else if (textIndex > aTexts.size()) {
+            throw new IOException("Invalid text reference " + textIndex);
+        }
+        final CommonToken token =
+                new CommonToken(type, aTexts.get(textIndex));
+        final int zigZag = readVarInt(aIn);
+        aPreviousLine[0] += (zigZag >>> 1) ^ -(zigZag & 1);
+        token.setLine(aPreviousLine[0]);
+        // DetailAST counts columns from 0, tokens from 1
+        token.setColumn(readVarInt(aIn) + 1);
+        final DetailAST result = new DetailAST();
+        result.initialize(token);
+        return result;
+    }
+
+    /**
+     * Reads a number of integers.
+     * @param aIn
+     *        the trace.
+     * @param aCount
+     *        number of integers.
+     * @return the integers.
+     * @throws IOException
+     *         if the trace can not be read.
+     */
+    private static int[] readNumbers(DataInputStream aIn, int aCount)
+        throws IOException
+    {
+        final int[] result = new int[aCount];
+        for (int i = 0; i < aCount; i++) {
+            result[i] = readVarInt(aIn);
+        }
+        return result;
+    }
+
+    /**
+     * Fills a line with spaces up to a length.
+     * @param aLines
+     *        the lines.
+     * @param aLineNo
+     *        number of the line, counted from 1.
+     * @param aLength
+     *        minimal length of the line.
+     * @throws IOException
+     *         if there is no such line.
+     */
+    private static void pad(String[] aLines, int aLineNo, int aLength)
+        throws IOException
+    {
+        if (aLineNo < 1 || aLineNo > aLines.length) {
+            throw new IOException("Invalid comment line " + aLineNo);
+        }
+        final StringBuilder line = new StringBuilder(aLines[aLineNo - 1]);
+        while (line.length() < aLength) {
+            line.append(' ');
+        }
+        aLines[aLineNo - 1] = line.toString();
+    }
+
+    /**
+     * Reads a string written as its length and UTF-8 bytes.
+     * @param aIn
+     *        the trace.
+     * @return the string.
+     * @throws IOException
+     *         if the trace can not be read.
+     */
+    private static String readString(DataInputStream aIn) throws IOException
+    {
+        final byte[] bytes = new byte[readVarInt(aIn)];
+        aIn.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * Reads an integer written by
+     * {@link TraceRecorder#writeVarInt(java.io.DataOutputStream, int)}.
+     * @param aIn
+     *        the trace.
+     * @return the value.
+     * @throws IOException
+     *         if the trace can not be read.
+     */
+    private static int readVarInt(DataInputStream aIn) throws IOException
+    {
+        int result = 0;
+        int shift = 0;
+        int b = aIn.readUnsignedByte();
+        while ((b & 0x80) != 0) {
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+            b = aIn.readUnsignedByte();
+        }
+        return result | (b << shift);
+    }
+}
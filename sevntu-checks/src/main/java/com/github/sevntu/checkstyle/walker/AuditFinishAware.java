@@ -0,0 +1,48 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.walker;
+
+import java.util.List;
+import java.util.Map;
+
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+
+/**
+ * Implemented by checks that find violations across the files of the
+ * audit, not within one file. {@link SevntuTreeWalker} asks them for these
+ * violations when all files are processed and reports them file by file;
+ * under other tree walkers they are never asked, so a check that needs
+ * {@link #finishAudit()} should refuse to work unless
+ * {@link #setAuditFinishSupported()} has been called.
+ */
+public interface AuditFinishAware
+{
+    /**
+     * Notifies the check that its walker calls {@link #finishAudit()}.
+     * Called after the check is configured and before it is initialized.
+     */
+    void setAuditFinishSupported();
+
+    /**
+     * Notifies the check that all files of the audit are processed. The
+     * check forgets the audit and is ready for the next one.
+     * @return violations found across the files, by absolute file name.
+     */
+    Map<String, List<LocalizedMessage>> finishAudit();
+}
@@ -0,0 +1,125 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.walker;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import com.github.sevntu.checkstyle.ast.DetailAstTraversal;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+/**
+ * Changed lines of one file, kept as sorted disjoint line ranges.
+ */
+public final class ChangedLines
+{
+    /**
+     * First lines of the ranges, ascending.
+     */
+    private final int[] mFirstLines;
+
+    /**
+     * Last lines of the ranges, ascending.
+     */
+    private final int[] mLastLines;
+
+    /**
+     * Creates the ranges of the changed lines.
+     * @param aLines
+     *        changed lines, ascending.
+     * @param aCount
+     *        number of the changed lines.
+     */
+    ChangedLines(int[] aLines, int aCount)
+    {
+        int ranges = 0;
+        for (int i = 0; i < aCount; i++) {
+            if (i == 0 || aLines[i] > aLines[i - 1] + 1) {
+                ranges++;
+            }
+        }
+        mFirstLines = new int[ranges];
+        mLastLines = new int[ranges];
+        int range = -1;
+        for (int i = 0; i < aCount; i++) {
+            if (i == 0 || aLines[i] > aLines[i - 1] + 1) {
+                range++;
+                mFirstLines[range] = aLines[i];
+            }
+            mLastLines[range] = aLines[i];
+        }
+    }
+
+    /**
+     * Checks whether a line is changed.
+     * @param aLine
+     *        the line, starting from 1.
+     * @return true if the line is changed.
+     */
+    public boolean contains(int aLine)
+    {
+        int low = 0;
+        int high = mLastLines.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (mLastLines[middle] < aLine) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low < mLastLines.length && mFirstLines[low] <= aLine;
+    }
+
+    /**
+     * Gets the nodes of a file tree that are on a changed line or have a
+     * descendant on a changed line. Package and import declarations are
+     * always included, as checks need them to resolve names.
+     * @param aRootAST
+     *        the first top level node of the tree, may be null.
+     * @return identity set of the nodes.
+     */
+    public Set<DetailAST> getAffectedNodes(DetailAST aRootAST)
+    {
+        final Set<DetailAST> result = Collections.newSetFromMap(
+                new IdentityHashMap<DetailAST, Boolean>());
+        for (DetailAST topLevel : DetailAstTraversal.siblings(aRootAST)) {
+            final boolean declaration =
+                    topLevel.getType() == TokenTypes.PACKAGE_DEF
+                    || topLevel.getType() == TokenTypes.IMPORT
+                    || topLevel.getType() == TokenTypes.STATIC_IMPORT;
+            // children first, so that a node is marked by its children
+            // before it is visited itself
+            for (DetailAST node : DetailAstTraversal.postOrder(topLevel)) {
+                if (declaration || result.contains(node)
+                        || contains(node.getLineNo()))
+                {
+                    result.add(node);
+                    if (node.getParent() != null) {
+                        result.add(node.getParent());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,164 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.walker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+
+/**
+ * Checks that walk the tree of a file together, with their dispatch table by
+ * token type. {@link SevntuTreeWalker} runs all its checks in one group, or
+ * splits them into several groups walking the same tree on different threads.
+ */
+final class CheckGroup
+{
+    /**
+     * Checks of the group in the order of registration.
+     */
+    private final List<CheckHolder> mChecks = new ArrayList<CheckHolder>();
+
+    /**
+     * Checks of the group by token type.
+     */
+    private final List<List<CheckHolder>> mTokenToChecks =
+            new ArrayList<List<CheckHolder>>();
+
+    /**
+     * Adds a check to the group.
+     * @param aHolder
+     *        the check.
+     */
+    void add(CheckHolder aHolder)
+    {
+        for (int tokenType : aHolder.getTokens()) {
+            while (mTokenToChecks.size() <= tokenType) {
+                mTokenToChecks.add(null);
+            }
+            List<CheckHolder> checks = mTokenToChecks.get(tokenType);
+            if (checks == null) {
+                checks = new ArrayList<CheckHolder>();
+                mTokenToChecks.set(tokenType, checks);
+            }
+            checks.add(aHolder);
+        }
+        mChecks.add(aHolder);
+    }
+
+    /**
+     * Notifies the checks of the group about the tree of one file.
+     * @param aRootAST
+     *        the root of the tree.
+     * @param aContents
+     *        contents of the file.
+     * @param aAffectedNodes
+     *        identity set of the nodes to visit, null to visit all of them.
+     *        A node that is not in the set is skipped with its subtree.
+     */
+    void walk(DetailAST aRootAST, FileContents aContents,
+            Set<DetailAST> aAffectedNodes)
+    {
+        for (CheckHolder holder : mChecks) {
+            holder.beginTree(aRootAST, aContents);
+        }
+        DetailAST curNode = getFirstAffected(aRootAST, aAffectedNodes);
+        while (curNode != null) {
+            notifyVisit(curNode);
+            DetailAST toVisit =
+                    getFirstAffected(curNode.getFirstChild(), aAffectedNodes);
+            while (curNode != null && toVisit == null) {
+                notifyLeave(curNode);
+                toVisit = getFirstAffected(curNode.getNextSibling(),
+                        aAffectedNodes);
+                if (toVisit == null) {
+                    curNode = curNode.getParent();
+                }
+            }
+            curNode = toVisit;
+        }
+        for (CheckHolder holder : mChecks) {
+            holder.finishTree(aRootAST);
+        }
+    }
+
+    /**
+     * Gets the first node to visit among a node and its next siblings.
+     * @param aNode
+     *        the node, may be null.
+     * @param aAffectedNodes
+     *        identity set of the nodes to visit, null to visit all of them.
+     * @return the node to visit or null if there is none.
+     */
+    private static DetailAST getFirstAffected(DetailAST aNode,
+            Set<DetailAST> aAffectedNodes)
+    {
+        DetailAST result = aNode;
+        if (aAffectedNodes != null) {
+            while (result != null && !aAffectedNodes.contains(result)) {
+                result = result.getNextSibling();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Notifies the checks interested in the token about visiting it.
+     * @param aAST
+     *        the token.
+     */
+    private void notifyVisit(DetailAST aAST)
+    {
+        final List<CheckHolder> checks = getChecks(aAST.getType());
+        if (checks != null) {
+            for (CheckHolder holder : checks) {
+                holder.visitToken(aAST);
+            }
+        }
+    }
+
+    /**
+     * Notifies the checks interested in the token about leaving it.
+     * @param aAST
+     *        the token.
+     */
+    private void notifyLeave(DetailAST aAST)
+    {
+        final List<CheckHolder> checks = getChecks(aAST.getType());
+        if (checks != null) {
+            for (CheckHolder holder : checks) {
+                holder.leaveToken(aAST);
+            }
+        }
+    }
+
+    /**
+     * Gets the checks registered for a token type.
+     * @param aTokenType
+     *        the token type.
+     * @return the checks or null if there are none.
+     */
+    private List<CheckHolder> getChecks(int aTokenType)
+    {
+        return aTokenType < mTokenToChecks.size()
+                ? mTokenToChecks.get(aTokenType) : null;
+    }
+}
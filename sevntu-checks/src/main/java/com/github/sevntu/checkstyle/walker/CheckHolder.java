@@ -0,0 +1,327 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.walker;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessages;
+
+/**
+ * A check registered in {@link SevntuTreeWalker} together with its own
+ * message collector and the per-file counters the walker keeps for it. When
+ * a time budget is set, the check is skipped for the rest of the file as
+ * soon as it is exceeded, its messages for the file are dropped and a single
+ * "budget exceeded" message is reported instead.
+ */
+final class CheckHolder
+{
+    /**
+     * Bundle of walker messages.
+     */
+    private static final String WALKER_BUNDLE =
+            "com.github.sevntu.checkstyle.walker.messages";
+
+    /**
+     * Key of the "budget exceeded" message.
+     */
+    static final String MSG_BUDGET_EXCEEDED = "walker.budget.exceeded";
+
+    /**
+     * Nanoseconds in one millisecond.
+     */
+    private static final long NANOS_IN_MILLI = 1000000L;
+
+    /**
+     * The check.
+     */
+    private final Check mCheck;
+
+    /**
+     * Messages logged by the check for the current file.
+     */
+    private final LocalizedMessages mMessages = new LocalizedMessages();
+
+    /**
+     * Metrics of the check class, null if metrics are not collected.
+     */
+    private final CheckMetrics mMetrics;
+
+    /**
+     * Time budget of the check per file in nanoseconds, 0 if unlimited.
+     */
+    private final long mBudgetNanos;
+
+    /**
+     * Id of the walker to report the "budget exceeded" message with.
+     */
+    private final String mWalkerId;
+
+    /**
+     * Time spent on the current file, in nanoseconds.
+     */
+    private long mFileNanos;
+
+    /**
+     * Tokens visited in the current file.
+     */
+    private long mFileTokens;
+
+    /**
+     * Number of characters of the current file.
+     */
+    private long mFileChars;
+
+    /**
+     * Whether the check is skipped for the rest of the current file.
+     */
+    private boolean mSkipped;
+
+    /**
+     * Token types the check is registered for.
+     */
+    private final Set<Integer> mTokens = new LinkedHashSet<Integer>();
+
+    /**
+     * Creates a holder for the check.
+     * @param aCheck
+     *        the check.
+     * @param aCollectMetrics
+     *        whether metrics of the check are collected.
+     * @param aBudgetMillis
+     *        time budget of the check per file in milliseconds, 0 if
+     *        unlimited.
+     * @param aWalkerId
+     *        id of the walker.
+     */
+    CheckHolder(Check aCheck, boolean aCollectMetrics, long aBudgetMillis,
+            String aWalkerId)
+    {
+        mCheck = aCheck;
+        mCheck.setMessages(mMessages);
+        mMetrics = aCollectMetrics
+                ? CheckMetrics.getMetrics(aCheck.getClass()) : null;
+        mBudgetNanos = aBudgetMillis * NANOS_IN_MILLI;
+        mWalkerId = aWalkerId;
+    }
+
+    /**
+     * @return the check.
+     */
+    Check getCheck()
+    {
+        return mCheck;
+    }
+
+    /**
+     * Registers the check for a token type.
+     * @param aTokenType
+     *        the token type.
+     */
+    void registerToken(int aTokenType)
+    {
+        mTokens.add(aTokenType);
+    }
+
+    /**
+     * @return token types the check is registered for.
+     */
+    Set<Integer> getTokens()
+    {
+        return mTokens;
+    }
+
+    /**
+     * Notifies the check about the beginning of a file.
+     * @param aRootAST
+     *        the root of the file tree.
+     * @param aContents
+     *        contents of the file.
+     */
+    void beginTree(DetailAST aRootAST, FileContents aContents)
+    {
+        mMessages.reset();
+        mFileNanos = 0;
+        mFileTokens = 0;
+        mFileChars = mMetrics == null ? 0
+                : aContents.getText().getFullText().length();
+        mSkipped = false;
+        final long start = startTiming();
+        try {
+            mCheck.setFileContents(aContents);
+            mCheck.beginTree(aRootAST);
+        }
+        catch (final TimeBudgetExceededException e) {
+            skip();
+        }
+        finally {
+            stopTiming(start);
+        }
+    }
+
+    /**
+     * Notifies the check about visiting a token.
+     * @param aAST
+     *        the token.
+     */
+    void visitToken(DetailAST aAST)
+    {
+        if (!mSkipped) {
+            final long start = startTiming();
+            try {
+                mCheck.visitToken(aAST);
+            }
+            catch (final TimeBudgetExceededException e) {
+                skip();
+            }
+            finally {
+                stopTiming(start);
+            }
+            mFileTokens++;
+        }
+    }
+
+    /**
+     * Notifies the check about leaving a token.
+     * @param aAST
+     *        the token.
+     */
+    void leaveToken(DetailAST aAST)
+    {
+        if (!mSkipped) {
+            final long start = startTiming();
+            try {
+                mCheck.leaveToken(aAST);
+            }
+            catch (final TimeBudgetExceededException e) {
+                skip();
+            }
+            finally {
+                stopTiming(start);
+            }
+        }
+    }
+
+    /**
+     * Notifies the check about the end of a file.
+     * @param aRootAST
+     *        the root of the file tree.
+     */
+    void finishTree(DetailAST aRootAST)
+    {
+        if (!mSkipped) {
+            final long start = startTiming();
+            try {
+                mCheck.finishTree(aRootAST);
+            }
+            catch (final TimeBudgetExceededException e) {
+                skip();
+            }
+            finally {
+                stopTiming(start);
+            }
+        }
+        if (mMetrics != null) {
+            // the "budget exceeded" message of a skipped check is not a
+            // violation, the violations logged before the skip are dropped
+            final int violations = mSkipped ? 0 : mMessages.size();
+            mMetrics.fileProcessed(mCheck.getFileContents().getFilename(),
+                    mFileNanos, mFileTokens, mFileChars, violations);
+        }
+    }
+
+    /**
+     * Moves messages of the check for the current file to the collector of
+     * the walker.
+     * @param aCollector
+     *        the collector of all messages for the file.
+     * @param aChangedLines
+     *        changed lines of the file, null to move all messages. Other
+     *        messages of the check are dropped, the "budget exceeded"
+     *        message is always moved.
+     */
+    void moveMessages(LocalizedMessages aCollector, ChangedLines aChangedLines)
+    {
+        for (LocalizedMessage message : mMessages.getMessages()) {
+            if (aChangedLines == null || mSkipped
+                    || aChangedLines.contains(message.getLineNo()))
+            {
+                aCollector.add(message);
+            }
+        }
+        mMessages.reset();
+    }
+
+    /**
+     * Gets the start time of a notification if timing is needed and sets
+     * the deadline of the check.
+     * @return current time in nanoseconds or 0 if timing is not needed.
+     */
+    private long startTiming()
+    {
+        long result = 0;
+        if (mMetrics != null || mBudgetNanos > 0) {
+            result = System.nanoTime();
+            if (mBudgetNanos > 0) {
+                TimeBudget.set(result + mBudgetNanos - mFileNanos);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the time of a notification to the time of the file and skips the
+     * check for the rest of the file if it has exceeded its budget.
+     * @param aStart
+     *        the value returned by {@link #startTiming()}.
+     */
+    private void stopTiming(long aStart)
+    {
+        if (mMetrics != null || mBudgetNanos > 0) {
+            mFileNanos += System.nanoTime() - aStart;
+            if (mBudgetNanos > 0) {
+                TimeBudget.clear();
+                if (mFileNanos > mBudgetNanos) {
+                    skip();
+                }
+            }
+        }
+    }
+
+    /**
+     * Skips the check for the rest of the current file and replaces its
+     * messages with the "budget exceeded" message.
+     */
+    private void skip()
+    {
+        if (!mSkipped) {
+            mSkipped = true;
+            mMessages.reset();
+            mMessages.add(new LocalizedMessage(0, WALKER_BUNDLE,
+                    MSG_BUDGET_EXCEEDED,
+                    new Object[] {mCheck.getClass().getName(),
+                        mBudgetNanos / NANOS_IN_MILLI, },
+                    mWalkerId, SevntuTreeWalker.class, null));
+        }
+    }
+}
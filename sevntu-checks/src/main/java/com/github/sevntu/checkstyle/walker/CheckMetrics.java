@@ -0,0 +1,373 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.walker;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.puppycrawl.tools.checkstyle.api.Utils;
+
+/**
+ * <p>
+ * Counters of one check class collected by {@link SevntuTreeWalker}: files
+ * processed, characters and tokens visited, violations logged, cumulative time and the
+ * distribution of time spent per file. Counters are shared by all instances
+ * of the same check class in the JVM and are exposed as a standard MBean
+ * named
+ * "com.github.sevntu.checkstyle:type=CheckMetrics,name=&lt;check class&gt;".
+ * </p>
+ * <p>
+ * The per-file time distribution is kept in a histogram of power-of-two
+ * microsecond buckets, so percentiles are reported as the upper bound of the
+ * bucket they fall in.
+ * </p>
+ * <p>
+ * The time of the last run on each file is also kept by file name, so the
+ * cost of auditing a file again can be predicted from its own history (see
+ * {@link com.github.sevntu.checkstyle.runner.FileCostModel}). Only the
+ * {@value #MAX_FILE_HISTORY} most recently used files are kept per check
+ * class, so the metrics of a long running host do not grow without bound.
+ * </p>
+ */
+public final class CheckMetrics implements CheckMetricsMBean
+{
+    /**
+     * JMX domain of the metrics MBeans.
+     */
+    public static final String JMX_DOMAIN = "com.github.sevntu.checkstyle";
+
+    /**
+     * Maximum number of files with a recorded time per check class.
+     */
+    public static final int MAX_FILE_HISTORY = 4096;
+
+    /**
+     * Metrics of all check classes by check class name.
+     */
+    private static final Map<String, CheckMetrics> METRICS =
+            new HashMap<String, CheckMetrics>();
+
+    /**
+     * Count of histogram buckets; the last one holds everything above
+     * 2^(BUCKETS_COUNT - 1) microseconds.
+     */
+    private static final int BUCKETS_COUNT = 40;
+
+    /**
+     * Nanoseconds in one microsecond.
+     */
+    private static final long NANOS_IN_MICRO = 1000L;
+
+    /**
+     * Nanoseconds in one millisecond.
+     */
+    private static final double NANOS_IN_MILLI = 1000000.0;
+
+    /**
+     * Percentile reported by {@link #getP99FileTimeMillis()}.
+     */
+    private static final double P99 = 0.99;
+
+    /**
+     * Fully qualified class name of the check.
+     */
+    private final String mCheckName;
+
+    /**
+     * Number of files processed.
+     */
+    private long mFilesProcessed;
+
+    /**
+     * Number of tokens visited.
+     */
+    private long mTokensVisited;
+
+    /**
+     * Number of characters of the files the check was run on.
+     */
+    private long mCharsProcessed;
+
+    /**
+     * Number of violations logged.
+     */
+    private long mViolationsLogged;
+
+    /**
+     * Total time spent, in nanoseconds.
+     */
+    private long mCumulativeNanos;
+
+    /**
+     * Maximum time spent on one file, in nanoseconds.
+     */
+    private long mMaxFileNanos;
+
+    /**
+     * Histogram of time per file; bucket i counts files that took less than
+     * 2^i microseconds and not less than 2^(i-1).
+     */
+    private final long[] mFileTimeBuckets = new long[BUCKETS_COUNT];
+
+    /**
+     * Time spent on the last run on each file, in nanoseconds, by file name,
+     * the least recently used first.
+     */
+    private final Map<String, Long> mNanosByFile =
+            new LinkedHashMap<String, Long>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, Long> aEldest)
+                {
+                    return size() > MAX_FILE_HISTORY;
+                }
+            };
+
+    /**
+     * Creates metrics for the check.
+     * @param aCheckName
+     *        fully qualified class name of the check.
+     */
+    private CheckMetrics(String aCheckName)
+    {
+        mCheckName = aCheckName;
+    }
+
+    /**
+     * Gets metrics of the check class, creating and registering them in the
+     * platform MBean server on first use.
+     * @param aCheckClass
+     *        the check class.
+     * @return metrics of the check class.
+     */
+    public static CheckMetrics getMetrics(Class<?> aCheckClass)
+    {
+        synchronized (METRICS) {
+            CheckMetrics result = METRICS.get(aCheckClass.getName());
+            if (result == null) {
+                result = new CheckMetrics(aCheckClass.getName());
+                METRICS.put(aCheckClass.getName(), result);
+                result.register();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Gets metrics of all check classes collected so far.
+     * @return the metrics, in no particular order.
+     */
+    public static List<CheckMetrics> getAllMetrics()
+    {
+        synchronized (METRICS) {
+            return new ArrayList<CheckMetrics>(METRICS.values());
+        }
+    }
+
+    /**
+     * Records results of running the check on one file.
+     * @param aFileName
+     *        absolute name of the file, null if unknown.
+     * @param aNanos
+     *        time spent on the file, in nanoseconds.
+     * @param aTokens
+     *        number of tokens visited in the file.
+     * @param aChars
+     *        number of characters of the file.
+     * @param aViolations
+     *        number of violations logged in the file.
+     */
+    public synchronized void fileProcessed(String aFileName, long aNanos,
+            long aTokens, long aChars, int aViolations)
+    {
+        if (aFileName != null) {
+            mNanosByFile.put(aFileName, aNanos);
+        }
+        mFilesProcessed++;
+        mTokensVisited += aTokens;
+        mCharsProcessed += aChars;
+        mViolationsLogged += aViolations;
+        mCumulativeNanos += aNanos;
+        mMaxFileNanos = Math.max(mMaxFileNanos, aNanos);
+        mFileTimeBuckets[getBucket(aNanos)]++;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getCheckName()
+    {
+        return mCheckName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized long getFilesProcessed()
+    {
+        return mFilesProcessed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized long getTokensVisited()
+    {
+        return mTokensVisited;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized long getCharsProcessed()
+    {
+        return mCharsProcessed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized long getViolationsLogged()
+    {
+        return mViolationsLogged;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized long getCumulativeTimeMillis()
+    {
+        return (long) (mCumulativeNanos / NANOS_IN_MILLI);
+    }
+
+    /**
+     * Gets total time the check has spent on all files.
+     * @return cumulative time in nanoseconds.
+     */
+    public synchronized long getCumulativeTimeNanos()
+    {
+        return mCumulativeNanos;
+    }
+
+    /**
+     * Gets the time the last run of the check on a file took.
+     * @param aFileName
+     *        absolute name of the file.
+     * @return time in nanoseconds, -1 if the check has not been run on the
+     *         file.
+     */
+    public synchronized long getFileTimeNanos(String aFileName)
+    {
+        final Long result = mNanosByFile.get(aFileName);
+        return result == null ? -1 : result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized double getP99FileTimeMillis()
+    {
+        double result = 0;
+        final long threshold = (long) Math.ceil(mFilesProcessed * P99);
+        long count = 0;
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            count += mFileTimeBuckets[i];
+            if (count >= threshold && count > 0) {
+                result = Math.min((1L << i) * NANOS_IN_MICRO, mMaxFileNanos)
+                        / NANOS_IN_MILLI;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized double getMaxFileTimeMillis()
+    {
+        return mMaxFileNanos / NANOS_IN_MILLI;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void reset()
+    {
+        mFilesProcessed = 0;
+        mTokensVisited = 0;
+        mCharsProcessed = 0;
+        mViolationsLogged = 0;
+        mCumulativeNanos = 0;
+        mMaxFileNanos = 0;
+        mNanosByFile.clear();
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            mFileTimeBuckets[i] = 0;
+        }
+    }
+
+    /**
+     * Gets the histogram bucket for the time spent on a file.
+     * @param aNanos
+     *        time in nanoseconds.
+     * @return bucket index.
+     */
+    private static int getBucket(long aNanos)
+    {
+        final long micros = aNanos / NANOS_IN_MICRO;
+        final int bucket = Long.SIZE - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKETS_COUNT - 1);
+    }
+
+    /**
+     * Registers this object in the platform MBean server. Failure to register
+     * (e.g. the same check loaded by another class loader already registered
+     * its metrics) is not fatal and only disables JMX access.
+     */
+    private void register()
+    {
+        try {
+            final MBeanServer server =
+                    ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(JMX_DOMAIN
+                    + ":type=CheckMetrics,name=" + ObjectName.quote(mCheckName));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(this, objectName);
+            }
+        }
+        catch (final JMException e) {
+            Utils.getExceptionLogger().debug(
+                    "Unable to register metrics of " + mCheckName, e);
+        }
+        catch (final SecurityException e) {
+            Utils.getExceptionLogger().debug(
+                    "Unable to register metrics of " + mCheckName, e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.walker;
+
+/**
+ * JMX management interface of {@link CheckMetrics}.
+ */
+public interface CheckMetricsMBean
+{
+    /**
+     * @return fully qualified class name of the check.
+     */
+    String getCheckName();
+
+    /**
+     * @return number of files the check was run on.
+     */
+    long getFilesProcessed();
+
+    /**
+     * @return number of tokens the check was notified about.
+     */
+    long getTokensVisited();
+
+    /**
+     * @return number of characters of the files the check was run on.
+     */
+    long getCharsProcessed();
+
+    /**
+     * @return number of violations the check has logged.
+     */
+    long getViolationsLogged();
+
+    /**
+     * @return total time the check has spent on all files, in milliseconds.
+     */
+    long getCumulativeTimeMillis();
+
+    /**
+     * @return 99th percentile of the time the check spends on one file, in
+     *         milliseconds (upper bound of the histogram bucket).
+     */
+    double getP99FileTimeMillis();
+
+    /**
+     * @return maximum time the check has spent on one file, in milliseconds.
+     */
+    double getMaxFileTimeMillis();
+
+    /**
+     * Resets all counters.
+     */
+    void reset();
+}
@@ -0,0 +1,758 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.walker;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import antlr.RecognitionException;
+import antlr.TokenStreamException;
+import antlr.TokenStreamRecognitionException;
+
+import com.github.sevntu.checkstyle.ast.DetailAstTraversal;
+import com.github.sevntu.checkstyle.index.ClassHierarchyAware;
+import com.github.sevntu.checkstyle.index.ClassHierarchyIndex;
+import com.puppycrawl.tools.checkstyle.DefaultContext;
+import com.puppycrawl.tools.checkstyle.Defn;
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.Context;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.MessageDispatcher;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import com.puppycrawl.tools.checkstyle.api.Utils;
+
+/**
+ * <p>
+ * Drop-in replacement of Checkstyle's TreeWalker for hosts that run audits
+ * for a long time (IDE, Sonar server). It parses files and notifies the
+ * checks exactly like TreeWalker does, but keeps every check apart so that
+ * the time, visited tokens and logged violations of each check class can be
+ * measured.
+ * </p>
+ * <p>
+ * When "metrics" property is enabled, the counters are published through
+ * {@link CheckMetrics} as MBeans of the platform MBean server, one per check
+ * class. Timing is not performed at all when the property is disabled.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ * <pre>
+ * &lt;module name="com.github.sevntu.checkstyle.walker.SevntuTreeWalker"&gt;
+ *     &lt;property name="metrics" value="true"/&gt;
+ *     &lt;module name="OverridableMethodInConstructor"/&gt;
+ * &lt;/module&gt;
+ * </pre>
+ * <p>
+ * "fileTimeBudget" property sets the time (in milliseconds) each check may
+ * spend on one file. A check that exceeds it is skipped for the rest of the
+ * file: its violations for the file are dropped, a "check skipped: budget
+ * exceeded" message is reported instead, and the audit goes on with other
+ * checks and files. The walker can only stop a check between notifications,
+ * so checks with potentially long walks inside of one notification call
+ * {@link TimeBudget#checkpoint()} to be stopped in time.
+ * </p>
+ * <p>
+ * "threads" property allows to run the checks on one file in parallel: the
+ * checks are split into as many groups, and each group walks the parsed
+ * (read-only) tree on its own thread. Violations of all checks are merged
+ * into the usual ordered list of the file. This helps with huge files,
+ * where running the files themselves in parallel does not.
+ * </p>
+ * <p>
+ * "indexClassHierarchy" property turns the audit into two passes. The first
+ * pass only parses the files and collects all their classes (supertypes,
+ * methods, constructors) into a {@link ClassHierarchyIndex}; the checks
+ * implementing {@link ClassHierarchyAware} get the index. The second pass,
+ * run when all files are processed, parses the files again and runs the
+ * checks, so violations of all files are reported at the end of the audit.
+ * Only the text of the files is kept between the passes, not their trees.
+ * </p>
+ * <p>
+ * Checker itself reports the start and the end of every file it passes to
+ * the walker, so violations reported at the end of the audit come in a
+ * second pair of file events. The walker reports nothing in the first
+ * pass and fires exactly one more pair for each file with such violations,
+ * both from the second pass and from {@link AuditFinishAware} checks.
+ * Listeners that write one record per file events (XMLLogger) write the
+ * file again for these files.
+ * </p>
+ * <p>
+ * "diffFile" property limits the audit to the lines added by a unified diff
+ * (see {@link UnifiedDiff}), for example one written by
+ * <code>git diff</code> for a pull request. Files without added lines are
+ * not parsed at all. In other files only the tokens on the added lines and
+ * their ancestors (and the package and import declarations) are passed to
+ * the checks; the subtrees without added lines are skipped. Violations
+ * outside the added lines, including those logged in
+ * <code>finishTree</code>, are dropped.
+ * </p>
+ * <p>
+ * Checks implementing {@link AuditFinishAware} find violations across
+ * files; these are reported file by file when all files are processed,
+ * together with the violations of the second pass. With "diffFile" they are
+ * also limited to the added lines.
+ * </p>
+ * <p>
+ * Unlike TreeWalker the "cacheFile" property is not supported.
+ * </p>
+ */
+public final class SevntuTreeWalker extends AbstractFileSetCheck
+{
+    /**
+     * Default distance between tab stops.
+     */
+    private static final int DEFAULT_TAB_WIDTH = 8;
+
+    /**
+     * Key of the general exception message in Checkstyle bundle.
+     */
+    private static final String MSG_GENERAL_EXCEPTION = "general.exception";
+
+    /**
+     * All registered checks in the order of registration.
+     */
+    private final List<CheckHolder> mAllChecks = new ArrayList<CheckHolder>();
+
+    /**
+     * Groups of checks walking the tree together, created on the first
+     * file.
+     */
+    private List<CheckGroup> mGroups;
+
+    /**
+     * Executor running all groups but the first one, null if the checks
+     * are run on the calling thread only.
+     */
+    private ExecutorService mExecutor;
+
+    /**
+     * Distance between tab stops.
+     */
+    private int mTabWidth = DEFAULT_TAB_WIDTH;
+
+    /**
+     * Class loader to resolve classes with.
+     */
+    private ClassLoader mClassLoader;
+
+    /**
+     * Context of child components.
+     */
+    private Context mChildContext;
+
+    /**
+     * Factory for creating submodules (i.e. the Checks).
+     */
+    private ModuleFactory mModuleFactory;
+
+    /**
+     * Whether per-check metrics are collected.
+     */
+    private boolean mMetrics;
+
+    /**
+     * Time budget of each check per file in milliseconds, 0 if unlimited.
+     */
+    private long mFileTimeBudget;
+
+    /**
+     * Number of threads the checks are run on for one file.
+     */
+    private int mThreads = 1;
+
+    /**
+     * Index of the classes of the source set, null if files are audited in
+     * one pass.
+     */
+    private ClassHierarchyIndex mClassHierarchyIndex;
+
+    /**
+     * Files indexed in the first pass, to be checked in the second one.
+     */
+    private final List<FileText> mIndexedFiles = new ArrayList<FileText>();
+
+    /**
+     * Diff limiting the audit to the changed lines, null if whole files are
+     * audited.
+     */
+    private UnifiedDiff mDiff;
+
+    /**
+     * Creates a new walker for "java" files.
+     */
+    public SevntuTreeWalker()
+    {
+        setFileExtensions(new String[] {"java"});
+    }
+
+    /**
+     * @param aTabWidth
+     *        the distance between tab stops.
+     */
+    public void setTabWidth(int aTabWidth)
+    {
+        mTabWidth = aTabWidth;
+    }
+
+    /**
+     * @param aClassLoader
+     *        class loader to resolve classes with.
+     */
+    public void setClassLoader(ClassLoader aClassLoader)
+    {
+        mClassLoader = aClassLoader;
+    }
+
+    /**
+     * Sets the module factory for creating child modules (Checks).
+     * @param aModuleFactory
+     *        the factory.
+     */
+    public void setModuleFactory(ModuleFactory aModuleFactory)
+    {
+        mModuleFactory = aModuleFactory;
+    }
+
+    /**
+     * Enables collecting of per-check metrics and their publishing over JMX.
+     * @param aMetrics
+     *        whether metrics are collected.
+     */
+    public void setMetrics(boolean aMetrics)
+    {
+        mMetrics = aMetrics;
+    }
+
+    /**
+     * Sets the time each check may spend on one file.
+     * @param aFileTimeBudget
+     *        time budget in milliseconds, 0 means unlimited.
+     */
+    public void setFileTimeBudget(long aFileTimeBudget)
+    {
+        mFileTimeBudget = aFileTimeBudget;
+    }
+
+    /**
+     * Sets the number of threads the checks are run on for one file.
+     * @param aThreads
+     *        number of threads, 1 means the checks are run one after
+     *        another on the calling thread.
+     */
+    public void setThreads(int aThreads)
+    {
+        mThreads = aThreads;
+    }
+
+    /**
+     * Enables the two-pass audit with the index of all classes of the
+     * source set.
+     * @param aIndexClassHierarchy
+     *        whether the classes are indexed before the checks are run.
+     */
+    public void setIndexClassHierarchy(boolean aIndexClassHierarchy)
+    {
+        mClassHierarchyIndex =
+                aIndexClassHierarchy ? new ClassHierarchyIndex() : null;
+    }
+
+    /**
+     * Limits the audit to the lines added by a unified diff.
+     * @param aDiffFile
+     *        name of the diff file, in UTF-8.
+     * @throws CheckstyleException
+     *         if the diff can not be read.
+     */
+    public void setDiffFile(String aDiffFile) throws CheckstyleException
+    {
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(aDiffFile),
+                    "UTF-8");
+            mDiff = new UnifiedDiff(reader);
+        }
+        catch (final IOException e) {
+            throw new CheckstyleException("Unable to read diff "
+                    + aDiffFile, e);
+        }
+        finally {
+            Utils.closeQuietly(reader);
+        }
+    }
+
+    @Override
+    public void finishLocalSetup()
+    {
+        final DefaultContext checkContext = new DefaultContext();
+        checkContext.add("classLoader", mClassLoader);
+        checkContext.add("severity", getSeverity());
+        checkContext.add("tabWidth", String.valueOf(mTabWidth));
+        mChildContext = checkContext;
+    }
+
+    @Override
+    public void setupChild(Configuration aChildConf)
+        throws CheckstyleException
+    {
+        final String name = aChildConf.getName();
+        final Object module = mModuleFactory.createModule(name);
+        if (!(module instanceof Check)) {
+            throw new CheckstyleException(
+                "SevntuTreeWalker is not allowed as a parent of " + name);
+        }
+        final Check check = (Check) module;
+        check.contextualize(mChildContext);
+        check.configure(aChildConf);
+        if (check instanceof AuditFinishAware) {
+            ((AuditFinishAware) check).setAuditFinishSupported();
+        }
+        check.init();
+        if (mClassHierarchyIndex != null
+                && check instanceof ClassHierarchyAware)
+        {
+            ((ClassHierarchyAware) check)
+                    .setClassHierarchyIndex(mClassHierarchyIndex);
+        }
+        registerCheck(new CheckHolder(check, mMetrics, mFileTimeBudget,
+                getId()));
+    }
+
+    @Override
+    public void beginProcessing(String aCharset)
+    {
+        super.beginProcessing(aCharset);
+        if (mClassHierarchyIndex != null) {
+            mClassHierarchyIndex.clear();
+            mIndexedFiles.clear();
+        }
+    }
+
+    @Override
+    protected void processFiltered(File aFile, List<String> aLines)
+    {
+        final boolean indexOnly = mClassHierarchyIndex != null;
+        if (indexOnly || mDiff == null || getChangedLines(aFile) != null) {
+            process(FileText.fromLines(aFile, aLines), indexOnly);
+        }
+    }
+
+    @Override
+    public void finishProcessing()
+    {
+        final Map<String, SortedSet<LocalizedMessage>> violations =
+                new TreeMap<String, SortedSet<LocalizedMessage>>();
+        if (mClassHierarchyIndex != null) {
+            for (FileText text : mIndexedFiles) {
+                getMessageCollector().reset();
+                process(text, false);
+                getMessages(violations, text.getFile().getAbsolutePath())
+                        .addAll(getMessageCollector().getMessages());
+            }
+            getMessageCollector().reset();
+            mIndexedFiles.clear();
+            mClassHierarchyIndex.clear();
+        }
+        collectAuditFinishViolations(violations);
+        final MessageDispatcher dispatcher = getMessageDispatcher();
+        for (Map.Entry<String, SortedSet<LocalizedMessage>> entry
+                : violations.entrySet())
+        {
+            if (!entry.getValue().isEmpty()) {
+                dispatcher.fireFileStarted(entry.getKey());
+                dispatcher.fireErrors(entry.getKey(), entry.getValue());
+                dispatcher.fireFileFinished(entry.getKey());
+            }
+        }
+        super.finishProcessing();
+    }
+
+    /**
+     * Gets the violations of a file, adding an empty set if the file has
+     * none yet.
+     * @param aViolations
+     *        violations by file name.
+     * @param aFileName
+     *        the file name.
+     * @return the violations of the file.
+     */
+    private static SortedSet<LocalizedMessage> getMessages(
+            Map<String, SortedSet<LocalizedMessage>> aViolations,
+            String aFileName)
+    {
+        SortedSet<LocalizedMessage> messages = aViolations.get(aFileName);
+        if (messages == null) {
+            messages = new TreeSet<LocalizedMessage>();
+            aViolations.put(aFileName, messages);
+        }
+        return messages;
+    }
+
+    /**
+     * Collects the violations across files from the checks implementing
+     * {@link AuditFinishAware}.
+     * @param aViolations
+     *        violations by file name to add to.
+     */
+    private void collectAuditFinishViolations(
+            Map<String, SortedSet<LocalizedMessage>> aViolations)
+    {
+        for (CheckHolder holder : mAllChecks) {
+            if (holder.getCheck() instanceof AuditFinishAware) {
+                final Map<String, List<LocalizedMessage>> checkViolations =
+                        ((AuditFinishAware) holder.getCheck()).finishAudit();
+                for (Map.Entry<String, List<LocalizedMessage>> entry
+                        : checkViolations.entrySet())
+                {
+                    final ChangedLines changedLines =
+                            getChangedLines(new File(entry.getKey()));
+                    final SortedSet<LocalizedMessage> messages =
+                            getMessages(aViolations, entry.getKey());
+                    for (LocalizedMessage message : entry.getValue()) {
+                        if (mDiff == null || changedLines != null
+                                && changedLines.contains(message.getLineNo()))
+                        {
+                            messages.add(message);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a file and either runs the checks on it or adds its classes to
+     * the index. Parse errors and failures of checks are reported as
+     * violations of the walker.
+     * @param aText
+     *        text of the file.
+     * @param aIndexOnly
+     *        whether the file is only indexed.
+     */
+    private void process(FileText aText, boolean aIndexOnly)
+    {
+        final ChangedLines changedLines = getChangedLines(aText.getFile());
+        try {
+            final FileContents contents = new FileContents(aText);
+            final DetailAST rootAST = TreeWalker.parse(contents);
+            if (aIndexOnly) {
+                mClassHierarchyIndex.addFile(rootAST);
+                if (mDiff == null || changedLines != null) {
+                    mIndexedFiles.add(aText);
+                }
+            }
+            else {
+                walk(rootAST, contents, changedLines);
+            }
+        }
+        catch (final RecognitionException re) {
+            Utils.getExceptionLogger()
+                .debug("RecognitionException occured.", re);
+            getMessageCollector().add(
+                new LocalizedMessage(re.getLine(), re.getColumn(),
+                    Defn.CHECKSTYLE_BUNDLE, MSG_GENERAL_EXCEPTION,
+                    new String[] {re.getMessage()}, getId(),
+                    this.getClass(), null));
+        }
+        catch (final TokenStreamRecognitionException tre) {
+            Utils.getExceptionLogger()
+                .debug("TokenStreamRecognitionException occured.", tre);
+            final RecognitionException re = tre.recog;
+            if (re != null) {
+                getMessageCollector().add(
+                    new LocalizedMessage(re.getLine(), re.getColumn(),
+                        Defn.CHECKSTYLE_BUNDLE, MSG_GENERAL_EXCEPTION,
+                        new String[] {re.getMessage()}, getId(),
+                        this.getClass(), null));
+            }
+            else {
+                getMessageCollector().add(
+                    new LocalizedMessage(0, Defn.CHECKSTYLE_BUNDLE,
+                        MSG_GENERAL_EXCEPTION,
+                        new String[] {"TokenStreamRecognitionException occured."},
+                        getId(), this.getClass(), null));
+            }
+        }
+        catch (final TokenStreamException te) {
+            Utils.getExceptionLogger()
+                .debug("TokenStreamException occured.", te);
+            getMessageCollector().add(
+                new LocalizedMessage(0, Defn.CHECKSTYLE_BUNDLE,
+                    MSG_GENERAL_EXCEPTION, new String[] {te.getMessage()},
+                    getId(), this.getClass(), null));
+        }
+        catch (final Throwable err) {
+            Utils.getExceptionLogger().debug("Throwable occured.", err);
+            getMessageCollector().add(
+                new LocalizedMessage(0, Defn.CHECKSTYLE_BUNDLE,
+                    MSG_GENERAL_EXCEPTION, new String[] {"" + err},
+                    getId(), this.getClass(), null));
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        // Checker destroys its modules after every audit, the groups and
+        // their executor are created again by the next one
+        if (mExecutor != null) {
+            mExecutor.shutdown();
+            mExecutor = null;
+        }
+        mGroups = null;
+        for (CheckHolder holder : mAllChecks) {
+            holder.getCheck().destroy();
+        }
+        super.destroy();
+    }
+
+    /**
+     * Gets the lines of a file changed by the diff.
+     * @param aFile
+     *        the file.
+     * @return the changed lines or null if the file is not changed or the
+     *         whole file is audited.
+     */
+    private ChangedLines getChangedLines(File aFile)
+    {
+        return mDiff == null ? null
+                : mDiff.getChangedLines(aFile.getAbsolutePath());
+    }
+
+    /**
+     * Registers a check for the tokens it is interested in.
+     * @param aHolder
+     *        the check to register.
+     * @throws CheckstyleException
+     *         if the check is configured with an illegal token.
+     */
+    private void registerCheck(CheckHolder aHolder)
+        throws CheckstyleException
+    {
+        final Check check = aHolder.getCheck();
+        final int[] tokens;
+        final Set<String> checkTokens = check.getTokenNames();
+        if (!checkTokens.isEmpty()) {
+            tokens = check.getRequiredTokens();
+            final int[] acceptableTokens = check.getAcceptableTokens();
+            Arrays.sort(acceptableTokens);
+            for (String token : checkTokens) {
+                try {
+                    final int tokenId = TokenTypes.getTokenId(token);
+                    if (Arrays.binarySearch(acceptableTokens, tokenId) >= 0) {
+                        aHolder.registerToken(tokenId);
+                    }
+                }
+                catch (final IllegalArgumentException ex) {
+                    throw new CheckstyleException("illegal token \""
+                        + token + "\" in check " + check, ex);
+                }
+            }
+        }
+        else {
+            tokens = check.getDefaultTokens();
+        }
+        for (int element : tokens) {
+            aHolder.registerToken(element);
+        }
+        mAllChecks.add(aHolder);
+    }
+
+    /**
+     * Notifies all the checks about the tree of one file.
+     * @param aRootAST
+     *        the root of the tree.
+     * @param aContents
+     *        contents of the file.
+     * @param aChangedLines
+     *        changed lines of the file, null if the whole file is audited.
+     */
+    private void walk(DetailAST aRootAST, FileContents aContents,
+            ChangedLines aChangedLines)
+    {
+        getMessageCollector().reset();
+        final Set<DetailAST> affectedNodes = aChangedLines == null ? null
+                : aChangedLines.getAffectedNodes(aRootAST);
+        final List<CheckGroup> groups = getGroups();
+        if (groups.size() == 1) {
+            groups.get(0).walk(aRootAST, aContents, affectedNodes);
+        }
+        else {
+            walkInParallel(groups, aRootAST, aContents, affectedNodes);
+        }
+        for (CheckHolder holder : mAllChecks) {
+            holder.moveMessages(getMessageCollector(), aChangedLines);
+        }
+    }
+
+    /**
+     * Walks the tree of one file by all groups of checks at once, the first
+     * group on the calling thread.
+     * @param aGroups
+     *        groups of checks.
+     * @param aRootAST
+     *        the root of the tree.
+     * @param aContents
+     *        contents of the file.
+     * @param aAffectedNodes
+     *        identity set of the nodes to visit, null to visit all of them.
+     */
+    private void walkInParallel(List<CheckGroup> aGroups,
+            final DetailAST aRootAST, final FileContents aContents,
+            final Set<DetailAST> aAffectedNodes)
+    {
+        prepareForSharing(aRootAST, aContents);
+
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (final CheckGroup group : aGroups.subList(1, aGroups.size())) {
+            futures.add(mExecutor.submit(new Runnable() {
+                public void run()
+                {
+                    group.walk(aRootAST, aContents, aAffectedNodes);
+                }
+            }));
+        }
+
+        Throwable failure = null;
+        try {
+            aGroups.get(0).walk(aRootAST, aContents, aAffectedNodes);
+        }
+        catch (final Throwable err) {
+            failure = err;
+        }
+
+        // all the groups must be over before the next file, so waiting is
+        // not interruptible
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            boolean done = false;
+            while (!done) {
+                try {
+                    future.get();
+                    done = true;
+                }
+                catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+                catch (final ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    done = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    /**
+     * Initializes the lazily computed data of the tree and the file text,
+     * so that checks can read them from several threads.
+     * @param aRootAST
+     *        the root of the tree.
+     * @param aContents
+     *        contents of the file.
+     */
+    private static void prepareForSharing(DetailAST aRootAST,
+            FileContents aContents)
+    {
+        for (DetailAST topLevel : DetailAstTraversal.siblings(aRootAST)) {
+            // children first, so that each call computes one level only
+            for (DetailAST node : DetailAstTraversal.postOrder(topLevel)) {
+                node.branchContains(node.getType());
+                node.getChildCount();
+            }
+        }
+        aContents.getText().lineColumn(0);
+    }
+
+    /**
+     * Gets the groups of checks, splitting the checks on the first call.
+     * Checks are dealt to the groups in turn.
+     * @return groups of checks.
+     */
+    private List<CheckGroup> getGroups()
+    {
+        if (mGroups == null) {
+            final int count = Math.max(1, Math.min(mThreads, mAllChecks.size()));
+            final List<CheckGroup> groups = new ArrayList<CheckGroup>();
+            for (int i = 0; i < count; i++) {
+                groups.add(new CheckGroup());
+            }
+            for (int i = 0; i < mAllChecks.size(); i++) {
+                groups.get(i % count).add(mAllChecks.get(i));
+            }
+            if (count > 1) {
+                mExecutor = Executors.newFixedThreadPool(count - 1,
+                        new ThreadFactory() {
+                            private final AtomicInteger mCounter =
+                                    new AtomicInteger();
+
+                            public Thread newThread(Runnable aRunnable)
+                            {
+                                final Thread thread = new Thread(aRunnable,
+                                        "SevntuTreeWalker-"
+                                        + mCounter.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+            }
+            mGroups = groups;
+        }
+        return mGroups;
+    }
+}
@@ -0,0 +1,87 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.walker;
+
+/**
+ * <p>
+ * Cooperative deadline of the check that is currently being run by
+ * {@link SevntuTreeWalker} on the current thread. The walker itself can only
+ * stop a check between two notifications, so checks with potentially long
+ * loops or recursion inside of one notification call {@link #checkpoint()}
+ * from there.
+ * </p>
+ * <p>
+ * Outside of SevntuTreeWalker (or when no budget is configured) there is no
+ * deadline and {@link #checkpoint()} does nothing.
+ * </p>
+ */
+public final class TimeBudget
+{
+    /**
+     * Deadline of the current thread in terms of {@link System#nanoTime()};
+     * the flag in the second cell tells whether the deadline is set.
+     */
+    private static final ThreadLocal<long[]> DEADLINE =
+        new ThreadLocal<long[]>() {
+            @Override
+            protected long[] initialValue()
+            {
+                return new long[2];
+            }
+        };
+
+    /**
+     * Prevents instantiation.
+     */
+    private TimeBudget()
+    {
+    }
+
+    /**
+     * Throws {@link TimeBudgetExceededException} if the check that is
+     * currently running on this thread has exceeded its time budget.
+     */
+    public static void checkpoint()
+    {
+        final long[] deadline = DEADLINE.get();
+        if (deadline[1] != 0 && System.nanoTime() - deadline[0] > 0) {
+            throw new TimeBudgetExceededException();
+        }
+    }
+
+    /**
+     * Sets the deadline of the current thread.
+     * @param aNanoTime
+     *        the deadline in terms of {@link System#nanoTime()}.
+     */
+    static void set(long aNanoTime)
+    {
+        final long[] deadline = DEADLINE.get();
+        deadline[0] = aNanoTime;
+        deadline[1] = 1;
+    }
+
+    /**
+     * Clears the deadline of the current thread.
+     */
+    static void clear()
+    {
+        DEADLINE.get()[1] = 0;
+    }
+}
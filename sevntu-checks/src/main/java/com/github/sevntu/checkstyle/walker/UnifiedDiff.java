@@ -0,0 +1,232 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.walker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Changed lines of the files of a unified diff, as written by
+ * <code>git diff</code> or <code>diff -u</code>. Only the added lines of the
+ * new version of a file are changed lines; removed lines do not exist in the
+ * audited file. Deleted files are ignored.
+ * </p>
+ * <p>
+ * The paths of the diff are relative, so a file is found by its whole path
+ * or by its trailing path segments. The "a/" and "b/" prefixes written by
+ * git are removed.
+ * </p>
+ */
+public final class UnifiedDiff
+{
+    /**
+     * Prefix of the line with the path of the new version of a file.
+     */
+    private static final String NEW_FILE_PREFIX = "+++ ";
+
+    /**
+     * Path of the new version of a deleted file.
+     */
+    private static final String DEV_NULL = "/dev/null";
+
+    /**
+     * Prefix of the hunk header.
+     */
+    private static final String HUNK_PREFIX = "@@ ";
+
+    /**
+     * Initial capacity of the array of changed lines of a file.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Changed lines by normalized path.
+     */
+    private final Map<String, ChangedLines> mFiles =
+            new HashMap<String, ChangedLines>();
+
+    /**
+     * Reads a unified diff.
+     * @param aReader
+     *        reader of the diff, it is not closed.
+     * @throws IOException
+     *         if the diff can not be read or is malformed.
+     */
+    public UnifiedDiff(Reader aReader) throws IOException
+    {
+        final BufferedReader reader = new BufferedReader(aReader);
+        String path = null;
+        int[] lines = new int[INITIAL_CAPACITY];
+        int count = 0;
+        String line = reader.readLine();
+        while (line != null) {
+            if (line.startsWith(NEW_FILE_PREFIX)) {
+                addFile(path, lines, count);
+                path = getPath(line.substring(NEW_FILE_PREFIX.length()));
+                count = 0;
+            }
+            else if (line.startsWith(HUNK_PREFIX) && path != null) {
+                final int[] header = parseHunkHeader(line);
+                int oldRemaining = header[0];
+                int newLine = header[1];
+                int newRemaining = header[2];
+                while (oldRemaining > 0 || newRemaining > 0) {
+                    line = reader.readLine();
+                    if (line == null) {
+                        throw new IOException("Unexpected end of hunk");
+                    }
+                    final char kind = line.length() == 0 ? ' ' : line.charAt(0);
+                    if (kind == '+') {
+                        if (count == lines.length) {
+                            lines = Arrays.copyOf(lines, count * 2);
+                        }
+                        lines[count++] = newLine++;
+                        newRemaining--;
+                    }
+                    else if (kind == '-') {
+                        oldRemaining--;
+                    }
+                    else if (kind != '\\') {
+                        newLine++;
+                        newRemaining--;
+                        oldRemaining--;
+                    }
+                }
+            }
+            line = reader.readLine();
+        }
+        addFile(path, lines, count);
+    }
+
+    /**
+     * Gets the changed lines of a file.
+     * @param aFileName
+     *        name of the file.
+     * @return the changed lines or null if the file has no added lines in
+     *         the diff.
+     */
+    public ChangedLines getChangedLines(String aFileName)
+    {
+        final String path = aFileName.replace('\\', '/');
+        ChangedLines result = mFiles.get(path);
+        int separator = path.indexOf('/');
+        while (result == null && separator >= 0) {
+            result = mFiles.get(path.substring(separator + 1));
+            separator = path.indexOf('/', separator + 1);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the changed lines of a file.
+     * @param aPath
+     *        path of the file, null if there is no file.
+     * @param aLines
+     *        changed lines in the order of the diff.
+     * @param aCount
+     *        number of the changed lines.
+     */
+    private void addFile(String aPath, int[] aLines, int aCount)
+    {
+        if (aPath != null && aCount > 0) {
+            Arrays.sort(aLines, 0, aCount);
+            mFiles.put(aPath, new ChangedLines(aLines, aCount));
+        }
+    }
+
+    /**
+     * Gets the normalized path of the new version of a file.
+     * @param aPath
+     *        text after "+++ ", possibly followed by a tab and a timestamp.
+     * @return the path or null if the file is deleted.
+     */
+    private static String getPath(String aPath)
+    {
+        String result = aPath;
+        final int tab = result.indexOf('\t');
+        if (tab >= 0) {
+            result = result.substring(0, tab);
+        }
+        result = result.trim().replace('\\', '/');
+        if (DEV_NULL.equals(result)) {
+            result = null;
+        }
+        else if (result.startsWith("b/") || result.startsWith("a/")) {
+            result = result.substring(2);
+        }
+        return result;
+    }
+
+    /**
+     * Parses a hunk header "@@ -l,s +l,s @@".
+     * @param aLine
+     *        the header.
+     * @return number of old lines, first new line and number of new lines.
+     * @throws IOException
+     *         if the header is malformed.
+     */
+    private static int[] parseHunkHeader(String aLine) throws IOException
+    {
+        final int end = aLine.indexOf(" @@", HUNK_PREFIX.length());
+        final int plus = aLine.indexOf(" +", HUNK_PREFIX.length());
+        if (end < 0 || plus < 0 || plus > end) {
+            throw new IOException("Malformed hunk header: " + aLine);
+        }
+        final int[] oldRange = parseRange(
+                aLine.substring(HUNK_PREFIX.length() + 1, plus), aLine);
+        final int[] newRange = parseRange(aLine.substring(plus + 2, end),
+                aLine);
+        return new int[] {oldRange[1], newRange[0], newRange[1]};
+    }
+
+    /**
+     * Parses a range "l,s" or "l" of a hunk header.
+     * @param aRange
+     *        the range.
+     * @param aLine
+     *        the header, for the error message.
+     * @return the first line and the number of lines.
+     * @throws IOException
+     *         if the range is malformed.
+     */
+    private static int[] parseRange(String aRange, String aLine)
+        throws IOException
+    {
+        final int[] result = {0, 1};
+        try {
+            final int comma = aRange.indexOf(',');
+            if (comma < 0) {
+                result[0] = Integer.parseInt(aRange);
+            }
+            else {
+                result[0] = Integer.parseInt(aRange.substring(0, comma));
+                result[1] = Integer.parseInt(aRange.substring(comma + 1));
+            }
+        }
+        catch (final NumberFormatException e) {
+            throw new IOException("Malformed hunk header: " + aLine);
+        }
+        return result;
+    }
+}
@@ -50,7 +50,7 @@ public abstract class BaseCheckTestSupport extends Assert
 	}
 
 	private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-	private final PrintStream printStream = new PrintStream(baos);
+	protected final PrintStream printStream = new PrintStream(baos);
 
 	public static DefaultConfiguration createCheckConfig(Class<?> aClazz)
 	{
@@ -0,0 +1,55 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.checks.coding.OverridableMethodInConstructorCheck;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+
+public class LazyMessageArgumentTest
+{
+    @Test
+    public void testEvaluatedOnceWhenFormatted()
+    {
+        final int[] evaluations = new int[1];
+        final LazyMessageArgument argument = new LazyMessageArgument() {
+            @Override
+            protected String evaluate()
+            {
+                evaluations[0]++;
+                return "overrideMe";
+            }
+        };
+        final LocalizedMessage message = new LocalizedMessage(1,
+                "com.github.sevntu.checkstyle.checks.coding.messages",
+                OverridableMethodInConstructorCheck.MSG_KEY,
+                new Object[] {argument, "constructor"}, null,
+                OverridableMethodInConstructorCheck.class, null);
+        assertEquals(0, evaluations[0]);
+
+        final String expected =
+                "Overridable method 'overrideMe' is called in constructor body.";
+        assertEquals(expected, message.getMessage());
+        assertEquals(expected, message.getMessage());
+        assertEquals(1, evaluations[0]);
+    }
+}
@@ -0,0 +1,199 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle;
+
+import java.io.File;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.checks.coding.ForbidReturnInFinalBlockCheck;
+import com.github.sevntu.checkstyle.checks.design.HideUtilityClassConstructorCheck;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.PackageNamesLoader;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.checks.coding.EmptyStatementCheck;
+
+public class SevntuModuleFactoryTest extends BaseCheckTestSupport
+{
+    private static final String CHECKS_PACKAGE =
+            "com.github.sevntu.checkstyle.checks";
+
+    private final ClassLoader mClassLoader =
+            Thread.currentThread().getContextClassLoader();
+
+    @Test
+    public void testAllChecksAreRegistered() throws Exception
+    {
+        final SevntuModuleFactory factory = new SevntuModuleFactory(mClassLoader);
+        final List<Class<?>> checks = getCheckClasses();
+        assertFalse(checks.isEmpty());
+
+        for (Class<?> check : checks) {
+            assertTrue("Not registered: " + check.getName(),
+                    SevntuModuleFactory.getRegisteredNames().contains(check.getName()));
+            assertSame(check, factory.createModule(check.getName()).getClass());
+            if (SevntuModuleFactory.getRegisteredNames().contains(check.getSimpleName())) {
+                assertSame(check, factory.createModule(check.getSimpleName()).getClass());
+            }
+        }
+    }
+
+    @Test
+    public void testCheckstyleNamesakesAreNotShadowed() throws Exception
+    {
+        final Set<String> upstreamPackages = new HashSet<String>();
+        for (String name : PackageNamesLoader.getPackageNames(mClassLoader)) {
+            if (name.startsWith("com.puppycrawl.tools.checkstyle")) {
+                upstreamPackages.add(name);
+            }
+        }
+        assertFalse(upstreamPackages.isEmpty());
+        for (String name : SevntuModuleFactory.getRegisteredNames()) {
+            for (String packageName : upstreamPackages) {
+                assertNull("Shadows a Checkstyle module: " + name,
+                        loadClass(packageName + name));
+                assertNull("Shadows a Checkstyle module: " + name,
+                        loadClass(packageName + name + "Check"));
+            }
+        }
+
+        final SevntuModuleFactory factory = new SevntuModuleFactory(mClassLoader);
+        assertSame(com.puppycrawl.tools.checkstyle.checks.design.HideUtilityClassConstructorCheck.class,
+                factory.createModule("HideUtilityClassConstructor").getClass());
+        assertSame(HideUtilityClassConstructorCheck.class,
+                factory.createModule(HideUtilityClassConstructorCheck.class.getName()).getClass());
+    }
+
+    @Test
+    public void testShortName() throws Exception
+    {
+        final SevntuModuleFactory factory = new SevntuModuleFactory(mClassLoader);
+        assertTrue(factory.createModule("ForbidReturnInFinalBlock")
+                instanceof ForbidReturnInFinalBlockCheck);
+    }
+
+    @Test
+    public void testFallbackToPackages() throws Exception
+    {
+        final SevntuModuleFactory factory = new SevntuModuleFactory(mClassLoader);
+        assertTrue(factory.createModule("TreeWalker") instanceof TreeWalker);
+        assertTrue(factory.createModule("EmptyStatement") instanceof EmptyStatementCheck);
+        assertTrue(factory.createModule(EmptyStatementCheck.class.getName())
+                instanceof EmptyStatementCheck);
+    }
+
+    @Test(expected = CheckstyleException.class)
+    public void testUnknownModule() throws Exception
+    {
+        new SevntuModuleFactory(mClassLoader).createModule("NoSuchModuleAnywhere");
+    }
+
+    @Test
+    public void testCheckerWithFactory() throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                new DefaultConfiguration("ForbidReturnInFinalBlock");
+        final String warningMessage = getCheckMessageFor(ForbidReturnInFinalBlockCheck.class,
+                ForbidReturnInFinalBlockCheck.MSG_KEY);
+        final String[] expected = {
+            "9: " + warningMessage,
+            "22: " + warningMessage,
+            "42: " + warningMessage,
+            "49: " + warningMessage,
+        };
+        verify(createChecker(checkConfig),
+                getPath("checks/coding/InputForbidReturnInFinalBlockCheck.java"), expected);
+    }
+
+    @Override
+    protected Checker createChecker(Configuration aCheckConfig) throws Exception
+    {
+        final Checker checker = new Checker();
+        final Locale locale = Locale.ENGLISH;
+        checker.setLocaleCountry(locale.getCountry());
+        checker.setLocaleLanguage(locale.getLanguage());
+        checker.setModuleClassLoader(mClassLoader);
+        checker.setModuleFactory(new SevntuModuleFactory(mClassLoader));
+        checker.configure(createCheckerConfig(aCheckConfig));
+        checker.addListener(new BriefLogger(printStream));
+        return checker;
+    }
+
+    private Class<?> loadClass(String aName)
+    {
+        Class<?> result = null;
+        try {
+            result = Class.forName(aName, false, mClassLoader);
+        }
+        catch (final ClassNotFoundException e) {
+            result = null;
+        }
+        return result;
+    }
+
+    private String getCheckMessageFor(Class<?> aCheck, String aKey) throws Exception
+    {
+        final Properties properties = new Properties();
+        properties.load(aCheck.getResourceAsStream("messages.properties"));
+        return properties.getProperty(aKey);
+    }
+
+    private List<Class<?>> getCheckClasses() throws Exception
+    {
+        // main and test classes share packages, so take the location of main classes
+        final URL classes = SevntuModuleFactory.class.getProtectionDomain()
+                .getCodeSource().getLocation();
+        final File root = new File(new File(classes.toURI()), CHECKS_PACKAGE.replace('.', '/'));
+        final List<Class<?>> result = new ArrayList<Class<?>>();
+        collectCheckClasses(root, CHECKS_PACKAGE, result);
+        return result;
+    }
+
+    private void collectCheckClasses(File aDir, String aPackage, List<Class<?>> aResult)
+        throws ClassNotFoundException
+    {
+        for (File file : aDir.listFiles()) {
+            final String name = file.getName();
+            if (file.isDirectory()) {
+                collectCheckClasses(file, aPackage + "." + name, aResult);
+            }
+            else if (name.endsWith(".class") && name.indexOf('$') < 0) {
+                final Class<?> clazz = Class.forName(
+                        aPackage + "." + name.substring(0, name.length() - ".class".length()));
+                if (Check.class.isAssignableFrom(clazz)
+                        && !Modifier.isAbstract(clazz.getModifiers()))
+                {
+                    aResult.add(clazz);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.ast;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+public class AstIndexTest extends BaseCheckTestSupport
+{
+    @Test
+    public void testSameAsWalkingTree() throws Exception
+    {
+        final DetailAST root = parse(
+                "../checks/coding/InputOverridableMethodInConstructor16.java");
+        final List<DetailAST> nodes = new ArrayList<DetailAST>();
+        for (DetailAST topLevel : DetailAstTraversal.siblings(root)) {
+            for (DetailAST node : DetailAstTraversal.preOrder(topLevel)) {
+                nodes.add(node);
+            }
+        }
+        final AstIndex index = new AstIndex(root);
+        assertEquals(nodes.size(), index.size());
+
+        final BitSet types = new BitSet();
+        types.set(TokenTypes.METHOD_DEF);
+        types.set(TokenTypes.CTOR_DEF);
+        for (DetailAST node : nodes) {
+            assertSame(getEnclosing(node, TokenTypes.CLASS_DEF),
+                    index.getEnclosing(node, TokenTypes.CLASS_DEF));
+            assertSame(getEnclosing(node, types),
+                    index.getEnclosing(node, types));
+            for (DetailAST other : nodes) {
+                final boolean descendant = isDescendant(node, other);
+                assertEquals(descendant, index.isDescendant(node, other));
+                assertEquals(descendant || node == other,
+                        index.isInSubtree(node, other));
+                if (other.getType() == TokenTypes.IDENT) {
+                    assertEquals(containsToken(node, other),
+                            index.containsToken(node, TokenTypes.IDENT,
+                                    other.getText()));
+                }
+            }
+        }
+        assertFalse(index.containsToken(root, TokenTypes.IDENT, "noSuchName"));
+    }
+
+    @Test
+    public void testEmptyTree()
+    {
+        assertEquals(0, new AstIndex(null).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNodeNotIndexed() throws Exception
+    {
+        final DetailAST root = parse(
+                "../checks/coding/InputOverridableMethodInConstructor16.java");
+        new AstIndex(root).isDescendant(root, new DetailAST());
+    }
+
+    private DetailAST parse(String aFileName) throws Exception
+    {
+        final File file = new File(getPath(aFileName));
+        final FileText text = new FileText(file, "iso-8859-1");
+        return TreeWalker.parse(new FileContents(text));
+    }
+
+    private static DetailAST getEnclosing(DetailAST aNode, int aType)
+    {
+        DetailAST result = aNode;
+        while (result != null && result.getType() != aType) {
+            result = result.getParent();
+        }
+        return result;
+    }
+
+    private static DetailAST getEnclosing(DetailAST aNode, BitSet aTypes)
+    {
+        DetailAST result = aNode;
+        while (result != null && !aTypes.get(result.getType())) {
+            result = result.getParent();
+        }
+        return result;
+    }
+
+    private static boolean isDescendant(DetailAST aAncestor, DetailAST aNode)
+    {
+        boolean result = false;
+        for (DetailAST node = aNode.getParent(); node != null;
+                node = node.getParent())
+        {
+            result |= node == aAncestor;
+        }
+        return result;
+    }
+
+    private static boolean containsToken(DetailAST aAncestor, DetailAST aToken)
+    {
+        boolean result = false;
+        for (DetailAST node : DetailAstTraversal.preOrder(aAncestor)) {
+            result |= node != aAncestor && node.getType() == aToken.getType()
+                    && node.getText().equals(aToken.getText());
+        }
+        return result;
+    }
+}
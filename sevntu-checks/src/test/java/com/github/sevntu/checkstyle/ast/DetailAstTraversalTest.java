@@ -0,0 +1,152 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.ast;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+public class DetailAstTraversalTest extends BaseCheckTestSupport
+{
+    @Test
+    public void testOrderSameAsRecursion() throws Exception
+    {
+        final DetailAST root = parse(
+                "../checks/coding/InputOverridableMethodInConstructor1.java");
+        for (DetailAST classDef = root; classDef != null;
+                classDef = classDef.getNextSibling())
+        {
+            final List<DetailAST> expectedPreOrder = new ArrayList<DetailAST>();
+            final List<DetailAST> expectedPostOrder = new ArrayList<DetailAST>();
+            walk(classDef, expectedPreOrder, expectedPostOrder);
+
+            assertEquals(expectedPreOrder,
+                    toList(DetailAstTraversal.preOrder(classDef)));
+            assertEquals(expectedPostOrder,
+                    toList(DetailAstTraversal.postOrder(classDef)));
+        }
+    }
+
+    @Test
+    public void testSkipChildren() throws Exception
+    {
+        final DetailAST root = parse(
+                "../checks/coding/InputOverridableMethodInConstructor1.java");
+        final List<DetailAST> expected = new ArrayList<DetailAST>();
+        final List<DetailAST> methodDefs = new ArrayList<DetailAST>();
+        for (DetailAST topLevel : DetailAstTraversal.siblings(root)) {
+            for (DetailAST node : DetailAstTraversal.preOrder(topLevel)) {
+                if (node.getType() == TokenTypes.METHOD_DEF
+                        && !isInMethod(node.getParent()))
+                {
+                    expected.add(node);
+                }
+            }
+
+            DetailAST node = topLevel;
+            while (node != null) {
+                if (node.getType() == TokenTypes.METHOD_DEF) {
+                    methodDefs.add(node);
+                    node = DetailAstTraversal.nextPreOrderSkipChildren(node,
+                            topLevel);
+                }
+                else {
+                    node = DetailAstTraversal.nextPreOrder(node, topLevel);
+                }
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, methodDefs);
+    }
+
+    @Test
+    public void testDeepTree()
+    {
+        final int depth = 100000;
+        final DetailAST root = new DetailAST();
+        DetailAST parent = root;
+        for (int i = 0; i < depth; i++) {
+            final DetailAST child = new DetailAST();
+            child.initialize(TokenTypes.LPAREN, "(");
+            final DetailAST sibling = new DetailAST();
+            sibling.initialize(TokenTypes.RPAREN, ")");
+            parent.setFirstChild(child);
+            child.setNextSibling(sibling);
+            parent = child;
+        }
+
+        int count = 0;
+        for (DetailAST node : DetailAstTraversal.preOrder(root)) {
+            count++;
+        }
+        assertEquals(2 * depth + 1, count);
+
+        count = 0;
+        for (DetailAST node : DetailAstTraversal.postOrder(root)) {
+            count++;
+        }
+        assertEquals(2 * depth + 1, count);
+    }
+
+    private DetailAST parse(String aFileName) throws Exception
+    {
+        final File file = new File(getPath(aFileName));
+        final FileText text = new FileText(file, "iso-8859-1");
+        return TreeWalker.parse(new FileContents(text));
+    }
+
+    private static void walk(DetailAST aNode, List<DetailAST> aPreOrder,
+            List<DetailAST> aPostOrder)
+    {
+        aPreOrder.add(aNode);
+        for (DetailAST child = aNode.getFirstChild(); child != null;
+                child = child.getNextSibling())
+        {
+            walk(child, aPreOrder, aPostOrder);
+        }
+        aPostOrder.add(aNode);
+    }
+
+    private static boolean isInMethod(DetailAST aNode)
+    {
+        boolean result = false;
+        for (DetailAST node = aNode; node != null; node = node.getParent()) {
+            result |= node.getType() == TokenTypes.METHOD_DEF;
+        }
+        return result;
+    }
+
+    private static List<DetailAST> toList(Iterable<DetailAST> aNodes)
+    {
+        final List<DetailAST> result = new ArrayList<DetailAST>();
+        for (DetailAST node : aNodes) {
+            result.add(node);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,76 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.ast;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+public class LineSpansTest extends BaseCheckTestSupport
+{
+    @Test
+    public void testBlocks() throws Exception
+    {
+        final File file = new File(getPath(
+                "../checks/coding/InputOverridableMethodInConstructor16.java"));
+        final FileContents contents =
+                new FileContents(new FileText(file, "iso-8859-1"));
+        DetailAST classDef = TreeWalker.parse(contents);
+        while (classDef.getType() != TokenTypes.CLASS_DEF) {
+            classDef = classDef.getNextSibling();
+        }
+        final LineSpans spans = new LineSpans(contents.getLines());
+
+        final DetailAST objBlock = classDef.findFirstToken(TokenTypes.OBJBLOCK);
+        assertEquals(11, spans.getFirstLine(objBlock));
+        assertEquals(29, spans.getLastLine(objBlock));
+        assertEquals(17, spans.getInnerLinesCount(objBlock));
+        assertEquals(11, spans.getNonBlankLinesCount(objBlock));
+
+        final DetailAST innerObjBlock = objBlock
+                .findFirstToken(TokenTypes.CLASS_DEF)
+                .findFirstToken(TokenTypes.OBJBLOCK);
+        assertEquals(12, spans.getInnerLinesCount(innerObjBlock));
+        assertEquals(9, spans.getNonBlankLinesCount(innerObjBlock));
+
+        final DetailAST methodBody = innerObjBlock
+                .findFirstToken(TokenTypes.METHOD_DEF)
+                .findFirstToken(TokenTypes.SLIST);
+        assertEquals(16, spans.getFirstLine(methodBody));
+        assertEquals(18, spans.getLastLine(methodBody));
+        assertEquals(1, spans.getInnerLinesCount(methodBody));
+        assertEquals(1, spans.getNonBlankLinesCount(methodBody));
+        assertEquals(0, spans.getNonBlankLinesCount(12, 13));
+    }
+
+    @Test
+    public void testInnerLinesCount()
+    {
+        assertEquals(0, LineSpans.getInnerLinesCount(5, 5));
+        assertEquals(0, LineSpans.getInnerLinesCount(5, 6));
+        assertEquals(1, LineSpans.getInnerLinesCount(5, 7));
+    }
+}
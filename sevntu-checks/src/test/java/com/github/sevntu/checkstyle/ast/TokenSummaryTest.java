@@ -0,0 +1,79 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.ast;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+public class TokenSummaryTest extends BaseCheckTestSupport
+{
+    @Test
+    public void testCountsAndIdents() throws Exception
+    {
+        final File file = new File(getPath(
+                "../checks/coding/InputOverridableMethodInConstructor16.java"));
+        final DetailAST root = TreeWalker.parse(
+                new FileContents(new FileText(file, "iso-8859-1")));
+
+        final TokenSummary summary = TokenSummary.get(root);
+        assertSame(summary, TokenSummary.get(root));
+
+        int methods = 0;
+        final Set<String> idents = new HashSet<String>();
+        for (DetailAST topLevel : DetailAstTraversal.siblings(root)) {
+            for (DetailAST node : DetailAstTraversal.preOrder(topLevel)) {
+                if (node.getType() == TokenTypes.METHOD_DEF) {
+                    methods++;
+                }
+                else if (node.getType() == TokenTypes.IDENT) {
+                    idents.add(node.getText());
+                }
+            }
+        }
+        assertEquals(3, methods);
+        assertEquals(methods, summary.getCount(TokenTypes.METHOD_DEF));
+        assertFalse(summary.hasToken(TokenTypes.LITERAL_NEW));
+        assertFalse(summary.hasToken(Integer.MAX_VALUE));
+
+        for (String ident : idents) {
+            assertTrue(ident, summary.mayHaveIdent(ident));
+        }
+        assertTrue(summary.mayHaveAnyIdent(Arrays.asList("noSuchName", "doSmth")));
+        assertFalse(summary.mayHaveAnyIdent(Arrays.asList("noSuchName")));
+    }
+
+    @Test
+    public void testEmptyFile()
+    {
+        final TokenSummary summary = TokenSummary.get(null);
+        assertEquals(0, summary.getCount(TokenTypes.IDENT));
+        assertFalse(summary.mayHaveIdent("anything"));
+    }
+}
@@ -0,0 +1,232 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import com.github.sevntu.checkstyle.checks.coding.IllegalCatchExtendedCheck;
+import com.github.sevntu.checkstyle.checks.coding.MultipleStringLiteralsExtendedCheck;
+import com.github.sevntu.checkstyle.checks.coding.MultipleVariableDeclarationsExtendedCheck;
+import com.github.sevntu.checkstyle.checks.coding.ReturnCountExtendedCheck;
+import com.github.sevntu.checkstyle.checks.coding.UnnecessaryParenthesesExtendedCheck;
+import com.github.sevntu.checkstyle.checks.sizes.LineLengthExtendedCheck;
+import com.github.sevntu.checkstyle.trace.TraceRecorder;
+import com.github.sevntu.checkstyle.trace.TraceReplayer;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.checks.coding.IllegalCatchCheck;
+import com.puppycrawl.tools.checkstyle.checks.coding.MultipleStringLiteralsCheck;
+import com.puppycrawl.tools.checkstyle.checks.coding.MultipleVariableDeclarationsCheck;
+import com.puppycrawl.tools.checkstyle.checks.coding.ReturnCountCheck;
+import com.puppycrawl.tools.checkstyle.checks.coding.UnnecessaryParenthesesCheck;
+import com.puppycrawl.tools.checkstyle.checks.sizes.LineLengthCheck;
+
+/**
+ * <p>
+ * Head-to-head benchmark of the sevntu "Extended" checks and the Checkstyle
+ * checks they extend. Every file of the corpus is parsed once and recorded
+ * as a token trace, then each check of a pair is replayed over all the
+ * traces, so the numbers contain the cost of the checks only, not of
+ * parsing. Both checks of a pair run with their default configuration.
+ * </p>
+ * <p>
+ * For every check the benchmark prints the time per pass over the corpus,
+ * the throughput in source characters per microsecond, the bytes allocated
+ * per pass (when the JVM can measure allocation of a thread) and the
+ * number of violations per pass, and for every pair the ratio of the times.
+ * </p>
+ * <p>
+ * It is not a unit test and is not run by the build. Usage, from the
+ * project directory after "mvn test-compile":
+ * </p>
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;dependencies&gt; \
+ *     com.github.sevntu.checkstyle.benchmark.ExtendedChecksBenchmark \
+ *     [corpus directory [warm-up passes [measured passes]]]
+ * </pre>
+ * <p>
+ * The corpus is "src/test/resources" by default; files that do not parse
+ * are skipped.
+ * </p>
+ */
+public final class ExtendedChecksBenchmark
+{
+    private static final int DEFAULT_WARM_UP_PASSES = 20;
+
+    private static final int DEFAULT_MEASURED_PASSES = 50;
+
+    private static final Class<?>[][] PAIRS = {
+        {LineLengthExtendedCheck.class, LineLengthCheck.class},
+        {ReturnCountExtendedCheck.class, ReturnCountCheck.class},
+        {MultipleStringLiteralsExtendedCheck.class, MultipleStringLiteralsCheck.class},
+        {IllegalCatchExtendedCheck.class, IllegalCatchCheck.class},
+        {UnnecessaryParenthesesExtendedCheck.class, UnnecessaryParenthesesCheck.class},
+        {MultipleVariableDeclarationsExtendedCheck.class,
+            MultipleVariableDeclarationsCheck.class},
+    };
+
+    private ExtendedChecksBenchmark()
+    {
+    }
+
+    public static void main(String[] aArgs) throws Exception
+    {
+        final File corpus = new File(aArgs.length > 0 ? aArgs[0] : "src/test/resources");
+        final int warmUpPasses =
+                aArgs.length > 1 ? Integer.parseInt(aArgs[1]) : DEFAULT_WARM_UP_PASSES;
+        final int measuredPasses =
+                aArgs.length > 2 ? Integer.parseInt(aArgs[2]) : DEFAULT_MEASURED_PASSES;
+
+        final List<TraceReplayer> traces = new ArrayList<TraceReplayer>();
+        long chars = 0;
+        for (File file : listJavaFiles(corpus)) {
+            try {
+                final ByteArrayOutputStream trace = new ByteArrayOutputStream();
+                new TraceRecorder(false).record(file, "iso-8859-1", trace);
+                final TraceReplayer replayer = new TraceReplayer(
+                        new ByteArrayInputStream(trace.toByteArray()));
+                traces.add(replayer);
+                chars += replayer.getContents().getText().getFullText().length();
+            }
+            catch (final Exception e) {
+                System.err.println("Skipped " + file + ": " + e);
+            }
+        }
+        System.out.println(String.format(Locale.ENGLISH,
+                "Corpus: %s, %d files, %d chars, %d warm-up and %d measured passes",
+                corpus, traces.size(), chars, warmUpPasses, measuredPasses));
+        System.out.println(String.format(Locale.ENGLISH, "%-45s %12s %12s %14s %10s",
+                "check", "us/pass", "chars/us", "bytes/pass", "violations"));
+
+        for (Class<?>[] pair : PAIRS) {
+            final Result extended = run(pair[0], traces, warmUpPasses, measuredPasses);
+            final Result base = run(pair[1], traces, warmUpPasses, measuredPasses);
+            print(extended, chars);
+            print(base, chars);
+            System.out.println(String.format(Locale.ENGLISH,
+                    "  -> extended/base time ratio: %.2f",
+                    (double) extended.mNanos / base.mNanos));
+        }
+    }
+
+    private static Result run(Class<?> aCheckClass, List<TraceReplayer> aTraces,
+            int aWarmUpPasses, int aMeasuredPasses) throws Exception
+    {
+        final Check check = (Check) aCheckClass.newInstance();
+        check.configure(new DefaultConfiguration(aCheckClass.getName()));
+        check.init();
+
+        for (int i = 0; i < aWarmUpPasses; i++) {
+            replayAll(check, aTraces);
+        }
+
+        final Result result = new Result(aCheckClass.getSimpleName());
+        final long allocatedBefore = getAllocatedBytes();
+        final long start = System.nanoTime();
+        for (int i = 0; i < aMeasuredPasses; i++) {
+            result.mViolations = replayAll(check, aTraces);
+        }
+        result.mNanos = (System.nanoTime() - start) / aMeasuredPasses;
+        final long allocatedAfter = getAllocatedBytes();
+        result.mAllocatedBytes = allocatedBefore < 0
+                ? -1 : (allocatedAfter - allocatedBefore) / aMeasuredPasses;
+        check.destroy();
+        return result;
+    }
+
+    private static int replayAll(Check aCheck, List<TraceReplayer> aTraces)
+    {
+        int violations = 0;
+        for (TraceReplayer trace : aTraces) {
+            violations += trace.replay(aCheck).size();
+        }
+        return violations;
+    }
+
+    private static void print(Result aResult, long aChars)
+    {
+        final double micros = aResult.mNanos / 1000.0;
+        System.out.println(String.format(Locale.ENGLISH, "%-45s %12.1f %12.1f %14s %10d",
+                aResult.mName, micros, aChars / micros,
+                aResult.mAllocatedBytes < 0 ? "n/a" : String.valueOf(aResult.mAllocatedBytes),
+                aResult.mViolations));
+    }
+
+    /**
+     * Gets the bytes allocated by the current thread so far, if the JVM
+     * supports it (HotSpot does through com.sun.management.ThreadMXBean).
+     */
+    private static long getAllocatedBytes()
+    {
+        long result = -1;
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        try {
+            final Object bytes = Class.forName("com.sun.management.ThreadMXBean")
+                    .getMethod("getThreadAllocatedBytes", long.class)
+                    .invoke(bean, Thread.currentThread().getId());
+            result = ((Long) bytes).longValue();
+        }
+        catch (final Exception e) {
+            result = -1;
+        }
+        return result;
+    }
+
+    private static List<File> listJavaFiles(File aDirectory)
+    {
+        final List<File> result = new ArrayList<File>();
+        final File[] files = aDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    result.addAll(listJavaFiles(file));
+                }
+                else if (file.getName().endsWith(".java")) {
+                    result.add(file);
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static final class Result
+    {
+        private final String mName;
+
+        private long mNanos;
+
+        private long mAllocatedBytes;
+
+        private int mViolations;
+
+        Result(String aName)
+        {
+            mName = aName;
+        }
+    }
+}
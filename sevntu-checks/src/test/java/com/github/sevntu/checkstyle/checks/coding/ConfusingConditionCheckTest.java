@@ -58,4 +58,20 @@ public class ConfusingConditionCheckTest extends BaseCheckTestSupport
         verify(checkConfig, getPath("InputConfusingConditionCheck.java"),
                 expected);
     }
+
+    @Test
+    public void testElseIfChains()
+            throws Exception
+    {
+        final DefaultConfiguration checkConfig = createCheckConfig(ConfusingConditionCheck.class);
+        checkConfig.addAttribute("ignoreSequentialIf", "false");
+
+        final String[] expected = {
+                "19: " + warningMessage,
+                "22: " + warningMessage,
+        };
+
+        verify(checkConfig, getPath("InputConfusingConditionCheckChain.java"),
+                expected);
+    }
 }
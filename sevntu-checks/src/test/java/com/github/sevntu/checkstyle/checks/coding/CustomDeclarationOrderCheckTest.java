@@ -143,4 +143,42 @@ public class CustomDeclarationOrderCheckTest extends BaseCheckTestSupport {
         checkConfig.addAttribute("caseSensitive", "false");
         verify(checkConfig, getPath("InputCustomDeclarationOrderCheckMainMethod.java"), expected);
     }
+
+    @Test
+    public void literalRules()
+            throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(CustomDeclarationOrderCheck.class);
+        final String[] expected = {
+                "4:5: " + getCheckMessage(MSG_KEY_FIELD, "Field(.*public.*)", "Field(.*PRIVATE.*)"),
+                "5:5: " + getCheckMessage(MSG_KEY_FIELD, "Field(.*public.*)", "Field(.*PRIVATE.*)"),
+                "6:5: " + getCheckMessage(MSG_KEY_FIELD, "Field(@Deprecated protected)", "Field(.*PRIVATE.*)"),
+                "8:5: " + getCheckMessage(MSG_KEY_FIELD, "Field(@Deprecated protected)", "Field(.*PRIVATE.*)"),
+        };
+        checkConfig.addAttribute(
+                        "customDeclarationOrder",
+                        "Field(.*public.*) ### Field(@Deprecated protected) ### Field(.*PRIVATE.*)"
+                        );
+        checkConfig.addAttribute("caseSensitive", "false");
+        verify(checkConfig, getPath("InputCustomDeclarationOrderCheckLiterals.java"), expected);
+    }
+
+    @Test
+    public void overloadedSetters()
+            throws Exception
+    {
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(CustomDeclarationOrderCheck.class);
+        final String[] expected = {
+                "21: " + getCheckMessage(MSG_KEY_INVALID_SETTER, "setValue", "getValue"),
+                "26: " + getCheckMessage(MSG_KEY_INVALID_SETTER, "setName", "getName"),
+        };
+        checkConfig.addAttribute(
+                        "customDeclarationOrder",
+                        "Field(.*) ### GetterSetter(.*) ### Method(.*)"
+                        );
+        checkConfig.addAttribute("fieldPrefix", "m");
+        verify(checkConfig, getPath("InputCustomDeclarationOrderCheckOverloadedSetters.java"), expected);
+    }
 }
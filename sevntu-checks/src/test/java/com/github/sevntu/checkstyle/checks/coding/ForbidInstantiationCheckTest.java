@@ -48,6 +48,19 @@ public class ForbidInstantiationCheckTest extends BaseCheckTestSupport
         verify(checkConfig, getPath("InputForbidInstantiationCheck.java"), expected);
     }
 
+    @Test
+    public void testSimpleNameIsComparedExactly() throws Exception
+    {
+
+        checkConfig.addAttribute("forbiddenClasses", "java.lang.NullPointerException");
+
+        String[] expected = {
+        	"8:35: " + getCheckMessage(MSG_KEY, "NullPointerException"),
+        };
+
+        verify(checkConfig, getPath("InputForbidInstantiationCheckSimpleNames.java"), expected);
+    }
+
     @Test
     public void testNormalWork() throws Exception
     {
@@ -23,10 +23,20 @@ import static com.github.sevntu.checkstyle.checks.coding.MultipleStringLiteralsE
 import org.junit.Test;
 
 import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
 
 public class MultipleStringLiteralsExtendedCheckTest extends BaseCheckTestSupport
 {
+	@Test(expected = CheckstyleException.class)
+	public void testCrossFileUnderTreeWalker() throws Exception
+	{
+		final DefaultConfiguration checkConfig =
+				createCheckConfig(MultipleStringLiteralsExtendedCheck.class);
+		checkConfig.addAttribute("crossFile", "true");
+		createChecker(checkConfig);
+	}
+
 	@Test
 	public void testIt() throws Exception
 	{
@@ -330,4 +330,16 @@ public class OverridableMethodInConstructorCheckTest extends BaseCheckTestSuppor
 
         verify(checkConfig, getPath("InputOverridableMethodInConstructor25.java"), expected);
     }
+
+    @Test
+    public final void testCallCycles() throws Exception
+    {
+
+        String[] expected = {
+            "4:14: " + getCheckMessage(MSG_KEY_LEADS, "first", mCtorKey, "doPublic"),
+            "5:15: " + getCheckMessage(MSG_KEY_LEADS, "second", mCtorKey, "doPublic"),
+            };
+
+        verify(checkConfig, getPath("InputOverridableMethodInConstructor28.java"), expected);
+    }
 }
@@ -232,4 +232,22 @@ public class TernaryPerExpressionCountCheckTest extends BaseCheckTestSupport {
                 getPath("InputTernaryPerExpressionCountCheck.java"), expected);
     }
 
+    @Test
+    public void testQuestionMarksInLiteralsAndComments() throws Exception {
+        boolean ternaryInBraces = false;
+        boolean oneLine = true;
+        int maxTernaryOperatorsCount = 0;
+        checkConfig.addAttribute("ignoreTernaryOperatorsInBraces",
+                Boolean.toString(ternaryInBraces));
+        checkConfig.addAttribute("ignoreIsolatedTernaryOnLine",
+                Boolean.toString(oneLine));
+        checkConfig.addAttribute("maxTernaryPerExpressionCount",
+                Integer.toString(maxTernaryOperatorsCount));
+        String[] expected = {
+                "12:26: " + getCheckMessage(MSG_KEY, maxTernaryOperatorsCount),
+                };
+        verify(checkConfig,
+                getPath("InputTernaryPerExpressionCountCheckLiterals.java"), expected);
+    }
+
 }
@@ -122,6 +122,22 @@ public class ChildBlockLengthTest extends BaseCheckTestSupport
     }
 
 
+    @Test
+    public void testBlocksOfNestedMethodsAndBracelessBlocks() throws Exception
+    {
+        checkConfig.addAttribute("maxChildBlockPercentage", "5");
+        checkConfig.addAttribute("blockTypes", "LITERAL_IF, LITERAL_SWITCH, LITERAL_FOR, "
+                + "LITERAL_DO, LITERAL_WHILE, LITERAL_TRY, LITERAL_ELSE, LITERAL_CATCH");
+        checkConfig.addAttribute("ignoreBlockLinesCount", "0");
+
+        String[] expected = {
+                "18:13: " + getCheckMessage(MSG_KEY, 1, 0),
+                "21:18: " + getCheckMessage(MSG_KEY, 1, 0),
+        };
+
+        verify(checkConfig, getPath("InputChildBlockLengthCheckNestedClass.java"), expected);
+    }
+
     @Test
     public void testBadChildBlocksThatAreDoubleNested2() throws Exception
     {
@@ -201,4 +201,36 @@ public class VariableDeclarationUsageDistanceCheckTest extends
         };
         verify(checkConfig, getPath("InputVariableDeclarationUsageDistanceCheck.java"), expected);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testUsagesInBlocks() throws Exception
+    {
+        final DefaultConfiguration checkConfig = createCheckConfig(VariableDeclarationUsageDistanceCheck.class);
+        checkConfig.addAttribute("allowedDistance", "1");
+        checkConfig.addAttribute("ignoreVariablePattern", "");
+        checkConfig.addAttribute("validateBetweenScopes", "true");
+        checkConfig.addAttribute("ignoreFinal", "false");
+        final String[] expected = {
+        	"8: " + getCheckMessage(MSG_KEY, "a", 4, 1),
+        	"43: " + getCheckMessage(MSG_KEY, "d", 2, 1),
+        	"52: " + getCheckMessage(MSG_KEY, "e", 2, 1),
+        };
+        verify(checkConfig, getPath("InputVariableDeclarationUsageDistanceCheckBlocks.java"), expected);
+    }
+
+    @Test
+    public void testUsagesInBlocksWithoutBetweenScopes() throws Exception
+    {
+        final DefaultConfiguration checkConfig = createCheckConfig(VariableDeclarationUsageDistanceCheck.class);
+        checkConfig.addAttribute("allowedDistance", "1");
+        checkConfig.addAttribute("ignoreVariablePattern", "");
+        checkConfig.addAttribute("validateBetweenScopes", "false");
+        checkConfig.addAttribute("ignoreFinal", "false");
+        final String[] expected = {
+        	"43: " + getCheckMessage(MSG_KEY, "d", 3, 1),
+        	"52: " + getCheckMessage(MSG_KEY, "e", 3, 1),
+        	"79: " + getCheckMessage(MSG_KEY, "k", 2, 1),
+        };
+        verify(checkConfig, getPath("InputVariableDeclarationUsageDistanceCheckBlocks.java"), expected);
+    }
+}
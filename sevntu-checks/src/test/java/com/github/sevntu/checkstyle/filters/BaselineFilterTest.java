@@ -0,0 +1,93 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.filters;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.checks.coding.EmptyStatementCheck;
+
+public class BaselineFilterTest extends BaseCheckTestSupport
+{
+    @Test
+    public void testAcceptedViolationsAreDropped() throws Exception
+    {
+        final String[] expected = {
+            "8:19: Empty statement.",
+            "10:19: Empty statement.",
+            "11:19: Empty statement.",
+        };
+        verify(createChecker(getPath("InputBaselineFilter.txt"), "0"),
+                getPath("InputBaselineFilter.java"), expected);
+    }
+
+    @Test
+    public void testLineTolerance() throws Exception
+    {
+        final String[] expected = {
+            "8:19: Empty statement.",
+            "11:19: Empty statement.",
+        };
+        verify(createChecker(getPath("InputBaselineFilter.txt"), "1"),
+                getPath("InputBaselineFilter.java"), expected);
+    }
+
+    @Test
+    public void testFingerprintIgnoresWhiteSpace()
+    {
+        assertEquals("ee7d819b", BaselineFilter.getFingerprint("int a = 0;;"));
+        assertEquals("ee7d819b",
+                BaselineFilter.getFingerprint("\tint a=0; ;  "));
+        assertEquals(8, BaselineFilter.getFingerprint("").length());
+    }
+
+    @Test(expected = CheckstyleException.class)
+    public void testMalformedBaseline() throws Exception
+    {
+        new BaselineFilter().setFile(
+                getPath("InputBaselineFilterMalformed.txt"));
+    }
+
+    private Checker createChecker(String aBaseline, String aLineTolerance)
+        throws Exception
+    {
+        final DefaultConfiguration filterConfig =
+                createCheckConfig(BaselineFilter.class);
+        filterConfig.addAttribute("file", aBaseline);
+        filterConfig.addAttribute("lineTolerance", aLineTolerance);
+        filterConfig.addAttribute("charset", "iso-8859-1");
+        final DefaultConfiguration checkerConfig =
+                createCheckerConfig(createCheckConfig(EmptyStatementCheck.class));
+        checkerConfig.addChild(filterConfig);
+
+        final Checker checker = new Checker();
+        checker.setLocaleCountry(Locale.ENGLISH.getCountry());
+        checker.setLocaleLanguage(Locale.ENGLISH.getLanguage());
+        checker.setModuleClassLoader(
+                Thread.currentThread().getContextClassLoader());
+        checker.configure(checkerConfig);
+        checker.addListener(new BriefLogger(printStream));
+        return checker;
+    }
+}
@@ -0,0 +1,129 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.index;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+public class ClassHierarchyIndexTest extends BaseCheckTestSupport
+{
+    private static final String PACKAGE = "com.github.sevntu.checkstyle.index.";
+
+    private final ClassHierarchyIndex mIndex = new ClassHierarchyIndex();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        mIndex.addFile(parse("InputClassHierarchyDerived.java"));
+        mIndex.addFile(parse("InputClassHierarchyBase.java"));
+    }
+
+    @Test
+    public void testClasses()
+    {
+        assertEquals(3, mIndex.size());
+
+        final ClassInfo base = mIndex.getClassInfo("InputClassHierarchyBase");
+        assertEquals(PACKAGE + "InputClassHierarchyBase", base.getQualifiedName());
+        assertEquals("HashMap", base.getSuperclassName());
+        assertEquals(Arrays.asList("Runnable"), base.getInterfaceNames());
+        assertTrue(base.getMethod("prepare", 1).hasModifier(TokenTypes.FINAL));
+        assertNull(base.getMethod("prepare", 0));
+
+        final ClassInfo inner =
+                mIndex.getClassInfo(PACKAGE + "InputClassHierarchyDerived.Inner");
+        assertEquals(Arrays.asList("Comparable"), inner.getInterfaceNames());
+        assertSame(inner, mIndex.getClassInfo("Inner"));
+    }
+
+    @Test
+    public void testHierarchy()
+    {
+        final ClassInfo derived =
+                mIndex.getClassInfo(PACKAGE + "InputClassHierarchyDerived");
+        assertSame(mIndex.getClassInfo("InputClassHierarchyBase"),
+                mIndex.getSuperclass(derived));
+        assertTrue(mIndex.isSubtypeOf(derived, "HashMap"));
+        assertTrue(mIndex.isSubtypeOf(derived, "java.lang.Runnable"));
+        assertFalse(mIndex.isSubtypeOf(derived, "Comparable"));
+        assertTrue(mIndex.isSubtypeOf("Inner", "Comparable"));
+        assertTrue(mIndex.isSubtypeOf("UnknownException", "UnknownException"));
+        assertFalse(mIndex.isSubtypeOf("UnknownException", "Exception"));
+
+        assertEquals("init",
+                mIndex.findInheritedMethod(derived, "init", 0).getName());
+        assertNull(mIndex.findInheritedMethod(derived, "init", 1));
+
+        mIndex.clear();
+        assertEquals(0, mIndex.size());
+        assertNull(mIndex.getClassInfo("InputClassHierarchyBase"));
+    }
+
+    @Test
+    public void testImports() throws Exception
+    {
+        mIndex.addFile(parse("InputClassHierarchyHashMap.java"));
+        mIndex.addFile(parse("InputClassHierarchyImports.java"));
+
+        final ClassInfo hashMap = mIndex.getClassInfo(PACKAGE + "collections.HashMap");
+        final ClassInfo imports =
+                mIndex.getClassInfo(PACKAGE + "other.InputClassHierarchyImports");
+        assertSame(hashMap, mIndex.getSuperclass(imports));
+        assertTrue(mIndex.isSubtypeOf(imports, PACKAGE + "collections.HashMap"));
+        assertFalse(mIndex.isSubtypeOf(imports, "java.util.HashMap"));
+        assertTrue(mIndex.isSubtypeOf(imports, "java.io.Serializable"));
+        assertFalse(mIndex.isSubtypeOf(imports, "com.foo.Serializable"));
+
+        // java.util.HashMap is imported, the indexed HashMap is not
+        final ClassInfo base = mIndex.getClassInfo(PACKAGE + "InputClassHierarchyBase");
+        assertNull(mIndex.getSuperclass(base));
+        assertEquals("java.util.HashMap",
+                mIndex.getQualifiedName(base.getSuperclassName(), base));
+        assertTrue(mIndex.isSubtypeOf(base, "java.util.HashMap"));
+        assertFalse(mIndex.isSubtypeOf(base, PACKAGE + "collections.HashMap"));
+
+        final ClassInfo local =
+                mIndex.getClassInfo(PACKAGE + "other.InputClassHierarchyImports.Local");
+        assertSame(mIndex.getClassInfo(PACKAGE + "other.InputClassHierarchyImports.Entry"),
+                mIndex.getSuperclass(local));
+
+        // neither imported nor in the same package
+        final ClassInfo unknown =
+                mIndex.getClassInfo(PACKAGE + "other.InputClassHierarchyImports.Unknown");
+        assertNull(mIndex.getSuperclass(unknown));
+        assertNull(mIndex.getQualifiedName("InputClassHierarchyBase", unknown));
+    }
+
+    private DetailAST parse(String aFileName) throws Exception
+    {
+        final File file = new File(getPath(aFileName));
+        final FileText text = new FileText(file, "iso-8859-1");
+        return TreeWalker.parse(new FileContents(text));
+    }
+}
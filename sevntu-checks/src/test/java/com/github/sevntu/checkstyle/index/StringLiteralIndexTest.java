@@ -0,0 +1,120 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.index;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.github.sevntu.checkstyle.index.StringLiteralIndex.Occurrences;
+
+public class StringLiteralIndexTest extends BaseCheckTestSupport
+{
+    private File mSpillDirectory;
+
+    private StringLiteralIndex mIndex;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        mSpillDirectory = File.createTempFile("StringLiteralIndexTest", "");
+        assertTrue(mSpillDirectory.delete());
+        assertTrue(mSpillDirectory.mkdir());
+        mIndex = new StringLiteralIndex(1000, mSpillDirectory);
+    }
+
+    @After
+    public void tearDown()
+    {
+        mIndex.clear();
+        assertEquals(0, mSpillDirectory.list().length);
+        mSpillDirectory.delete();
+    }
+
+    @Test
+    public void testSpilledOccurrences() throws Exception
+    {
+        final int files = 50;
+        for (int file = 0; file < files; file++) {
+            assertEquals(file, mIndex.addFile("File" + file + ".java"));
+            mIndex.add("\"shared\"", file, file + 1, 5);
+            mIndex.add("\"only in " + file + "\"", file, 1, 1);
+            if (file % 2 == 0) {
+                mIndex.add("\"even\"", file, 2, 3);
+            }
+        }
+        mIndex.add("\"only in 7\"", 49, 10, 2);
+
+        final List<String> literals = new ArrayList<String>();
+        final List<Occurrences> occurrences = new ArrayList<Occurrences>();
+        mIndex.visitRepeated(2, new StringLiteralIndex.Visitor() {
+            public void visit(String aLiteral, Occurrences aOccurrences)
+            {
+                literals.add(aLiteral);
+                occurrences.add(aOccurrences);
+            }
+        });
+        assertEquals(3, literals.size());
+
+        final Occurrences shared = occurrences.get(literals.indexOf("\"shared\""));
+        assertEquals(files, shared.size());
+        for (int i = 0; i < files; i++) {
+            assertEquals(i, shared.getFile(i));
+            assertEquals(i + 1, shared.getLine(i));
+            assertEquals(5, shared.getColumn(i));
+        }
+        assertEquals(files / 2,
+                occurrences.get(literals.indexOf("\"even\"")).size());
+
+        final Occurrences onlyIn7 = occurrences.get(literals.indexOf("\"only in 7\""));
+        assertEquals(2, onlyIn7.size());
+        assertEquals(7, onlyIn7.getFile(0));
+        assertEquals("File49.java", mIndex.getFileName(onlyIn7.getFile(1)));
+        assertEquals(10, onlyIn7.getLine(1));
+    }
+
+    @Test
+    public void testClear() throws Exception
+    {
+        final int file = mIndex.addFile("File.java");
+        for (int i = 0; i < 100; i++) {
+            mIndex.add("\"literal\"", file, i + 1, 1);
+        }
+        assertTrue(mSpillDirectory.list().length > 0);
+        mIndex.clear();
+        assertEquals(0, mSpillDirectory.list().length);
+        assertEquals(0, mIndex.addFile("Other.java"));
+        mIndex.add("\"literal\"", 0, 1, 1);
+
+        final List<Occurrences> occurrences = new ArrayList<Occurrences>();
+        mIndex.visitRepeated(1, new StringLiteralIndex.Visitor() {
+            public void visit(String aLiteral, Occurrences aOccurrences)
+            {
+                occurrences.add(aOccurrences);
+            }
+        });
+        assertEquals(1, occurrences.size());
+        assertEquals(1, occurrences.get(0).size());
+    }
+}
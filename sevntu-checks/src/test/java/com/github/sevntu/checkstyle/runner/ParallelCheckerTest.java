@@ -0,0 +1,294 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.runner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.github.sevntu.checkstyle.checks.coding.ForbidReturnInFinalBlockCheck;
+import com.github.sevntu.checkstyle.checks.coding.ReturnNullInsteadOfBoolean;
+import com.github.sevntu.checkstyle.walker.CheckMetrics;
+import com.github.sevntu.checkstyle.walker.SevntuTreeWalker;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+
+public class ParallelCheckerTest extends BaseCheckTestSupport
+{
+    private static final String[] INPUTS = {
+        "InputForbidReturnInFinalBlockCheck.java",
+        "InputReturnNullInsteadOfBoolean.java",
+        "InputEitherLogOrThrowCheck.java",
+        "InputMapIterationInForEachLoop.java",
+        "InputConfusingConditionCheck.java",
+        "InputTernaryPerExpressionCountCheck.java",
+        "InputAvoidHidingCauseExceptionCheck.java",
+    };
+
+    private final ClassLoader mClassLoader =
+            Thread.currentThread().getContextClassLoader();
+
+    @Test
+    public void testSameResultsAsChecker() throws Exception
+    {
+        final List<File> files = getInputs();
+
+        final Checker checker = new Checker();
+        checker.setModuleClassLoader(mClassLoader);
+        checker.configure(createConfig());
+        final RecordingListener expected = new RecordingListener();
+        checker.addListener(expected);
+        final int expectedErrors = checker.process(files);
+        checker.destroy();
+
+        final ParallelChecker parallelChecker =
+                new ParallelChecker(createConfig(), mClassLoader, 3);
+        final RecordingListener actual = new RecordingListener();
+        parallelChecker.addListener(actual);
+        final int errors = parallelChecker.process(files);
+        parallelChecker.destroy();
+
+        assertTrue(expectedErrors > 0);
+        assertEquals(expectedErrors, errors);
+        assertEquals(expected.mErrors, actual.mErrors);
+        assertEquals(files.size(), actual.mErrors.size());
+        assertEquals(1, actual.mAudits);
+    }
+
+    @Test
+    public void testThreadedSevntuTreeWalker() throws Exception
+    {
+        final List<File> files = getInputs();
+
+        final Checker checker = new Checker();
+        checker.setModuleClassLoader(mClassLoader);
+        checker.configure(createConfig());
+        final RecordingListener expected = new RecordingListener();
+        checker.addListener(expected);
+        final int expectedErrors = checker.process(files);
+        checker.destroy();
+
+        // each of the two workers gets several files in one audit
+        final DefaultConfiguration walkerConfig =
+                createCheckConfig(SevntuTreeWalker.class);
+        walkerConfig.addAttribute("threads", "2");
+        final ParallelChecker parallelChecker =
+                new ParallelChecker(createConfig(walkerConfig), mClassLoader, 2);
+        final RecordingListener actual = new RecordingListener();
+        parallelChecker.addListener(actual);
+        final int errors = parallelChecker.process(files);
+        // and once more with the same checkers
+        final RecordingListener again = new RecordingListener();
+        parallelChecker.addListener(again);
+        assertEquals(errors, parallelChecker.process(files));
+        parallelChecker.destroy();
+
+        assertTrue(expectedErrors > 0);
+        assertEquals(expectedErrors, errors);
+        assertEquals(expected.mErrors, actual.mErrors);
+        assertEquals(expected.mErrors, again.mErrors);
+    }
+
+    @Test(expected = CheckstyleException.class)
+    public void testAuditWideConfigurationOnThreads() throws Exception
+    {
+        final DefaultConfiguration walkerConfig =
+                createCheckConfig(SevntuTreeWalker.class);
+        walkerConfig.addAttribute("indexClassHierarchy", "true");
+        new ParallelChecker(createConfig(walkerConfig), mClassLoader, 2);
+    }
+
+    @Test
+    public void testScheduler() throws Exception
+    {
+        final File f100 = createFile(100);
+        final File f90 = createFile(90);
+        final File f50 = createFile(50);
+        final File f40 = createFile(40);
+        final File f10 = createFile(10);
+        final FileCostModel model =
+                new FileCostModel(1.0, Collections.<CheckMetrics>emptyList());
+        // the first worker gets 100, 40 and 10, the second one 90 and 50
+        final WorkStealingScheduler scheduler = new WorkStealingScheduler(
+                Arrays.asList(f10, f40, f90, f100, f50), model, 2);
+
+        assertEquals(f100, scheduler.next(0));
+        assertEquals(f90, scheduler.next(1));
+        assertEquals(f40, scheduler.next(0));
+        assertEquals(f10, scheduler.next(0));
+        // stolen from the second worker
+        assertEquals(f50, scheduler.next(0));
+        assertNull(scheduler.next(1));
+        assertNull(scheduler.next(0));
+    }
+
+    @Test
+    public void testCostModel()
+    {
+        final CheckMetrics metrics = CheckMetrics.getMetrics(ParallelCheckerTest.class);
+        metrics.reset();
+        // 10 tokens per 100 characters, 50 nanoseconds per token
+        metrics.fileProcessed(null, 500, 10, 100, 0);
+        final FileCostModel model = new FileCostModel(2.0, Arrays.asList(metrics));
+        assertEquals(7.0, model.getNanosPerChar(), 1e-9);
+        final File file = new File(getPath("../checks/coding/" + INPUTS[0]));
+        assertEquals((long) (file.length() * 7.0), model.predictCost(file));
+        metrics.reset();
+    }
+
+    @Test
+    public void testCostModelHistoryOfFile() throws Exception
+    {
+        final File fast = createFile(100);
+        final File slow = createFile(100);
+        final File unknown = createFile(100);
+        final CheckMetrics metrics = CheckMetrics.getMetrics(ParallelCheckerTest.class);
+        metrics.reset();
+        // 5 nanoseconds per character on average
+        metrics.fileProcessed(fast.getAbsolutePath(), 100, 10, 100, 0);
+        metrics.fileProcessed(slow.getAbsolutePath(), 900, 10, 100, 0);
+        final FileCostModel model = new FileCostModel(2.0, Arrays.asList(metrics));
+
+        assertEquals(300, model.predictCost(fast));
+        assertEquals(1100, model.predictCost(slow));
+        assertEquals(700, model.predictCost(unknown));
+        final WorkStealingScheduler scheduler = new WorkStealingScheduler(
+                Arrays.asList(fast, unknown, slow), model, 1);
+        assertEquals(slow, scheduler.next(0));
+        assertEquals(unknown, scheduler.next(0));
+        assertEquals(fast, scheduler.next(0));
+        metrics.reset();
+    }
+
+    @Test
+    public void testFileHistoryIsBounded()
+    {
+        final CheckMetrics metrics = CheckMetrics.getMetrics(ParallelCheckerTest.class);
+        metrics.reset();
+        for (int i = 0; i <= CheckMetrics.MAX_FILE_HISTORY; i++) {
+            metrics.fileProcessed("File" + i + ".java", i + 1, 1, 1, 0);
+            // the first file stays in use
+            assertEquals(1, metrics.getFileTimeNanos("File0.java"));
+        }
+        assertEquals(-1, metrics.getFileTimeNanos("File1.java"));
+        assertEquals(3, metrics.getFileTimeNanos("File2.java"));
+        metrics.reset();
+    }
+
+    private static File createFile(int aLength) throws IOException
+    {
+        final File result = File.createTempFile("ParallelCheckerTest", ".java");
+        result.deleteOnExit();
+        final FileOutputStream out = new FileOutputStream(result);
+        try {
+            out.write(new byte[aLength]);
+        }
+        finally {
+            out.close();
+        }
+        return result;
+    }
+
+    private List<File> getInputs()
+    {
+        final List<File> result = new ArrayList<File>();
+        for (String input : INPUTS) {
+            result.add(new File(getPath("../checks/coding/" + input)));
+        }
+        return result;
+    }
+
+    private static DefaultConfiguration createConfig()
+    {
+        return createConfig(createCheckConfig(TreeWalker.class));
+    }
+
+    private static DefaultConfiguration createConfig(DefaultConfiguration aTreeWalkerConfig)
+    {
+        final DefaultConfiguration result = new DefaultConfiguration("configuration");
+        result.addAttribute("charset", "iso-8859-1");
+        result.addAttribute("localeLanguage", "en");
+        result.addAttribute("localeCountry", "");
+        aTreeWalkerConfig.addChild(createCheckConfig(ForbidReturnInFinalBlockCheck.class));
+        aTreeWalkerConfig.addChild(createCheckConfig(ReturnNullInsteadOfBoolean.class));
+        result.addChild(aTreeWalkerConfig);
+        return result;
+    }
+
+    /**
+     * Records errors by file and checks that events of files do not
+     * interleave.
+     */
+    private static class RecordingListener implements AuditListener
+    {
+        private final Map<String, List<String>> mErrors =
+                new TreeMap<String, List<String>>();
+
+        private String mCurrentFile;
+
+        private int mAudits;
+
+        public void auditStarted(AuditEvent aEvent)
+        {
+            mAudits++;
+        }
+
+        public void auditFinished(AuditEvent aEvent)
+        {
+        }
+
+        public void fileStarted(AuditEvent aEvent)
+        {
+            assertNull(mCurrentFile);
+            mCurrentFile = aEvent.getFileName();
+            mErrors.put(mCurrentFile, new ArrayList<String>());
+        }
+
+        public void fileFinished(AuditEvent aEvent)
+        {
+            assertEquals(mCurrentFile, aEvent.getFileName());
+            mCurrentFile = null;
+        }
+
+        public void addError(AuditEvent aEvent)
+        {
+            assertEquals(mCurrentFile, aEvent.getFileName());
+            mErrors.get(mCurrentFile).add(aEvent.getLine() + ":"
+                    + aEvent.getColumn() + ": " + aEvent.getMessage());
+        }
+
+        public void addException(AuditEvent aEvent, Throwable aThrowable)
+        {
+            fail(aThrowable.toString());
+        }
+    }
+}
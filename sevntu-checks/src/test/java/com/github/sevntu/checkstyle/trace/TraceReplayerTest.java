@@ -0,0 +1,149 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.trace;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.github.sevntu.checkstyle.checks.coding.ForbidCCommentsInMethods;
+import com.github.sevntu.checkstyle.checks.coding.ForbidReturnInFinalBlockCheck;
+import com.github.sevntu.checkstyle.checks.coding.ReturnNullInsteadOfBoolean;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessages;
+
+public class TraceReplayerTest extends BaseCheckTestSupport
+{
+    private static final String INPUT =
+            "../checks/coding/InputReturnNullInsteadOfBoolean.java";
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        final File file = new File(getPath(INPUT));
+        final byte[] trace = record(file, false);
+
+        final TraceReplayer replayer =
+                new TraceReplayer(new ByteArrayInputStream(trace));
+        final ByteArrayOutputStream again = new ByteArrayOutputStream();
+        new TraceRecorder(false).record(replayer.getContents(),
+                replayer.getRootAST(), again);
+        assertTrue(Arrays.equals(trace, again.toByteArray()));
+    }
+
+    @Test
+    public void testReplay() throws Exception
+    {
+        final File file = new File(getPath(INPUT));
+        final TraceReplayer replayer = new TraceReplayer(
+                new ByteArrayInputStream(record(file, false)));
+        final ReturnNullInsteadOfBoolean check = new ReturnNullInsteadOfBoolean();
+        check.configure(createCheckConfig(ReturnNullInsteadOfBoolean.class));
+        check.init();
+
+        // replayed twice to the same check with the same results
+        assertEquals(Arrays.asList("11:9", "22:25"), getPositions(replayer.replay(check)));
+        assertEquals(Arrays.asList("11:9", "22:25"), getPositions(replayer.replay(check)));
+    }
+
+    @Test
+    public void testAnonymized() throws Exception
+    {
+        final File file = new File(
+                getPath("../checks/coding/InputForbidReturnInFinalBlockCheck.java"));
+        final byte[] trace = record(file, true);
+        final String text = new String(trace, "ISO-8859-1");
+        assertFalse(text.contains("A1"));
+        assertFalse(text.contains("meth1"));
+        assertTrue(text.contains("finally"));
+
+        // the checks that do not depend on names give the same results
+        final TraceReplayer replayer =
+                new TraceReplayer(new ByteArrayInputStream(trace));
+        assertEquals(70, replayer.getContents().getLines().length);
+        final ForbidReturnInFinalBlockCheck check = new ForbidReturnInFinalBlockCheck();
+        check.configure(createCheckConfig(ForbidReturnInFinalBlockCheck.class));
+        check.init();
+        assertEquals(Arrays.asList("9:0", "22:0", "42:0", "49:0"),
+                getPositions(replayer.replay(check)));
+    }
+
+    @Test
+    public void testComments() throws Exception
+    {
+        final String input = getPath("../checks/coding/InputForbidCCommentsInMethods.java");
+        final String message = getMessage(ForbidCCommentsInMethods.class,
+                ForbidCCommentsInMethods.MSG_KEY);
+        final String[] lines = {"10", "17", "26", "33", "45", "52", "61", "68"};
+        final String[] expected = new String[lines.length];
+        final List<String> positions = new ArrayList<String>();
+        for (int i = 0; i < lines.length; i++) {
+            expected[i] = lines[i] + ": " + message;
+            positions.add(lines[i] + ":0");
+        }
+        verify(createCheckConfig(ForbidCCommentsInMethods.class), input, expected);
+
+        final ForbidCCommentsInMethods check = new ForbidCCommentsInMethods();
+        check.configure(createCheckConfig(ForbidCCommentsInMethods.class));
+        check.init();
+        final TraceReplayer replayer = new TraceReplayer(
+                new ByteArrayInputStream(record(new File(input), false)));
+        assertEquals(positions, getPositions(replayer.replay(check)));
+        final TraceReplayer anonymized = new TraceReplayer(
+                new ByteArrayInputStream(record(new File(input), true)));
+        assertEquals(positions, getPositions(anonymized.replay(check)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotATrace() throws Exception
+    {
+        new TraceReplayer(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6}));
+    }
+
+    private static byte[] record(File aFile, boolean aAnonymize) throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TraceRecorder(aAnonymize).record(aFile, "iso-8859-1", out);
+        return out.toByteArray();
+    }
+
+    private static String getMessage(Class<?> aCheck, String aKey) throws IOException
+    {
+        final Properties properties = new Properties();
+        properties.load(aCheck.getResourceAsStream("messages.properties"));
+        return properties.getProperty(aKey);
+    }
+
+    private static List<String> getPositions(LocalizedMessages aMessages)
+    {
+        final List<String> result = new ArrayList<String>();
+        for (LocalizedMessage message : aMessages.getMessages()) {
+            result.add(message.getLineNo() + ":" + message.getColumnNo());
+        }
+        return result;
+    }
+}
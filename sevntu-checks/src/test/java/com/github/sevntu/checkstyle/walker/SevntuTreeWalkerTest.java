@@ -0,0 +1,375 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.walker;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.github.sevntu.checkstyle.checks.coding.ForbidReturnInFinalBlockCheck;
+import com.github.sevntu.checkstyle.checks.coding.MultipleStringLiteralsExtendedCheck;
+import com.github.sevntu.checkstyle.checks.coding.OverridableMethodInConstructorCheck;
+import com.github.sevntu.checkstyle.checks.coding.ReturnNullInsteadOfBoolean;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+public class SevntuTreeWalkerTest extends BaseCheckTestSupport
+{
+    private final DefaultConfiguration mWalkerConfig =
+            createCheckConfig(SevntuTreeWalker.class);
+
+    @Test
+    public void testSameResultsAsTreeWalker() throws Exception
+    {
+        final String message = getMessage(ForbidReturnInFinalBlockCheck.class,
+                ForbidReturnInFinalBlockCheck.MSG_KEY);
+        final String[] expected = {
+            "9: " + message,
+            "22: " + message,
+            "42: " + message,
+            "49: " + message,
+        };
+        verify(createCheckConfig(ForbidReturnInFinalBlockCheck.class),
+                getPath("../checks/coding/InputForbidReturnInFinalBlockCheck.java"),
+                expected);
+    }
+
+    @Test
+    public void testMetrics() throws Exception
+    {
+        mWalkerConfig.addAttribute("metrics", "true");
+        final CheckMetrics metrics =
+                CheckMetrics.getMetrics(ReturnNullInsteadOfBoolean.class);
+        metrics.reset();
+
+        final String message = getMessage(ReturnNullInsteadOfBoolean.class,
+                ReturnNullInsteadOfBoolean.MSG_KEY);
+        final String[] expected = {
+            "11:9: " + message,
+            "22:25: " + message,
+        };
+        verify(createCheckConfig(ReturnNullInsteadOfBoolean.class),
+                getPath("../checks/coding/InputReturnNullInsteadOfBoolean.java"),
+                expected);
+
+        assertEquals(1, metrics.getFilesProcessed());
+        assertEquals(2, metrics.getViolationsLogged());
+        assertTrue(metrics.getTokensVisited() > 0);
+        assertTrue(metrics.getCumulativeTimeNanos() > 0);
+        assertTrue(metrics.getP99FileTimeMillis() > 0);
+        assertTrue(metrics.getP99FileTimeMillis() <= metrics.getMaxFileTimeMillis());
+        assertTrue(metrics.getFileTimeNanos(new File(getPath(
+                "../checks/coding/InputReturnNullInsteadOfBoolean.java")).getAbsolutePath()) > 0);
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(CheckMetrics.JMX_DOMAIN
+                + ":type=CheckMetrics,name="
+                + ObjectName.quote(ReturnNullInsteadOfBoolean.class.getName()));
+        assertEquals(Long.valueOf(2), server.getAttribute(name, "ViolationsLogged"));
+    }
+
+    @Test
+    public void testFileTimeBudget() throws Exception
+    {
+        mWalkerConfig.addAttribute("fileTimeBudget", "50");
+        mWalkerConfig.addAttribute("metrics", "true");
+        mWalkerConfig.addChild(createCheckConfig(EndlessCheck.class));
+        final CheckMetrics metrics = CheckMetrics.getMetrics(EndlessCheck.class);
+        metrics.reset();
+
+        final String message = getMessage(ReturnNullInsteadOfBoolean.class,
+                ReturnNullInsteadOfBoolean.MSG_KEY);
+        final String budgetMessage = MessageFormat.format(
+                getMessage(SevntuTreeWalker.class, CheckHolder.MSG_BUDGET_EXCEEDED),
+                EndlessCheck.class.getName(), 50);
+        final String[] expected = {
+            "0: " + budgetMessage,
+            "11:9: " + message,
+            "22:25: " + message,
+        };
+        verify(createCheckConfig(ReturnNullInsteadOfBoolean.class),
+                getPath("../checks/coding/InputReturnNullInsteadOfBoolean.java"),
+                expected);
+
+        assertEquals(1, metrics.getFilesProcessed());
+        assertEquals(0, metrics.getViolationsLogged());
+    }
+
+    @Test
+    public void testThreads() throws Exception
+    {
+        mWalkerConfig.addAttribute("threads", "3");
+        mWalkerConfig.addChild(createCheckConfig(ForbidReturnInFinalBlockCheck.class));
+        mWalkerConfig.addChild(createCheckConfig(MethodDefCheck.class));
+
+        final String message = getMessage(ReturnNullInsteadOfBoolean.class,
+                ReturnNullInsteadOfBoolean.MSG_KEY);
+        final String[] expected = {
+            "5:5: method",
+            "11:9: " + message,
+            "15:5: method",
+            "19:5: method",
+            "21:17: method",
+            "22:25: " + message,
+            "32:5: method",
+            "34:17: method",
+            "43:9: method",
+        };
+        verify(createCheckConfig(ReturnNullInsteadOfBoolean.class),
+                getPath("../checks/coding/InputReturnNullInsteadOfBoolean.java"),
+                expected);
+        assertTrue(MethodDefCheck.sThreadName.startsWith("SevntuTreeWalker-"));
+    }
+
+    @Test
+    public void testThreadsInSeveralAudits() throws Exception
+    {
+        mWalkerConfig.addAttribute("threads", "2");
+        mWalkerConfig.addChild(createCheckConfig(MethodDefCheck.class));
+        final Checker checker =
+                createChecker(createCheckConfig(ReturnNullInsteadOfBoolean.class));
+        final List<File> files = Collections.singletonList(new File(
+                getPath("../checks/coding/InputReturnNullInsteadOfBoolean.java")));
+
+        // Checker destroys the walker after each audit
+        final int errors = checker.process(files);
+        assertTrue(errors > 0);
+        assertEquals(errors, checker.process(files));
+    }
+
+    @Test
+    public void testIndexClassHierarchy() throws Exception
+    {
+        final String base = getPath("../index/InputClassHierarchyBase.java");
+        final String derived = getPath("../index/InputClassHierarchyDerived.java");
+        final String message = getMessage(OverridableMethodInConstructorCheck.class,
+                OverridableMethodInConstructorCheck.MSG_KEY);
+        final String[] expected = {
+            "7:13: " + MessageFormat.format(message, "init", "constructor"),
+        };
+
+        mWalkerConfig.addAttribute("indexClassHierarchy", "true");
+        final Checker checker = createChecker(
+                createCheckConfig(OverridableMethodInConstructorCheck.class));
+        verify(checker, new File[] {new File(base), new File(derived)},
+                derived, expected);
+    }
+
+    @Test
+    public void testDiffFile() throws Exception
+    {
+        mWalkerConfig.addAttribute("diffFile", getPath("InputChangedLines.diff"));
+        mWalkerConfig.addChild(createCheckConfig(MethodDefCheck.class));
+
+        final String message = getMessage(ReturnNullInsteadOfBoolean.class,
+                ReturnNullInsteadOfBoolean.MSG_KEY);
+        final String[] expected = {
+            "21:17: method",
+            "22:25: " + message,
+            "43:9: method",
+        };
+        verify(createCheckConfig(ReturnNullInsteadOfBoolean.class),
+                getPath("../checks/coding/InputReturnNullInsteadOfBoolean.java"),
+                expected);
+    }
+
+    @Test
+    public void testDiffFileWithoutChangesOfFile() throws Exception
+    {
+        mWalkerConfig.addAttribute("diffFile", getPath("InputChangedLines.diff"));
+        verify(createCheckConfig(ForbidReturnInFinalBlockCheck.class),
+                getPath("../checks/coding/InputForbidReturnInFinalBlockCheck.java"),
+                new String[0]);
+    }
+
+    @Test
+    public void testAuditFinishViolations() throws Exception
+    {
+        final String first = getPath("InputCrossFileLiterals1.java");
+        final String second = getPath("InputCrossFileLiterals2.java");
+        final String message = getMessage(MultipleStringLiteralsExtendedCheck.class,
+                MultipleStringLiteralsExtendedCheck.MSG_KEY);
+        final String[] expected = {
+            "5:32: " + MessageFormat.format(message, "\"shared\"", 2),
+            "9:29: " + MessageFormat.format(message, "\"local\"", 3),
+        };
+
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(MultipleStringLiteralsExtendedCheck.class);
+        checkConfig.addAttribute("crossFile", "true");
+        final Checker checker = createChecker(checkConfig);
+        verify(checker, new File[] {new File(first), new File(second)},
+                first, expected);
+    }
+
+    @Test
+    public void testFileEventsOfLateViolations() throws Exception
+    {
+        final String base = getPath("../index/InputClassHierarchyBase.java");
+        final String derived = getPath("../index/InputClassHierarchyDerived.java");
+        final String first = getPath("InputCrossFileLiterals1.java");
+        final String second = getPath("InputCrossFileLiterals2.java");
+
+        mWalkerConfig.addAttribute("indexClassHierarchy", "true");
+        mWalkerConfig.addChild(
+                createCheckConfig(OverridableMethodInConstructorCheck.class));
+        final DefaultConfiguration checkConfig =
+                createCheckConfig(MultipleStringLiteralsExtendedCheck.class);
+        checkConfig.addAttribute("crossFile", "true");
+        final Checker checker = createChecker(checkConfig);
+        final FileEventsCounter counter = new FileEventsCounter();
+        checker.addListener(counter);
+        checker.process(Arrays.asList(new File(base), new File(derived),
+                new File(first), new File(second)));
+
+        // one pair from Checker, one more for the files with violations
+        assertEquals(Integer.valueOf(1),
+                counter.mFileEvents.get(new File(base).getAbsolutePath()));
+        assertEquals(Integer.valueOf(2),
+                counter.mFileEvents.get(new File(derived).getAbsolutePath()));
+        assertEquals(Integer.valueOf(2),
+                counter.mFileEvents.get(new File(first).getAbsolutePath()));
+        // the repeated literals are reported at their first occurrence only
+        assertEquals(Integer.valueOf(1),
+                counter.mFileEvents.get(new File(second).getAbsolutePath()));
+    }
+
+    @Override
+    protected DefaultConfiguration createCheckerConfig(Configuration aConfig)
+    {
+        final DefaultConfiguration result = new DefaultConfiguration("configuration");
+        result.addAttribute("charset", "iso-8859-1");
+        result.addChild(mWalkerConfig);
+        mWalkerConfig.addChild(aConfig);
+        return result;
+    }
+
+    private static String getMessage(Class<?> aCheck, String aKey) throws IOException
+    {
+        final Properties properties = new Properties();
+        properties.load(aCheck.getResourceAsStream("messages.properties"));
+        return properties.getProperty(aKey);
+    }
+
+    /**
+     * Counts pairs of file events by file.
+     */
+    private static class FileEventsCounter implements AuditListener
+    {
+        private final Map<String, Integer> mFileEvents =
+                new HashMap<String, Integer>();
+
+        private String mCurrentFile;
+
+        public void auditStarted(AuditEvent aEvent)
+        {
+        }
+
+        public void auditFinished(AuditEvent aEvent)
+        {
+        }
+
+        public void fileStarted(AuditEvent aEvent)
+        {
+            assertNull(mCurrentFile);
+            mCurrentFile = aEvent.getFileName();
+        }
+
+        public void fileFinished(AuditEvent aEvent)
+        {
+            assertEquals(mCurrentFile, aEvent.getFileName());
+            final Integer count = mFileEvents.get(mCurrentFile);
+            mFileEvents.put(mCurrentFile, count == null ? 1 : count + 1);
+            mCurrentFile = null;
+        }
+
+        public void addError(AuditEvent aEvent)
+        {
+            assertEquals(mCurrentFile, aEvent.getFileName());
+        }
+
+        public void addException(AuditEvent aEvent, Throwable aThrowable)
+        {
+            fail(aThrowable.toString());
+        }
+    }
+
+    /**
+     * Logs a violation on every method and remembers the thread it was run
+     * on.
+     */
+    public static class MethodDefCheck extends Check
+    {
+        private static volatile String sThreadName;
+
+        @Override
+        public int[] getDefaultTokens()
+        {
+            return new int[] {TokenTypes.METHOD_DEF};
+        }
+
+        @Override
+        public void visitToken(DetailAST aAST)
+        {
+            sThreadName = Thread.currentThread().getName();
+            log(aAST, "method");
+        }
+    }
+
+    /**
+     * Logs a violation on every class and then never returns unless
+     * stopped by the time budget.
+     */
+    public static class EndlessCheck extends Check
+    {
+        @Override
+        public int[] getDefaultTokens()
+        {
+            return new int[] {TokenTypes.CLASS_DEF};
+        }
+
+        @Override
+        public void visitToken(DetailAST aAST)
+        {
+            log(aAST, "endless");
+            while (true) {
+                TimeBudget.checkpoint();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2012  Oliver Burn
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+package com.github.sevntu.checkstyle.walker;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.github.sevntu.checkstyle.BaseCheckTestSupport;
+import com.github.sevntu.checkstyle.ast.DetailAstTraversal;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+public class UnifiedDiffTest extends BaseCheckTestSupport
+{
+    private static final String INPUT =
+            "../checks/coding/InputReturnNullInsteadOfBoolean.java";
+
+    @Test
+    public void testChangedLines() throws Exception
+    {
+        final UnifiedDiff diff = readDiff();
+
+        final ChangedLines lines = diff.getChangedLines(getPath(INPUT));
+        assertNotNull(lines);
+        assertFalse(lines.contains(20));
+        assertTrue(lines.contains(21));
+        assertTrue(lines.contains(22));
+        assertFalse(lines.contains(23));
+        assertFalse(lines.contains(42));
+        assertTrue(lines.contains(43));
+        assertFalse(lines.contains(44));
+
+        final ChangedLines other = diff.getChangedLines("C:\\src\\Other.java");
+        assertNotNull(other);
+        assertFalse(other.contains(1));
+        assertTrue(other.contains(2));
+        assertTrue(other.contains(3));
+
+        assertNull(diff.getChangedLines("/src/Deleted.java"));
+        assertNull(diff.getChangedLines("/src/NotChanged.java"));
+    }
+
+    @Test
+    public void testAffectedNodes() throws Exception
+    {
+        final FileText text = new FileText(new File(getPath(INPUT)), "iso-8859-1");
+        final DetailAST root = TreeWalker.parse(new FileContents(text));
+        final Set<DetailAST> affected =
+                readDiff().getChangedLines(getPath(INPUT)).getAffectedNodes(root);
+
+        int methods = 0;
+        for (DetailAST topLevel : DetailAstTraversal.siblings(root)) {
+            for (DetailAST node : DetailAstTraversal.preOrder(topLevel)) {
+                if (node.getType() == TokenTypes.METHOD_DEF) {
+                    final boolean expected = node.getLineNo() == 19
+                            || node.getLineNo() == 21 || node.getLineNo() == 43;
+                    assertEquals("line " + node.getLineNo(), expected,
+                            affected.contains(node));
+                    methods++;
+                }
+            }
+        }
+        assertTrue(methods > 3);
+        assertEquals(TokenTypes.PACKAGE_DEF, root.getType());
+        assertTrue(affected.contains(root.getFirstChild()));
+        assertTrue(affected.contains(root.getNextSibling()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedHunkHeader() throws Exception
+    {
+        new UnifiedDiff(new StringReader("+++ b/A.java\n@@ -1,x +1 @@\n"));
+    }
+
+    private UnifiedDiff readDiff() throws IOException
+    {
+        final Reader reader = new InputStreamReader(
+                new FileInputStream(getPath("InputChangedLines.diff")), "UTF-8");
+        try {
+            return new UnifiedDiff(reader);
+        }
+        finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+public class InputConfusingConditionCheckChain
+{
+    void method(int a, int b)
+    {
+        if (a != b) {
+            a++;
+        }
+        else if (a != 1) {
+            b++;
+        }
+        else if (b != 2) {
+            a--;
+        }
+        else {
+            throw new IllegalStateException();
+        }
+        if (a != b) {
+            a++;
+        }
+        else if (a != 1) {
+            b++;
+        }
+        else {
+            b--;
+        }
+    }
+}
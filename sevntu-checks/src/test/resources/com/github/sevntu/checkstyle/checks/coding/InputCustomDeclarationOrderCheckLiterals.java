@@ -0,0 +1,9 @@
+public class InputCustomDeclarationOrderCheckLiterals
+{
+    private int mA;
+    public int mB;
+    private int publicKey;
+    @Deprecated
+    protected int mC;
+    @Deprecated protected int mD;
+}
@@ -0,0 +1,30 @@
+public class InputCustomDeclarationOrderCheckOverloadedSetters
+{
+    private int mValue;
+    private String mName;
+
+    public int getValue()
+    {
+        return mValue;
+    }
+
+    public void setValue(int aValue)
+    {
+        this.mValue = aValue;
+    }
+
+    public String getName()
+    {
+        return mName;
+    }
+
+    public void setValue(Integer aValue)
+    {
+        this.mValue = aValue;
+    }
+
+    public void setName(String aName)
+    {
+        this.mName = aName;
+    }
+}
@@ -0,0 +1,12 @@
+package project;
+
+public class InputForbidInstantiationCheckSimpleNames
+{
+    public void method() {
+        Exception e = new Exception("message");
+        RuntimeException e2 = new PointerException("message");
+        NullPointerException ex = new NullPointerException("message"); // !
+        Exception e3 = new java.lang.Exception("message");
+    }
+
+}
@@ -0,0 +1,31 @@
+public class InputOverridableMethodInConstructor28 {
+
+    InputOverridableMethodInConstructor28() {
+        first(); // a warning here!
+        second(); // a warning here!
+        third();
+        fourth();
+    }
+
+    private void first() {
+        second();
+        doPublic();
+    }
+
+    private void second() {
+        first();
+    }
+
+    private void third() {
+        fourth();
+        third();
+    }
+
+    private final void fourth() {
+        third();
+    }
+
+    public void doPublic() {
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.github.sevntu.checkstyle.checks.coding;
+
+public class InputTernaryPerExpressionCountCheckLiterals {
+
+    String describe(boolean flag, boolean other) {
+        return flag ? "what?" : "no \"?"
+                + (other ? '?' : '\'');
+    }
+
+    String describeTwice(boolean flag, boolean other) {
+        return flag ? "a" : "b" /* ? */
+                + (other ? "c" : "d") + (other ? "e" : "f");
+    }
+}
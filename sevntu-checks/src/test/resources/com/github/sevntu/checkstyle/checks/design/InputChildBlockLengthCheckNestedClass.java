@@ -0,0 +1,26 @@
+package com.github.sevntu.checkstyle.checks.design;
+
+public class InputChildBlockLengthCheckNestedClass
+{
+    void method(boolean aFlag)
+    {
+        for (int i = 0; i < 10; i++) {
+            Runnable runnable = new Runnable() {
+                public void run()
+                {
+                    if (true) {
+                        System.out.println();
+                        System.out.println();
+                        System.out.println();
+                    }
+                }
+            };
+            if (aFlag) {
+                i++;
+            }
+            else while (aFlag) {
+                i--;
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.puppycrawl.tools.checkstyle.design;
+
+import java.util.List;
+
+public class InputVariableDeclarationUsageDistanceCheckBlocks {
+
+	public void nestedBlock() {
+		int a = 1;
+		System.out.println();
+		System.out.println();
+		{
+			System.out.println();
+			a++;
+		}
+	}
+
+	public void lambdaOrAnonymousClass() {
+		int b = 1;
+		System.out.println();
+		System.out.println();
+		Runnable r = new Runnable() {
+			public void run() {
+				System.out.println();
+				System.out.println(b);
+			}
+		};
+	}
+
+	public void shadowed() {
+		int c = 1;
+		System.out.println();
+		Runnable r = new Runnable() {
+			public void run() {
+				int c = 2;
+				System.out.println(c);
+			}
+		};
+		System.out.println();
+		System.out.println(c);
+	}
+
+	public void forInitializer() {
+		int d = 1;
+		System.out.println();
+		System.out.println();
+		for (int i = d; i < 10; i++) {
+			System.out.println();
+		}
+	}
+
+	public void forCondition(List<String> list) {
+		int e = 1;
+		System.out.println();
+		System.out.println();
+		for (int i = 0; i < e; i++) {
+			System.out.println();
+		}
+	}
+
+	public void sharedFirstStatement() {
+		int f = 1;
+		int g = 2;
+		int h = 3;
+		System.out.println();
+		System.out.println();
+		System.out.println(f + g + h);
+	}
+
+	public void sharedFirstStatementWithStatementsBetween() {
+		int p = 1;
+		System.out.println();
+		int q = 2;
+		System.out.println();
+		System.out.println();
+		System.out.println(p + q);
+	}
+
+	public void sharedFirstStatementInBlock() {
+		int k = 1;
+		int m = 2;
+		System.out.println();
+		if (k > 0) {
+			System.out.println();
+			System.out.println(k + m);
+		}
+	}
+}
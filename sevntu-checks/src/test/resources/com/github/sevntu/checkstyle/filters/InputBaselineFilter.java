@@ -0,0 +1,13 @@
+package com.github.sevntu.checkstyle.filters;
+
+public class InputBaselineFilter
+{
+    public void method()
+    {
+        int a = 0;;
+        int b = 1;;
+
+        int c = 2;;
+        int d = 3;;
+    }
+}
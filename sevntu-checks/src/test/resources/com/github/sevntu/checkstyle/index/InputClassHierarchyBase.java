@@ -0,0 +1,19 @@
+package com.github.sevntu.checkstyle.index;
+
+import java.util.HashMap;
+
+public class InputClassHierarchyBase extends HashMap<String, String>
+    implements Runnable
+{
+    public void init()
+    {
+    }
+
+    public final void prepare(int aCount)
+    {
+    }
+
+    public void run()
+    {
+    }
+}
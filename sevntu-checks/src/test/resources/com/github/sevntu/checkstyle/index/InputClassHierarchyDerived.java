@@ -0,0 +1,18 @@
+package com.github.sevntu.checkstyle.index;
+
+public class InputClassHierarchyDerived extends InputClassHierarchyBase
+{
+    public InputClassHierarchyDerived()
+    {
+        init();
+        prepare(1);
+    }
+
+    class Inner implements Comparable<Inner>
+    {
+        public int compareTo(Inner aOther)
+        {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.github.sevntu.checkstyle.index.collections;
+
+public class HashMap<K, V>
+{
+}
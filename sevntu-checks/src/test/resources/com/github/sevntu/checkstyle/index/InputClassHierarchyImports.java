@@ -0,0 +1,20 @@
+package com.github.sevntu.checkstyle.index.other;
+
+import com.github.sevntu.checkstyle.index.collections.HashMap;
+import java.util.*;
+
+public class InputClassHierarchyImports extends HashMap<String, String>
+    implements java.io.Serializable
+{
+    class Entry
+    {
+    }
+
+    class Local extends Entry
+    {
+    }
+
+    class Unknown extends InputClassHierarchyBase
+    {
+    }
+}
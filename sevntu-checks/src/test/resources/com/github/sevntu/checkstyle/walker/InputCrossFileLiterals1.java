@@ -0,0 +1,10 @@
+package com.github.sevntu.checkstyle.walker;
+
+public class InputCrossFileLiterals1
+{
+	private String mName = "shared";
+
+    private String mOther = "unique in the first file";
+
+    private String mLocal = "local";
+}
@@ -0,0 +1,12 @@
+package com.github.sevntu.checkstyle.walker;
+
+public class InputCrossFileLiterals2
+{
+    private String mName = "shared";
+
+    private String mOther = "unique in the second file";
+
+    private String mLocal = "local";
+
+    private String mLocalAgain = "local";
+}